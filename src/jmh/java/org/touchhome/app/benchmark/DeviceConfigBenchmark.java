@@ -0,0 +1,89 @@
+package org.touchhome.app.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.touchhome.app.config.TouchHomeProperties;
+import org.touchhome.app.device.DeviceConfig;
+import org.touchhome.app.device.DeviceConfigService;
+import org.touchhome.app.executor.TouchHomeExecutors;
+import org.touchhome.app.job.JobManager;
+import org.touchhome.app.setup.InitialSetupService;
+import org.touchhome.bundle.api.hardware.other.MachineHardwareRepository;
+import org.touchhome.common.util.CommonUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /rest/app/config with stubbed MachineHardwareRepository.
+ * snapshot - current DeviceConfigService path, legacy - per request file checks + 'psql' query as before.
+ * With fork=true stub spawns process for each query like real hardware repository does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeviceConfigBenchmark {
+
+    @Param({"false", "true"})
+    private boolean fork;
+
+    private MachineHardwareRepository machineHardwareRepository;
+    private DeviceConfigService deviceConfigService;
+    private ThreadPoolTaskScheduler scheduler;
+    private TouchHomeExecutors touchHomeExecutors;
+
+    @Setup
+    public void setup() {
+        machineHardwareRepository = (MachineHardwareRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{MachineHardwareRepository.class}, (proxy, method, args) -> {
+                    if (fork) {
+                        new ProcessBuilder("true").start().waitFor();
+                    }
+                    return method.getReturnType() == boolean.class ? Boolean.TRUE : null;
+                });
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+        TouchHomeProperties touchHomeProperties = new TouchHomeProperties();
+        touchHomeExecutors = new TouchHomeExecutors(touchHomeProperties, scheduler);
+        touchHomeExecutors.init();
+        // no job running, so job manager only answers isActive()
+        JobManager jobManager = new JobManager(touchHomeProperties, touchHomeExecutors, null, null, scheduler, null);
+        // only isFinished() used: no checkpoint file, so answered by 'psql' query
+        InitialSetupService initialSetupService = new InitialSetupService(machineHardwareRepository, null, null, null, null,
+                null, touchHomeProperties, touchHomeExecutors);
+        deviceConfigService = new DeviceConfigService(initialSetupService, touchHomeExecutors, jobManager);
+        deviceConfigService.init();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        deviceConfigService.destroy();
+        touchHomeExecutors.destroy();
+        scheduler.shutdown();
+    }
+
+    @Benchmark
+    public DeviceConfig snapshot() {
+        return deviceConfigService.getSnapshot().getConfig();
+    }
+
+    @Benchmark
+    public DeviceConfig legacy() throws IOException {
+        Path rootPath = CommonUtils.getRootPath();
+        DeviceConfig deviceConfig = new DeviceConfig();
+        deviceConfig.setHasApp(Files.exists(rootPath.resolve("touchhome-core.jar")));
+        Path prvKey = rootPath.resolve("init_private_key");
+        deviceConfig.setHasKeystore(Files.exists(prvKey));
+        deviceConfig.setHasInitSetup(machineHardwareRepository.isSoftwareInstalled("psql"));
+        deviceConfig.setKeystoreDate(deviceConfig.isHasKeystore() ? new Date(Files.getLastModifiedTime(prvKey).toMillis()) : null);
+        deviceConfig.setHasUserPassword(Files.exists(rootPath.resolve("user_password.conf")));
+        return deviceConfig;
+    }
+}
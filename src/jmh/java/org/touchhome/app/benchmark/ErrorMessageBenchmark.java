@@ -0,0 +1,40 @@
+package org.touchhome.app.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.touchhome.app.rest.RestResponseEntityExceptionHandler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RestResponseEntityExceptionHandler.getErrorMessage on deep cause chains.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErrorMessageBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int depth;
+
+    @Param({"false", "true"})
+    private boolean nullPointerRoot;
+
+    private Exception exception;
+
+    @Setup
+    public void setup() {
+        Exception cause = nullPointerRoot ? new NullPointerException() : new IllegalStateException("root cause");
+        for (int i = 1; i < depth; i++) {
+            cause = new RuntimeException("level " + i, cause);
+        }
+        exception = cause;
+    }
+
+    @Benchmark
+    public String getErrorMessage() {
+        return RestResponseEntityExceptionHandler.getErrorMessage(exception);
+    }
+}
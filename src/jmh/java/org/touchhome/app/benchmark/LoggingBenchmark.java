@@ -0,0 +1,79 @@
+package org.touchhome.app.benchmark;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of single log call on 'request' thread while background threads produce zigbee log burst.
+ * sync - appenders write to file on caller thread, async - through AsyncAppender queue(see log4j2.xml).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggingBenchmark {
+
+    private static final int BURST_THREADS = 4;
+
+    @Param({"sync", "async"})
+    private String mode;
+
+    private final List<Thread> burstThreads = new ArrayList<>();
+    private PrintStream systemOut;
+    private Path logDir;
+    private Logger requestLogger;
+    private volatile boolean running;
+
+    @Setup
+    public void setup() throws Exception {
+        logDir = Files.createTempDirectory("touchhome-logs");
+        System.setProperty("touchhome.log.mode", mode);
+        System.setProperty("touchhome.log.dir", logDir.toString());
+        // console appender bound to System.out on configuration
+        systemOut = System.out;
+        System.setOut(new PrintStream(NullOutputStream.NULL_OUTPUT_STREAM));
+        ((LoggerContext) LogManager.getContext(false)).reconfigure();
+        requestLogger = LogManager.getLogger("org.touchhome.app.rest.BenchmarkController");
+
+        running = true;
+        Logger zigBeeLogger = LogManager.getLogger("org.touchhome.bundle.zigbee.BenchmarkBurst");
+        for (int i = 0; i < BURST_THREADS; i++) {
+            Thread thread = new Thread(() -> {
+                long counter = 0;
+                while (running) {
+                    zigBeeLogger.info("Received zigbee frame {} from node 0x{}", counter++, Long.toHexString(counter));
+                }
+            }, "burst-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            burstThreads.add(thread);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        running = false;
+        for (Thread thread : burstThreads) {
+            thread.join();
+        }
+        LogManager.shutdown();
+        System.setOut(systemOut);
+    }
+
+    @Benchmark
+    public void request() {
+        requestLogger.info("Handle request {}", mode);
+    }
+}
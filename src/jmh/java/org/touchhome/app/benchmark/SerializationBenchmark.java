@@ -0,0 +1,49 @@
+package org.touchhome.app.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.touchhome.app.progress.Progress;
+import org.touchhome.app.rest.ErrorHolderModel;
+import org.touchhome.app.rest.OptionModel;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of models returned by rest and websocket.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private OptionModel optionModel;
+    private ErrorHolderModel errorHolderModel;
+    private Progress progress;
+
+    @Setup
+    public void setup() {
+        optionModel = OptionModel.key("00:11:22:33:44:55").setTitle("wifi");
+        errorHolderModel = new ErrorHolderModel("Error", "Unable to read characteristic",
+                new IllegalStateException("top", new RuntimeException("root cause")));
+        progress = new Progress(Progress.Type.download, 42.5, "Downloading 12.3/45.6 Mb");
+    }
+
+    @Benchmark
+    public String optionModel() throws Exception {
+        return objectMapper.writeValueAsString(optionModel);
+    }
+
+    @Benchmark
+    public String errorHolderModel() throws Exception {
+        return objectMapper.writeValueAsString(errorHolderModel);
+    }
+
+    @Benchmark
+    public String progress() throws Exception {
+        return objectMapper.writeValueAsString(progress);
+    }
+}
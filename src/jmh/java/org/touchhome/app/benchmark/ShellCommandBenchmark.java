@@ -0,0 +1,94 @@
+package org.touchhome.app.benchmark;
+
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.*;
+import org.touchhome.app.config.TouchHomeProperties;
+import org.touchhome.app.hardware.metrics.HardwareMetrics;
+import org.touchhome.app.hardware.shell.ShellSessionPool;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pooled shell session vs new bash process per command(MachineHardwareRepository.execute path), output read in both.
+ * singleCommand - one command per call, multiStep - sequence of file commands shaped like setup steps
+ * (installAutoHotSpot, postgresql configuration).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShellCommandBenchmark {
+
+    @Param({"true", "test -f /etc/hostname && echo exists"})
+    private String command;
+
+    private ShellSessionPool shellSessionPool;
+    private Path tempDir;
+    private List<String> steps;
+
+    @Setup
+    public void setup() throws IOException {
+        shellSessionPool = new ShellSessionPool(new TouchHomeProperties(), null, new HardwareMetrics());
+        shellSessionPool.init();
+        tempDir = Files.createTempDirectory("shell-benchmark");
+        Path target = tempDir.resolve("steps");
+        steps = Arrays.asList(
+                "mkdir -p " + target,
+                "cp -n /etc/hostname " + target.resolve("hostname"),
+                "test -f " + target.resolve("hostname"),
+                "chmod +x " + target.resolve("hostname"),
+                "rm -rf " + target);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        shellSessionPool.destroy();
+        Files.deleteIfExists(tempDir);
+    }
+
+    @Benchmark
+    public String shellSession() {
+        return shellSessionPool.execute(command);
+    }
+
+    @Benchmark
+    public String processPerCommand() throws Exception {
+        return runProcess(command);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(5)
+    public int multiStepShellSession() {
+        int length = 0;
+        for (String step : steps) {
+            length += shellSessionPool.execute(step).length();
+        }
+        return length;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(5)
+    public int multiStepProcessPerCommand() throws Exception {
+        int length = 0;
+        for (String step : steps) {
+            length += runProcess(step).length();
+        }
+        return length;
+    }
+
+    private static String runProcess(String command) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder("/bin/bash", "-c", command).redirectErrorStream(true).start();
+        process.getOutputStream().close();
+        String output = IOUtils.toString(process.getInputStream(), StandardCharsets.UTF_8);
+        process.waitFor();
+        return output;
+    }
+}
@@ -0,0 +1,87 @@
+package org.touchhome.app.progress;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.touchhome.app.ble.WebSocketConfig;
+import org.touchhome.app.config.TouchHomeProperties;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Burst of BURST progress updates delivered to N in-memory STOMP subscribers of simple broker:
+ * direct - each update sent through SimpMessagingTemplate (behaviour before ProgressPublisher)
+ * conflated - updates go through ProgressPublisher and flushed once
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProgressFanOutBenchmark {
+
+    private static final int BURST = 1000;
+
+    @Param({"1", "10", "100"})
+    private int subscribers;
+
+    private final LongAdder delivered = new LongAdder();
+    private SimpleBrokerMessageHandler broker;
+    private SimpMessagingTemplate messagingTemplate;
+    private ProgressPublisher progressPublisher;
+
+    @Setup
+    public void setup() {
+        ExecutorSubscribableChannel clientInboundChannel = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel clientOutboundChannel = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+        clientOutboundChannel.subscribe(message -> delivered.increment());
+
+        broker = new SimpleBrokerMessageHandler(clientInboundChannel, clientOutboundChannel, brokerChannel,
+                Collections.singletonList(WebSocketConfig.DESTINATION_PREFIX));
+        broker.start();
+        for (int i = 0; i < subscribers; i++) {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+            accessor.setSessionId("session-" + i);
+            accessor.setSubscriptionId("subscription-" + i);
+            accessor.setDestination(ProgressPublisher.DESTINATION);
+            accessor.setSessionAttributes(new HashMap<>());
+            broker.handleMessage(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+        }
+
+        messagingTemplate = new SimpMessagingTemplate(brokerChannel);
+        messagingTemplate.setMessageConverter(new MappingJackson2MessageConverter());
+        progressPublisher = new ProgressPublisher(messagingTemplate, null, new TouchHomeProperties());
+    }
+
+    @TearDown
+    public void tearDown() {
+        broker.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void direct() {
+        for (int i = 0; i < BURST; i++) {
+            messagingTemplate.convertAndSend(ProgressPublisher.DESTINATION, new Progress(Progress.Type.init, i / 10D, "apt output"));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void conflated() {
+        for (int i = 0; i < BURST; i++) {
+            progressPublisher.publish(new Progress(Progress.Type.init, i / 10D, "apt output"));
+        }
+        progressPublisher.flush();
+    }
+}
@@ -0,0 +1,33 @@
+package org.touchhome.app.loadtest;
+
+import lombok.Getter;
+import org.touchhome.app.hardware.metrics.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and errors of one endpoint. Samples recorded only in measure phase, after warmup.
+ */
+@Getter
+class EndpointStats {
+
+    private final String name;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+
+    EndpointStats(String name) {
+        this.name = name;
+    }
+
+    LoadTestReport.EndpointReport toReport(double durationSec) {
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        return new LoadTestReport.EndpointReport()
+                .setRequests(snapshot.getCount())
+                .setErrors(errors.sum())
+                .setThroughput(snapshot.getCount() / durationSec)
+                .setP50Ms(snapshot.getPercentileMs(0.5))
+                .setP99Ms(snapshot.getPercentileMs(0.99))
+                .setP999Ms(snapshot.getPercentileMs(0.999))
+                .setMaxMs(snapshot.getMaxMs());
+    }
+}
@@ -0,0 +1,97 @@
+package org.touchhome.app.loadtest;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Closed-loop http client: sends next request as soon as previous one finished, rotating over endpoints.
+ * Connections are kept alive by HttpURLConnection when response is fully read.
+ */
+@Log4j2
+class HttpLoadClient implements Runnable {
+
+    private final String baseUrl;
+    private final List<String> paths;
+    private final List<EndpointStats> stats;
+    private final EndpointStats total;
+    private final long measureFrom;
+    private final long deadline;
+    private int next;
+
+    /**
+     * @param stats - stats of each path, same order as paths
+     * @param total - stats of all paths together
+     */
+    HttpLoadClient(String baseUrl, List<String> paths, List<EndpointStats> stats, EndpointStats total, long measureFrom, long deadline,
+                   int offset) {
+        this.baseUrl = baseUrl;
+        this.paths = paths;
+        this.stats = stats;
+        this.total = total;
+        this.measureFrom = measureFrom;
+        this.deadline = deadline;
+        this.next = offset;
+    }
+
+    @Override
+    public void run() {
+        while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+            int index = next++ % paths.size();
+            long startedAt = System.nanoTime();
+            boolean ok;
+            try {
+                int code = request("GET", baseUrl + paths.get(index)).code;
+                ok = code < 400;
+            } catch (IOException ex) {
+                log.debug("Request {} failed: <{}>", paths.get(index), ex.getMessage());
+                ok = false;
+            }
+            if (startedAt >= measureFrom) {
+                long nanos = System.nanoTime() - startedAt;
+                for (EndpointStats endpointStats : new EndpointStats[]{stats.get(index), total}) {
+                    endpointStats.getHistogram().record(nanos);
+                    if (!ok) {
+                        endpointStats.getErrors().increment();
+                    }
+                }
+            }
+        }
+    }
+
+    static Response request(String method, String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(30000);
+        int code = connection.getResponseCode();
+        InputStream inputStream = code < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if (inputStream != null) {
+            try (InputStream stream = inputStream) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = stream.read(buffer)) != -1) {
+                    body.write(buffer, 0, read);
+                }
+            }
+        }
+        return new Response(code, new String(body.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    static class Response {
+        final int code;
+        final String body;
+
+        private Response(int code, String body) {
+            this.code = code;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package org.touchhome.app.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.apache.commons.io.FileUtils;
+import org.touchhome.app.config.TouchHomeConfig;
+import org.touchhome.app.install.AppDownloader;
+import org.touchhome.app.job.JobManager;
+import org.touchhome.app.job.JobState;
+import org.touchhome.app.job.JobType;
+import org.touchhome.app.setup.AptCommandExecutor;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.touchhome.common.util.CommonUtils.OBJECT_MAPPER;
+
+/**
+ * Starts boot app with stubbed hardware and local release server, then drives concurrent http clients against
+ * /rest/app/config and /rest/device/characteristic/{uuid} while STOMP clients listen '-global' progress topic and
+ * (with -Dloadtest.updateJobs=true) app update jobs or (with -Dloadtest.simulatedInstall=true) simulated installs
+ * run one after another. Report written as json to loadtest.report.
+ * Exit code 1 if any threshold exceeded(see LoadTestSettings).
+ */
+@Log4j2
+public class LoadTest {
+
+    private static final double MB = 1024 * 1024D;
+
+    private final LoadTestSettings settings = new LoadTestSettings();
+    private final EndpointStats httpTotal = new EndpointStats("http");
+    private final List<EndpointStats> endpoints = new ArrayList<>();
+    private final EndpointStats stompConnect = new EndpointStats("stomp connect");
+    private final LongAdder stompMessages = new LongAdder();
+    private final ResourceSampler resourceSampler = new ResourceSampler();
+    private int updateJobs;
+    private int failedUpdateJobs;
+    private int installs;
+    private int failedInstalls;
+
+    public static void main(String[] args) throws Exception {
+        LoadTestReport report = new LoadTest().run();
+        Path reportPath = Paths.get(new LoadTestSettings().getReport());
+        Files.createDirectories(reportPath.toAbsolutePath().getParent());
+        OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValue(reportPath.toFile(), report);
+        log.info("Load test report: <{}>", reportPath.toAbsolutePath());
+        if (!report.getFailures().isEmpty()) {
+            for (String failure : report.getFailures()) {
+                log.error("Threshold exceeded: {}", failure);
+            }
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    private LoadTestReport run() throws Exception {
+        try (ReleaseStubServer releaseStubServer = new ReleaseStubServer(settings.getReleaseSizeKb())) {
+            // command line args override application.yml
+            List<String> args = new ArrayList<>(Arrays.asList("--server.port=0",
+                    "--spring.main.allow-bean-definition-overriding=true",
+                    "--touchhome.peer.enabled=false",
+                    "--touchhome.download.releaseUrl=" + releaseStubServer.getReleaseUrl(),
+                    "--loadtest.hardwareLatencyMs=" + settings.getHardwareLatencyMs()));
+            if (!settings.getSpringProfiles().isEmpty()) {
+                args.add("--spring.profiles.active=" + settings.getSpringProfiles());
+            }
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(TouchHomeConfig.class, LoadTestConfig.class)
+                    .run(args.toArray(new String[0]));
+            try {
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                LoadTestReport report = runLoad(port, context, releaseStubServer);
+                report.setReleaseBytesSent(releaseStubServer.getBytesSent());
+                return report;
+            } finally {
+                context.close();
+            }
+        }
+    }
+
+    private LoadTestReport runLoad(int port, ConfigurableApplicationContext context, ReleaseStubServer releaseStubServer)
+            throws Exception {
+        String baseUrl = "http://127.0.0.1:" + port;
+        List<String> paths = new ArrayList<>();
+        paths.add("/rest/app/config");
+        for (String uuid : settings.getCharacteristics()) {
+            paths.add("/rest/device/characteristic/" + uuid);
+        }
+        for (String path : paths) {
+            endpoints.add(new EndpointStats(path));
+        }
+
+        Thread samplerThread = startThread("loadtest-sampler", resourceSampler);
+        List<StompLoadClient> stompClients = new ArrayList<>();
+        for (int i = 0; i < settings.getStompClients(); i++) {
+            StompLoadClient stompClient = new StompLoadClient(stompConnect, stompMessages);
+            stompClient.connect("ws://127.0.0.1:" + port + "/smart-websocket");
+            stompClients.add(stompClient);
+        }
+
+        long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(settings.getWarmupSec());
+        long deadline = measureFrom + TimeUnit.SECONDS.toNanos(settings.getDurationSec());
+        log.info("Load test: {} http clients, {} stomp clients, warmup {}s, duration {}s", settings.getHttpClients(),
+                settings.getStompClients(), settings.getWarmupSec(), settings.getDurationSec());
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < settings.getHttpClients(); i++) {
+            threads.add(startThread("loadtest-http-" + i,
+                    new HttpLoadClient(baseUrl, paths, endpoints, httpTotal, measureFrom, deadline, i)));
+        }
+        if (settings.isUpdateJobs()) {
+            threads.add(startThread("loadtest-update", () -> runUpdateJobs(baseUrl, deadline)));
+        }
+        if (settings.isSimulatedInstall()) {
+            threads.add(startThread("loadtest-install", () -> runSimulatedInstalls(context, releaseStubServer, deadline)));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (StompLoadClient stompClient : stompClients) {
+            stompClient.disconnect();
+        }
+        samplerThread.interrupt();
+        return createReport();
+    }
+
+    /**
+     * Update app jobs one after another, so '-global' topic has constant progress traffic.
+     */
+    private void runUpdateJobs(String baseUrl, long deadline) {
+        while (System.nanoTime() < deadline) {
+            try {
+                HttpLoadClient.Response response = HttpLoadClient.request("POST", baseUrl + "/rest/app/config/updateApp?async=true");
+                if (response.code >= 400) {
+                    throw new IllegalStateException("Status " + response.code + ": " + response.body);
+                }
+                String jobId = OBJECT_MAPPER.readTree(response.body).path("id").asText();
+                JobState state;
+                do {
+                    TimeUnit.MILLISECONDS.sleep(200);
+                    JsonNode job = OBJECT_MAPPER.readTree(HttpLoadClient.request("GET", baseUrl + "/rest/jobs/" + jobId).body);
+                    state = JobState.valueOf(job.path("state").asText());
+                } while (!state.isFinished() && System.nanoTime() < deadline);
+                if (!state.isFinished()) {
+                    // still running at end of test, neither succeeded nor failed
+                    HttpLoadClient.request("POST", baseUrl + "/rest/jobs/" + jobId + "/cancel");
+                    return;
+                }
+                updateJobs++;
+                if (state != JobState.SUCCEEDED) {
+                    failedUpdateJobs++;
+                }
+            } catch (InterruptedException ex) {
+                return;
+            } catch (Exception ex) {
+                log.warn("Update job failed: <{}>", ex.getMessage());
+                failedUpdateJobs++;
+            }
+        }
+    }
+
+    /**
+     * 'init' jobs one after another: apt output of postgresql install replayed through AptCommandExecutor, so it's
+     * parsed into job and '-global' progress, then stub release downloaded into temp dir the same way as app install.
+     */
+    private void runSimulatedInstalls(ConfigurableApplicationContext context, ReleaseStubServer releaseStubServer,
+                                      long deadline) {
+        JobManager jobManager = context.getBean(JobManager.class);
+        AptCommandExecutor aptCommandExecutor = context.getBean(AptCommandExecutor.class);
+        AppDownloader appDownloader = context.getBean(AppDownloader.class);
+        Path tempDir = null;
+        try {
+            tempDir = Files.createTempDirectory("loadtest-install");
+            Path transcript = tempDir.resolve("apt-install-postgresql.txt");
+            try (InputStream stream = LoadTest.class.getResourceAsStream("/apt/install-postgresql.txt")) {
+                if (stream == null) {
+                    throw new IllegalStateException("Apt transcript /apt/install-postgresql.txt not found on classpath");
+                }
+                Files.copy(stream, transcript);
+            }
+            // download state file lives next to jar, whole dir removed so next download starts from scratch
+            Path downloadDir = tempDir.resolve("download");
+            while (System.nanoTime() < deadline) {
+                try {
+                    Files.createDirectories(downloadDir);
+                    jobManager.call(JobType.init, "Simulated install", job -> {
+                        aptCommandExecutor.execute("cat " + transcript, 60, job);
+                        ReleaseStubServer.Release release = releaseStubServer.getRelease();
+                        appDownloader.download(releaseStubServer.getJarUrl(release), downloadDir.resolve("touchhome-core_tmp.jar"),
+                                release.md5, job);
+                        return null;
+                    });
+                    installs++;
+                } catch (Exception ex) {
+                    log.warn("Simulated install failed: <{}>", ex.getMessage());
+                    failedInstalls++;
+                }
+                FileUtils.deleteQuietly(downloadDir.toFile());
+            }
+        } catch (Exception ex) {
+            log.warn("Simulated install not started: <{}>", ex.getMessage());
+            failedInstalls++;
+        } finally {
+            if (tempDir != null) {
+                FileUtils.deleteQuietly(tempDir.toFile());
+            }
+        }
+    }
+
+    private LoadTestReport createReport() {
+        long nativeCommitted = ResourceSampler.readNativeCommitted();
+        LoadTestReport report = new LoadTestReport()
+                .setHttpClients(settings.getHttpClients())
+                .setStompClients(settings.getStompClients())
+                .setDurationSec(settings.getDurationSec())
+                .setHardwareLatencyMs(settings.getHardwareLatencyMs())
+                .setHttp(httpTotal.toReport(settings.getDurationSec()))
+                .setStompConnect(stompConnect.toReport(settings.getDurationSec()))
+                .setStompMessages(stompMessages.sum())
+                .setUpdateJobs(updateJobs)
+                .setFailedUpdateJobs(failedUpdateJobs)
+                .setInstalls(installs)
+                .setFailedInstalls(failedInstalls)
+                .setHeapPeakMb(resourceSampler.getHeapPeak() / MB)
+                .setHeapRetainedMb(resourceSampler.getHeapRetained() / MB)
+                .setRssMb(ResourceSampler.readStatus("VmRSS") / MB)
+                .setRssPeakMb(ResourceSampler.readStatus("VmHWM") / MB)
+                .setNativeCommittedMb(nativeCommitted < 0 ? -1 : nativeCommitted / MB);
+        for (EndpointStats endpoint : endpoints) {
+            report.getEndpoints().put(endpoint.getName(), endpoint.toReport(settings.getDurationSec()));
+        }
+        for (Map.Entry<String, LoadTestReport.EndpointReport> entry : report.getEndpoints().entrySet()) {
+            LoadTestReport.EndpointReport endpoint = entry.getValue();
+            log.info("{}: {} req, {} errors, {} req/s, p50 {} ms, p99 {} ms, p999 {} ms, max {} ms", entry.getKey(),
+                    endpoint.getRequests(), endpoint.getErrors(), format(endpoint.getThroughput()), format(endpoint.getP50Ms()),
+                    format(endpoint.getP99Ms()), format(endpoint.getP999Ms()), format(endpoint.getMaxMs()));
+        }
+        LoadTestReport.EndpointReport http = report.getHttp();
+        log.info("Total: {} req/s, p50 {} ms, p99 {} ms, p999 {} ms. STOMP: {} messages, connect p99 {} ms. Update jobs: {}({} failed). " +
+                        "Simulated installs: {}({} failed)",
+                format(http.getThroughput()), format(http.getP50Ms()), format(http.getP99Ms()), format(http.getP999Ms()),
+                report.getStompMessages(), format(report.getStompConnect().getP99Ms()), report.getUpdateJobs(),
+                report.getFailedUpdateJobs(), report.getInstalls(), report.getFailedInstalls());
+        log.info("Heap: peak {} Mb, retained {} Mb. RSS: {} Mb, peak {} Mb. Native committed: {} Mb", format(report.getHeapPeakMb()),
+                format(report.getHeapRetainedMb()), format(report.getRssMb()), format(report.getRssPeakMb()),
+                format(report.getNativeCommittedMb()));
+        checkThresholds(report);
+        return report;
+    }
+
+    private void checkThresholds(LoadTestReport report) {
+        LoadTestReport.EndpointReport http = report.getHttp();
+        List<String> failures = report.getFailures();
+        if (http.getP99Ms() > settings.getMaxP99Ms()) {
+            failures.add("http p99 " + format(http.getP99Ms()) + " ms > " + settings.getMaxP99Ms() + " ms");
+        }
+        if (http.getP999Ms() > settings.getMaxP999Ms()) {
+            failures.add("http p999 " + format(http.getP999Ms()) + " ms > " + settings.getMaxP999Ms() + " ms");
+        }
+        if (http.getThroughput() < settings.getMinThroughput()) {
+            failures.add("http throughput " + format(http.getThroughput()) + " req/s < " + settings.getMinThroughput() + " req/s");
+        }
+        double errorRate = http.getRequests() == 0 ? 1 : http.getErrors() / (double) http.getRequests();
+        if (errorRate > settings.getMaxErrorRate()) {
+            failures.add("http error rate " + format(errorRate) + " > " + settings.getMaxErrorRate());
+        }
+        if (report.getStompConnect().getErrors() > 0 || report.getStompConnect().getRequests() < settings.getStompClients()) {
+            failures.add("stomp connected " + report.getStompConnect().getRequests() + " of " + settings.getStompClients() + " clients");
+        }
+        if (report.getFailedUpdateJobs() > 0) {
+            failures.add(report.getFailedUpdateJobs() + " update jobs failed");
+        }
+        if (report.getFailedInstalls() > 0) {
+            failures.add(report.getFailedInstalls() + " simulated installs failed");
+        } else if (settings.isSimulatedInstall() && report.getInstalls() == 0) {
+            failures.add("no simulated install finished within " + settings.getDurationSec() + "s");
+        }
+        if (report.getHeapRetainedMb() > settings.getMaxHeapMb()) {
+            failures.add("retained heap " + format(report.getHeapRetainedMb()) + " Mb > " + settings.getMaxHeapMb() + " Mb");
+        }
+        if (report.getRssPeakMb() > settings.getMaxRssMb()) {
+            failures.add("peak rss " + format(report.getRssPeakMb()) + " Mb > " + settings.getMaxRssMb() + " Mb");
+        }
+        if (settings.getMaxNativeMb() > 0) {
+            if (report.getNativeCommittedMb() < 0) {
+                failures.add("native memory tracking not available, start jvm with -XX:NativeMemoryTracking=summary");
+            } else if (report.getNativeCommittedMb() > settings.getMaxNativeMb()) {
+                failures.add("native committed " + format(report.getNativeCommittedMb()) + " Mb > " + settings.getMaxNativeMb() + " Mb");
+            }
+        }
+    }
+
+    private static Thread startThread(String name, Runnable runnable) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static String format(double value) {
+        return String.format("%.2f", value);
+    }
+}
@@ -0,0 +1,50 @@
+package org.touchhome.app.loadtest;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.touchhome.app.ble.BluetoothBundleService;
+import org.touchhome.app.config.TouchHomeProperties;
+import org.touchhome.app.executor.TouchHomeExecutors;
+import org.touchhome.app.hardware.StartupHardwareRepository;
+import org.touchhome.app.startup.StartupTimelineService;
+import org.touchhome.bundle.api.hardware.network.NetworkHardwareRepository;
+import org.touchhome.bundle.api.hardware.other.MachineHardwareRepository;
+
+/**
+ * Replaces hardware repositories and bluetooth service with stubs. Intentionally not annotated with @Configuration,
+ * so component scan of 'org.touchhome' never picks it up; registered only as LoadTest application source.
+ */
+public class LoadTestConfig {
+
+    @Value("${loadtest.hardwareLatencyMs:0}")
+    private int hardwareLatencyMs;
+
+    @Bean
+    @Primary
+    public MachineHardwareRepository stubMachineHardwareRepository() {
+        return StubHardware.create(MachineHardwareRepository.class, hardwareLatencyMs);
+    }
+
+    @Bean
+    @Primary
+    public NetworkHardwareRepository stubNetworkHardwareRepository() {
+        return StubHardware.create(NetworkHardwareRepository.class, hardwareLatencyMs);
+    }
+
+    @Bean
+    @Primary
+    public StartupHardwareRepository stubStartupHardwareRepository() {
+        return StubHardware.create(StartupHardwareRepository.class, hardwareLatencyMs);
+    }
+
+    // same name as scanned @Controller, so stub overrides it's definition
+    @Bean(name = "bluetoothBundleService")
+    public BluetoothBundleService bluetoothBundleService(MachineHardwareRepository machineHardwareRepository,
+                                                         NetworkHardwareRepository networkHardwareRepository,
+                                                         TouchHomeProperties touchHomeProperties, TouchHomeExecutors touchHomeExecutors,
+                                                         StartupTimelineService startupTimelineService) {
+        return new StubBluetoothService(machineHardwareRepository, networkHardwareRepository, touchHomeProperties,
+                touchHomeExecutors, startupTimelineService, hardwareLatencyMs);
+    }
+}
@@ -0,0 +1,51 @@
+package org.touchhome.app.loadtest;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Setter
+@Accessors(chain = true)
+public class LoadTestReport {
+    private int httpClients;
+    private int stompClients;
+    private int durationSec;
+    private int hardwareLatencyMs;
+    // all http endpoints together
+    private EndpointReport http;
+    private Map<String, EndpointReport> endpoints = new LinkedHashMap<>();
+    private EndpointReport stompConnect;
+    private long stompMessages;
+    private int updateJobs;
+    private int failedUpdateJobs;
+    private int installs;
+    private int failedInstalls;
+    private long releaseBytesSent;
+    private double heapPeakMb;
+    // heap used after full gc at the end of test
+    private double heapRetainedMb;
+    private double rssMb;
+    private double rssPeakMb;
+    // committed total of native memory tracking(heap included), -1 if jvm started without -XX:NativeMemoryTracking
+    private double nativeCommittedMb;
+    private List<String> failures = new ArrayList<>();
+
+    @Getter
+    @Setter
+    @Accessors(chain = true)
+    public static class EndpointReport {
+        private long requests;
+        private long errors;
+        private double throughput;
+        private double p50Ms;
+        private double p99Ms;
+        private double p999Ms;
+        private double maxMs;
+    }
+}
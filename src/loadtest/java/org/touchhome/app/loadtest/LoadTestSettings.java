@@ -0,0 +1,50 @@
+package org.touchhome.app.loadtest;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Load test parameters and thresholds from '-Dloadtest.*' system properties.
+ */
+@Getter
+public class LoadTestSettings {
+
+    // concurrent http clients, each sends next request as soon as previous one finished
+    private final int httpClients = getInt("httpClients", 8);
+    private final int stompClients = getInt("stompClients", 4);
+    private final int warmupSec = getInt("warmupSec", 5);
+    private final int durationSec = getInt("durationSec", 30);
+    // delay of each stubbed hardware query, i.e. time of forked 'bash -c' on device
+    private final int hardwareLatencyMs = getInt("hardwareLatencyMs", 5);
+    private final List<String> characteristics = Arrays.asList(System.getProperty("loadtest.characteristics",
+            "0000ffe1-0000-1000-8000-00805f9b34fb,0000ffe2-0000-1000-8000-00805f9b34fb,0000ffe3-0000-1000-8000-00805f9b34fb").split(","));
+    // run app update jobs one after another against stub release server, so '-global' subscribers receive progress.
+    // Off by default: update installs stub release into real release store under rootDir, use only on throwaway machine
+    private final boolean updateJobs = Boolean.parseBoolean(System.getProperty("loadtest.updateJobs", "false"));
+    // initial setup stand-in which touches nothing outside of temp dir: recorded apt transcript streamed through
+    // AptCommandExecutor and stub release downloaded by AppDownloader, in one 'init' job after another
+    private final boolean simulatedInstall = Boolean.parseBoolean(System.getProperty("loadtest.simulatedInstall", "false"));
+    private final int releaseSizeKb = getInt("releaseSizeKb", 2048);
+    private final String report = System.getProperty("loadtest.report", "target/loadtest-result.json");
+    // comma separated spring profiles of app, i.e. 'lowmem'
+    private final String springProfiles = System.getProperty("loadtest.springProfiles", "");
+
+    private final double maxP99Ms = getDouble("maxP99Ms", 100);
+    private final double maxP999Ms = getDouble("maxP999Ms", 500);
+    private final double minThroughput = getDouble("minThroughput", 200);
+    private final double maxErrorRate = getDouble("maxErrorRate", 0.001);
+    private final double maxHeapMb = getDouble("maxHeapMb", 192);
+    private final double maxRssMb = getDouble("maxRssMb", 512);
+    // 0 - native memory not checked
+    private final double maxNativeMb = getDouble("maxNativeMb", 0);
+
+    private static int getInt(String name, int defaultValue) {
+        return Integer.parseInt(System.getProperty("loadtest." + name, String.valueOf(defaultValue)));
+    }
+
+    private static double getDouble(String name, double defaultValue) {
+        return Double.parseDouble(System.getProperty("loadtest." + name, String.valueOf(defaultValue)));
+    }
+}
@@ -0,0 +1,31 @@
+package org.touchhome.app.loadtest;
+
+/**
+ * Load test of 'lowmem' profile: http and STOMP clients poll device while simulated installs(apt transcript and
+ * release download, see LoadTestSettings.simulatedInstall) run. Fails if retained heap, peak rss or native committed
+ * memory exceed lowmem budget. Also forked by LowMemoryProfileTest on every 'mvn test'.
+ * Jvm must be started with lowmem options, MALLOC_ARENA_MAX=2 and -XX:NativeMemoryTracking=summary(see 'loadtest' maven profile).
+ * Each default may be overridden by same '-Dloadtest.*' property.
+ */
+public class LowMemoryTest {
+
+    public static void main(String[] args) throws Exception {
+        setDefault("springProfiles", "lowmem");
+        setDefault("httpClients", "4");
+        setDefault("stompClients", "2");
+        setDefault("minThroughput", "100");
+        setDefault("simulatedInstall", "true");
+        setDefault("maxHeapMb", "64");
+        // touchhome.memory.budgetMb of lowmem profile plus native memory tracking and in-process load clients
+        setDefault("maxNativeMb", "176");
+        setDefault("maxRssMb", "208");
+        setDefault("report", "target/loadtest-lowmem-result.json");
+        LoadTest.main(args);
+    }
+
+    private static void setDefault(String name, String value) {
+        if (System.getProperty("loadtest." + name) == null) {
+            System.setProperty("loadtest." + name, value);
+        }
+    }
+}
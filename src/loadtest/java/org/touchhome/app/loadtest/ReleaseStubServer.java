@@ -0,0 +1,170 @@
+package org.touchhome.app.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Local stand-in for github 'latest release' api and it's assets. Each release request publishes new release with
+ * new jar content, so every app update job downloads whole jar and reports progress.
+ */
+@Log4j2
+class ReleaseStubServer implements AutoCloseable {
+
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+    private final HttpServer server;
+    private final int releaseSizeKb;
+    private final AtomicInteger version = new AtomicInteger();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private volatile Release release;
+
+    ReleaseStubServer(int releaseSizeKb) throws IOException {
+        this.releaseSizeKb = releaseSizeKb;
+        this.release = createRelease(0);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newFixedThreadPool(4, runnable -> {
+            Thread thread = new Thread(runnable, "release-stub");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.createContext("/releases/latest", this::handleRelease);
+        server.createContext("/assets/", this::handleAsset);
+        server.start();
+    }
+
+    String getReleaseUrl() {
+        return getBaseUrl() + "/releases/latest";
+    }
+
+    /**
+     * Release of last release response, it's 'touchhome.jar' asset served until next release request
+     */
+    Release getRelease() {
+        return release;
+    }
+
+    String getJarUrl(Release release) {
+        return getBaseUrl() + "/assets/" + release.tag + "/touchhome.jar";
+    }
+
+    long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private void handleRelease(HttpExchange exchange) throws IOException {
+        Release current = createRelease(version.incrementAndGet());
+        release = current;
+        String url = getBaseUrl() + "/assets/" + current.tag + "/";
+        String json = "{\"name\":\"" + current.tag + "\",\"tag_name\":\"" + current.tag + "\",\"assets\":[" +
+                asset("touchhome.jar", current.jar.length, url) + "," +
+                asset("md5.hex", current.md5.length(), url) + "," +
+                asset("sha256.hex", current.sha256.length(), url) + "]}";
+        send(exchange, 200, json.getBytes(StandardCharsets.UTF_8), 0, -1);
+    }
+
+    private void handleAsset(HttpExchange exchange) throws IOException {
+        Release current = release;
+        String path = exchange.getRequestURI().getPath();
+        if (!path.startsWith("/assets/" + current.tag + "/")) {
+            send(exchange, 404, new byte[0], 0, -1);
+            return;
+        }
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        if (name.equals("md5.hex")) {
+            send(exchange, 200, current.md5.getBytes(StandardCharsets.UTF_8), 0, -1);
+        } else if (name.equals("sha256.hex")) {
+            send(exchange, 200, current.sha256.getBytes(StandardCharsets.UTF_8), 0, -1);
+        } else if (name.equals("touchhome.jar")) {
+            sendRange(exchange, current.jar);
+        } else {
+            // no entries manifest, so app falls back to full download
+            send(exchange, 404, new byte[0], 0, -1);
+        }
+    }
+
+    private void sendRange(HttpExchange exchange, byte[] content) throws IOException {
+        Matcher matcher = RANGE.matcher(String.valueOf(exchange.getRequestHeaders().getFirst("Range")));
+        if (!matcher.matches()) {
+            send(exchange, 200, content, 0, content.length - 1);
+            return;
+        }
+        int from = Integer.parseInt(matcher.group(1));
+        int to = matcher.group(2).isEmpty() ? content.length - 1 : Math.min(Integer.parseInt(matcher.group(2)), content.length - 1);
+        exchange.getResponseHeaders().set("Content-Range", "bytes " + from + "-" + to + "/" + content.length);
+        send(exchange, 206, content, from, to);
+    }
+
+    private void send(HttpExchange exchange, int code, byte[] content, int from, int to) throws IOException {
+        int length = to < 0 ? content.length : to - from + 1;
+        exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+        exchange.sendResponseHeaders(code, length == 0 ? -1 : length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(content, from, length);
+        }
+        bytesSent.addAndGet(length);
+    }
+
+    private static String asset(String name, long size, String url) {
+        return "{\"name\":\"" + name + "\",\"size\":" + size + ",\"browser_download_url\":\"" + url + name + "\"}";
+    }
+
+    /**
+     * Jar with random content of releaseSizeKb. Stored entries, so size is predictable.
+     */
+    private Release createRelease(int version) throws IOException {
+        Random random = new Random(version);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(releaseSizeKb * 1024 + 1024);
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+            zipOutputStream.setLevel(0);
+            byte[] chunk = new byte[64 * 1024];
+            for (int i = 0; i * chunk.length < releaseSizeKb * 1024; i++) {
+                random.nextBytes(chunk);
+                zipOutputStream.putNextEntry(new ZipEntry("data/" + i + ".bin"));
+                zipOutputStream.write(chunk, 0, Math.min(chunk.length, releaseSizeKb * 1024 - i * chunk.length));
+                zipOutputStream.closeEntry();
+            }
+        }
+        byte[] jar = outputStream.toByteArray();
+        return new Release("1.0." + version, jar, DigestUtils.md5Hex(jar), DigestUtils.sha256Hex(jar));
+    }
+
+    static class Release {
+        private final String tag;
+        private final byte[] jar;
+        final String md5;
+        private final String sha256;
+
+        private Release(String tag, byte[] jar, String md5, String sha256) {
+            this.tag = tag;
+            this.jar = jar;
+            this.md5 = md5;
+            this.sha256 = sha256;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.touchhome.app.loadtest;
+
+import java.io.IOException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Samples heap usage of this jvm. Rss is read from /proc/self/status: VmRSS - current, VmHWM - peak.
+ * Native memory is committed total of 'VM.native_memory summary' diagnostic command.
+ * App and load clients share same jvm, so numbers include small overhead of clients.
+ */
+class ResourceSampler implements Runnable {
+
+    private static final Path STATUS = Paths.get("/proc/self/status");
+    private static final Pattern NMT_TOTAL = Pattern.compile("Total: reserved=(\\d+)KB, committed=(\\d+)KB");
+
+    private final MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+    private volatile long heapPeak;
+
+    long getHeapPeak() {
+        return heapPeak;
+    }
+
+    long getHeapUsed() {
+        return memoryMXBean.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Heap used after full gc, i.e. retained by app caches and queues.
+     */
+    long getHeapRetained() {
+        memoryMXBean.gc();
+        return getHeapUsed();
+    }
+
+    @Override
+    public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            heapPeak = Math.max(heapPeak, getHeapUsed());
+            try {
+                TimeUnit.MILLISECONDS.sleep(200);
+            } catch (InterruptedException ex) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return committed native memory in bytes or -1 if jvm started without -XX:NativeMemoryTracking=summary
+     */
+    static long readNativeCommitted() {
+        try {
+            String summary = (String) ManagementFactory.getPlatformMBeanServer().invoke(
+                    new ObjectName("com.sun.management:type=DiagnosticCommand"), "vmNativeMemory",
+                    new Object[]{new String[]{"summary"}}, new String[]{String[].class.getName()});
+            Matcher matcher = NMT_TOTAL.matcher(summary);
+            return matcher.find() ? Long.parseLong(matcher.group(2)) * 1024 : -1;
+        } catch (Exception ex) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return value of /proc/self/status field in bytes or -1 if not available(not linux)
+     */
+    static long readStatus(String field) {
+        try {
+            for (String line : Files.readAllLines(STATUS)) {
+                if (line.startsWith(field + ":")) {
+                    return Long.parseLong(line.substring(field.length() + 1).replace("kB", "").trim()) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException ignore) {
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,74 @@
+package org.touchhome.app.loadtest;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.touchhome.app.progress.ProgressPublisher;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * STOMP subscriber of '-global' progress topic. Records connect+subscribe time and counts received messages.
+ */
+@Log4j2
+class StompLoadClient {
+
+    private final WebSocketStompClient stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+    private final EndpointStats connectStats;
+    private final LongAdder messages;
+    private StompSession session;
+
+    StompLoadClient(EndpointStats connectStats, LongAdder messages) {
+        this.connectStats = connectStats;
+        this.messages = messages;
+    }
+
+    void connect(String url) {
+        long startedAt = System.nanoTime();
+        try {
+            session = stompClient.connect(url, new StompSessionHandlerAdapter() {
+                @Override
+                public void handleException(StompSession session, StompCommand command, StompHeaders headers, byte[] payload,
+                                            Throwable exception) {
+                    log.warn("STOMP frame error: <{}>", exception.getMessage());
+                    connectStats.getErrors().increment();
+                }
+
+                @Override
+                public void handleTransportError(StompSession session, Throwable exception) {
+                    log.warn("STOMP transport error: <{}>", exception.getMessage());
+                    connectStats.getErrors().increment();
+                }
+            }).get(10, TimeUnit.SECONDS);
+            session.subscribe(ProgressPublisher.DESTINATION, new StompFrameHandler() {
+                @Override
+                public Type getPayloadType(StompHeaders headers) {
+                    return byte[].class;
+                }
+
+                @Override
+                public void handleFrame(StompHeaders headers, Object payload) {
+                    messages.increment();
+                }
+            });
+            connectStats.getHistogram().record(System.nanoTime() - startedAt);
+        } catch (Exception ex) {
+            log.warn("STOMP connect failed: <{}>", ex.getMessage());
+            connectStats.getErrors().increment();
+        }
+    }
+
+    void disconnect() {
+        if (session != null && session.isConnected()) {
+            session.disconnect();
+        }
+        stompClient.stop();
+    }
+}
@@ -0,0 +1,60 @@
+package org.touchhome.app.loadtest;
+
+import org.touchhome.app.ble.BluetoothBundleService;
+import org.touchhome.app.config.TouchHomeProperties;
+import org.touchhome.app.executor.TouchHomeExecutors;
+import org.touchhome.app.startup.StartupTimelineService;
+import org.touchhome.bundle.api.hardware.network.NetworkHardwareRepository;
+import org.touchhome.bundle.api.hardware.other.MachineHardwareRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bluetooth service without dbus. Characteristic read/write takes loadtest.hardwareLatencyMs like real service
+ * which queries machine state on each read.
+ */
+class StubBluetoothService extends BluetoothBundleService {
+
+    private final int latencyMs;
+    private final Map<String, String> values = new ConcurrentHashMap<>();
+
+    StubBluetoothService(MachineHardwareRepository machineHardwareRepository, NetworkHardwareRepository networkHardwareRepository,
+                         TouchHomeProperties touchHomeProperties, TouchHomeExecutors touchHomeExecutors,
+                         StartupTimelineService startupTimelineService, int latencyMs) {
+        super(machineHardwareRepository, networkHardwareRepository, touchHomeProperties, touchHomeExecutors, startupTimelineService);
+        this.latencyMs = latencyMs;
+    }
+
+    @Override
+    public void startBluetooth() {
+        // no dbus
+    }
+
+    @Override
+    public boolean isReady() {
+        return true;
+    }
+
+    @Override
+    public String getDeviceCharacteristic(String uuid) {
+        sleep();
+        return values.computeIfAbsent(uuid, key -> "value-" + key);
+    }
+
+    @Override
+    public void setDeviceCharacteristic(String uuid, byte[] value) {
+        sleep();
+        values.put(uuid, new String(value, StandardCharsets.UTF_8));
+    }
+
+    private void sleep() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(latencyMs);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.touchhome.app.loadtest;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hardware repository which answers every query after fixed delay without forking any process.
+ * Boolean queries return true, so device looks like fully configured one.
+ */
+final class StubHardware {
+
+    private StubHardware() {
+    }
+
+    static <T> T create(Class<T> repositoryClass, int latencyMs) {
+        return repositoryClass.cast(Proxy.newProxyInstance(StubHardware.class.getClassLoader(), new Class[]{repositoryClass},
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        switch (method.getName()) {
+                            case "equals":
+                                return proxy == args[0];
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            default:
+                                return "Stub" + repositoryClass.getSimpleName();
+                        }
+                    }
+                    if (latencyMs > 0) {
+                        TimeUnit.MILLISECONDS.sleep(latencyMs);
+                    }
+                    return defaultValue(method.getReturnType());
+                }));
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class || type == Boolean.class) {
+            return Boolean.TRUE;
+        }
+        if (type == String.class) {
+            return "";
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == double.class) {
+            return 0D;
+        }
+        if (type == float.class) {
+            return 0F;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,18 @@
+#!/bin/bash
+# Starts touchhome-boot in fast boot mode with AppCDS archive(jdk 13+, older jdk ignores cds options).
+# Archive is created by training run on first start and after jar or libraries are updated.
+
+cd "$(dirname "$0")" || exit 1
+
+JAR=touchhome-boot-cds.jar
+ARCHIVE=touchhome-boot.jsa
+JAVA_OPTS="-XX:+IgnoreUnrecognizedVMOptions"
+
+if [ ! -f "$ARCHIVE" ] || [ "$JAR" -nt "$ARCHIVE" ] || [ lib -nt "$ARCHIVE" ]; then
+  echo "Creating AppCDS archive $ARCHIVE"
+  rm -f "$ARCHIVE"
+  java $JAVA_OPTS -XX:ArchiveClassesAtExit="$ARCHIVE" -Dtouchhome.boot.exitOnReady=true \
+    -jar "$JAR" --spring.profiles.active=fastboot
+fi
+
+exec java $JAVA_OPTS -XX:SharedArchiveFile="$ARCHIVE" -Xshare:auto -jar "$JAR" --spring.profiles.active=fastboot "$@"
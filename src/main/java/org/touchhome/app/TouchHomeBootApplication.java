@@ -4,6 +4,7 @@ import lombok.extern.log4j.Log4j2;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.web.servlet.error.ErrorMvcAutoConfiguration;
 import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.touchhome.app.config.TouchHomeConfig;
 import org.touchhome.bundle.api.hquery.EnableHQuery;
@@ -14,7 +15,12 @@ import org.touchhome.bundle.api.hquery.EnableHQuery;
         ErrorMvcAutoConfiguration.class})
 public class TouchHomeBootApplication implements WebMvcConfigurer {
 
+    // max recorded startup steps for /rest/app/startup
+    private static final int STARTUP_STEPS_CAPACITY = 4096;
+
     public static void main(String[] args) {
-        new SpringApplicationBuilder(TouchHomeConfig.class).run(args);
+        new SpringApplicationBuilder(TouchHomeConfig.class)
+                .applicationStartup(new BufferingApplicationStartup(STARTUP_STEPS_CAPACITY))
+                .run(args);
     }
 }
@@ -1,18 +1,63 @@
 package org.touchhome.app.ble;
 
+import lombok.Getter;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Controller;
+import org.touchhome.app.config.TouchHomeProperties;
+import org.touchhome.app.executor.TouchHomeExecutors;
+import org.touchhome.app.startup.StartupTimelineService;
 import org.touchhome.bundle.api.hardware.network.NetworkHardwareRepository;
 import org.touchhome.bundle.api.hardware.other.MachineHardwareRepository;
 import org.touchhome.bundle.bluetooth.BaseBluetoothCharacteristicService;
+import org.touchhome.common.util.CommonUtils;
 
+import javax.annotation.PostConstruct;
+
+/**
+ * Bluetooth is the only way to configure fresh device, so bean is never lazy.
+ * With touchhome.boot.asyncBluetoothInit dbus initialization runs in background and 'ready' flag is set when it's done.
+ */
 @Log4j2
+@Lazy(false)
 @Controller
 public class BluetoothBundleService extends BaseBluetoothCharacteristicService {
 
-    public BluetoothBundleService(MachineHardwareRepository machineHardwareRepository, NetworkHardwareRepository networkHardwareRepository) {
+    private final TouchHomeProperties touchHomeProperties;
+    private final TouchHomeExecutors touchHomeExecutors;
+    private final StartupTimelineService startupTimelineService;
+
+    @Getter
+    private volatile boolean ready;
+
+    public BluetoothBundleService(MachineHardwareRepository machineHardwareRepository, NetworkHardwareRepository networkHardwareRepository,
+                                  TouchHomeProperties touchHomeProperties, TouchHomeExecutors touchHomeExecutors,
+                                  StartupTimelineService startupTimelineService) {
         super(machineHardwareRepository, networkHardwareRepository);
+        this.touchHomeProperties = touchHomeProperties;
+        this.touchHomeExecutors = touchHomeExecutors;
+        this.startupTimelineService = startupTimelineService;
+    }
+
+    @PostConstruct
+    public void startBluetooth() {
+        if (touchHomeProperties.getBoot().isAsyncBluetoothInit()) {
+            touchHomeExecutors.getBlocking().execute(() -> {
+                try {
+                    initBluetooth();
+                } catch (Exception ex) {
+                    log.error("Unable to initialize bluetooth: <{}>", CommonUtils.getErrorMessage(ex));
+                }
+            });
+        } else {
+            initBluetooth();
+        }
+    }
+
+    private void initBluetooth() {
         init();
+        ready = true;
+        startupTimelineService.milestone(StartupTimelineService.BLUETOOTH_READY);
     }
 
     @Override
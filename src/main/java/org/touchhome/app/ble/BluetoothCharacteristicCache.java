@@ -0,0 +1,183 @@
+package org.touchhome.app.ble;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+import org.touchhome.app.config.TouchHomeProperties;
+import org.touchhome.app.executor.TouchHomeExecutors;
+import org.touchhome.app.rest.OptionModel;
+import org.touchhome.app.telemetry.MemoryPressureEvent;
+import org.touchhome.common.exception.ServerException;
+import org.touchhome.common.util.CommonUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Short-TTL cache in front of BluetoothBundleService characteristic reads.
+ * Clients may subscribe to '/smart-dest-ws-characteristic-{uuid}' instead of polling: subscribed characteristics are
+ * polled once on server side and pushed only when value changed.
+ * Scheduler only triggers polling, BLE reads run on blocking executor so slow adapter doesn't hold scheduler thread.
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class BluetoothCharacteristicCache {
+
+    public static final String DESTINATION = WebSocketConfig.DESTINATION_PREFIX + "-characteristic-";
+
+    private final BluetoothBundleService bluetoothBundleService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ThreadPoolTaskScheduler threadPoolTaskScheduler;
+    private final TouchHomeProperties touchHomeProperties;
+    private final TouchHomeExecutors touchHomeExecutors;
+
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+    // 'sessionId:subscriptionId' -> uuid
+    private final Map<String, String> subscriptions = new ConcurrentHashMap<>();
+    // last value pushed to subscribers
+    private final Map<String, String> published = new ConcurrentHashMap<>();
+    // publish task submitted to blocking executor but not started yet
+    private final AtomicBoolean publishPending = new AtomicBoolean();
+
+    private ScheduledFuture<?> pollFuture;
+
+    @PostConstruct
+    public void init() {
+        pollFuture = threadPoolTaskScheduler.scheduleWithFixedDelay(this::schedulePublish,
+                touchHomeProperties.getBluetooth().getPollIntervalMs());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (pollFuture != null) {
+            pollFuture.cancel(false);
+        }
+    }
+
+    public String get(String uuid) {
+        Entry entry = cache.get(uuid);
+        if (entry != null && entry.expireAt - System.nanoTime() > 0) {
+            return entry.value;
+        }
+        return read(uuid);
+    }
+
+    public Map<String, String> getAll(List<String> uuids) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String uuid : uuids) {
+            values.put(uuid, get(uuid));
+        }
+        return values;
+    }
+
+    /**
+     * Write may affect other characteristics(i.e. wifi credentials and wifi status), so whole cache invalidated
+     * and subscribed characteristics re-published immediately.
+     */
+    public void set(String uuid, byte[] value) {
+        bluetoothBundleService.setDeviceCharacteristic(uuid, value);
+        cache.clear();
+        schedulePublish();
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        if (destination != null && destination.startsWith(DESTINATION)) {
+            String uuid = destination.substring(DESTINATION.length());
+            subscriptions.put(accessor.getSessionId() + ":" + accessor.getSubscriptionId(), uuid);
+            // new subscriber receives current value on next poll
+            published.remove(uuid);
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        subscriptions.remove(accessor.getSessionId() + ":" + accessor.getSubscriptionId());
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        subscriptions.keySet().removeIf(key -> key.startsWith(event.getSessionId() + ":"));
+    }
+
+    @EventListener
+    public void onMemoryPressure(MemoryPressureEvent event) {
+        cache.clear();
+    }
+
+    private String read(String uuid) {
+        if (!bluetoothBundleService.isReady()) {
+            throw new ServerException("Bluetooth is not initialized yet");
+        }
+        String value = bluetoothBundleService.getDeviceCharacteristic(uuid);
+        long ttl = TimeUnit.MILLISECONDS.toNanos(touchHomeProperties.getBluetooth().getCacheTtlMs());
+        cache.put(uuid, new Entry(value, System.nanoTime() + ttl));
+        return value;
+    }
+
+    /**
+     * Submit publishChanges to blocking executor unless one is already waiting to start. Running publish and one
+     * pending at most, so slow reads never pile up.
+     */
+    private void schedulePublish() {
+        if (subscriptions.isEmpty() || !publishPending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            touchHomeExecutors.getBlocking().execute(() -> {
+                publishPending.set(false);
+                publishChanges();
+            });
+        } catch (RejectedExecutionException ex) {
+            publishPending.set(false);
+            log.debug("Blocking executor is busy, characteristics published on next poll");
+        }
+    }
+
+    private synchronized void publishChanges() {
+        if (!bluetoothBundleService.isReady()) {
+            return;
+        }
+        Set<String> uuids = new HashSet<>(subscriptions.values());
+        published.keySet().retainAll(uuids);
+        for (String uuid : uuids) {
+            try {
+                String value = StringUtils.defaultString(get(uuid));
+                if (!value.equals(published.get(uuid))) {
+                    messagingTemplate.convertAndSend(DESTINATION + uuid, OptionModel.key(value));
+                    published.put(uuid, value);
+                }
+            } catch (Exception ex) {
+                log.warn("Unable to read characteristic <{}>: <{}>", uuid, CommonUtils.getErrorMessage(ex));
+            }
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class Entry {
+        private final String value;
+        private final long expireAt;
+    }
+}
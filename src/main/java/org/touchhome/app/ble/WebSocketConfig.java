@@ -1,26 +1,62 @@
 package org.touchhome.app.ble;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 import org.springframework.web.socket.messaging.StompSubProtocolErrorHandler;
+import org.touchhome.app.config.TouchHomeProperties;
 
 @Log4j2
 @Configuration
 @EnableWebSocketMessageBroker
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     public static final String DESTINATION_PREFIX = "/smart-dest-ws";
     static final String ENDPOINT = "/smart-websocket";
 
+    private final TouchHomeProperties touchHomeProperties;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         // These are endpoints the client can subscribes to.
         config.enableSimpleBroker(DESTINATION_PREFIX);
+        config.setCacheLimit(touchHomeProperties.getWebSocket().getBrokerCacheLimit());
+    }
+
+    /**
+     * Outgoing messages of slow client are buffered up to sendBufferSizeKb, so buffers bound memory per session.
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        TouchHomeProperties.WebSocket config = touchHomeProperties.getWebSocket();
+        registration.setSendBufferSizeLimit(config.getSendBufferSizeKb() * 1024)
+                .setSendTimeLimit(config.getSendTimeLimitMs())
+                .setMessageSizeLimit(config.getMessageSizeLimitKb() * 1024);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        configureChannel(registration);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        configureChannel(registration);
+    }
+
+    private void configureChannel(ChannelRegistration registration) {
+        int threads = touchHomeProperties.getWebSocket().getChannelThreads();
+        if (threads > 0) {
+            registration.taskExecutor().corePoolSize(threads).maxPoolSize(threads);
+        }
     }
 
     @Override
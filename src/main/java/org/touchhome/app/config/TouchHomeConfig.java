@@ -3,7 +3,6 @@ package org.touchhome.app.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
@@ -21,14 +20,13 @@ import org.springframework.web.filter.CorsFilter;
 import org.springframework.web.servlet.config.annotation.ContentNegotiationConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.touchhome.app.executor.TouchHomeExecutors;
 import org.touchhome.bundle.api.hquery.HardwareRepositoryFactoryPostProcessor;
 
 import java.util.Collections;
-import java.util.concurrent.Executors;
 
 @Log4j2
 @Configuration
-@EntityScan(basePackages = {"org.touchhome"})
 @ComponentScan({"org.touchhome"})
 public class TouchHomeConfig implements WebMvcConfigurer, SchedulingConfigurer {
 
@@ -37,18 +35,21 @@ public class TouchHomeConfig implements WebMvcConfigurer, SchedulingConfigurer {
 
     private boolean applicationReady;
 
+    @Autowired
+    private TouchHomeProperties touchHomeProperties;
+
     @Bean
     public ThreadPoolTaskScheduler threadPoolTaskScheduler() {
         ThreadPoolTaskScheduler threadPoolTaskScheduler = new ThreadPoolTaskScheduler();
-        threadPoolTaskScheduler.setPoolSize(10);
+        threadPoolTaskScheduler.setPoolSize(Math.max(2, touchHomeProperties.getExecutor().getSchedulerSize()));
         threadPoolTaskScheduler.setThreadNamePrefix("th-async-");
         threadPoolTaskScheduler.setRemoveOnCancelPolicy(true);
         return threadPoolTaskScheduler;
     }
 
     @Bean
-    public HardwareRepositoryFactoryPostProcessor.HardwareRepositoryThreadPool hardwareRepositoryThreadPool(ThreadPoolTaskScheduler scheduler) {
-        return (name, runnable) -> scheduler.submit(runnable);
+    public HardwareRepositoryFactoryPostProcessor.HardwareRepositoryThreadPool hardwareRepositoryThreadPool(TouchHomeExecutors touchHomeExecutors) {
+        return (name, runnable) -> touchHomeExecutors.getBlocking().submit(runnable);
     }
 
     @Override
@@ -86,7 +87,8 @@ public class TouchHomeConfig implements WebMvcConfigurer, SchedulingConfigurer {
 
     @Override
     public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
-        taskRegistrar.setScheduler(Executors.newScheduledThreadPool(4));
+        // @Scheduled tasks share same scheduler instead of separate pool
+        taskRegistrar.setScheduler(threadPoolTaskScheduler());
     }
 
     @Bean
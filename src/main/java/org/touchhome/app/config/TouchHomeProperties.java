@@ -5,6 +5,9 @@ import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Getter
 @Setter
 @Component
@@ -12,4 +15,197 @@ import org.springframework.stereotype.Component;
 public class TouchHomeProperties {
     private String version;
     private int httpPort;
+    private Download download = new Download();
+    private Progress progress = new Progress();
+    private Shell shell = new Shell();
+    private Executor executor = new Executor();
+    private Bluetooth bluetooth = new Bluetooth();
+    private Boot boot = new Boot();
+    private Store store = new Store();
+    private Peer peer = new Peer();
+    private Logs logs = new Logs();
+    private Errors errors = new Errors();
+    private Telemetry telemetry = new Telemetry();
+    private Postgres postgres = new Postgres();
+    private Jobs jobs = new Jobs();
+    private WebSocket webSocket = new WebSocket();
+    private Memory memory = new Memory();
+
+    @Getter
+    @Setter
+    public static class Download {
+        // github 'latest release' api of touchhome-core
+        private String releaseUrl = "https://api.github.com/repos/touchhome/touchhome-core/releases/latest";
+        // number of parallel http range requests. 1 - download in one stream
+        private int segments = 1;
+        // how many times in a row segment may fail without any progress
+        private int retries = 5;
+        private int connectTimeoutSec = 15;
+        private int readTimeoutSec = 30;
+        // update installed jar by downloading only changed entries if release has entries manifest
+        private boolean delta = true;
+    }
+
+    @Getter
+    @Setter
+    public static class Progress {
+        // how often conflated progress messages are sent to websocket clients
+        private int flushIntervalMs = 250;
+    }
+
+    @Getter
+    @Setter
+    public static class Shell {
+        // number of long-lived shell processes. 0 - start new process for each command
+        private int sessions = 2;
+        private String command = "/bin/bash --noprofile --norc";
+    }
+
+    @Getter
+    @Setter
+    public static class Executor {
+        // at least 2: one long scheduled task must not stop memory pressure checks and flushes
+        private int schedulerSize = 2;
+        private int shortTasksSize = 2;
+        private int shortTasksQueueSize = 256;
+        private int blockingMaxSize = 32;
+        // 0 - no queue, new thread for each task up to blockingMaxSize. Otherwise tasks wait for one of blockingMaxSize threads
+        private int blockingQueueSize = 0;
+        private int blockingStackSizeKb = 256;
+    }
+
+    @Getter
+    @Setter
+    public static class Bluetooth {
+        // how long characteristic value served from cache
+        private int cacheTtlMs = 1000;
+        // how often subscribed characteristics are checked for changes
+        private int pollIntervalMs = 2000;
+    }
+
+    @Getter
+    @Setter
+    public static class Boot {
+        // initialize bluetooth(dbus) in background instead of blocking context startup
+        private boolean asyncBluetoothInit;
+        // stop app as soon as it's ready. Used by training run that creates AppCDS archive
+        private boolean exitOnReady;
+    }
+
+    @Getter
+    @Setter
+    public static class Store {
+        // how many app releases kept for rollback/reinstall, including installed one
+        private int keepReleases = 3;
+        // disk budget of release store. Installed release kept even if it exceeds budget
+        private int maxSizeMb = 1024;
+    }
+
+    @Getter
+    @Setter
+    public static class Peer {
+        // share app releases with other boot instances in LAN
+        private boolean enabled = true;
+        private String group = "239.255.41.1";
+        private int port = 9120;
+        // multicast interface name. Empty - system default
+        private String networkInterface;
+        private int announceIntervalSec = 10;
+        // peers queried over http(http://host:port) in addition to multicast announcements
+        private List<String> staticPeers = new ArrayList<>();
+        // max peers downloaded from in parallel
+        private int maxParallel = 4;
+        private int batchSizeKb = 1024;
+    }
+
+    @Getter
+    @Setter
+    public static class Logs {
+        // how often subscribed log files are checked for new lines
+        private int tailIntervalMs = 500;
+        // max bytes pushed per tick for each log destination. Older lines skipped during log storm
+        private int maxBatchKb = 64;
+        // max page size of log range request
+        private int maxPageKb = 256;
+    }
+
+    @Getter
+    @Setter
+    public static class Errors {
+        // repeated errors with same fingerprint are reported as one summary line per window
+        private int windowSec = 60;
+        // max distinct fingerprints kept in memory. Others counted under 'other'
+        private int maxFingerprints = 256;
+        // error messages and hardware command output are truncated to this length
+        private int maxMessageLength = 2048;
+    }
+
+    @Getter
+    @Setter
+    public static class Telemetry {
+        private boolean enabled = true;
+        // number of kept per second/minute/hour samples: 1 hour, 1 day and 30 days
+        private int secondsCapacity = 3600;
+        private int minutesCapacity = 1440;
+        private int hoursCapacity = 720;
+        private String thermalZone = "/sys/class/thermal/thermal_zone0/temp";
+        // block device name from /proc/diskstats
+        private String diskDevice = "mmcblk0";
+    }
+
+    @Getter
+    @Setter
+    public static class Postgres {
+        // used to compute per connection work_mem
+        private int maxConnections = 40;
+        // pgbench run duration before and after tuning. 0 - skip benchmark
+        private int benchmarkSec = 20;
+        // pgbench scale factor, 1 ~ 16MB database
+        private int benchmarkScale = 1;
+        // password of 'postgres' superuser set by initial setup, touchhome-core datasource must use the same.
+        // No default, same rules as replicationPassword
+        private String password = "";
+        // initial setup creates replicationUser and accepts it's replication connections from local network, so device
+        // may be primary of replica. Requires replicationPassword
+        private boolean replicationEnabled = false;
+        private String replicationUser = "replication";
+        // no default: at least 8 characters without quotes, '\', '$', '`' and spaces. Used by replica to connect primary too
+        private String replicationPassword = "";
+        // bandwidth cap of replica base backup in kB/s(pg_basebackup --max-rate, min 32). 0 - unlimited
+        private int replicaMaxRateKbs = 1024;
+    }
+
+    @Getter
+    @Setter
+    public static class Jobs {
+        // progress events kept per job for replay
+        private int historySize = 256;
+        // finished jobs kept for status requests
+        private int keepFinished = 20;
+    }
+
+    @Getter
+    @Setter
+    public static class WebSocket {
+        // max buffered outgoing bytes per session while client is slow. Session closed when exceeded
+        private int sendBufferSizeKb = 512;
+        private int sendTimeLimitMs = 10000;
+        private int messageSizeLimitKb = 64;
+        // threads of client inbound/outbound channels. 0 - spring default(2 per cpu core)
+        private int channelThreads;
+        // cached destination lookups of simple broker
+        private int brokerCacheLimit = 1024;
+    }
+
+    @Getter
+    @Setter
+    public static class Memory {
+        // rss of the service in MB. Exceeding it is handled as memory pressure. 0 - no budget
+        private int budgetMb;
+        // memory pressure when MemAvailable of /proc/meminfo drops below this percent of MemTotal
+        private int minAvailablePercent = 10;
+        private int checkIntervalMs = 2000;
+        // min delay between two memory pressure events
+        private int cooldownSec = 30;
+    }
 }
@@ -0,0 +1,21 @@
+package org.touchhome.app.device;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Date;
+
+@Getter
+@Setter
+@EqualsAndHashCode
+public class DeviceConfig {
+    private final boolean bootOnly = true;
+    public boolean initInstalling;
+    private boolean hasInitSetup;
+    private boolean hasUserPassword;
+    private boolean installingApp;
+    private boolean hasKeystore;
+    private Date keystoreDate;
+    private boolean hasApp;
+}
@@ -0,0 +1,205 @@
+package org.touchhome.app.device;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.touchhome.app.executor.TouchHomeExecutors;
+import org.touchhome.app.job.JobManager;
+import org.touchhome.app.job.JobStateChangedEvent;
+import org.touchhome.app.job.JobType;
+import org.touchhome.app.setup.InitialSetupService;
+import org.touchhome.common.util.CommonUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps DeviceConfig as in-memory snapshot. Snapshot rebuilt only when files in root path changed or
+ * install jobs changed their state, so polling of /rest/app/config not spawn any process.
+ */
+@Log4j2
+@Lazy(false)
+@Service
+@RequiredArgsConstructor
+public class DeviceConfigService {
+
+    private static final Set<String> WATCH_FILES = new HashSet<>(Arrays.asList("touchhome-core.jar", "init_private_key", "user_password.conf"));
+
+    private final InitialSetupService initialSetupService;
+    private final TouchHomeExecutors touchHomeExecutors;
+    private final JobManager jobManager;
+
+    private final List<DeferredResult<ResponseEntity<DeviceConfig>>> waiters = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+
+    private volatile Snapshot snapshot;
+    private WatchService watchService;
+    // setup state read from checkpoint file or by forked 'psql' check, so it's re-evaluated only after init setup job
+    private volatile boolean initSetupDirty = true;
+    private boolean hasInitSetup;
+
+    @PostConstruct
+    public void init() {
+        Path rootPath = CommonUtils.getRootPath();
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            rootPath.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            touchHomeExecutors.getBlocking().execute(this::watch);
+        } catch (IOException ex) {
+            log.warn("Unable to watch <{}>. DeviceConfig refreshed only by install jobs. Error: <{}>", rootPath, ex.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    public Snapshot getSnapshot() {
+        Snapshot snapshot = this.snapshot;
+        return snapshot == null ? refresh() : snapshot;
+    }
+
+    /**
+     * Wait until config differs from one identified by eTag.
+     */
+    public DeferredResult<ResponseEntity<DeviceConfig>> waitForChange(String eTag, long timeoutMs) {
+        DeferredResult<ResponseEntity<DeviceConfig>> result = new DeferredResult<>(timeoutMs,
+                () -> ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build());
+        Snapshot snapshot = getSnapshot();
+        if (!snapshot.getETag().equals(eTag)) {
+            result.setResult(snapshot.toResponse());
+            return result;
+        }
+        waiters.add(result);
+        result.onCompletion(() -> waiters.remove(result));
+        // snapshot may be changed before waiter registered
+        if (!this.snapshot.getETag().equals(eTag)) {
+            result.setResult(this.snapshot.toResponse());
+        }
+        return result;
+    }
+
+    @EventListener
+    public void onJobStateChanged(JobStateChangedEvent event) {
+        if (event.getJob().getType() == JobType.init) {
+            initSetupDirty = true;
+        }
+        invalidate();
+    }
+
+    /**
+     * Schedule snapshot rebuild. Multiple invalidations before rebuild starts are merged into one.
+     */
+    public void invalidate() {
+        if (refreshScheduled.compareAndSet(false, true)) {
+            touchHomeExecutors.getShortTasks().execute(() -> {
+                refreshScheduled.set(false);
+                refresh();
+            });
+        }
+    }
+
+    private synchronized Snapshot refresh() {
+        DeviceConfig deviceConfig;
+        try {
+            deviceConfig = buildDeviceConfig();
+        } catch (Exception ex) {
+            log.error("Unable to build device config: <{}>", CommonUtils.getErrorMessage(ex));
+            if (snapshot == null) {
+                throw new IllegalStateException(ex);
+            }
+            return snapshot;
+        }
+        if (snapshot == null || !snapshot.config.equals(deviceConfig)) {
+            snapshot = new Snapshot(deviceConfig, snapshot == null ? 1 : snapshot.version + 1);
+            for (DeferredResult<ResponseEntity<DeviceConfig>> waiter : waiters) {
+                waiter.setResult(snapshot.toResponse());
+            }
+        }
+        return snapshot;
+    }
+
+    private DeviceConfig buildDeviceConfig() throws IOException {
+        Path rootPath = CommonUtils.getRootPath();
+        DeviceConfig deviceConfig = new DeviceConfig();
+        deviceConfig.setHasApp(Files.exists(rootPath.resolve("touchhome-core.jar")));
+        deviceConfig.setInstallingApp(jobManager.isActive(JobType.download));
+        deviceConfig.setInitInstalling(jobManager.isActive(JobType.init));
+        Path prvKey = rootPath.resolve("init_private_key");
+        deviceConfig.setHasKeystore(Files.exists(prvKey));
+        if (initSetupDirty) {
+            initSetupDirty = false;
+            hasInitSetup = initialSetupService.isFinished();
+        }
+        deviceConfig.setHasInitSetup(hasInitSetup);
+        deviceConfig.setKeystoreDate(deviceConfig.isHasKeystore() ? new Date(Files.getLastModifiedTime(prvKey).toMillis()) : null);
+        deviceConfig.setHasUserPassword(Files.exists(rootPath.resolve("user_password.conf")));
+        return deviceConfig;
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                // drain whole burst of events(create + modify) into single invalidation
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    changed |= event.kind() == StandardWatchEventKinds.OVERFLOW || WATCH_FILES.contains(String.valueOf(event.context()));
+                }
+                key.reset();
+                if (changed) {
+                    invalidate();
+                }
+            }
+        } catch (ClosedWatchServiceException ignore) {
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Getter
+    public static class Snapshot {
+        // version restarts on every boot, so eTag prefixed to not match eTag cached before restart
+        private static final String BOOT_ID = Long.toHexString(System.currentTimeMillis());
+
+        private final DeviceConfig config;
+        private final long version;
+        private final String eTag;
+
+        private Snapshot(DeviceConfig config, long version) {
+            this.config = config;
+            this.version = version;
+            this.eTag = "\"" + BOOT_ID + "-" + version + "\"";
+        }
+
+        public ResponseEntity<DeviceConfig> toResponse() {
+            return ResponseEntity.ok().eTag(eTag).body(config);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.touchhome.app.errors;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+@Getter
+@Setter
+@Accessors(chain = true)
+public class ErrorFingerprint {
+    private String fingerprint;
+    private String errorType;
+    private String message;
+    // since app start or since fingerprint was evicted
+    private long total;
+    // in current window
+    private long windowCount;
+    // in previous window
+    private long lastWindowCount;
+    private long firstSeen;
+    private long lastSeen;
+}
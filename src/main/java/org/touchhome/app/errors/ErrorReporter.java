@@ -0,0 +1,235 @@
+package org.touchhome.app.errors;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.touchhome.app.config.TouchHomeProperties;
+import org.touchhome.app.telemetry.MemoryPressureEvent;
+import org.touchhome.bundle.api.hquery.api.HardwareException;
+import org.touchhome.common.exception.ServerException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Groups errors by fingerprint(root cause type and throw site). Only first error of fingerprint is logged in full,
+ * repeats are counted and logged as one summary line per window(touchhome.errors.windowSec) while they continue.
+ */
+@Log4j2
+@Lazy(false)
+@Component
+@RequiredArgsConstructor
+public class ErrorReporter {
+
+    private static final String OTHER = "other";
+    // fingerprints not seen for this time are forgotten
+    private static final long RETENTION_MS = TimeUnit.HOURS.toMillis(1);
+    private static final int MAX_FINGERPRINT_MESSAGE_LENGTH = 80;
+    // uuids, hex values and numbers which differ between occurrences of the same error
+    private static final Pattern VARIABLE_PART = Pattern.compile(
+            "[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}|0x[0-9a-fA-F]+|\\b[0-9a-fA-F]*\\d[0-9a-fA-F]*\\b|\\d+");
+
+    private final TouchHomeProperties touchHomeProperties;
+    private final ThreadPoolTaskScheduler threadPoolTaskScheduler;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private ScheduledFuture<?> flushFuture;
+
+    @PostConstruct
+    public void init() {
+        flushFuture = threadPoolTaskScheduler.scheduleWithFixedDelay(this::flush,
+                TimeUnit.SECONDS.toMillis(touchHomeProperties.getErrors().getWindowSec()));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (flushFuture != null) {
+            flushFuture.cancel(false);
+        }
+    }
+
+    /**
+     * Count error and log it if it's first occurrence of fingerprint since last quiet window.
+     */
+    public void report(Throwable ex, String message, boolean logStackTrace) {
+        Entry entry = getEntry(ex, message);
+        entry.total.increment();
+        entry.windowCount.increment();
+        entry.lastSeen = System.currentTimeMillis();
+        if (entry.logged.compareAndSet(false, true)) {
+            if (logStackTrace) {
+                log.error("Error <{}>", message, ex);
+            } else {
+                log.error("Error <{}>", message);
+            }
+        } else {
+            entry.suppressed.increment();
+        }
+    }
+
+    public List<ErrorFingerprint> getTopErrors(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive: " + limit);
+        }
+        List<ErrorFingerprint> errors = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            errors.add(new ErrorFingerprint()
+                    .setFingerprint(entry.fingerprint)
+                    .setErrorType(entry.errorType)
+                    .setMessage(entry.message)
+                    .setTotal(entry.total.sum())
+                    .setWindowCount(entry.windowCount.sum())
+                    .setLastWindowCount(entry.lastWindowCount)
+                    .setFirstSeen(entry.firstSeen)
+                    .setLastSeen(entry.lastSeen));
+        }
+        errors.sort(Comparator.comparingLong((ErrorFingerprint error) -> error.getWindowCount() + error.getLastWindowCount())
+                .thenComparingLong(ErrorFingerprint::getTotal).reversed());
+        return errors.size() > limit ? new ArrayList<>(errors.subList(0, limit)) : errors;
+    }
+
+    /**
+     * Truncate message to touchhome.errors.maxMessageLength.
+     */
+    public String truncate(String message) {
+        return StringUtils.abbreviate(message, touchHomeProperties.getErrors().getMaxMessageLength());
+    }
+
+    /**
+     * Join lines with '; ' up to touchhome.errors.maxMessageLength.
+     */
+    public String join(List<String> lines) {
+        if (lines == null || lines.isEmpty()) {
+            return "";
+        }
+        int maxLength = touchHomeProperties.getErrors().getMaxMessageLength();
+        StringBuilder builder = new StringBuilder(Math.min(maxLength, 256));
+        for (int i = 0; i < lines.size(); i++) {
+            String line = StringUtils.defaultString(lines.get(i));
+            if (builder.length() + line.length() + 2 > maxLength) {
+                builder.append("... (").append(lines.size() - i).append(" more lines)");
+                break;
+            }
+            if (i > 0) {
+                builder.append("; ");
+            }
+            builder.append(line);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Forget fingerprints which are quiet in current window
+     */
+    @EventListener
+    public void onMemoryPressure(MemoryPressureEvent event) {
+        entries.values().removeIf(entry -> entry.windowCount.sum() == 0);
+    }
+
+    private Entry getEntry(Throwable ex, String message) {
+        String fingerprint = fingerprint(ex);
+        Entry entry = entries.get(fingerprint);
+        if (entry == null) {
+            if (entries.size() >= touchHomeProperties.getErrors().getMaxFingerprints()) {
+                fingerprint = OTHER;
+            }
+            entry = entries.computeIfAbsent(fingerprint, key -> new Entry(key, rootCause(ex).getClass().getSimpleName(), message));
+        }
+        return entry;
+    }
+
+    private void flush() {
+        int windowSec = touchHomeProperties.getErrors().getWindowSec();
+        long expireBefore = System.currentTimeMillis() - RETENTION_MS;
+        for (Entry entry : entries.values()) {
+            entry.lastWindowCount = entry.windowCount.sumThenReset();
+            long suppressed = entry.suppressed.sumThenReset();
+            if (suppressed > 0) {
+                log.warn("Error <{}> x{} in last {}s. Fingerprint: {}", entry.message, entry.lastWindowCount, windowSec,
+                        entry.fingerprint);
+            } else {
+                // quiet window - next occurrence logged in full again
+                entry.logged.set(false);
+            }
+            if (entry.lastSeen < expireBefore) {
+                entries.remove(entry.fingerprint);
+            }
+        }
+    }
+
+    /**
+     * Root cause type and first stack frame of root cause, i.e. 'IOException@org.a.B.read:42'.
+     * HardwareException and ServerException are thrown from few shared places for any command, so normalised message
+     * is appended for them, i.e. 'HardwareException@org.a.Proxy.invoke:42#Command 'hciconfig hci#' failed'
+     */
+    static String fingerprint(Throwable ex) {
+        Throwable cause = rootCause(ex);
+        StackTraceElement[] stackTrace = cause.getStackTrace();
+        StringBuilder builder = new StringBuilder(128).append(cause.getClass().getName()).append('@');
+        if (stackTrace.length == 0) {
+            builder.append("unknown");
+        } else {
+            StackTraceElement frame = stackTrace[0];
+            builder.append(frame.getClassName()).append('.').append(frame.getMethodName())
+                    .append(':').append(frame.getLineNumber());
+        }
+        if (cause instanceof HardwareException || cause instanceof ServerException) {
+            builder.append('#').append(normalise(cause.getMessage()));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Mask uuids, hex values and numbers of message and truncate it
+     */
+    static String normalise(String message) {
+        if (message == null) {
+            return "";
+        }
+        String normalised = VARIABLE_PART.matcher(message).replaceAll("#");
+        return StringUtils.left(normalised, MAX_FINGERPRINT_MESSAGE_LENGTH);
+    }
+
+    private static Throwable rootCause(Throwable ex) {
+        Throwable cause = ex;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private static class Entry {
+        private final String fingerprint;
+        private final String errorType;
+        // message of first error with this fingerprint
+        private final String message;
+        private final long firstSeen = System.currentTimeMillis();
+        private final LongAdder total = new LongAdder();
+        private final LongAdder windowCount = new LongAdder();
+        private final LongAdder suppressed = new LongAdder();
+        private final AtomicBoolean logged = new AtomicBoolean();
+        private volatile long lastWindowCount;
+        private volatile long lastSeen;
+
+        private Entry(String fingerprint, String errorType, String message) {
+            this.fingerprint = fingerprint;
+            this.errorType = errorType;
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.touchhome.app.executor;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+@Getter
+@Setter
+@Accessors(chain = true)
+public class ExecutorStats {
+    private String name;
+    private int poolSize;
+    private int maxPoolSize;
+    private int activeTasks;
+    private int queuedTasks;
+    private long completedTasks;
+    // exceptions of submit() tasks are reported through Future, not here
+    private long failedTasks;
+    private long rejectedTasks;
+    // time between submit and start
+    private double avgWaitMs;
+    private double avgRunMs;
+    private double maxRunMs;
+}
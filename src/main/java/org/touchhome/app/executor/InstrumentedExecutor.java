@@ -0,0 +1,118 @@
+package org.touchhome.app.executor;
+
+import lombok.Getter;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ThreadPoolExecutor that records queue wait and run time of each task.
+ */
+public class InstrumentedExecutor implements Executor {
+
+    @Getter
+    private final String name;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAdder totalRunNanos = new LongAdder();
+    private final AtomicLong maxRunNanos = new AtomicLong();
+
+    /**
+     * @param stackSizeKb - thread stack size. 0 - jvm default(-Xss)
+     */
+    public InstrumentedExecutor(String name, int coreSize, int maxSize, long keepAliveSec, BlockingQueue<Runnable> queue, int stackSizeKb) {
+        this.name = name;
+        this.executor = new ThreadPoolExecutor(coreSize, maxSize, keepAliveSec, TimeUnit.SECONDS, queue,
+                new NamedThreadFactory(name, stackSizeKb * 1024L));
+        this.executor.allowCoreThreadTimeOut(coreSize > 0 && keepAliveSec > 0);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        long submittedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                long startedAt = System.nanoTime();
+                totalWaitNanos.add(startedAt - submittedAt);
+                try {
+                    task.run();
+                } catch (RuntimeException | Error ex) {
+                    failed.increment();
+                    throw ex;
+                } finally {
+                    long runNanos = System.nanoTime() - startedAt;
+                    totalRunNanos.add(runNanos);
+                    maxRunNanos.accumulateAndGet(runNanos, Math::max);
+                    completed.increment();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            rejected.increment();
+            throw ex;
+        }
+    }
+
+    public Future<?> submit(Runnable task) {
+        FutureTask<Object> futureTask = new FutureTask<>(task, null);
+        execute(futureTask);
+        return futureTask;
+    }
+
+    public <T> Future<T> submit(Callable<T> task) {
+        FutureTask<T> futureTask = new FutureTask<>(task);
+        execute(futureTask);
+        return futureTask;
+    }
+
+    public ExecutorStats getStats() {
+        long completedTasks = completed.sum();
+        return new ExecutorStats()
+                .setName(name)
+                .setPoolSize(executor.getPoolSize())
+                .setMaxPoolSize(executor.getMaximumPoolSize())
+                .setActiveTasks(executor.getActiveCount())
+                .setQueuedTasks(executor.getQueue().size())
+                .setCompletedTasks(completedTasks)
+                .setFailedTasks(failed.sum())
+                .setRejectedTasks(rejected.sum())
+                .setAvgWaitMs(completedTasks == 0 ? 0 : totalWaitNanos.sum() / 1000_000D / completedTasks)
+                .setAvgRunMs(completedTasks == 0 ? 0 : totalRunNanos.sum() / 1000_000D / completedTasks)
+                .setMaxRunMs(maxRunNanos.get() / 1000_000D);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String name;
+        private final long stackSize;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        private NamedThreadFactory(String name, long stackSize) {
+            this.name = name;
+            this.stackSize = stackSize;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(null, runnable, name + "-" + counter.incrementAndGet(), stackSize);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
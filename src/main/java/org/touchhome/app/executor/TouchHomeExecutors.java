@@ -0,0 +1,72 @@
+package org.touchhome.app.executor;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.touchhome.app.config.TouchHomeProperties;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+
+/**
+ * Single execution layer of boot app:
+ * shortTasks - small bounded pool for quick non-blocking work.
+ * blocking - elastic pool with small thread stacks for long blocking work(hardware commands, downloads, setup).
+ * Threads created on demand and released after keepAlive, so idle app holds no threads. With blockingQueueSize tasks
+ * over blockingMaxSize wait in queue instead of being rejected.
+ * Scheduled tasks use 'threadPoolTaskScheduler' bean.
+ */
+@Component
+@RequiredArgsConstructor
+public class TouchHomeExecutors {
+
+    private final TouchHomeProperties touchHomeProperties;
+    private final ThreadPoolTaskScheduler threadPoolTaskScheduler;
+
+    @Getter
+    private InstrumentedExecutor shortTasks;
+    @Getter
+    private InstrumentedExecutor blocking;
+
+    @PostConstruct
+    public void init() {
+        TouchHomeProperties.Executor config = touchHomeProperties.getExecutor();
+        shortTasks = new InstrumentedExecutor("th-short", config.getShortTasksSize(), config.getShortTasksSize(), 60,
+                new ArrayBlockingQueue<>(config.getShortTasksQueueSize()), 0);
+        if (config.getBlockingQueueSize() > 0) {
+            // core threads time out as well, so queue doesn't keep idle threads
+            blocking = new InstrumentedExecutor("th-blocking", config.getBlockingMaxSize(), config.getBlockingMaxSize(), 30,
+                    new ArrayBlockingQueue<>(config.getBlockingQueueSize()), config.getBlockingStackSizeKb());
+        } else {
+            blocking = new InstrumentedExecutor("th-blocking", 0, config.getBlockingMaxSize(), 30,
+                    new SynchronousQueue<>(), config.getBlockingStackSizeKb());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        shortTasks.shutdown();
+        blocking.shutdown();
+    }
+
+    public List<ExecutorStats> getStats() {
+        List<ExecutorStats> stats = new ArrayList<>();
+        stats.add(shortTasks.getStats());
+        stats.add(blocking.getStats());
+        ScheduledThreadPoolExecutor scheduler = threadPoolTaskScheduler.getScheduledThreadPoolExecutor();
+        stats.add(new ExecutorStats()
+                .setName("th-scheduler")
+                .setPoolSize(scheduler.getPoolSize())
+                .setMaxPoolSize(scheduler.getCorePoolSize())
+                .setActiveTasks(scheduler.getActiveCount())
+                .setQueuedTasks(scheduler.getQueue().size())
+                .setCompletedTasks(scheduler.getCompletedTaskCount()));
+        return stats;
+    }
+}
@@ -0,0 +1,17 @@
+package org.touchhome.app.hardware;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Memoize result of read-only @HardwareQuery method per arguments for ttlSec.
+ * Concurrent calls with same arguments share single execution.
+ * Applied to @HardwareRepositoryAnnotation interfaces by HardwareQueryCacheManager.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface HardwareQueryCache {
+    int ttlSec() default 30;
+}
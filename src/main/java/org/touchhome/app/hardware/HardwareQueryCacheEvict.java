@@ -0,0 +1,14 @@
+package org.touchhome.app.hardware;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Drop all cached results of repository after annotated method has been invoked.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface HardwareQueryCacheEvict {
+}
@@ -0,0 +1,215 @@
+package org.touchhome.app.hardware;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.touchhome.app.hardware.metrics.HardwareMetrics;
+import org.touchhome.app.telemetry.MemoryPressureEvent;
+import org.touchhome.bundle.api.hquery.api.HardwareQuery;
+import org.touchhome.bundle.api.hquery.api.HardwareRepositoryAnnotation;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Wraps HQuery proxies of @HardwareRepositoryAnnotation interfaces which has @HardwareQueryCache or
+ * @HardwareQueryCacheEvict methods into caching proxy.
+ */
+@Log4j2
+@Component
+public class HardwareQueryCacheManager implements BeanPostProcessor, Ordered {
+
+    private final Map<CacheKey, Entry> cache = new ConcurrentHashMap<>();
+    private final Map<CacheKey, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Map<Method, CacheStats> stats = new ConcurrentHashMap<>();
+    // bumped on each invalidation to not store results that has been fetched before invalidation
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * After HardwareMetrics, so cache hits are not recorded as hardware commands
+     */
+    @Override
+    public int getOrder() {
+        return HardwareMetrics.ORDER + 1;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        Class<?>[] interfaces = ClassUtils.getAllInterfaces(bean);
+        for (Class<?> repositoryClass : interfaces) {
+            if (repositoryClass.isAnnotationPresent(HardwareRepositoryAnnotation.class) && hasCacheMethods(repositoryClass)) {
+                log.info("Enable hardware query cache for <{}>", repositoryClass.getSimpleName());
+                return Proxy.newProxyInstance(repositoryClass.getClassLoader(), interfaces, new CacheInvocationHandler(bean));
+            }
+        }
+        return bean;
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.clear();
+    }
+
+    @EventListener
+    public void onMemoryPressure(MemoryPressureEvent event) {
+        invalidateAll();
+    }
+
+    public void invalidate(Class<?> repositoryClass) {
+        generation.incrementAndGet();
+        cache.keySet().removeIf(key -> key.method.getDeclaringClass().equals(repositoryClass));
+    }
+
+    public List<CacheStats> getStats() {
+        return new ArrayList<>(stats.values());
+    }
+
+    private static boolean hasCacheMethods(Class<?> repositoryClass) {
+        for (Method method : repositoryClass.getMethods()) {
+            if (method.isAnnotationPresent(HardwareQueryCache.class) || method.isAnnotationPresent(HardwareQueryCacheEvict.class)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Object join(CompletableFuture<Object> future) throws Throwable {
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    @RequiredArgsConstructor
+    private class CacheInvocationHandler implements InvocationHandler {
+        private final Object target;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            HardwareQueryCache hardwareQueryCache = method.getAnnotation(HardwareQueryCache.class);
+            if (hardwareQueryCache != null) {
+                return invokeCached(method, args, hardwareQueryCache);
+            }
+            try {
+                return invokeTarget(method, args);
+            } finally {
+                if (method.isAnnotationPresent(HardwareQueryCacheEvict.class)) {
+                    invalidate(method.getDeclaringClass());
+                }
+            }
+        }
+
+        private Object invokeCached(Method method, Object[] args, HardwareQueryCache hardwareQueryCache) throws Throwable {
+            CacheStats cacheStats = stats.computeIfAbsent(method, CacheStats::new);
+            CacheKey key = new CacheKey(method, args == null ? null : Arrays.asList(args));
+            Entry entry = cache.get(key);
+            if (entry != null && entry.expireAt - System.nanoTime() > 0) {
+                cacheStats.hits.increment();
+                return entry.value;
+            }
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+            if (existing != null) {
+                cacheStats.coalesced.increment();
+                return join(existing);
+            }
+            cacheStats.misses.increment();
+            long startGeneration = generation.get();
+            try {
+                Object value = invokeTarget(method, args);
+                if (startGeneration == generation.get()) {
+                    cache.put(key, new Entry(value, System.nanoTime() + TimeUnit.SECONDS.toNanos(hardwareQueryCache.ttlSec())));
+                }
+                future.complete(value);
+                return value;
+            } catch (Throwable ex) {
+                future.completeExceptionally(ex);
+                throw ex;
+            } finally {
+                inFlight.remove(key, future);
+            }
+        }
+
+        private Object invokeTarget(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getTargetException();
+            }
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class CacheKey {
+        private final Method method;
+        private final List<Object> args;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey cacheKey = (CacheKey) o;
+            return method.equals(cacheKey.method) && Objects.equals(args, cacheKey.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(method, args);
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class Entry {
+        private final Object value;
+        private final long expireAt;
+    }
+
+    public static class CacheStats {
+        @Getter
+        private final String name;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder coalesced = new LongAdder();
+
+        private CacheStats(Method method) {
+            HardwareQuery[] hardwareQueries = method.getAnnotationsByType(HardwareQuery.class);
+            this.name = method.getDeclaringClass().getSimpleName() + "." +
+                    (hardwareQueries.length > 0 ? hardwareQueries[0].name() : method.getName());
+        }
+
+        public long getHits() {
+            return hits.sum();
+        }
+
+        public long getMisses() {
+            return misses.sum();
+        }
+
+        public long getCoalesced() {
+            return coalesced.sum();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.touchhome.app.hardware;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.core.PriorityOrdered;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.touchhome.bundle.api.hquery.api.HardwareRepositoryAnnotation;
+
+/**
+ * HQuery registers proxies of @HardwareRepositoryAnnotation interfaces by registerSingleton(), such beans never pass
+ * BeanPostProcessor chain, so HardwareMetrics and HardwareQueryCacheManager would not wrap them. Each such singleton is
+ * re-registered here as bean definition which supplies the same proxy. This runs when post processors are created:
+ * after all BeanFactoryPostProcessors(so HQuery already registered it's proxies) and before any repository injected.
+ */
+@Log4j2
+@Component
+public class HardwareRepositoryRegistrar implements BeanPostProcessor, BeanFactoryAware, PriorityOrdered {
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) {
+        if (!(beanFactory instanceof DefaultListableBeanFactory)) {
+            return;
+        }
+        DefaultListableBeanFactory listableBeanFactory = (DefaultListableBeanFactory) beanFactory;
+        for (String beanName : listableBeanFactory.getSingletonNames()) {
+            if (listableBeanFactory.containsBeanDefinition(beanName)) {
+                continue;
+            }
+            Object repository = listableBeanFactory.getSingleton(beanName);
+            Class<?> repositoryClass = getRepositoryClass(repository);
+            if (repositoryClass != null) {
+                log.debug("Register hardware repository <{}> as bean definition", beanName);
+                listableBeanFactory.registerBeanDefinition(beanName, createBeanDefinition(repositoryClass, repository));
+            }
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return LOWEST_PRECEDENCE;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> RootBeanDefinition createBeanDefinition(Class<T> repositoryClass, Object repository) {
+        return new RootBeanDefinition(repositoryClass, () -> (T) repository);
+    }
+
+    private static Class<?> getRepositoryClass(Object bean) {
+        if (bean == null) {
+            return null;
+        }
+        for (Class<?> beanInterface : ClassUtils.getAllInterfaces(bean)) {
+            if (beanInterface.isAnnotationPresent(HardwareRepositoryAnnotation.class)) {
+                return beanInterface;
+            }
+        }
+        return null;
+    }
+}
@@ -6,6 +6,10 @@ import org.touchhome.bundle.api.hquery.api.HardwareRepositoryAnnotation;
 
 @HardwareRepositoryAnnotation
 public interface HotSpotHardwareRepository {
+    /**
+     * Multi-step, but kept on HQuery path instead of ShellSessionPool: it's not called from this app, so there is no
+     * setup flow to speed up, and query list with :sysDir parameter stays declarative for callers from bundles.
+     */
     @HardwareQuery(name = "Disable Hostapd", value = "systemctl disable hostapd", ignoreOnError = true)
     @HardwareQuery(name = "Disable Dnsmasq", value = "systemctl disable dnsmasq", ignoreOnError = true)
     @HardwareQuery(name = "Copy required files", printOutput = true, value = "mkdir -p /etc/hostapd && " +
@@ -15,17 +19,10 @@ public interface HotSpotHardwareRepository {
             "cp -n :sysDir/autohotspot /usr/bin/autohotspot")
     @HardwareQuery(name = "Enable AutoHotSpot Service", value = "systemctl enable autohotspot.service", printOutput = true, ignoreOnError = true)
     @HardwareQuery(name = "Set AutoHotSpot executable", value = "chmod +x /usr/bin/autohotspot", printOutput = true, ignoreOnError = true)
+    @HardwareQueryCacheEvict
     void installAutoHotSpot(@HQueryParam("sysDir") String sysDir);
 
+    @HardwareQueryCache(ttlSec = 60)
     @HardwareQuery(name = "Is auto hotspot service exists", value = "test -f /usr/bin/autohotspot")
     boolean isAutoHotSpotServiceExists();
 }
-
-
-
-
-
-
-
-
-
@@ -0,0 +1,83 @@
+package org.touchhome.app.hardware.metrics;
+
+import lombok.Getter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency, exit codes and timeouts of one hardware command/query.
+ */
+public class CommandMetrics {
+
+    public static final int NO_EXIT_CODE = -1;
+
+    @Getter
+    private final String name;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final AtomicLongArray exitCodes = new AtomicLongArray(256);
+    // failed without exit code(i.e. unable to start process)
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    CommandMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param exitCode - process exit code or NO_EXIT_CODE if command failed before process finished
+     */
+    public void record(long nanos, int exitCode) {
+        histogram.record(nanos);
+        if (exitCode >= 0 && exitCode < 256) {
+            exitCodes.incrementAndGet(exitCode);
+        } else {
+            errors.increment();
+        }
+    }
+
+    public void recordTimeout(long nanos) {
+        histogram.record(nanos);
+        timeouts.increment();
+    }
+
+    public CommandStats getStats() {
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        return new CommandStats()
+                .setName(name)
+                .setCount(snapshot.getCount())
+                .setErrors(errors.sum())
+                .setTimeouts(timeouts.sum())
+                .setExitCodes(getExitCodes())
+                .setAvgMs(snapshot.getCount() == 0 ? 0 : snapshot.getSumMs() / snapshot.getCount())
+                .setP50Ms(snapshot.getPercentileMs(0.5))
+                .setP90Ms(snapshot.getPercentileMs(0.9))
+                .setP99Ms(snapshot.getPercentileMs(0.99))
+                .setMaxMs(snapshot.getMaxMs());
+    }
+
+    LatencyHistogram.Snapshot getHistogram() {
+        return histogram.snapshot();
+    }
+
+    long getErrors() {
+        return errors.sum();
+    }
+
+    long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    Map<Integer, Long> getExitCodes() {
+        Map<Integer, Long> codes = new LinkedHashMap<>();
+        for (int i = 0; i < exitCodes.length(); i++) {
+            long count = exitCodes.get(i);
+            if (count > 0) {
+                codes.put(i, count);
+            }
+        }
+        return codes;
+    }
+}
@@ -0,0 +1,24 @@
+package org.touchhome.app.hardware.metrics;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+import java.util.Map;
+
+@Getter
+@Setter
+@Accessors(chain = true)
+public class CommandStats {
+    private String name;
+    private long count;
+    private long errors;
+    private long timeouts;
+    // exit code -> count
+    private Map<Integer, Long> exitCodes;
+    private double avgMs;
+    private double p50Ms;
+    private double p90Ms;
+    private double p99Ms;
+    private double maxMs;
+}
@@ -0,0 +1,217 @@
+package org.touchhome.app.hardware.metrics;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.touchhome.bundle.api.hquery.api.HardwareException;
+import org.touchhome.bundle.api.hquery.api.HardwareQuery;
+import org.touchhome.bundle.api.hquery.api.HardwareRepositoryAnnotation;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.ToLongFunction;
+
+/**
+ * Records latency, exit codes and timeouts of hardware commands. Methods of @HardwareRepositoryAnnotation interfaces
+ * are measured by wrapping HQuery proxies(inside of HardwareQueryCacheManager proxy, so cache hits are not counted), keyed by
+ * @HardwareQuery name. Methods with several or without queries measured as a whole and keyed by 'Repository.method'.
+ */
+@Log4j2
+@Component
+public class HardwareMetrics implements BeanPostProcessor, Ordered {
+
+    // max distinct command names. Others recorded as 'other'
+    private static final int MAX_COMMANDS = 512;
+    // prometheus histogram buckets in micros
+    private static final long[] PROMETHEUS_BUCKETS = {1000, 5000, 10_000, 25_000, 50_000, 100_000, 250_000, 500_000,
+            1000_000, 2500_000, 5000_000, 10_000_000, 30_000_000, 60_000_000, 300_000_000};
+
+    private final Map<String, CommandMetrics> commands = new ConcurrentHashMap<>();
+    private final Map<Method, CommandMetrics> methodCommands = new ConcurrentHashMap<>();
+    private String deviceInfo;
+
+    // wraps repository before HardwareQueryCacheManager, so metrics proxy is inside of cache proxy
+    public static final int ORDER = Ordered.LOWEST_PRECEDENCE - 100;
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        Class<?>[] interfaces = ClassUtils.getAllInterfaces(bean);
+        for (Class<?> repositoryClass : interfaces) {
+            if (repositoryClass.isAnnotationPresent(HardwareRepositoryAnnotation.class)) {
+                return Proxy.newProxyInstance(repositoryClass.getClassLoader(), interfaces, new MetricsInvocationHandler(bean));
+            }
+        }
+        return bean;
+    }
+
+    public CommandMetrics get(String name) {
+        CommandMetrics metrics = commands.get(name);
+        if (metrics == null) {
+            String key = commands.size() >= MAX_COMMANDS ? "other" : name;
+            metrics = commands.computeIfAbsent(key, CommandMetrics::new);
+        }
+        return metrics;
+    }
+
+    public List<CommandStats> getStats() {
+        List<CommandStats> stats = new ArrayList<>();
+        for (CommandMetrics metrics : commands.values()) {
+            stats.add(metrics.getStats());
+        }
+        stats.sort(Comparator.comparing(CommandStats::getName));
+        return stats;
+    }
+
+    /**
+     * Metrics in prometheus text exposition format
+     */
+    public String toPrometheus() {
+        StringBuilder builder = new StringBuilder(4096);
+        builder.append("# TYPE touchhome_device_info gauge\n")
+                .append("touchhome_device_info{").append(getDeviceInfo()).append("} 1\n");
+
+        builder.append("# TYPE touchhome_hardware_command_duration_seconds histogram\n");
+        for (CommandMetrics metrics : commands.values()) {
+            String label = "command=\"" + escape(metrics.getName()) + "\"";
+            LatencyHistogram.Snapshot snapshot = metrics.getHistogram();
+            for (long bucket : PROMETHEUS_BUCKETS) {
+                builder.append("touchhome_hardware_command_duration_seconds_bucket{").append(label)
+                        .append(",le=\"").append(bucket / 1000_000D).append("\"} ").append(snapshot.getCountBelow(bucket)).append('\n');
+            }
+            builder.append("touchhome_hardware_command_duration_seconds_bucket{").append(label).append(",le=\"+Inf\"} ")
+                    .append(snapshot.getCount()).append('\n');
+            builder.append("touchhome_hardware_command_duration_seconds_sum{").append(label).append("} ")
+                    .append(snapshot.getSumMs() / 1000).append('\n');
+            builder.append("touchhome_hardware_command_duration_seconds_count{").append(label).append("} ")
+                    .append(snapshot.getCount()).append('\n');
+        }
+
+        builder.append("# TYPE touchhome_hardware_command_exit_total counter\n");
+        for (CommandMetrics metrics : commands.values()) {
+            for (Map.Entry<Integer, Long> exitCode : metrics.getExitCodes().entrySet()) {
+                builder.append("touchhome_hardware_command_exit_total{command=\"").append(escape(metrics.getName()))
+                        .append("\",code=\"").append(exitCode.getKey()).append("\"} ").append(exitCode.getValue()).append('\n');
+            }
+        }
+        appendCounter(builder, "touchhome_hardware_command_errors_total", CommandMetrics::getErrors);
+        appendCounter(builder, "touchhome_hardware_command_timeouts_total", CommandMetrics::getTimeouts);
+        return builder.toString();
+    }
+
+    private void appendCounter(StringBuilder builder, String name, ToLongFunction<CommandMetrics> value) {
+        builder.append("# TYPE ").append(name).append(" counter\n");
+        for (CommandMetrics metrics : commands.values()) {
+            builder.append(name).append("{command=\"").append(escape(metrics.getName())).append("\"} ")
+                    .append(value.applyAsLong(metrics)).append('\n');
+        }
+    }
+
+    /**
+     * Board model and os labels, so metrics from different devices may be compared
+     */
+    private String getDeviceInfo() {
+        if (deviceInfo == null) {
+            String model = StringUtils.defaultIfEmpty(StringUtils.strip(readFile(Paths.get("/proc/device-tree/model")), "\u0000\n "), "unknown");
+            String os = "unknown";
+            for (String line : StringUtils.split(readFile(Paths.get("/etc/os-release")), '\n')) {
+                if (line.startsWith("PRETTY_NAME=")) {
+                    os = StringUtils.strip(line.substring("PRETTY_NAME=".length()), "\"");
+                }
+            }
+            deviceInfo = "model=\"" + escape(model) + "\",os=\"" + escape(os) + "\",arch=\"" + escape(System.getProperty("os.arch")) + "\"";
+        }
+        return deviceInfo;
+    }
+
+    private static String readFile(Path path) {
+        try {
+            return Files.isReadable(path) ? new String(Files.readAllBytes(path), StandardCharsets.UTF_8) : "";
+        } catch (IOException ex) {
+            return "";
+        }
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static boolean isTimeout(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @RequiredArgsConstructor
+    private class MetricsInvocationHandler implements InvocationHandler {
+        private final Object target;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class || method.isDefault()) {
+                return invokeTarget(method, args);
+            }
+            HardwareQuery[] hardwareQueries = method.getAnnotationsByType(HardwareQuery.class);
+            CommandMetrics metrics = methodCommands.computeIfAbsent(method, m -> get(hardwareQueries.length == 1 ?
+                    hardwareQueries[0].name() : m.getDeclaringClass().getSimpleName() + "." + m.getName()));
+            long startedAt = System.nanoTime();
+            try {
+                Object value = invokeTarget(method, args);
+                metrics.record(System.nanoTime() - startedAt, 0);
+                return value;
+            } catch (HardwareException ex) {
+                metrics.record(System.nanoTime() - startedAt, ex.getRetValue());
+                throw ex;
+            } catch (Throwable ex) {
+                long nanos = System.nanoTime() - startedAt;
+                if (isTimeout(ex) || hardwareQueries.length > 0 && nanos >= TimeUnit.SECONDS.toNanos(getMaxSecondsTimeout(hardwareQueries))) {
+                    metrics.recordTimeout(nanos);
+                } else {
+                    metrics.record(nanos, CommandMetrics.NO_EXIT_CODE);
+                }
+                throw ex;
+            }
+        }
+
+        private long getMaxSecondsTimeout(HardwareQuery[] hardwareQueries) {
+            long timeout = 0;
+            for (HardwareQuery hardwareQuery : hardwareQueries) {
+                timeout += hardwareQuery.maxSecondsTimeout();
+            }
+            return timeout;
+        }
+
+        private Object invokeTarget(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getTargetException();
+            }
+        }
+    }
+}
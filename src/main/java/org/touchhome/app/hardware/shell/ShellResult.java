@@ -0,0 +1,18 @@
+package org.touchhome.app.hardware.shell;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+@Getter
+@RequiredArgsConstructor
+public class ShellResult {
+    private final int exitCode;
+    private final List<String> output;
+    private final List<String> errors;
+
+    public String getOutputAsString() {
+        return String.join("\n", output);
+    }
+}
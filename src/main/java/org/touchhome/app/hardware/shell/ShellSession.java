@@ -0,0 +1,153 @@
+package org.touchhome.app.hardware.shell;
+
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.SystemUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Long-lived shell process. Each command framed by unique sentinel line printed to stdout(with exit code) and stderr,
+ * so stdout and stderr lines are demultiplexed per command without starting new process.
+ * On linux shell started by 'setsid' as leader of own process group, so close() terminates commands spawned by
+ * shell as well, not only shell itself.
+ */
+@Log4j2
+final class ShellSession implements AutoCloseable {
+
+    private static final String EOF = "\u0000EOF";
+    private static final String SENTINEL_PREFIX = "__TH_END_";
+    private static final int START_TIMEOUT_SEC = 10;
+
+    private final Process process;
+    private final Writer stdin;
+    private final BlockingQueue<String> stdout = new LinkedBlockingQueue<>();
+    private final BlockingQueue<String> stderr = new LinkedBlockingQueue<>();
+    private volatile boolean alive = true;
+    // process group of shell, 0 if shell is not group leader
+    private final int processGroup;
+
+    ShellSession(List<String> shellCommand, String name) throws IOException {
+        List<String> command = new ArrayList<>();
+        if (SystemUtils.IS_OS_LINUX) {
+            command.add("setsid");
+        }
+        command.addAll(shellCommand);
+        this.process = new ProcessBuilder(command).start();
+        this.stdin = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8);
+        startReader(process.getInputStream(), stdout, name + "-out");
+        startReader(process.getErrorStream(), stderr, name + "-err");
+        this.processGroup = SystemUtils.IS_OS_LINUX ? readProcessGroup() : 0;
+    }
+
+    boolean isAlive() {
+        return alive && process.isAlive();
+    }
+
+    /**
+     * Run command and wait for it's sentinel. Session killed if command not finished in time.
+     */
+    ShellResult execute(String command, int maxSecondsTimeout) throws IOException, TimeoutException, InterruptedException {
+        String sentinel = SENTINEL_PREFIX + UUID.randomUUID().toString().replace("-", "");
+        // subshell keeps cd/export/set -e/trap/exit of command away from next callers, stdin redirected to not consume
+        // next commands, and newline before sentinel in case of output without trailing \n
+        stdin.write("(\n" + command + "\n) < /dev/null\n" +
+                "printf '\\n" + sentinel + " %d\\n' $?\n" +
+                "printf '\\n" + sentinel + "\\n' >&2\n");
+        stdin.flush();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(maxSecondsTimeout);
+        List<String> output = new ArrayList<>();
+        String exitLine = readUntil(stdout, sentinel, output, deadline);
+        List<String> errors = new ArrayList<>();
+        readUntil(stderr, sentinel, errors, deadline);
+        int exitCode = Integer.parseInt(exitLine.substring(sentinel.length() + 1).trim());
+        return new ShellResult(exitCode, output, errors);
+    }
+
+    @Override
+    public void close() {
+        alive = false;
+        if (processGroup > 0 && process.isAlive()) {
+            try {
+                new ProcessBuilder("kill", "-TERM", "--", "-" + processGroup).start().waitFor(5, TimeUnit.SECONDS);
+            } catch (Exception ex) {
+                log.warn("Unable to terminate shell process group {}: <{}>", processGroup, ex.getMessage());
+            }
+        }
+        process.destroyForcibly();
+    }
+
+    // java 8 has no Process.pid(), so shell reports it's pid which is also id of it's process group
+    private int readProcessGroup() throws IOException {
+        try {
+            stdin.write("echo $$\n");
+            stdin.flush();
+            String line = stdout.poll(START_TIMEOUT_SEC, TimeUnit.SECONDS);
+            if (line == null || line == EOF || !line.matches("\\d+")) {
+                throw new IOException("Shell session not started: " + line);
+            }
+            return Integer.parseInt(line);
+        } catch (InterruptedException ex) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException("Shell session start interrupted", ex);
+        } catch (IOException ex) {
+            process.destroyForcibly();
+            throw ex;
+        }
+    }
+
+    private String readUntil(BlockingQueue<String> queue, String sentinel, List<String> lines, long deadline)
+            throws IOException, TimeoutException, InterruptedException {
+        while (true) {
+            String line = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (line == null) {
+                close();
+                throw new TimeoutException("Command not finished in time");
+            }
+            if (line == EOF) {
+                close();
+                throw new IOException("Shell session terminated");
+            }
+            if (line.startsWith(sentinel)) {
+                // drop empty line printed before sentinel
+                if (!lines.isEmpty() && lines.get(lines.size() - 1).isEmpty()) {
+                    lines.remove(lines.size() - 1);
+                }
+                return line;
+            }
+            lines.add(line);
+        }
+    }
+
+    private void startReader(InputStream inputStream, BlockingQueue<String> queue, String name) {
+        Thread thread = new Thread(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    queue.add(line);
+                }
+            } catch (IOException ex) {
+                log.debug("Shell session stream {} closed: <{}>", name, ex.getMessage());
+            } finally {
+                alive = false;
+                queue.add(EOF);
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
@@ -0,0 +1,153 @@
+package org.touchhome.app.hardware.shell;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+import org.touchhome.app.config.TouchHomeProperties;
+import org.touchhome.app.hardware.metrics.CommandMetrics;
+import org.touchhome.app.hardware.metrics.HardwareMetrics;
+import org.touchhome.app.job.Job;
+import org.touchhome.bundle.api.hardware.other.MachineHardwareRepository;
+import org.touchhome.common.exception.ServerException;
+import org.touchhome.common.util.CommonUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes commands in small pool of long-lived shell processes to avoid fork/exec + shell start per command.
+ * With touchhome.shell.sessions = 0 commands are executed by MachineHardwareRepository as before.
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class ShellSessionPool {
+
+    private static final String METRICS_NAME = "Shell session command";
+
+    private final TouchHomeProperties touchHomeProperties;
+    private final MachineHardwareRepository machineHardwareRepository;
+    private final HardwareMetrics hardwareMetrics;
+
+    private final Queue<ShellSession> idleSessions = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger sessionCounter = new AtomicInteger();
+    private Semaphore permits;
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(Math.max(1, touchHomeProperties.getShell().getSessions()), true);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        ShellSession session;
+        while ((session = idleSessions.poll()) != null) {
+            session.close();
+        }
+    }
+
+    public String execute(String command) {
+        return execute(command, 60, false, false).getOutputAsString();
+    }
+
+    /**
+     * @param ignoreOnError - not throw exception if command exit code not 0
+     * @param printOutput   - log command stdout/stderr
+     */
+    public ShellResult execute(String command, int maxSecondsTimeout, boolean ignoreOnError, boolean printOutput) {
+        if (touchHomeProperties.getShell().getSessions() <= 0) {
+            return executeProcess(command, ignoreOnError, printOutput);
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ServerException(ex);
+        }
+        ShellSession session = null;
+        CommandMetrics metrics = hardwareMetrics.get(METRICS_NAME);
+        long startedAt = System.nanoTime();
+        // cancelled job kills it's shell session together with running command
+        Job job = Job.current();
+        Runnable cancelHook = null;
+        try {
+            session = borrowSession();
+            if (job != null) {
+                cancelHook = session::close;
+                job.addCancelHook(cancelHook);
+            }
+            ShellResult result = session.execute(command, maxSecondsTimeout);
+            metrics.record(System.nanoTime() - startedAt, result.getExitCode());
+            if (printOutput) {
+                result.getOutput().forEach(line -> log.info("[{}]: {}", command, line));
+                result.getErrors().forEach(line -> log.warn("[{}]: {}", command, line));
+            }
+            if (result.getExitCode() != 0 && !ignoreOnError) {
+                throw new ServerException("Command '" + command + "' failed with exit code " + result.getExitCode() +
+                        ": " + String.join("; ", result.getErrors()));
+            }
+            return result;
+        } catch (TimeoutException ex) {
+            metrics.recordTimeout(System.nanoTime() - startedAt);
+            throw new ServerException("Command '" + command + "' not finished in " + maxSecondsTimeout + " sec");
+        } catch (IOException ex) {
+            metrics.record(System.nanoTime() - startedAt, CommandMetrics.NO_EXIT_CODE);
+            throw new ServerException(ex);
+        } catch (InterruptedException ex) {
+            // session may still execute command and has unread output
+            if (session != null) {
+                session.close();
+            }
+            Thread.currentThread().interrupt();
+            throw new ServerException(ex);
+        } finally {
+            if (cancelHook != null) {
+                job.removeCancelHook(cancelHook);
+            }
+            if (session != null) {
+                if (session.isAlive()) {
+                    idleSessions.add(session);
+                } else {
+                    session.close();
+                }
+            }
+            permits.release();
+        }
+    }
+
+    private ShellSession borrowSession() throws IOException {
+        ShellSession session;
+        while ((session = idleSessions.poll()) != null) {
+            if (session.isAlive()) {
+                return session;
+            }
+            session.close();
+        }
+        List<String> shellCommand = Arrays.asList(touchHomeProperties.getShell().getCommand().split(" "));
+        return new ShellSession(shellCommand, "shell-session-" + sessionCounter.incrementAndGet());
+    }
+
+    private ShellResult executeProcess(String command, boolean ignoreOnError, boolean printOutput) {
+        try {
+            String output = machineHardwareRepository.execute(command);
+            if (printOutput) {
+                log.info("[{}]: {}", command, output);
+            }
+            return new ShellResult(0, output == null ? Collections.emptyList() : Arrays.asList(output.split("\n")), Collections.emptyList());
+        } catch (Exception ex) {
+            if (!ignoreOnError) {
+                throw ex;
+            }
+            return new ShellResult(1, Collections.emptyList(), Collections.singletonList(CommonUtils.getErrorMessage(ex)));
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package org.touchhome.app.install;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+import org.touchhome.app.config.TouchHomeProperties;
+import org.touchhome.app.executor.TouchHomeExecutors;
+import org.touchhome.common.exception.ServerException;
+import org.touchhome.common.model.ProgressBar;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Downloads file over http with md5 check in a single pass.
+ * Interrupted downloads are resumed from already written bytes using http Range requests, and file may be
+ * fetched by several parallel range segments if server supports it (see touchhome.download.segments).
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class AppDownloader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Pattern CONTENT_RANGE_TOTAL = Pattern.compile("bytes \\d+-\\d+/(\\d+)");
+
+    private final TouchHomeProperties touchHomeProperties;
+    private final TouchHomeExecutors touchHomeExecutors;
+
+    /**
+     * Download url content to tmpPath. Existed tmpPath treated as previous partial download and resumed.
+     * Tmp file and it's state removed if downloaded content not match expected md5 hash.
+     *
+     * @return sha256 hex of downloaded file
+     */
+    public String download(String url, Path tmpPath, String expectedMD5, ProgressBar progressBar) throws IOException {
+        TouchHomeProperties.Download config = touchHomeProperties.getDownload();
+        RemoteFile remoteFile = probe(url);
+        DownloadState state = DownloadState.create(tmpPath, remoteFile.length, remoteFile.validator,
+                config.getSegments(), remoteFile.acceptRanges);
+        if (state.getDownloaded() > 0) {
+            log.info("Resume download <{}> from {} of {} bytes", url, state.getDownloaded(), state.getTotal());
+        }
+        String md5;
+        try (FileChannel channel = FileChannel.open(tmpPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            DownloadProgress downloadProgress = new DownloadProgress(state, channel, progressBar);
+            downloadSegments(url, state, channel, downloadProgress);
+            md5 = state.finish(channel);
+        } catch (ServerException ex) {
+            DownloadState.delete(tmpPath);
+            throw ex;
+        }
+        if (!StringUtils.equalsIgnoreCase(StringUtils.trim(expectedMD5), md5)) {
+            DownloadState.delete(tmpPath);
+            throw new ServerException("Downloaded file corrupted");
+        }
+        return state.getSha256();
+    }
+
+    private void downloadSegments(String url, DownloadState state, FileChannel channel, DownloadProgress downloadProgress) throws IOException {
+        List<DownloadState.Segment> segments = state.getSegments();
+        if (segments.size() == 1) {
+            downloadSegment(url, state, segments.get(0), channel, downloadProgress);
+            return;
+        }
+        List<Future<?>> futures = new ArrayList<>();
+        for (DownloadState.Segment segment : segments) {
+            futures.add(touchHomeExecutors.getBlocking().submit(() -> {
+                downloadSegment(url, state, segment, channel, downloadProgress);
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Download interrupted", ex);
+        } catch (ExecutionException ex) {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+            state.save(channel);
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new ServerException(ex);
+        }
+    }
+
+    private void downloadSegment(String url, DownloadState state, DownloadState.Segment segment, FileChannel channel,
+                                 DownloadProgress downloadProgress) throws IOException {
+        TouchHomeProperties.Download config = touchHomeProperties.getDownload();
+        int failedAttempts = 0;
+        while (state.getPosition(segment) < segment.end) {
+            long position = state.getPosition(segment);
+            try {
+                fetchRange(url, state, segment, channel, downloadProgress);
+            } catch (IOException ex) {
+                state.save(channel);
+                if (state.getPosition(segment) > position) {
+                    failedAttempts = 0;
+                }
+                if (++failedAttempts > config.getRetries()) {
+                    throw ex;
+                }
+                log.warn("Download segment {} interrupted at {}. Retry {}/{}. Error: <{}>", segment, state.getPosition(segment),
+                        failedAttempts, config.getRetries(), ex.getMessage());
+                try {
+                    TimeUnit.SECONDS.sleep(failedAttempts);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Download interrupted", ie);
+                }
+            }
+        }
+    }
+
+    private void fetchRange(String url, DownloadState state, DownloadState.Segment segment, FileChannel channel,
+                            DownloadProgress downloadProgress) throws IOException {
+        long position = state.getPosition(segment);
+        boolean fullFile = position == 0 && segment.end == state.getTotal();
+        HttpURLConnection connection = openConnection(url);
+        try {
+            if (!fullFile) {
+                connection.setRequestProperty("Range", "bytes=" + position + "-" + (segment.end - 1));
+                if (StringUtils.isNotEmpty(state.getValidator())) {
+                    connection.setRequestProperty("If-Range", state.getValidator());
+                }
+            }
+            int code = connection.getResponseCode();
+            if (code >= 500) {
+                throw new IOException("Server respond with status: " + code);
+            }
+            if (fullFile ? code != HttpURLConnection.HTTP_OK && code != HttpURLConnection.HTTP_PARTIAL : code != HttpURLConnection.HTTP_PARTIAL) {
+                throw new ServerException("Unable to download range " + position + "-" + segment.end + ". Status: " + code);
+            }
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (InputStream inputStream = connection.getInputStream()) {
+                while (position < segment.end) {
+                    int read = inputStream.read(buffer, 0, (int) Math.min(buffer.length, segment.end - position));
+                    if (read == -1) {
+                        throw new EOFException("Connection closed at position " + position);
+                    }
+                    ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                    while (byteBuffer.hasRemaining()) {
+                        channel.write(byteBuffer, position + byteBuffer.position());
+                    }
+                    state.onWritten(channel, segment, position, buffer, read);
+                    position += read;
+                    downloadProgress.update();
+                }
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Request first byte to fetch file length, validator and check if server supports range requests.
+     */
+    private RemoteFile probe(String url) throws IOException {
+        HttpURLConnection connection = openConnection(url);
+        try {
+            connection.setRequestProperty("Range", "bytes=0-0");
+            int code = connection.getResponseCode();
+            String validator = StringUtils.defaultString(connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified"));
+            if (code == HttpURLConnection.HTTP_PARTIAL) {
+                Matcher matcher = CONTENT_RANGE_TOTAL.matcher(StringUtils.defaultString(connection.getHeaderField("Content-Range")));
+                if (matcher.matches()) {
+                    return new RemoteFile(Long.parseLong(matcher.group(1)), true, StringUtils.defaultString(validator));
+                }
+            }
+            if (code == HttpURLConnection.HTTP_OK || code == HttpURLConnection.HTTP_PARTIAL) {
+                long length = connection.getContentLengthLong();
+                if (length >= 0) {
+                    return new RemoteFile(length, false, StringUtils.defaultString(validator));
+                }
+            }
+            throw new ServerException("Unable to fetch file size from " + url + ". Status: " + code);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    HttpURLConnection openConnection(String url) throws IOException {
+        TouchHomeProperties.Download config = touchHomeProperties.getDownload();
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setInstanceFollowRedirects(true);
+        connection.setConnectTimeout((int) TimeUnit.SECONDS.toMillis(config.getConnectTimeoutSec()));
+        connection.setReadTimeout((int) TimeUnit.SECONDS.toMillis(config.getReadTimeoutSec()));
+        return connection;
+    }
+
+    private static class RemoteFile {
+        private final long length;
+        private final boolean acceptRanges;
+        private final String validator;
+
+        private RemoteFile(long length, boolean acceptRanges, String validator) {
+            this.length = length;
+            this.acceptRanges = acceptRanges;
+            this.validator = validator;
+        }
+    }
+
+    /**
+     * Reports download progress each percent and checkpoints download state at same time.
+     * Synchronized, so parallel segments never publish lower percent after higher one.
+     */
+    private static class DownloadProgress {
+        private final DownloadState state;
+        private final FileChannel channel;
+        private final ProgressBar progressBar;
+        private int lastPercent = -1;
+
+        private DownloadProgress(DownloadState state, FileChannel channel, ProgressBar progressBar) {
+            this.state = state;
+            this.channel = channel;
+            this.progressBar = progressBar;
+        }
+
+        private synchronized void update() throws IOException {
+            long downloaded = state.getDownloaded();
+            int percent = state.getTotal() == 0 ? 100 : (int) (downloaded * 100 / state.getTotal());
+            if (percent > lastPercent) {
+                lastPercent = percent;
+                state.save(channel);
+                progressBar.progress(percent, String.format("Downloading %.1f/%.1f Mb",
+                        downloaded / 1048576D, state.getTotal() / 1048576D));
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package org.touchhome.app.install;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Service;
+import org.touchhome.app.config.TouchHomeProperties;
+import org.touchhome.common.exception.NotFoundException;
+import org.touchhome.common.exception.ServerException;
+import org.touchhome.common.model.ProgressBar;
+import org.touchhome.common.util.CommonUtils;
+import org.touchhome.common.util.Curl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.touchhome.common.util.CommonUtils.OBJECT_MAPPER;
+
+/**
+ * Installs latest touchhome-core release into ArtifactStore. Releases already in store are activated without download.
+ * Otherwise release is fetched from LAN peers(see PeerDiscovery), then delta from installed jar(see DeltaPatcher) is
+ * tried and full download is the last resort. Peers and delta require release entries manifest.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class AppInstaller {
+
+    private static final String JAR_ASSET = "touchhome.jar";
+    private static final String MD5_ASSET = "md5.hex";
+    private static final String SHA256_ASSET = "sha256.hex";
+
+    private final AppDownloader appDownloader;
+    private final DeltaPatcher deltaPatcher;
+    private final PeerDiscovery peerDiscovery;
+    private final PeerDownloader peerDownloader;
+    private final ArtifactStore artifactStore;
+    private final TouchHomeProperties touchHomeProperties;
+
+    public void downloadApp(ProgressBar progressBar) throws IOException {
+        if (Files.exists(ArtifactStore.getAppPath())) {
+            progressBar.progress(100D, "App already downloaded.");
+            return;
+        }
+        log.info("Installing application...");
+        install(progressBar);
+        log.info("App installation finished");
+    }
+
+    public void updateApp(ProgressBar progressBar) throws IOException {
+        log.info("Updating application...");
+        artifactStore.adoptInstalledApp();
+        install(progressBar);
+    }
+
+    public StoredRelease rollbackApp() throws IOException {
+        return artifactStore.rollback();
+    }
+
+    public List<StoredRelease> getReleases() throws IOException {
+        return artifactStore.getReleases();
+    }
+
+    private void install(ProgressBar progressBar) throws IOException {
+        Path appPath = ArtifactStore.getAppPath();
+        Path tmpPath = CommonUtils.getRootPath().resolve("touchhome-core_tmp.jar");
+        GitHubRelease release = Curl.get(touchHomeProperties.getDownload().getReleaseUrl(), GitHubRelease.class);
+        String md5HashValue = StringUtils.trim(downloadHash(release, MD5_ASSET, true));
+
+        GitHubRelease.Asset asset = release.findAsset(JAR_ASSET);
+        if (asset == null) {
+            throw new NotFoundException("Unable to find touchhome-code.jar asset from server");
+        }
+        StoredRelease storedRelease = artifactStore.findByMd5(md5HashValue);
+        if (storedRelease != null) {
+            if (storedRelease.isActive() && Files.exists(appPath)) {
+                progressBar.progress(100D, "App is up to date.");
+            } else {
+                artifactStore.activate(storedRelease);
+                progressBar.progress(100D, "App installed from local store.");
+            }
+            return;
+        }
+
+        String sha256 = null;
+        // existed tmp file is not finished full download which is cheaper to resume than patch
+        if (!Files.exists(tmpPath)) {
+            JarEntriesManifest manifest = downloadManifest(release, md5HashValue);
+            if (manifest != null) {
+                sha256 = fetchFromPeers(manifest, asset, tmpPath, md5HashValue, progressBar);
+                if (sha256 == null && Files.exists(appPath)) {
+                    sha256 = patch(manifest, asset, appPath, tmpPath, md5HashValue, progressBar);
+                }
+            }
+        }
+        if (sha256 == null) {
+            log.info("Downloading touchhome.jar to <{}>", tmpPath);
+            // resumes partially downloaded tmpPath and test md5/sha256 hash while downloading
+            sha256 = appDownloader.download(asset.getBrowser_download_url(), tmpPath, md5HashValue, progressBar);
+        }
+        String expectedSha256 = StringUtils.trim(downloadHash(release, SHA256_ASSET, false));
+        if (expectedSha256 != null && !expectedSha256.equalsIgnoreCase(sha256)) {
+            DownloadState.delete(tmpPath);
+            throw new ServerException("Downloaded file sha256 not match " + SHA256_ASSET);
+        }
+        artifactStore.activate(artifactStore.put(tmpPath, sha256, md5HashValue, release.getTag_name()));
+    }
+
+    private JarEntriesManifest downloadManifest(GitHubRelease release, String md5HashValue) {
+        GitHubRelease.Asset manifestAsset = release.findAsset(JAR_ASSET + JarEntriesManifest.ASSET_SUFFIX);
+        if (manifestAsset == null) {
+            log.info("Release {} has no entries manifest", release.getTag_name());
+            return null;
+        }
+        try {
+            JarEntriesManifest manifest = OBJECT_MAPPER.readValue(Curl.download(manifestAsset.getBrowser_download_url()).getBytes(),
+                    JarEntriesManifest.class);
+            if (md5HashValue.equalsIgnoreCase(manifest.getMd5())) {
+                return manifest;
+            }
+            log.warn("Entries manifest of release {} not match release md5", release.getTag_name());
+        } catch (Exception ex) {
+            log.warn("Unable to fetch entries manifest: <{}>", CommonUtils.getErrorMessage(ex));
+        }
+        return null;
+    }
+
+    /**
+     * @return sha256 of downloaded file or null if no peer has release or download failed
+     */
+    private String fetchFromPeers(JarEntriesManifest manifest, GitHubRelease.Asset asset, Path tmpPath, String md5HashValue,
+                                  ProgressBar progressBar) throws IOException {
+        List<String> peerUrls = new ArrayList<>();
+        for (Peer peer : peerDiscovery.findPeers(md5HashValue)) {
+            peerUrls.add(peer.getArtifactUrl(peer.findArtifact(md5HashValue).getSha256()));
+        }
+        if (peerUrls.isEmpty()) {
+            return null;
+        }
+        log.info("Downloading touchhome.jar from {} peers", peerUrls.size());
+        try {
+            return peerDownloader.download(manifest, peerUrls, asset.getBrowser_download_url(), tmpPath, md5HashValue, progressBar);
+        } catch (Exception ex) {
+            log.warn("Peer download failed. Fallback to upstream. Error: <{}>", CommonUtils.getErrorMessage(ex));
+            DownloadState.delete(tmpPath);
+            return null;
+        }
+    }
+
+    /**
+     * @return sha256 of patched file or null if delta update not possible
+     */
+    private String patch(JarEntriesManifest manifest, GitHubRelease.Asset asset, Path appPath, Path tmpPath, String md5HashValue,
+                         ProgressBar progressBar) throws IOException {
+        if (!touchHomeProperties.getDownload().isDelta()) {
+            return null;
+        }
+        try {
+            return deltaPatcher.patch(appPath, asset.getBrowser_download_url(), manifest, tmpPath, md5HashValue, progressBar);
+        } catch (Exception ex) {
+            log.warn("Delta update failed. Fallback to full download. Error: <{}>", CommonUtils.getErrorMessage(ex));
+            DownloadState.delete(tmpPath);
+            return null;
+        }
+    }
+
+    private String downloadHash(GitHubRelease release, String assetName, boolean required) {
+        GitHubRelease.Asset hashAsset = release.findAsset(assetName);
+        if (hashAsset == null) {
+            if (required) {
+                throw new NotFoundException("Unable to find " + assetName + " asset from server");
+            }
+            return null;
+        }
+        return new String(Curl.download(hashAsset.getBrowser_download_url()).getBytes());
+    }
+}
@@ -0,0 +1,218 @@
+package org.touchhome.app.install;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.stereotype.Component;
+import org.touchhome.app.config.TouchHomeProperties;
+import org.touchhome.common.exception.NotFoundException;
+import org.touchhome.common.exception.ServerException;
+import org.touchhome.common.util.CommonUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.touchhome.common.util.CommonUtils.OBJECT_MAPPER;
+
+/**
+ * Content addressed store of app releases: '<root>/store/<sha256>.jar' and 'releases.json' index.
+ * Installed app 'touchhome-core.jar' is a relative symlink into store, so install and rollback are a single
+ * atomic rename of new symlink over old one. Store keeps touchhome.store.keepReleases latest releases within
+ * touchhome.store.maxSizeMb, installed release is never evicted.
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class ArtifactStore {
+
+    static final String APP_FILE = "touchhome-core.jar";
+    private static final String INDEX_FILE = "releases.json";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final TouchHomeProperties touchHomeProperties;
+
+    // sha256 -> release
+    private Map<String, StoredRelease> releases;
+
+    public synchronized List<StoredRelease> getReleases() throws IOException {
+        List<StoredRelease> list = new ArrayList<>(getIndex().values());
+        list.sort(Comparator.comparingLong(StoredRelease::getStoredAt).reversed());
+        return list;
+    }
+
+    public synchronized StoredRelease findByMd5(String md5) throws IOException {
+        return getIndex().values().stream().filter(r -> r.getMd5().equalsIgnoreCase(md5)).findAny().orElse(null);
+    }
+
+    /**
+     * @return stored file or null. Only indexed releases are resolved, so sha256 may come from untrusted request
+     */
+    public synchronized Path findFile(String sha256) throws IOException {
+        return getIndex().containsKey(sha256) ? getReleasePath(sha256) : null;
+    }
+
+    /**
+     * Move verified file into store. File must be on same file system as root path.
+     */
+    public synchronized StoredRelease put(Path file, String sha256, String md5, String version) throws IOException {
+        StoredRelease release = getIndex().get(sha256);
+        Path releasePath = getReleasePath(sha256);
+        if (release != null && Files.exists(releasePath)) {
+            Files.delete(file);
+            return release;
+        }
+        Files.createDirectories(releasePath.getParent());
+        Files.move(file, releasePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        release = new StoredRelease().setSha256(sha256).setMd5(md5).setVersion(version)
+                .setSize(Files.size(releasePath)).setStoredAt(System.currentTimeMillis());
+        releases.put(sha256, release);
+        saveIndex();
+        return release;
+    }
+
+    /**
+     * Make release installed app and evict old releases.
+     */
+    public synchronized void activate(StoredRelease release) throws IOException {
+        Path releasePath = getReleasePath(release.getSha256());
+        if (!Files.exists(releasePath) || Files.size(releasePath) != release.getSize()) {
+            throw new ServerException("Stored release " + release.getVersion() + " is missing or damaged");
+        }
+        Path appPath = getAppPath();
+        Path linkPath = appPath.resolveSibling(APP_FILE + ".lnk");
+        Files.deleteIfExists(linkPath);
+        Files.createSymbolicLink(linkPath, appPath.getParent().relativize(releasePath));
+        Files.move(linkPath, appPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        for (StoredRelease storedRelease : releases.values()) {
+            storedRelease.setActive(storedRelease == release);
+        }
+        release.setActivatedAt(System.currentTimeMillis());
+        evict();
+        saveIndex();
+        log.info("Installed app release {} ({})", release.getVersion(), release.getSha256());
+    }
+
+    /**
+     * Activate release that was installed before current one
+     */
+    public synchronized StoredRelease rollback() throws IOException {
+        StoredRelease previous = getIndex().values().stream()
+                .filter(r -> !r.isActive() && r.getActivatedAt() > 0)
+                .max(Comparator.comparingLong(StoredRelease::getActivatedAt))
+                .orElseThrow(() -> new NotFoundException("No previous app release to rollback to"));
+        activate(previous);
+        return previous;
+    }
+
+    /**
+     * App installed before store existed is a regular file. Move it into store, so it's available for rollback
+     */
+    public synchronized void adoptInstalledApp() throws IOException {
+        Path appPath = getAppPath();
+        if (!Files.exists(appPath) || Files.isSymbolicLink(appPath)) {
+            return;
+        }
+        // load index before tmp file created, otherwise it's removed as orphan
+        getIndex();
+        Path tmpPath = getStorePath().resolve(APP_FILE + ".tmp");
+        Files.createDirectories(tmpPath.getParent());
+        MessageDigest md5 = DigestUtils.getMd5Digest();
+        MessageDigest sha256 = DigestUtils.getSha256Digest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        // copy and hash in one pass
+        try (InputStream inputStream = Files.newInputStream(appPath); OutputStream outputStream = Files.newOutputStream(tmpPath)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                md5.update(buffer, 0, read);
+                sha256.update(buffer, 0, read);
+                outputStream.write(buffer, 0, read);
+            }
+        }
+        activate(put(tmpPath, Hex.encodeHexString(sha256.digest()), Hex.encodeHexString(md5.digest()), "installed"));
+    }
+
+    private void evict() throws IOException {
+        TouchHomeProperties.Store config = touchHomeProperties.getStore();
+        long budget = config.getMaxSizeMb() * 1024L * 1024L;
+        List<StoredRelease> candidates = new ArrayList<>(releases.values());
+        // most recently used first
+        candidates.sort(Comparator.comparingLong((StoredRelease r) -> Math.max(r.getActivatedAt(), r.getStoredAt())).reversed());
+        long totalSize = candidates.stream().mapToLong(StoredRelease::getSize).sum();
+        for (int i = candidates.size() - 1; i >= 0 && (candidates.size() > config.getKeepReleases() || totalSize > budget); i--) {
+            StoredRelease release = candidates.get(i);
+            if (!release.isActive()) {
+                Files.deleteIfExists(getReleasePath(release.getSha256()));
+                releases.remove(release.getSha256());
+                candidates.remove(i);
+                totalSize -= release.getSize();
+                log.info("Evicted app release {} ({})", release.getVersion(), release.getSha256());
+            }
+        }
+    }
+
+    private Map<String, StoredRelease> getIndex() throws IOException {
+        if (releases == null) {
+            releases = new LinkedHashMap<>();
+            Path indexPath = getStorePath().resolve(INDEX_FILE);
+            if (Files.exists(indexPath)) {
+                List<StoredRelease> list = OBJECT_MAPPER.readValue(indexPath.toFile(), new TypeReference<List<StoredRelease>>() {
+                });
+                for (StoredRelease release : list) {
+                    releases.put(release.getSha256(), release);
+                }
+            }
+            removeOrphans();
+        }
+        return releases;
+    }
+
+    // files without index entry(interrupted put) and index entries without file
+    private void removeOrphans() throws IOException {
+        releases.values().removeIf(release -> !Files.exists(getReleasePath(release.getSha256())));
+        if (Files.isDirectory(getStorePath())) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(getStorePath(), "*.{jar,tmp}")) {
+                for (Path path : stream) {
+                    String name = path.getFileName().toString();
+                    if (!releases.containsKey(name.substring(0, name.lastIndexOf('.')))) {
+                        log.warn("Remove orphan store file <{}>", path);
+                        Files.delete(path);
+                    }
+                }
+            }
+        }
+    }
+
+    private void saveIndex() throws IOException {
+        Path indexPath = getStorePath().resolve(INDEX_FILE);
+        Path tmpIndexPath = indexPath.resolveSibling(INDEX_FILE + ".tmp");
+        Files.createDirectories(indexPath.getParent());
+        Files.write(tmpIndexPath, OBJECT_MAPPER.writeValueAsBytes(new ArrayList<>(releases.values())));
+        Files.move(tmpIndexPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path getReleasePath(String sha256) {
+        return getStorePath().resolve(sha256 + ".jar");
+    }
+
+    private Path getStorePath() {
+        return CommonUtils.getRootPath().resolve("store");
+    }
+
+    static Path getAppPath() {
+        return CommonUtils.getRootPath().resolve(APP_FILE);
+    }
+}
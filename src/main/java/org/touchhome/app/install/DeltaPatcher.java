@@ -0,0 +1,168 @@
+package org.touchhome.app.install;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+import org.touchhome.common.model.ProgressBar;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rebuilds release jar from installed jar and JarEntriesManifest: chunks found in installed jar(by sha256) are
+ * copied locally, others fetched with http Range requests(neighbour missing chunks in one request).
+ * Result is streamed to disk in file order and checked against release md5.
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class DeltaPatcher {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final AppDownloader appDownloader;
+
+    /**
+     * @return sha256 hex of patched file
+     */
+    public String patch(Path installedPath, String url, JarEntriesManifest manifest, Path tmpPath, String expectedMD5,
+                      ProgressBar progressBar) throws IOException {
+        Map<String, JarEntriesManifest.Chunk> installedChunks = new HashMap<>();
+        for (JarEntriesManifest.Chunk chunk : JarEntriesManifest.create(installedPath).getChunks()) {
+            installedChunks.put(chunk.getSha256(), chunk);
+        }
+        long reused = manifest.getChunks().stream().filter(c -> installedChunks.containsKey(c.getSha256()))
+                .mapToLong(JarEntriesManifest.Chunk::getLength).sum();
+        log.info("Delta update: reuse {} of {} bytes from installed jar", reused, manifest.getSize());
+
+        MessageDigest md5 = DigestUtils.getMd5Digest();
+        MessageDigest sha256 = DigestUtils.getSha256Digest();
+        PatchProgress patchProgress = new PatchProgress(manifest.getSize(), reused, progressBar);
+        try (FileChannel source = FileChannel.open(installedPath, StandardOpenOption.READ);
+             OutputStream outputStream = new DigestOutputStream(new DigestOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpPath,
+                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), BUFFER_SIZE), sha256), md5)) {
+            List<JarEntriesManifest.Chunk> chunks = manifest.getChunks();
+            long position = 0;
+            int index = 0;
+            while (index < chunks.size()) {
+                JarEntriesManifest.Chunk chunk = chunks.get(index);
+                if (chunk.getOffset() != position) {
+                    throw new IOException("Manifest chunk <" + chunk.getName() + "> not contiguous");
+                }
+                JarEntriesManifest.Chunk installedChunk = installedChunks.get(chunk.getSha256());
+                int end = index + 1;
+                if (installedChunk != null) {
+                    copy(source, installedChunk, outputStream);
+                } else {
+                    while (end < chunks.size() && !installedChunks.containsKey(chunks.get(end).getSha256())) {
+                        end++;
+                    }
+                    fetch(url, chunks.subList(index, end), outputStream);
+                }
+                for (; index < end; index++) {
+                    position += chunks.get(index).getLength();
+                }
+                patchProgress.update(position);
+            }
+            if (position != manifest.getSize()) {
+                throw new IOException("Manifest chunks cover " + position + " of " + manifest.getSize() + " bytes");
+            }
+        }
+        String actualMD5 = Hex.encodeHexString(md5.digest());
+        if (!StringUtils.equalsIgnoreCase(StringUtils.trim(expectedMD5), actualMD5)) {
+            throw new IOException("Patched file md5 " + actualMD5 + " not match expected " + expectedMD5);
+        }
+        return Hex.encodeHexString(sha256.digest());
+    }
+
+    private void copy(FileChannel source, JarEntriesManifest.Chunk chunk, OutputStream outputStream) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, Math.max(1, chunk.getLength())));
+        long position = chunk.getOffset();
+        long end = chunk.getOffset() + chunk.getLength();
+        while (position < end) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+            int read = source.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Installed jar changed while patching");
+            }
+            outputStream.write(buffer.array(), 0, read);
+            position += read;
+        }
+    }
+
+    /**
+     * Fetch contiguous chunks in one range request and check sha256 of each one
+     */
+    private void fetch(String url, List<JarEntriesManifest.Chunk> chunks, OutputStream outputStream) throws IOException {
+        JarEntriesManifest.Chunk last = chunks.get(chunks.size() - 1);
+        long start = chunks.get(0).getOffset();
+        long end = last.getOffset() + last.getLength();
+        HttpURLConnection connection = appDownloader.openConnection(url);
+        try {
+            connection.setRequestProperty("Range", "bytes=" + start + "-" + (end - 1));
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_PARTIAL) {
+                throw new IOException("Range request not supported. Status: " + connection.getResponseCode());
+            }
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (InputStream inputStream = connection.getInputStream()) {
+                for (JarEntriesManifest.Chunk chunk : chunks) {
+                    MessageDigest chunkDigest = DigestUtils.getSha256Digest();
+                    long remaining = chunk.getLength();
+                    while (remaining > 0) {
+                        int read = inputStream.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                        if (read == -1) {
+                            throw new EOFException("Connection closed while fetching <" + chunk.getName() + ">");
+                        }
+                        chunkDigest.update(buffer, 0, read);
+                        outputStream.write(buffer, 0, read);
+                        remaining -= read;
+                    }
+                    if (!Hex.encodeHexString(chunkDigest.digest()).equals(chunk.getSha256())) {
+                        throw new IOException("Fetched chunk <" + chunk.getName() + "> hash mismatch");
+                    }
+                }
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static class PatchProgress {
+        private final long total;
+        private final long reused;
+        private final ProgressBar progressBar;
+        private int lastPercent = -1;
+
+        private PatchProgress(long total, long reused, ProgressBar progressBar) {
+            this.total = total;
+            this.reused = reused;
+            this.progressBar = progressBar;
+        }
+
+        private void update(long position) {
+            int percent = total == 0 ? 100 : (int) (position * 100 / total);
+            if (percent > lastPercent) {
+                lastPercent = percent;
+                progressBar.progress(percent, String.format("Patching %.1f/%.1f Mb (%.1f Mb reused)",
+                        position / 1048576D, total / 1048576D, reused / 1048576D));
+            }
+        }
+    }
+}
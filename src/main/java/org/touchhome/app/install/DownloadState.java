@@ -0,0 +1,212 @@
+package org.touchhome.app.install;
+
+import lombok.Getter;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Partially downloaded file layout: list of byte ranges(segments) with already written position for each one.
+ * State persisted near the tmp file as '<tmp>.parts' so download may be resumed after connection loss or reboot.
+ * Md5 and sha256 digests calculated while bytes are written. Only bytes that arrived out of order (parallel segments or
+ * resumed download) are read back from disk.
+ */
+final class DownloadState {
+
+    private static final int READ_BACK_BUFFER_SIZE = 64 * 1024;
+
+    private final Path statePath;
+    @Getter
+    private final long total;
+    @Getter
+    private final String validator;
+    @Getter
+    private final List<Segment> segments;
+
+    private final MessageDigest md5Digest = DigestUtils.getMd5Digest();
+    private final MessageDigest sha256Digest = DigestUtils.getSha256Digest();
+    private long digestPosition;
+    // available after finish()
+    @Getter
+    private String sha256;
+
+    private DownloadState(Path tmpPath, long total, String validator, List<Segment> segments) {
+        this.statePath = getStatePath(tmpPath);
+        this.total = total;
+        this.validator = validator;
+        this.segments = segments;
+    }
+
+    static Path getStatePath(Path tmpPath) {
+        return tmpPath.resolveSibling(tmpPath.getFileName() + ".parts");
+    }
+
+    /**
+     * Restore previous download state if it matches remote file, otherwise split file into new segments.
+     * Tmp file without state file treated as single-stream download and resumed from it's size.
+     */
+    static DownloadState create(Path tmpPath, long total, String validator, int segmentCount, boolean acceptRanges) throws IOException {
+        Path statePath = getStatePath(tmpPath);
+        if (acceptRanges) {
+            if (Files.exists(statePath)) {
+                DownloadState state = read(tmpPath, statePath);
+                if (state != null && state.total == total && Objects.equals(state.validator, validator) && Files.exists(tmpPath)) {
+                    return state;
+                }
+            } else if (Files.exists(tmpPath) && Files.size(tmpPath) <= total) {
+                Segment segment = new Segment(0, total);
+                segment.position = Files.size(tmpPath);
+                List<Segment> segments = new ArrayList<>();
+                segments.add(segment);
+                return new DownloadState(tmpPath, total, validator, segments);
+            }
+        } else {
+            segmentCount = 1;
+        }
+        Files.deleteIfExists(statePath);
+        Files.deleteIfExists(tmpPath);
+
+        List<Segment> segments = new ArrayList<>();
+        long segmentSize = Math.max(1, total / Math.max(1, segmentCount));
+        for (long start = 0; start < total; start += segmentSize) {
+            long end = segments.size() == segmentCount - 1 ? total : Math.min(total, start + segmentSize);
+            segments.add(new Segment(start, end));
+            if (end == total) {
+                break;
+            }
+        }
+        return new DownloadState(tmpPath, total, validator, segments);
+    }
+
+    static void delete(Path tmpPath) throws IOException {
+        Files.deleteIfExists(getStatePath(tmpPath));
+        Files.deleteIfExists(tmpPath);
+    }
+
+    private static DownloadState read(Path tmpPath, Path statePath) throws IOException {
+        List<String> lines = Files.readAllLines(statePath, StandardCharsets.UTF_8);
+        if (lines.size() < 3) {
+            return null;
+        }
+        try {
+            List<Segment> segments = new ArrayList<>();
+            for (String line : lines.subList(2, lines.size())) {
+                String[] items = line.split(" ");
+                Segment segment = new Segment(Long.parseLong(items[0]), Long.parseLong(items[1]));
+                segment.position = Long.parseLong(items[2]);
+                segments.add(segment);
+            }
+            return new DownloadState(tmpPath, Long.parseLong(lines.get(1)), lines.get(0), segments);
+        } catch (RuntimeException ex) {
+            return null;
+        }
+    }
+
+    synchronized long getPosition(Segment segment) {
+        return segment.position;
+    }
+
+    synchronized long getDownloaded() {
+        long downloaded = 0;
+        for (Segment segment : segments) {
+            downloaded += segment.position - segment.start;
+        }
+        return downloaded;
+    }
+
+    /**
+     * Register bytes that just has been written to channel at 'position'.
+     */
+    synchronized void onWritten(FileChannel channel, Segment segment, long position, byte[] buffer, int length) throws IOException {
+        segment.position = position + length;
+        if (position == digestPosition) {
+            md5Digest.update(buffer, 0, length);
+            sha256Digest.update(buffer, 0, length);
+            digestPosition += length;
+        }
+        catchUpDigest(channel);
+    }
+
+    /**
+     * Flush written bytes and persist segments positions.
+     */
+    synchronized void save(FileChannel channel) throws IOException {
+        channel.force(false);
+        StringBuilder builder = new StringBuilder().append(validator).append("\n").append(total).append("\n");
+        for (Segment segment : segments) {
+            builder.append(segment.start).append(" ").append(segment.end).append(" ").append(segment.position).append("\n");
+        }
+        Path tmpStatePath = statePath.resolveSibling(statePath.getFileName() + ".tmp");
+        Files.write(tmpStatePath, builder.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(tmpStatePath, statePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return md5 hex of whole file. All segments must be fully downloaded
+     */
+    synchronized String finish(FileChannel channel) throws IOException {
+        catchUpDigest(channel);
+        if (digestPosition != total) {
+            throw new IOException("Download incomplete. Hashed " + digestPosition + " of " + total + " bytes");
+        }
+        channel.force(true);
+        Files.deleteIfExists(statePath);
+        sha256 = Hex.encodeHexString(sha256Digest.digest());
+        return Hex.encodeHexString(md5Digest.digest());
+    }
+
+    // read back bytes that has been written before digest reached them
+    private void catchUpDigest(FileChannel channel) throws IOException {
+        ByteBuffer buffer = null;
+        for (Segment segment : segments) {
+            if (segment.start <= digestPosition && digestPosition < segment.end) {
+                while (digestPosition < segment.position) {
+                    if (buffer == null) {
+                        buffer = ByteBuffer.allocate(READ_BACK_BUFFER_SIZE);
+                    }
+                    buffer.clear();
+                    buffer.limit((int) Math.min(buffer.capacity(), segment.position - digestPosition));
+                    int read = channel.read(buffer, digestPosition);
+                    if (read <= 0) {
+                        throw new IOException("Unable to read back downloaded file at position: " + digestPosition);
+                    }
+                    md5Digest.update(buffer.array(), 0, read);
+                    sha256Digest.update(buffer.array(), 0, read);
+                    digestPosition += read;
+                }
+                if (digestPosition < segment.end) {
+                    return;
+                }
+            }
+        }
+    }
+
+    static final class Segment {
+        final long start;
+        // exclusive
+        final long end;
+        private long position;
+
+        Segment(long start, long end) {
+            this.start = start;
+            this.end = end;
+            this.position = start;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + start + "-" + end + ")";
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.touchhome.app.install;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Setter
+@Getter
+class GitHubRelease {
+    private String name;
+    private String tag_name;
+    private List<Asset> assets = new ArrayList<>();
+
+    Asset findAsset(String name) {
+        return assets.stream().filter(a -> a.name.equals(name)).findAny().orElse(null);
+    }
+
+    @Setter
+    @Getter
+    static class Asset {
+        private String name;
+        private long size;
+        private String browser_download_url;
+        private String updated_at;
+    }
+}
@@ -0,0 +1,178 @@
+package org.touchhome.app.install;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.touchhome.common.util.CommonUtils.OBJECT_MAPPER;
+
+/**
+ * Jar split into contiguous chunks: raw zip entry records(local header + compressed data) in file order and
+ * central directory at the end. Each chunk identified by sha256 of it's raw bytes, so unchanged entries
+ * are found in installed jar regardless of their position.
+ * Published near release jar as '<jar>.entries.json'. Generate: java -cp ... org.touchhome.app.install.JarEntriesManifest touchhome.jar
+ */
+@Getter
+@Setter
+public class JarEntriesManifest {
+
+    public static final String ASSET_SUFFIX = ".entries.json";
+
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int CEN_SIGNATURE = 0x02014b50;
+    private static final int EOCD_SIZE = 22;
+    private static final int CEN_HEADER_SIZE = 46;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private long size;
+    private String md5;
+    private List<Chunk> chunks = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Chunk {
+        private String name;
+        private long offset;
+        private long length;
+        private String sha256;
+    }
+
+    public static JarEntriesManifest create(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            JarEntriesManifest manifest = new JarEntriesManifest();
+            manifest.size = channel.size();
+            manifest.chunks = split(channel);
+            manifest.md5 = hash(channel, manifest.chunks);
+            return manifest;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path jar = Paths.get(args[0]);
+        OBJECT_MAPPER.writeValue(jar.resolveSibling(jar.getFileName() + ASSET_SUFFIX).toFile(), create(jar));
+    }
+
+    /**
+     * Not a zip or zip64 file is represented by single chunk.
+     */
+    private static List<Chunk> split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int tailSize = (int) Math.min(size, 0xFFFF + EOCD_SIZE);
+        ByteBuffer tail = read(channel, size - tailSize, tailSize);
+        int eocd = -1;
+        for (int i = tailSize - EOCD_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == EOCD_SIGNATURE) {
+                eocd = i;
+                break;
+            }
+        }
+        if (eocd < 0) {
+            return singleChunk(size);
+        }
+        int entries = tail.getShort(eocd + 10) & 0xFFFF;
+        long cenSize = tail.getInt(eocd + 12) & 0xFFFFFFFFL;
+        long cenOffset = tail.getInt(eocd + 16) & 0xFFFFFFFFL;
+        if (entries == 0xFFFF || cenOffset == 0xFFFFFFFFL || cenOffset + cenSize > size) {
+            return singleChunk(size);
+        }
+
+        // local header offset -> entry name
+        TreeMap<Long, String> records = new TreeMap<>();
+        ByteBuffer cen = read(channel, cenOffset, (int) cenSize);
+        int pos = 0;
+        for (int i = 0; i < entries; i++) {
+            if (pos + CEN_HEADER_SIZE > cenSize || cen.getInt(pos) != CEN_SIGNATURE) {
+                return singleChunk(size);
+            }
+            int nameLength = cen.getShort(pos + 28) & 0xFFFF;
+            int extraLength = cen.getShort(pos + 30) & 0xFFFF;
+            int commentLength = cen.getShort(pos + 32) & 0xFFFF;
+            long localOffset = cen.getInt(pos + 42) & 0xFFFFFFFFL;
+            if (localOffset >= cenOffset || pos + CEN_HEADER_SIZE + nameLength > cenSize) {
+                return singleChunk(size);
+            }
+            records.put(localOffset, new String(cen.array(), pos + CEN_HEADER_SIZE, nameLength, StandardCharsets.UTF_8));
+            pos += CEN_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+
+        List<Chunk> chunks = new ArrayList<>();
+        long position = 0;
+        String name = "$prefix";
+        for (Map.Entry<Long, String> record : records.entrySet()) {
+            if (record.getKey() > position) {
+                chunks.add(chunk(name, position, record.getKey() - position));
+            }
+            position = record.getKey();
+            name = record.getValue();
+        }
+        if (cenOffset > position) {
+            chunks.add(chunk(name, position, cenOffset - position));
+        }
+        chunks.add(chunk("$central-directory", cenOffset, size - cenOffset));
+        return chunks;
+    }
+
+    /**
+     * Fill sha256 of each chunk in one sequential pass and return md5 of whole file
+     */
+    private static String hash(FileChannel channel, List<Chunk> chunks) throws IOException {
+        MessageDigest md5 = DigestUtils.getMd5Digest();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        for (Chunk chunk : chunks) {
+            MessageDigest sha256 = DigestUtils.getSha256Digest();
+            long position = chunk.offset;
+            long end = chunk.offset + chunk.length;
+            while (position < end) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of file at " + position);
+                }
+                sha256.update(buffer.array(), 0, read);
+                md5.update(buffer.array(), 0, read);
+                position += read;
+            }
+            chunk.sha256 = Hex.encodeHexString(sha256.digest());
+        }
+        return Hex.encodeHexString(md5.digest());
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file at " + (position + buffer.position()));
+            }
+        }
+        return buffer;
+    }
+
+    private static List<Chunk> singleChunk(long size) {
+        List<Chunk> chunks = new ArrayList<>();
+        chunks.add(chunk("$file", 0, size));
+        return chunks;
+    }
+
+    private static Chunk chunk(String name, long offset, long length) {
+        Chunk chunk = new Chunk();
+        chunk.name = name;
+        chunk.offset = offset;
+        chunk.length = length;
+        return chunk;
+    }
+}
@@ -0,0 +1,33 @@
+package org.touchhome.app.install;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Other boot instance that holds app releases in it's ArtifactStore.
+ */
+@Getter
+@Setter
+@Accessors(chain = true)
+public class Peer {
+    private String nodeId;
+    private int port;
+    // http://host:port
+    private String url;
+    private List<StoredRelease> artifacts = new ArrayList<>();
+    @JsonIgnore
+    private long lastSeen;
+
+    public StoredRelease findArtifact(String md5) {
+        return artifacts.stream().filter(a -> md5.equalsIgnoreCase(a.getMd5())).findAny().orElse(null);
+    }
+
+    public String getArtifactUrl(String sha256) {
+        return url + "/rest/peer/artifact/" + sha256;
+    }
+}
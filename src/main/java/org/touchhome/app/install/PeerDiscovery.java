@@ -0,0 +1,165 @@
+package org.touchhome.app.install;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.touchhome.app.config.TouchHomeProperties;
+import org.touchhome.app.executor.TouchHomeExecutors;
+import org.touchhome.common.util.CommonUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.DatagramPacket;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.touchhome.common.util.CommonUtils.OBJECT_MAPPER;
+
+/**
+ * Boot instances announce releases from their ArtifactStore by UDP multicast(touchhome.peer.group:port) each
+ * announceIntervalSec. Peers not heard for 3 intervals are forgotten.
+ * touchhome.peer.staticPeers(http://host:port) are asked over http instead, i.e. for networks without multicast or
+ * several instances on loopback.
+ */
+@Log4j2
+@Lazy(false)
+@Component
+@RequiredArgsConstructor
+public class PeerDiscovery {
+
+    private static final int MAX_PACKET_SIZE = 8192;
+
+    private final TouchHomeProperties touchHomeProperties;
+    private final ArtifactStore artifactStore;
+    private final AppDownloader appDownloader;
+    private final ThreadPoolTaskScheduler threadPoolTaskScheduler;
+    private final TouchHomeExecutors touchHomeExecutors;
+
+    @Value("${server.port}")
+    private int httpPort;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, Peer> peers = new ConcurrentHashMap<>();
+
+    private MulticastSocket socket;
+    private InetAddress group;
+    private ScheduledFuture<?> announceFuture;
+
+    @PostConstruct
+    public void init() {
+        TouchHomeProperties.Peer config = touchHomeProperties.getPeer();
+        if (!config.isEnabled()) {
+            return;
+        }
+        try {
+            group = InetAddress.getByName(config.getGroup());
+            socket = new MulticastSocket(config.getPort());
+            socket.setTimeToLive(1);
+            if (StringUtils.isNotEmpty(config.getNetworkInterface())) {
+                NetworkInterface networkInterface = NetworkInterface.getByName(config.getNetworkInterface());
+                socket.setNetworkInterface(networkInterface);
+                socket.joinGroup(new InetSocketAddress(group, config.getPort()), networkInterface);
+            } else {
+                socket.joinGroup(group);
+            }
+            touchHomeExecutors.getBlocking().execute(this::receive);
+        } catch (Exception ex) {
+            log.warn("Unable to join peer multicast group. Only static peers available. Error: <{}>", CommonUtils.getErrorMessage(ex));
+            socket = null;
+        }
+        announceFuture = threadPoolTaskScheduler.scheduleWithFixedDelay(this::announce,
+                TimeUnit.SECONDS.toMillis(config.getAnnounceIntervalSec()));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (announceFuture != null) {
+            announceFuture.cancel(false);
+        }
+        if (socket != null) {
+            socket.close();
+        }
+    }
+
+    /**
+     * This node as seen by other peers
+     */
+    public Peer getAnnouncement() throws IOException {
+        return new Peer().setNodeId(nodeId).setPort(httpPort).setArtifacts(artifactStore.getReleases());
+    }
+
+    public List<Peer> getPeers() {
+        long expireAt = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(touchHomeProperties.getPeer().getAnnounceIntervalSec() * 3L);
+        peers.values().removeIf(peer -> peer.getLastSeen() < expireAt);
+        return peers.values().stream().sorted((o1, o2) -> Long.compare(o2.getLastSeen(), o1.getLastSeen())).collect(Collectors.toList());
+    }
+
+    /**
+     * @return peers that hold release with md5
+     */
+    public List<Peer> findPeers(String md5) {
+        return getPeers().stream().filter(peer -> peer.findArtifact(md5) != null).collect(Collectors.toList());
+    }
+
+    private void announce() {
+        try {
+            if (socket != null) {
+                byte[] bytes = OBJECT_MAPPER.writeValueAsBytes(getAnnouncement());
+                socket.send(new DatagramPacket(bytes, bytes.length, group, touchHomeProperties.getPeer().getPort()));
+            }
+        } catch (Exception ex) {
+            log.warn("Unable to announce artifacts: <{}>", CommonUtils.getErrorMessage(ex));
+        }
+        for (String url : touchHomeProperties.getPeer().getStaticPeers()) {
+            try {
+                HttpURLConnection connection = appDownloader.openConnection(url + "/rest/peer/artifacts");
+                try (InputStream inputStream = connection.getInputStream()) {
+                    addPeer(OBJECT_MAPPER.readValue(inputStream, Peer.class).setUrl(url));
+                } finally {
+                    connection.disconnect();
+                }
+            } catch (Exception ex) {
+                log.debug("Static peer <{}> unavailable: <{}>", url, CommonUtils.getErrorMessage(ex));
+            }
+        }
+    }
+
+    private void receive() {
+        byte[] buffer = new byte[MAX_PACKET_SIZE];
+        while (!socket.isClosed()) {
+            try {
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                socket.receive(packet);
+                Peer peer = OBJECT_MAPPER.readValue(packet.getData(), packet.getOffset(), packet.getLength(), Peer.class);
+                // host is packet sender
+                addPeer(peer.setUrl("http://" + packet.getAddress().getHostAddress() + ":" + peer.getPort()));
+            } catch (Exception ex) {
+                if (!socket.isClosed()) {
+                    log.debug("Bad peer announcement: <{}>", CommonUtils.getErrorMessage(ex));
+                }
+            }
+        }
+    }
+
+    private void addPeer(Peer peer) {
+        if (!nodeId.equals(peer.getNodeId())) {
+            peers.put(peer.getNodeId(), peer.setLastSeen(System.currentTimeMillis()));
+        }
+    }
+}
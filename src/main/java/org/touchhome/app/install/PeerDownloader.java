@@ -0,0 +1,211 @@
+package org.touchhome.app.install;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+import org.touchhome.app.config.TouchHomeProperties;
+import org.touchhome.app.executor.TouchHomeExecutors;
+import org.touchhome.common.model.ProgressBar;
+import org.touchhome.common.util.CommonUtils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Fetches file described by JarEntriesManifest from several sources in parallel. Manifest chunks grouped into
+ * batches(~touchhome.peer.batchSizeKb) which are taken by one worker per peer. Each chunk verified by sha256 from
+ * manifest, so peer that sent bad data or failed is dropped and it's batch returned to queue.
+ * Batches left after all peers failed are fetched from upstream.
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class PeerDownloader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final AppDownloader appDownloader;
+    private final TouchHomeExecutors touchHomeExecutors;
+    private final TouchHomeProperties touchHomeProperties;
+
+    /**
+     * @param peerUrls    artifact urls on peers
+     * @param upstreamUrl fallback url
+     * @return sha256 hex of downloaded file
+     */
+    public String download(JarEntriesManifest manifest, List<String> peerUrls, String upstreamUrl, Path tmpPath,
+                           String expectedMD5, ProgressBar progressBar) throws IOException {
+        Queue<List<JarEntriesManifest.Chunk>> batches = new ConcurrentLinkedQueue<>(createBatches(manifest));
+        FetchProgress fetchProgress = new FetchProgress(manifest.getSize(), progressBar);
+        try (FileChannel channel = FileChannel.open(tmpPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            List<Future<?>> workers = new ArrayList<>();
+            int parallel = Math.min(peerUrls.size(), touchHomeProperties.getPeer().getMaxParallel());
+            for (String peerUrl : peerUrls.subList(0, parallel)) {
+                workers.add(touchHomeExecutors.getBlocking().submit(() -> fetchBatches(peerUrl, batches, channel, fetchProgress)));
+            }
+            for (Future<?> worker : workers) {
+                try {
+                    worker.get();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Download interrupted", ex);
+                } catch (ExecutionException ex) {
+                    log.warn("Peer worker failed: <{}>", CommonUtils.getErrorMessage(ex.getCause()));
+                }
+            }
+            if (!batches.isEmpty()) {
+                log.info("Fetch {} batches from upstream", batches.size());
+                List<JarEntriesManifest.Chunk> batch;
+                while ((batch = batches.poll()) != null) {
+                    fetchBatch(upstreamUrl, batch, channel);
+                    fetchProgress.add(getLength(batch));
+                }
+            }
+            channel.force(true);
+            return verify(channel, expectedMD5);
+        }
+    }
+
+    private void fetchBatches(String url, Queue<List<JarEntriesManifest.Chunk>> batches, FileChannel channel, FetchProgress fetchProgress) {
+        List<JarEntriesManifest.Chunk> batch;
+        while ((batch = batches.poll()) != null) {
+            try {
+                fetchBatch(url, batch, channel);
+                fetchProgress.add(getLength(batch));
+            } catch (Exception ex) {
+                batches.add(batch);
+                log.warn("Drop peer <{}>: <{}>", url, CommonUtils.getErrorMessage(ex));
+                return;
+            }
+        }
+    }
+
+    private void fetchBatch(String url, List<JarEntriesManifest.Chunk> batch, FileChannel channel) throws IOException {
+        JarEntriesManifest.Chunk last = batch.get(batch.size() - 1);
+        long start = batch.get(0).getOffset();
+        HttpURLConnection connection = appDownloader.openConnection(url);
+        try {
+            connection.setRequestProperty("Range", "bytes=" + start + "-" + (last.getOffset() + last.getLength() - 1));
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_PARTIAL) {
+                throw new IOException("Range request failed. Status: " + connection.getResponseCode());
+            }
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (InputStream inputStream = connection.getInputStream()) {
+                for (JarEntriesManifest.Chunk chunk : batch) {
+                    MessageDigest chunkDigest = DigestUtils.getSha256Digest();
+                    long position = chunk.getOffset();
+                    long end = chunk.getOffset() + chunk.getLength();
+                    while (position < end) {
+                        int read = inputStream.read(buffer, 0, (int) Math.min(buffer.length, end - position));
+                        if (read == -1) {
+                            throw new EOFException("Connection closed while fetching <" + chunk.getName() + ">");
+                        }
+                        chunkDigest.update(buffer, 0, read);
+                        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                        while (byteBuffer.hasRemaining()) {
+                            channel.write(byteBuffer, position + byteBuffer.position());
+                        }
+                        position += read;
+                    }
+                    if (!Hex.encodeHexString(chunkDigest.digest()).equals(chunk.getSha256())) {
+                        throw new IOException("Chunk <" + chunk.getName() + "> hash mismatch");
+                    }
+                }
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private List<List<JarEntriesManifest.Chunk>> createBatches(JarEntriesManifest manifest) throws IOException {
+        long batchSize = touchHomeProperties.getPeer().getBatchSizeKb() * 1024L;
+        List<List<JarEntriesManifest.Chunk>> batches = new ArrayList<>();
+        List<JarEntriesManifest.Chunk> batch = new ArrayList<>();
+        long position = 0;
+        for (JarEntriesManifest.Chunk chunk : manifest.getChunks()) {
+            if (chunk.getOffset() != position) {
+                throw new IOException("Manifest chunk <" + chunk.getName() + "> not contiguous");
+            }
+            position += chunk.getLength();
+            batch.add(chunk);
+            if (getLength(batch) >= batchSize) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        if (position != manifest.getSize()) {
+            throw new IOException("Manifest chunks cover " + position + " of " + manifest.getSize() + " bytes");
+        }
+        return batches;
+    }
+
+    /**
+     * Chunks are already verified, so whole file md5 only guards against manifest/md5.hex mismatch.
+     * Same pass calculates sha256 for ArtifactStore.
+     */
+    private String verify(FileChannel channel, String expectedMD5) throws IOException {
+        MessageDigest md5 = DigestUtils.getMd5Digest();
+        MessageDigest sha256 = DigestUtils.getSha256Digest();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long position = 0;
+        int read;
+        while ((read = channel.read((ByteBuffer) buffer.clear(), position)) > 0) {
+            md5.update(buffer.array(), 0, read);
+            sha256.update(buffer.array(), 0, read);
+            position += read;
+        }
+        String actualMD5 = Hex.encodeHexString(md5.digest());
+        if (!StringUtils.equalsIgnoreCase(StringUtils.trim(expectedMD5), actualMD5)) {
+            throw new IOException("Downloaded file md5 " + actualMD5 + " not match expected " + expectedMD5);
+        }
+        return Hex.encodeHexString(sha256.digest());
+    }
+
+    private static long getLength(List<JarEntriesManifest.Chunk> batch) {
+        JarEntriesManifest.Chunk last = batch.get(batch.size() - 1);
+        return last.getOffset() + last.getLength() - batch.get(0).getOffset();
+    }
+
+    // synchronized, so parallel peers never publish lower percent after higher one
+    private static class FetchProgress {
+        private final long total;
+        private final ProgressBar progressBar;
+        private long fetched;
+        private int lastPercent = -1;
+
+        private FetchProgress(long total, ProgressBar progressBar) {
+            this.total = total;
+            this.progressBar = progressBar;
+        }
+
+        private synchronized void add(long length) {
+            fetched += length;
+            long value = fetched;
+            int percent = total == 0 ? 100 : (int) (value * 100 / total);
+            if (percent > lastPercent) {
+                lastPercent = percent;
+                progressBar.progress(percent, String.format("Downloading from peers %.1f/%.1f Mb", value / 1048576D, total / 1048576D));
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.touchhome.app.install;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+@Getter
+@Setter
+@Accessors(chain = true)
+public class StoredRelease {
+    private String sha256;
+    private String md5;
+    private String version;
+    private long size;
+    private long storedAt;
+    // last time release became installed app. 0 - never
+    private long activatedAt;
+    private boolean active;
+}
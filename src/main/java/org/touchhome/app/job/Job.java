@@ -0,0 +1,223 @@
+package org.touchhome.app.job;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+import org.touchhome.common.model.ProgressBar;
+import org.touchhome.common.util.CommonUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Long running operation. State changed only by compare-and-set, so concurrent cancel and finish never overwrite each
+ * other. Cancellation is cooperative: runner thread interrupted, registered cancel hooks(i.e. kill child process)
+ * executed and next progress() call throws CancellationException.
+ * Last touchhome.jobs.historySize progress events kept in ring buffer for replay.
+ */
+public class Job implements ProgressBar {
+
+    private static final ThreadLocal<Job> CURRENT = new ThreadLocal<>();
+
+    @Getter
+    private final String id = UUID.randomUUID().toString();
+    @Getter
+    private final JobType type;
+    @Getter
+    private final String title;
+    @Getter
+    private final long createdAt = System.currentTimeMillis();
+    @Getter
+    private volatile long finishedAt;
+    @Getter
+    private volatile double progress;
+    @Getter
+    private volatile String message;
+    @Getter
+    private volatile String error;
+
+    private final AtomicReference<JobState> state = new AtomicReference<>(JobState.PENDING);
+    private final List<Runnable> cancelHooks = new CopyOnWriteArrayList<>();
+    private final JobEvent[] history;
+    private final Consumer<Job> stateListener;
+    // mirrors progress to other progress bar, i.e. '-global' topic. may be null
+    private final ProgressBar mirror;
+    private long lastSeq;
+    // guards runner, so cancel() never interrupts pool thread that already moved to next task
+    private final Object runnerLock = new Object();
+    private Thread runner;
+
+    Job(JobType type, String title, int historySize, ProgressBar mirror, Consumer<Job> stateListener) {
+        this.type = type;
+        this.title = title;
+        this.history = new JobEvent[historySize];
+        this.mirror = mirror;
+        this.stateListener = stateListener;
+        addEvent(JobState.PENDING, 0, title);
+    }
+
+    /**
+     * Job executed by current thread or null
+     */
+    public static Job current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Run action on behalf of job, i.e. step of job executed by other thread.
+     */
+    public static <T> T callAs(Job job, Callable<T> action) throws Exception {
+        Job previous = CURRENT.get();
+        CURRENT.set(job);
+        try {
+            return action.call();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    public JobState getState() {
+        return state.get();
+    }
+
+    @JsonIgnore
+    public boolean isCancelled() {
+        JobState jobState = state.get();
+        return jobState == JobState.CANCELLING || jobState == JobState.CANCELLED;
+    }
+
+    public synchronized long getLastSeq() {
+        return lastSeq;
+    }
+
+    /**
+     * @throws CancellationException if job has been cancelled
+     */
+    @Override
+    public void progress(double progress, String message) {
+        checkCancelled();
+        this.progress = progress;
+        this.message = message;
+        addEvent(state.get(), progress, message);
+        if (mirror != null) {
+            mirror.progress(progress, message);
+        }
+    }
+
+    public void checkCancelled() {
+        if (isCancelled()) {
+            throw new CancellationException("Job <" + title + "> cancelled");
+        }
+    }
+
+    /**
+     * Hook executed once if job cancelled while registered. Executed immediately if job already cancelled.
+     */
+    public void addCancelHook(Runnable hook) {
+        cancelHooks.add(hook);
+        if (isCancelled() && cancelHooks.remove(hook)) {
+            hook.run();
+        }
+    }
+
+    public void removeCancelHook(Runnable hook) {
+        cancelHooks.remove(hook);
+    }
+
+    /**
+     * @return events with seq > fromSeq which are still in history
+     */
+    public synchronized JobEvents getEvents(long fromSeq) {
+        long firstSeq = Math.max(1, lastSeq - history.length + 1);
+        long start = Math.max(fromSeq + 1, firstSeq);
+        List<JobEvent> events = new ArrayList<>((int) Math.max(0, lastSeq - start + 1));
+        for (long seq = start; seq <= lastSeq; seq++) {
+            events.add(history[(int) ((seq - 1) % history.length)]);
+        }
+        return new JobEvents(id, fromSeq + 1 < firstSeq, events);
+    }
+
+    boolean cancel() {
+        if (state.compareAndSet(JobState.PENDING, JobState.CANCELLED)) {
+            finishedAt = System.currentTimeMillis();
+            onStateChanged("Cancelled");
+            return true;
+        }
+        if (!state.compareAndSet(JobState.RUNNING, JobState.CANCELLING)) {
+            return false;
+        }
+        onStateChanged("Cancelling");
+        for (Runnable hook : cancelHooks) {
+            if (cancelHooks.remove(hook)) {
+                hook.run();
+            }
+        }
+        synchronized (runnerLock) {
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return false if job cancelled before start
+     */
+    boolean start() {
+        synchronized (runnerLock) {
+            runner = Thread.currentThread();
+        }
+        if (!state.compareAndSet(JobState.PENDING, JobState.RUNNING)) {
+            synchronized (runnerLock) {
+                runner = null;
+            }
+            return false;
+        }
+        CURRENT.set(this);
+        onStateChanged(title);
+        return true;
+    }
+
+    void finish(Throwable ex) {
+        CURRENT.remove();
+        synchronized (runnerLock) {
+            runner = null;
+            // clear interrupt of pool thread raised by cancel()
+            Thread.interrupted();
+        }
+        cancelHooks.clear();
+        JobState finalState;
+        if (state.compareAndSet(JobState.CANCELLING, JobState.CANCELLED)) {
+            finalState = JobState.CANCELLED;
+        } else if (ex == null) {
+            finalState = state.compareAndSet(JobState.RUNNING, JobState.SUCCEEDED) ? JobState.SUCCEEDED : state.get();
+        } else {
+            finalState = state.compareAndSet(JobState.RUNNING, JobState.FAILED) ? JobState.FAILED : state.get();
+        }
+        if (finalState == JobState.FAILED) {
+            error = CommonUtils.getErrorMessage(ex);
+        }
+        finishedAt = System.currentTimeMillis();
+        progress = 100;
+        onStateChanged(finalState == JobState.SUCCEEDED ? "Done." : finalState == JobState.FAILED ? "Error: " + error : "Cancelled");
+        if (mirror != null) {
+            mirror.progress(100, message);
+        }
+    }
+
+    private void onStateChanged(String message) {
+        this.message = message;
+        addEvent(state.get(), progress, message);
+        stateListener.accept(this);
+    }
+
+    private synchronized void addEvent(JobState jobState, double progress, String message) {
+        lastSeq++;
+        history[(int) ((lastSeq - 1) % history.length)] = new JobEvent(id, lastSeq, System.currentTimeMillis(), jobState, progress, message);
+    }
+}
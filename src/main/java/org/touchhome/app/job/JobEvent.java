@@ -0,0 +1,16 @@
+package org.touchhome.app.job;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public class JobEvent {
+    private final String jobId;
+    // starts from 1, increased by 1 for each event of job
+    private final long seq;
+    private final long timestamp;
+    private final JobState state;
+    private final double progress;
+    private final String message;
+}
@@ -0,0 +1,17 @@
+package org.touchhome.app.job;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Events after requested sequence. truncated - some requested events already evicted from job history.
+ */
+@Getter
+@RequiredArgsConstructor
+public class JobEvents {
+    private final String jobId;
+    private final boolean truncated;
+    private final List<JobEvent> events;
+}
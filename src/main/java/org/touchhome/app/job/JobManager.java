@@ -0,0 +1,271 @@
+package org.touchhome.app.job;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.touchhome.app.ble.WebSocketConfig;
+import org.touchhome.app.config.TouchHomeProperties;
+import org.touchhome.app.executor.TouchHomeExecutors;
+import org.touchhome.app.progress.ProgressPublisher;
+import org.touchhome.app.telemetry.MemoryPressureEvent;
+import org.touchhome.common.exception.NotFoundException;
+import org.touchhome.common.exception.ServerException;
+import org.touchhome.common.util.CommonUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Registry of long running jobs(app download, init setup, keystore). Only one job per JobType may be active: slot
+ * taken by putIfAbsent, so concurrent requests can't both start same job.
+ * Job events are pushed to '/smart-dest-ws-job-{jobId}' in batches every touchhome.progress.flushIntervalMs.
+ * Client which subscribes with 'fromSeq' header receives events after that sequence which are still in job history.
+ * Replay is sent to subscribing session only(same way as @SubscribeMapping reply), other subscribers of job not
+ * receive it. Clients should skip events with already seen seq.
+ */
+@Log4j2
+@Lazy(false)
+@Component
+@RequiredArgsConstructor
+public class JobManager {
+
+    public static final String DESTINATION = WebSocketConfig.DESTINATION_PREFIX + "-job-";
+    private static final String FROM_SEQ_HEADER = "fromSeq";
+
+    private final TouchHomeProperties touchHomeProperties;
+    private final TouchHomeExecutors touchHomeExecutors;
+    private final ProgressPublisher progressPublisher;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ThreadPoolTaskScheduler threadPoolTaskScheduler;
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final Map<JobType, Job> active = new ConcurrentHashMap<>();
+    // last event seq pushed to websocket per job
+    private final Map<String, Long> publishedSeq = new ConcurrentHashMap<>();
+
+    @Autowired
+    @Qualifier("clientOutboundChannel")
+    private MessageChannel clientOutboundChannel;
+
+    private SimpMessagingTemplate replayTemplate;
+    private ScheduledFuture<?> flushFuture;
+
+    @PostConstruct
+    public void init() {
+        // bypasses broker, so message delivered to one session
+        replayTemplate = new SimpMessagingTemplate(clientOutboundChannel);
+        replayTemplate.setMessageConverter(messagingTemplate.getMessageConverter());
+        flushFuture = threadPoolTaskScheduler.scheduleAtFixedRate(this::flush, touchHomeProperties.getProgress().getFlushIntervalMs());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (flushFuture != null) {
+            flushFuture.cancel(false);
+        }
+    }
+
+    /**
+     * Run job in background.
+     *
+     * @throws ServerException if job of same type already active
+     */
+    public Job submit(JobType type, String title, JobAction action) {
+        Job job = register(type, title);
+        try {
+            touchHomeExecutors.getBlocking().execute(() -> execute(job, action));
+        } catch (RejectedExecutionException ex) {
+            job.cancel();
+            release(job);
+            throw new ServerException("Unable to start job <" + title + ">. Too many tasks");
+        }
+        return job;
+    }
+
+    /**
+     * Run job in caller thread and return it's result.
+     *
+     * @throws ServerException if job of same type already active
+     */
+    public <T> T call(JobType type, String title, JobCallable<T> action) throws Exception {
+        Job job = register(type, title);
+        if (!job.start()) {
+            release(job);
+            throw new CancellationException("Job <" + title + "> cancelled");
+        }
+        Exception error = null;
+        try {
+            return action.call(job);
+        } catch (Exception ex) {
+            error = ex;
+            throw ex;
+        } finally {
+            job.finish(error);
+            release(job);
+        }
+    }
+
+    public boolean isActive(JobType type) {
+        return active.containsKey(type);
+    }
+
+    public Job getJob(String id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            throw new NotFoundException("Job <" + id + "> not found");
+        }
+        return job;
+    }
+
+    public List<Job> getJobs() {
+        List<Job> list = new ArrayList<>(jobs.values());
+        list.sort(Comparator.comparingLong(Job::getCreatedAt).reversed());
+        return list;
+    }
+
+    public Job cancel(String id) {
+        Job job = getJob(id);
+        if (!job.cancel()) {
+            throw new ServerException("Job <" + job.getTitle() + "> is not running");
+        }
+        if (job.getState() == JobState.CANCELLED) {
+            release(job);
+        }
+        return job;
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        if (destination != null && destination.startsWith(DESTINATION)) {
+            Job job = jobs.get(destination.substring(DESTINATION.length()));
+            if (job != null) {
+                long fromSeq = Math.max(0, NumberUtils.toLong(accessor.getFirstNativeHeader(FROM_SEQ_HEADER), 0));
+                SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+                headers.setSessionId(accessor.getSessionId());
+                headers.setSubscriptionId(accessor.getSubscriptionId());
+                headers.setLeaveMutable(true);
+                try {
+                    replayTemplate.convertAndSend(destination, job.getEvents(fromSeq), headers.getMessageHeaders());
+                } catch (Exception ex) {
+                    log.warn("Unable to replay job events: <{}>", ex.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Finished jobs are only kept for replay, so all of them dropped except last one which state may be polled yet
+     */
+    @EventListener
+    public void onMemoryPressure(MemoryPressureEvent event) {
+        evictFinished(1);
+    }
+
+    private Job register(JobType type, String title) {
+        Job job = new Job(type, title, touchHomeProperties.getJobs().getHistorySize(),
+                type.getProgressType() == null ? null : progressPublisher.createProgressBar(type.getProgressType()),
+                this::onStateChanged);
+        Job existing = active.putIfAbsent(type, job);
+        if (existing != null) {
+            throw new ServerException("Job <" + existing.getTitle() + "> already running");
+        }
+        jobs.put(job.getId(), job);
+        evictFinished(touchHomeProperties.getJobs().getKeepFinished());
+        return job;
+    }
+
+    private void execute(Job job, JobAction action) {
+        if (!job.start()) {
+            return;
+        }
+        Throwable error = null;
+        try {
+            action.run(job);
+        } catch (Throwable ex) {
+            error = ex;
+            if (!job.isCancelled()) {
+                log.error("Job <{}> failed: <{}>", job.getTitle(), CommonUtils.getErrorMessage(ex), ex);
+            }
+        } finally {
+            job.finish(error);
+            release(job);
+        }
+    }
+
+    private void release(Job job) {
+        active.remove(job.getType(), job);
+        applicationEventPublisher.publishEvent(new JobStateChangedEvent(job));
+    }
+
+    private void onStateChanged(Job job) {
+        log.info("Job <{}> {}", job.getTitle(), job.getState());
+        // finish published by release() when job slot already free
+        if (!job.getState().isFinished()) {
+            applicationEventPublisher.publishEvent(new JobStateChangedEvent(job));
+        }
+    }
+
+    private void evictFinished(int keepFinished) {
+        List<Job> finished = new ArrayList<>();
+        for (Job job : jobs.values()) {
+            if (job.getState().isFinished()) {
+                finished.add(job);
+            }
+        }
+        if (finished.size() > keepFinished) {
+            finished.sort(Comparator.comparingLong(Job::getFinishedAt));
+            for (Job job : finished.subList(0, finished.size() - keepFinished)) {
+                jobs.remove(job.getId());
+                publishedSeq.remove(job.getId());
+            }
+        }
+    }
+
+    private void flush() {
+        for (Job job : jobs.values()) {
+            long lastSeq = publishedSeq.getOrDefault(job.getId(), 0L);
+            if (job.getLastSeq() > lastSeq) {
+                JobEvents events = job.getEvents(lastSeq);
+                try {
+                    messagingTemplate.convertAndSend(DESTINATION + job.getId(), events);
+                } catch (Exception ex) {
+                    log.warn("Unable to send job events: <{}>", ex.getMessage());
+                }
+                if (!events.getEvents().isEmpty()) {
+                    publishedSeq.put(job.getId(), events.getEvents().get(events.getEvents().size() - 1).getSeq());
+                }
+            }
+        }
+    }
+
+    public interface JobAction {
+        void run(Job job) throws Exception;
+    }
+
+    public interface JobCallable<T> {
+        T call(Job job) throws Exception;
+    }
+}
@@ -0,0 +1,9 @@
+package org.touchhome.app.job;
+
+public enum JobState {
+    PENDING, RUNNING, CANCELLING, SUCCEEDED, FAILED, CANCELLED;
+
+    public boolean isFinished() {
+        return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+    }
+}
@@ -0,0 +1,13 @@
+package org.touchhome.app.job;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Spring application event published on each job state transition.
+ */
+@Getter
+@RequiredArgsConstructor
+public class JobStateChangedEvent {
+    private final Job job;
+}
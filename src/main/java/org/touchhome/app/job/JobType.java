@@ -0,0 +1,19 @@
+package org.touchhome.app.job;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.touchhome.app.progress.Progress;
+
+/**
+ * Only one job of each type may run at a time.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum JobType {
+    download(Progress.Type.download),
+    init(Progress.Type.init),
+    keystore(null);
+
+    // '-global' progress bar type which mirrors job progress. null - not mirrored
+    private final Progress.Type progressType;
+}
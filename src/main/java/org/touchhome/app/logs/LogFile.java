@@ -0,0 +1,18 @@
+package org.touchhome.app.logs;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+@Getter
+@Setter
+@Accessors(chain = true)
+public class LogFile {
+    // path relative to log dir, i.e. 'zigBee.log' or 'old/zigBee.2022-05-01.log.gz'
+    private String name;
+    private String appender;
+    private long size;
+    private long lastModified;
+    // rolled over and gzipped
+    private boolean archived;
+}
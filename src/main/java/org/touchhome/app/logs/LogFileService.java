@@ -0,0 +1,313 @@
+package org.touchhome.app.logs;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.appender.RollingFileAppender;
+import org.springframework.stereotype.Component;
+import org.touchhome.app.config.TouchHomeProperties;
+import org.touchhome.common.exception.NotFoundException;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads log files of log4j2 RollingFile appenders. Current files are read with positional FileChannel reads and
+ * archives(.gz) are streamed, in both cases at most touchhome.logs.maxPageKb is held in memory per request.
+ * Lines are expected in log4j2.xml pattern: 'yyyy/MM/dd HH:mm:ss LEVEL [thread] [logger] - message'. Lines that
+ * don't start with date(stack traces) belong to previous entry.
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class LogFileService {
+
+    private static final int GZIP_BUFFER_SIZE = 8192;
+    // 'yyyy/MM/dd HH:mm:ss '
+    private static final int LEVEL_OFFSET = 20;
+
+    private final TouchHomeProperties touchHomeProperties;
+
+    public List<LogFile> getLogFiles() throws IOException {
+        List<LogFile> logFiles = new ArrayList<>();
+        for (RollingFileAppender appender : getAppenders()) {
+            Path current = Paths.get(appender.getFileName());
+            if (Files.exists(current)) {
+                logFiles.add(createLogFile(appender, current, false));
+            }
+            Path archiveDir = Paths.get(appender.getFilePattern()).getParent();
+            String archivePrefix = StringUtils.substringBefore(Paths.get(appender.getFilePattern()).getFileName().toString(), "%");
+            if (archiveDir != null && Files.isDirectory(archiveDir)) {
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(archiveDir, archivePrefix + "*")) {
+                    for (Path path : stream) {
+                        logFiles.add(createLogFile(appender, path, true));
+                    }
+                }
+            }
+        }
+        logFiles.sort(Comparator.comparing(LogFile::getAppender).thenComparing(LogFile::getLastModified, Comparator.reverseOrder()));
+        return logFiles;
+    }
+
+    /**
+     * @param position byte offset to read from. Negative - offset from end of file
+     * @param level    min level of returned entries. null - any
+     * @param logger   part of logger name(case insensitive). null - any
+     */
+    public LogPage read(String name, long position, int limitKb, Level level, String logger) throws IOException {
+        LogFile logFile = getLogFiles().stream().filter(f -> f.getName().equals(name)).findAny()
+                .orElseThrow(() -> new NotFoundException("Log file " + name + " not found"));
+        Path path = getLogDir().resolve(logFile.getName());
+        int limit = Math.min(limitKb, touchHomeProperties.getLogs().getMaxPageKb()) * 1024;
+        LineFilter filter = new LineFilter(level, logger);
+        LogPage logPage = logFile.isArchived() ? readArchive(path, position, limit, filter) : readFile(path, position, limit, filter);
+        return logPage.setName(name);
+    }
+
+    /**
+     * Read lines appended to current file of appender since previous call. Reads at most touchhome.logs.maxBatchKb,
+     * older pending bytes are skipped, so log storm can't make tail fall behind forever.
+     */
+    LogPage tail(String appenderName, Tail tail, Level level) throws IOException {
+        RollingFileAppender appender = getAppenders().stream().filter(a -> a.getName().equals(appenderName)).findAny()
+                .orElseThrow(() -> new NotFoundException("Log appender " + appenderName + " not found"));
+        return tail(Paths.get(appender.getFileName()), tail, level);
+    }
+
+    /**
+     * Tail keeps tailed file open, so when file is rolled over(renamed or deleted) lines appended to it after previous
+     * read are drained from it before switching to new file.
+     */
+    LogPage tail(Path path, Tail tail, Level level) throws IOException {
+        int limit = touchHomeProperties.getLogs().getMaxBatchKb() * 1024;
+        LineFilter filter = new LineFilter(level, null);
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        LogPage drained = null;
+        long skipped = 0;
+        if (tail.channel == null) {
+            tail.open(path, attributes);
+            tail.position = Math.max(0, attributes.size() - limit);
+        } else if (!Objects.equals(tail.fileKey, attributes.fileKey())) {
+            // rolled over, rest of previous file first
+            skipped = Math.max(0, tail.channel.size() - tail.position - limit);
+            drained = readChannel(tail.channel, tail.position + skipped, limit, filter);
+            tail.close();
+            tail.open(path, attributes);
+            tail.position = 0;
+        } else if (attributes.size() < tail.position) {
+            // truncated in place, nothing left to drain
+            drained = new LogPage();
+            tail.position = 0;
+        }
+        long pendingSkipped = Math.max(0, tail.channel.size() - tail.position - limit);
+        LogPage logPage = readChannel(tail.channel, tail.position + pendingSkipped, limit, filter);
+        tail.position = logPage.getNextPosition();
+        if (drained != null) {
+            drained.getLines().addAll(logPage.getLines());
+            logPage.setLines(drained.getLines()).setRotated(true);
+        }
+        return logPage.setName(path.getFileName().toString()).setSkippedBytes(skipped + pendingSkipped);
+    }
+
+    private LogPage readFile(Path path, long position, int limit, LineFilter filter) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return readChannel(channel, position, limit, filter);
+        }
+    }
+
+    private LogPage readChannel(FileChannel channel, long position, int limit, LineFilter filter) throws IOException {
+        long size = channel.size();
+        position = Math.min(size, position < 0 ? Math.max(0, size + position) : position);
+        boolean lineStart = true;
+        if (position > 0) {
+            ByteBuffer previous = ByteBuffer.allocate(1);
+            channel.read(previous, position - 1);
+            lineStart = previous.get(0) == '\n';
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(limit, size - position));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+        return parse(buffer.array(), buffer.position(), position, lineStart, filter);
+    }
+
+    private LogPage readArchive(Path path, long position, int limit, LineFilter filter) throws IOException {
+        if (position < 0) {
+            position = Math.max(0, getUncompressedSize(path) + position);
+        }
+        try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(path), GZIP_BUFFER_SIZE)) {
+            boolean lineStart = true;
+            if (position > 0) {
+                skipFully(inputStream, position - 1);
+                lineStart = inputStream.read() == '\n';
+            }
+            byte[] buffer = new byte[limit];
+            int length = 0;
+            int read;
+            while (length < limit && (read = inputStream.read(buffer, length, limit - length)) != -1) {
+                length += read;
+            }
+            return parse(buffer, length, position, lineStart, filter);
+        }
+    }
+
+    /**
+     * Split bytes to lines. Incomplete last line is left for next read unless it alone fills whole buffer.
+     */
+    private LogPage parse(byte[] data, int length, long position, boolean lineStart, LineFilter filter) {
+        LogPage logPage = new LogPage().setPosition(position);
+        int start = 0;
+        if (!lineStart) {
+            // skip tail of line that started before position
+            while (start < length && data[start] != '\n') {
+                start++;
+            }
+            start = Math.min(length, start + 1);
+        }
+        boolean entryMatches = filter.isEmpty();
+        int consumed = start;
+        for (int i = start; i < length; i++) {
+            if (data[i] == '\n') {
+                String line = new String(data, consumed, i - consumed, StandardCharsets.UTF_8);
+                entryMatches = filter.isEntryStart(line) ? filter.matches(line) : entryMatches;
+                if (entryMatches) {
+                    logPage.getLines().add(line);
+                }
+                consumed = i + 1;
+            }
+        }
+        if (consumed == 0 && length == data.length && length > 0) {
+            // single line longer than page
+            logPage.getLines().add(new String(data, 0, length, StandardCharsets.UTF_8));
+            consumed = length;
+        }
+        return logPage.setNextPosition(position + consumed);
+    }
+
+    private List<RollingFileAppender> getAppenders() {
+        List<RollingFileAppender> appenders = new ArrayList<>();
+        LoggerContext loggerContext = (LoggerContext) LogManager.getContext(false);
+        for (Appender appender : loggerContext.getConfiguration().getAppenders().values()) {
+            if (appender instanceof RollingFileAppender) {
+                appenders.add((RollingFileAppender) appender);
+            }
+        }
+        return appenders;
+    }
+
+    private LogFile createLogFile(RollingFileAppender appender, Path path, boolean archived) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        return new LogFile()
+                .setName(getLogDir().relativize(path.toAbsolutePath()).toString())
+                .setAppender(appender.getName())
+                .setSize(attributes.size())
+                .setLastModified(attributes.lastModifiedTime().toMillis())
+                .setArchived(archived);
+    }
+
+    private Path getLogDir() {
+        RollingFileAppender appender = getAppenders().stream().findFirst()
+                .orElseThrow(() -> new NotFoundException("No file log appenders configured"));
+        return Paths.get(appender.getFileName()).toAbsolutePath().getParent();
+    }
+
+    private static long getUncompressedSize(Path path) throws IOException {
+        try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(path), GZIP_BUFFER_SIZE)) {
+            long size = 0;
+            long skipped;
+            while ((skipped = inputStream.skip(Long.MAX_VALUE)) > 0) {
+                size += skipped;
+            }
+            return size;
+        }
+    }
+
+    private static void skipFully(InputStream inputStream, long count) throws IOException {
+        while (count > 0) {
+            long skipped = inputStream.skip(count);
+            if (skipped <= 0) {
+                throw new EOFException("Position is out of file");
+            }
+            count -= skipped;
+        }
+    }
+
+    /**
+     * Open tailed file and position in it between reads. Must be closed when tail is no longer needed
+     */
+    static class Tail implements Closeable {
+        private FileChannel channel;
+        private Object fileKey;
+        private long position;
+
+        private void open(Path path, BasicFileAttributes attributes) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            fileKey = attributes.fileKey();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    private static class LineFilter {
+        private final Level level;
+        private final String logger;
+
+        private LineFilter(Level level, String logger) {
+            this.level = level;
+            this.logger = StringUtils.isEmpty(logger) ? null : logger.toLowerCase();
+        }
+
+        private boolean isEmpty() {
+            return level == null && logger == null;
+        }
+
+        // 'yyyy/MM/dd HH:mm:ss'
+        private boolean isEntryStart(String line) {
+            return line.length() > LEVEL_OFFSET && line.charAt(4) == '/' && line.charAt(7) == '/' && line.charAt(13) == ':';
+        }
+
+        private boolean matches(String line) {
+            if (level != null) {
+                int end = line.indexOf(' ', LEVEL_OFFSET);
+                Level lineLevel = Level.getLevel(line.substring(LEVEL_OFFSET, end < 0 ? line.length() : end));
+                if (lineLevel == null || !lineLevel.isMoreSpecificThan(level)) {
+                    return false;
+                }
+            }
+            if (logger != null) {
+                int start = line.indexOf("] [");
+                int end = line.indexOf("] - ", start + 1);
+                return start >= 0 && end > start && line.substring(start + 3, end).toLowerCase().contains(logger);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.touchhome.app.logs;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@Accessors(chain = true)
+public class LogPage {
+    private String name;
+    // byte offset of first line. For archives offset in uncompressed content
+    private long position;
+    // offset to continue reading from
+    private long nextPosition;
+    // file has been rolled over since previous tail read: lines are rest of previous file and beginning of new file
+    private boolean rotated;
+    // bytes skipped by tail because of log storm
+    private long skippedBytes;
+    private List<String> lines = new ArrayList<>();
+}
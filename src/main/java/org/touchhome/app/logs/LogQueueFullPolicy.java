@@ -0,0 +1,71 @@
+package org.touchhome.app.logs;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.async.AsyncQueueFullPolicy;
+import org.apache.logging.log4j.core.async.EventRoute;
+import org.apache.logging.log4j.util.PropertiesUtil;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What async appender does with event when it's queue is full. Registered in log4j2.component.properties and
+ * configured with touchhome.log.queueFullPolicy(system property or log4j2.component.properties):
+ * BLOCK - caller waits for free slot.
+ * DROP_DEBUG - DEBUG/TRACE events are discarded, others wait.
+ * SUMMARIZE - INFO and less severe events are discarded and reported as one warning(see LogQueueMonitor), WARN/ERROR wait.
+ */
+public class LogQueueFullPolicy implements AsyncQueueFullPolicy {
+
+    public static final String PROPERTY = "touchhome.log.queueFullPolicy";
+
+    private static final LongAdder DROPPED = new LongAdder();
+    private static final LongAdder TOTAL_DROPPED = new LongAdder();
+
+    private final Mode mode;
+
+    public LogQueueFullPolicy() {
+        this(getMode());
+    }
+
+    LogQueueFullPolicy(Mode mode) {
+        this.mode = mode;
+    }
+
+    public static Mode getMode() {
+        try {
+            return Mode.valueOf(PropertiesUtil.getProperties().getStringProperty(PROPERTY, Mode.SUMMARIZE.name()));
+        } catch (IllegalArgumentException ex) {
+            return Mode.SUMMARIZE;
+        }
+    }
+
+    /**
+     * @return events dropped since previous call
+     */
+    public static long drainDropped() {
+        return DROPPED.sumThenReset();
+    }
+
+    public static long getTotalDropped() {
+        return TOTAL_DROPPED.sum();
+    }
+
+    @Override
+    public EventRoute getRoute(long backgroundThreadId, Level level) {
+        // event logged by appender thread itself, waiting for own queue would deadlock
+        if (Thread.currentThread().getId() == backgroundThreadId) {
+            return EventRoute.SYNCHRONOUS;
+        }
+        if (mode == Mode.DROP_DEBUG && level.isLessSpecificThan(Level.DEBUG)
+                || mode == Mode.SUMMARIZE && level.isLessSpecificThan(Level.INFO)) {
+            DROPPED.increment();
+            TOTAL_DROPPED.increment();
+            return EventRoute.DISCARD;
+        }
+        return EventRoute.ENQUEUE;
+    }
+
+    public enum Mode {
+        BLOCK, DROP_DEBUG, SUMMARIZE
+    }
+}
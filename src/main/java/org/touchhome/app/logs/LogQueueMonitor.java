@@ -0,0 +1,71 @@
+package org.touchhome.app.logs;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.appender.AsyncAppender;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports events dropped by LogQueueFullPolicy as single warning per interval and exposes async appender queues state.
+ */
+@Log4j2
+@Lazy(false)
+@Component
+@RequiredArgsConstructor
+public class LogQueueMonitor {
+
+    private static final long REPORT_INTERVAL_SEC = 60;
+
+    private final ThreadPoolTaskScheduler threadPoolTaskScheduler;
+
+    private ScheduledFuture<?> reportFuture;
+
+    @PostConstruct
+    public void init() {
+        reportFuture = threadPoolTaskScheduler.scheduleWithFixedDelay(this::reportDropped, TimeUnit.SECONDS.toMillis(REPORT_INTERVAL_SEC));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (reportFuture != null) {
+            reportFuture.cancel(false);
+        }
+    }
+
+    public LoggingStats getStats() {
+        LoggingStats stats = new LoggingStats()
+                .setQueueFullPolicy(LogQueueFullPolicy.getMode())
+                .setDroppedEvents(LogQueueFullPolicy.getTotalDropped());
+        List<LoggingStats.Queue> queues = new ArrayList<>();
+        LoggerContext loggerContext = (LoggerContext) LogManager.getContext(false);
+        for (Appender appender : loggerContext.getConfiguration().getAppenders().values()) {
+            if (appender instanceof AsyncAppender) {
+                AsyncAppender asyncAppender = (AsyncAppender) appender;
+                queues.add(new LoggingStats.Queue()
+                        .setName(asyncAppender.getName())
+                        .setCapacity(asyncAppender.getQueueCapacity())
+                        .setSize(asyncAppender.getQueueSize()));
+            }
+        }
+        return stats.setQueues(queues).setAsync(!queues.isEmpty());
+    }
+
+    private void reportDropped() {
+        long dropped = LogQueueFullPolicy.drainDropped();
+        if (dropped > 0) {
+            log.warn("Log queue full: {} events dropped in last {}s", dropped, REPORT_INTERVAL_SEC);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.touchhome.app.logs;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.Level;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+import org.touchhome.app.ble.WebSocketConfig;
+import org.touchhome.app.config.TouchHomeProperties;
+import org.touchhome.common.util.CommonUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Live log tail over websocket. Client subscribes to '/smart-dest-ws-log-{appender}' or
+ * '/smart-dest-ws-log-{appender}-{minLevel}', i.e. '/smart-dest-ws-log-zigBeeLog-WARN'.
+ * Subscribed files are checked on scheduler every touchhome.logs.tailIntervalMs and new lines are pushed as one
+ * LogPage message per destination, so message rate doesn't depend on log rate.
+ */
+@Log4j2
+@Lazy(false)
+@Component
+@RequiredArgsConstructor
+public class LogTailPublisher {
+
+    public static final String DESTINATION = WebSocketConfig.DESTINATION_PREFIX + "-log-";
+
+    private final LogFileService logFileService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ThreadPoolTaskScheduler threadPoolTaskScheduler;
+    private final TouchHomeProperties touchHomeProperties;
+
+    // 'sessionId:subscriptionId' -> destination suffix
+    private final Map<String, String> subscriptions = new ConcurrentHashMap<>();
+    private final Map<String, LogFileService.Tail> tails = new ConcurrentHashMap<>();
+
+    private ScheduledFuture<?> tailFuture;
+
+    @PostConstruct
+    public void init() {
+        tailFuture = threadPoolTaskScheduler.scheduleWithFixedDelay(this::publish, touchHomeProperties.getLogs().getTailIntervalMs());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (tailFuture != null) {
+            tailFuture.cancel(false);
+        }
+        tails.values().forEach(LogTailPublisher::close);
+        tails.clear();
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        if (destination != null && destination.startsWith(DESTINATION)) {
+            subscriptions.put(accessor.getSessionId() + ":" + accessor.getSubscriptionId(), destination.substring(DESTINATION.length()));
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        subscriptions.remove(accessor.getSessionId() + ":" + accessor.getSubscriptionId());
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        subscriptions.keySet().removeIf(key -> key.startsWith(event.getSessionId() + ":"));
+    }
+
+    private void publish() {
+        Set<String> destinations = new HashSet<>(subscriptions.values());
+        tails.entrySet().removeIf(entry -> {
+            if (destinations.contains(entry.getKey())) {
+                return false;
+            }
+            close(entry.getValue());
+            return true;
+        });
+        for (String destination : destinations) {
+            try {
+                String appender = StringUtils.substringBefore(destination, "-");
+                Level level = Level.toLevel(StringUtils.substringAfter(destination, "-"), null);
+                LogPage logPage = logFileService.tail(appender, tails.computeIfAbsent(destination, d -> new LogFileService.Tail()), level);
+                if (!logPage.getLines().isEmpty() || logPage.isRotated() || logPage.getSkippedBytes() > 0) {
+                    messagingTemplate.convertAndSend(DESTINATION + destination, logPage);
+                }
+            } catch (Exception ex) {
+                log.debug("Unable to tail log <{}>: <{}>", destination, CommonUtils.getErrorMessage(ex));
+            }
+        }
+    }
+
+    private static void close(LogFileService.Tail tail) {
+        try {
+            tail.close();
+        } catch (IOException ex) {
+            log.debug("Unable to close tailed log: <{}>", CommonUtils.getErrorMessage(ex));
+        }
+    }
+}
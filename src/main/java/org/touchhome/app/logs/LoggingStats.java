@@ -0,0 +1,27 @@
+package org.touchhome.app.logs;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Accessors(chain = true)
+public class LoggingStats {
+    private boolean async;
+    private LogQueueFullPolicy.Mode queueFullPolicy;
+    // since app start
+    private long droppedEvents;
+    private List<Queue> queues;
+
+    @Getter
+    @Setter
+    @Accessors(chain = true)
+    public static class Queue {
+        private String name;
+        private int capacity;
+        private int size;
+    }
+}
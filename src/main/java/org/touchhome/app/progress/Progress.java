@@ -0,0 +1,20 @@
+package org.touchhome.app.progress;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class Progress {
+    private final Type type;
+    private double value;
+    private String title;
+
+    boolean isFinished() {
+        return value >= 100;
+    }
+
+    public enum Type {
+        download, init
+    }
+}
@@ -0,0 +1,164 @@
+package org.touchhome.app.progress;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.touchhome.app.ble.WebSocketConfig;
+import org.touchhome.app.config.TouchHomeProperties;
+import org.touchhome.common.model.ProgressBar;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends progress to '-global' websocket topic. Worker threads only put latest value per Progress.Type into map,
+ * and values are flushed to broker with fixed rate, so streaming command output not flood clients.
+ * Finish messages(value >= 100) never conflated. Late subscriber receives last sent state of each type directly.
+ */
+@Log4j2
+@Lazy(false)
+@Component
+@RequiredArgsConstructor
+public class ProgressPublisher {
+
+    public static final String DESTINATION = WebSocketConfig.DESTINATION_PREFIX + "-global";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ThreadPoolTaskScheduler threadPoolTaskScheduler;
+    private final TouchHomeProperties touchHomeProperties;
+
+    private final Map<Progress.Type, Progress> pending = new ConcurrentHashMap<>();
+    private final Queue<Progress> pendingFinished = new ConcurrentLinkedQueue<>();
+    private final Map<Progress.Type, Progress> lastSent = new EnumMap<>(Progress.Type.class);
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong merged = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+
+    @Autowired
+    @Qualifier("clientOutboundChannel")
+    private MessageChannel clientOutboundChannel;
+
+    private SimpMessagingTemplate replayTemplate;
+    private ScheduledFuture<?> flushFuture;
+
+    @PostConstruct
+    public void init() {
+        // bypasses broker, so message delivered to one session
+        replayTemplate = new SimpMessagingTemplate(clientOutboundChannel);
+        replayTemplate.setMessageConverter(messagingTemplate.getMessageConverter());
+        flushFuture = threadPoolTaskScheduler.scheduleAtFixedRate(this::flush, touchHomeProperties.getProgress().getFlushIntervalMs());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (flushFuture != null) {
+            flushFuture.cancel(false);
+        }
+        flush();
+    }
+
+    public ProgressBar createProgressBar(Progress.Type type) {
+        return (progress, message) -> publish(new Progress(type, progress, message));
+    }
+
+    /**
+     * Non-blocking. Replace not yet sent progress of same type.
+     */
+    public void publish(Progress progress) {
+        published.incrementAndGet();
+        if (progress.isFinished()) {
+            if (pending.remove(progress.getType()) != null) {
+                merged.incrementAndGet();
+            }
+            pendingFinished.add(progress);
+        } else if (pending.put(progress.getType(), progress) != null) {
+            merged.incrementAndGet();
+        }
+    }
+
+    /**
+     * Last sent progress of each type sent to subscribing session only, other subscribers already have it
+     */
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        if (!DESTINATION.equals(accessor.getDestination())) {
+            return;
+        }
+        // under flush lock, so replayed state not overtakes newer progress
+        synchronized (this) {
+            for (Progress progress : lastSent.values()) {
+                SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+                headers.setSessionId(accessor.getSessionId());
+                headers.setSubscriptionId(accessor.getSubscriptionId());
+                headers.setLeaveMutable(true);
+                try {
+                    replayTemplate.convertAndSend(DESTINATION, progress, headers.getMessageHeaders());
+                    replayed.incrementAndGet();
+                } catch (Exception ex) {
+                    log.warn("Unable to replay progress: <{}>", ex.getMessage());
+                }
+            }
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(published.get(), merged.get(), sent.get(), dropped.get(), replayed.get());
+    }
+
+    synchronized void flush() {
+        Progress progress;
+        while ((progress = pendingFinished.poll()) != null) {
+            send(progress);
+        }
+        for (Progress.Type type : Progress.Type.values()) {
+            progress = pending.remove(type);
+            if (progress != null) {
+                send(progress);
+            }
+        }
+    }
+
+    private void send(Progress progress) {
+        try {
+            messagingTemplate.convertAndSend(DESTINATION, progress);
+            lastSent.put(progress.getType(), progress);
+            sent.incrementAndGet();
+        } catch (Exception ex) {
+            dropped.incrementAndGet();
+            log.warn("Unable to send progress: <{}>", ex.getMessage());
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Stats {
+        private final long published;
+        private final long merged;
+        private final long sent;
+        private final long dropped;
+        // sent to single late subscriber, not counted in 'sent'
+        private final long replayed;
+    }
+}
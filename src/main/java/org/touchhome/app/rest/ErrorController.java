@@ -0,0 +1,27 @@
+package org.touchhome.app.rest;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.touchhome.app.errors.ErrorFingerprint;
+import org.touchhome.app.errors.ErrorReporter;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/rest/errors")
+@RequiredArgsConstructor
+public class ErrorController {
+
+    private final ErrorReporter errorReporter;
+
+    /**
+     * Most frequent recent errors grouped by fingerprint, at least one
+     */
+    @GetMapping("/top")
+    public List<ErrorFingerprint> getTopErrors(@RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return errorReporter.getTopErrors(Math.max(1, limit));
+    }
+}
@@ -12,9 +12,13 @@ public class ErrorHolderModel {
     private String errorType;
 
     public ErrorHolderModel(String title, String message, Exception ex) {
+        this(title, message, getErrorMessage(ex), ex);
+    }
+
+    public ErrorHolderModel(String title, String message, String cause, Exception ex) {
         this.title = title;
         this.message = message;
-        this.cause = getErrorMessage(ex);
+        this.cause = cause;
         this.errorType = ex.getClass().getSimpleName();
     }
 }
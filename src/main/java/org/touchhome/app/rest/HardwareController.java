@@ -0,0 +1,25 @@
+package org.touchhome.app.rest;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+import org.touchhome.app.hardware.HardwareQueryCacheManager;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/rest/hardware")
+@RequiredArgsConstructor
+public class HardwareController {
+
+    private final HardwareQueryCacheManager hardwareQueryCacheManager;
+
+    @GetMapping("/cache")
+    public List<HardwareQueryCacheManager.CacheStats> getCacheStats() {
+        return hardwareQueryCacheManager.getStats();
+    }
+
+    @DeleteMapping("/cache")
+    public void invalidateCache() {
+        hardwareQueryCacheManager.invalidateAll();
+    }
+}
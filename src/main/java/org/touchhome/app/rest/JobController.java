@@ -0,0 +1,40 @@
+package org.touchhome.app.rest;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+import org.touchhome.app.job.Job;
+import org.touchhome.app.job.JobEvents;
+import org.touchhome.app.job.JobManager;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/rest/jobs")
+@RequiredArgsConstructor
+public class JobController {
+
+    private final JobManager jobManager;
+
+    @GetMapping
+    public List<Job> getJobs() {
+        return jobManager.getJobs();
+    }
+
+    @GetMapping("/{id}")
+    public Job getJob(@PathVariable("id") String id) {
+        return jobManager.getJob(id);
+    }
+
+    /**
+     * Job progress events with seq > fromSeq still kept in job history
+     */
+    @GetMapping("/{id}/events")
+    public JobEvents getJobEvents(@PathVariable("id") String id, @RequestParam(value = "fromSeq", defaultValue = "0") long fromSeq) {
+        return jobManager.getJob(id).getEvents(fromSeq);
+    }
+
+    @PostMapping("/{id}/cancel")
+    public Job cancelJob(@PathVariable("id") String id) {
+        return jobManager.cancel(id);
+    }
+}
@@ -0,0 +1,45 @@
+package org.touchhome.app.rest;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.Level;
+import org.springframework.web.bind.annotation.*;
+import org.touchhome.app.logs.LogFile;
+import org.touchhome.app.logs.LogFileService;
+import org.touchhome.app.logs.LogPage;
+import org.touchhome.app.logs.LogQueueMonitor;
+import org.touchhome.app.logs.LoggingStats;
+
+import java.io.IOException;
+import java.util.List;
+
+@RestController
+@RequestMapping("/rest/logs")
+@RequiredArgsConstructor
+public class LogController {
+
+    private final LogFileService logFileService;
+    private final LogQueueMonitor logQueueMonitor;
+
+    @GetMapping
+    public List<LogFile> getLogFiles() throws IOException {
+        return logFileService.getLogFiles();
+    }
+
+    /**
+     * Page of log lines starting at byte 'position'(negative - from end of file). Continue with returned nextPosition.
+     * limitKb is at least 1 and at most touchhome.logs.maxPageKb
+     */
+    @GetMapping("/page")
+    public LogPage getLogPage(@RequestParam("name") String name,
+                              @RequestParam(value = "position", defaultValue = "-65536") long position,
+                              @RequestParam(value = "limitKb", defaultValue = "64") int limitKb,
+                              @RequestParam(value = "level", required = false) String level,
+                              @RequestParam(value = "logger", required = false) String logger) throws IOException {
+        return logFileService.read(name, position, Math.max(1, limitKb), Level.toLevel(level, null), logger);
+    }
+
+    @GetMapping("/stats")
+    public LoggingStats getLoggingStats() {
+        return logQueueMonitor.getStats();
+    }
+}
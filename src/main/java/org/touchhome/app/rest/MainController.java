@@ -2,27 +2,39 @@ package org.touchhome.app.rest;
 
 import lombok.*;
 import lombok.extern.log4j.Log4j2;
-import org.apache.commons.codec.digest.DigestUtils;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.touchhome.app.ble.BluetoothBundleService;
-import org.touchhome.app.ble.WebSocketConfig;
-import org.touchhome.app.hardware.StartupHardwareRepository;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.touchhome.app.ble.BluetoothCharacteristicCache;
+import org.touchhome.app.device.DeviceConfig;
+import org.touchhome.app.device.DeviceConfigService;
+import org.touchhome.app.executor.ExecutorStats;
+import org.touchhome.app.executor.TouchHomeExecutors;
+import org.touchhome.app.hardware.shell.ShellSessionPool;
+import org.touchhome.app.install.AppInstaller;
+import org.touchhome.app.install.StoredRelease;
+import org.touchhome.app.job.Job;
+import org.touchhome.app.job.JobManager;
+import org.touchhome.app.job.JobType;
+import org.touchhome.app.progress.ProgressPublisher;
+import org.touchhome.app.setup.InitialSetupService;
+import org.touchhome.app.setup.PostgresReplicaBootstrap;
+import org.touchhome.app.setup.PostgresTuneReport;
+import org.touchhome.app.setup.PostgresTuner;
+import org.touchhome.app.startup.StartupReport;
+import org.touchhome.app.startup.StartupTimelineService;
 import org.touchhome.bundle.api.hardware.other.MachineHardwareRepository;
-import org.touchhome.common.exception.NotFoundException;
-import org.touchhome.common.exception.ServerException;
-import org.touchhome.common.model.ProgressBar;
 import org.touchhome.common.util.CommonUtils;
-import org.touchhome.common.util.Curl;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
-import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static org.touchhome.common.util.CommonUtils.OBJECT_MAPPER;
 
@@ -32,12 +44,18 @@ import static org.touchhome.common.util.CommonUtils.OBJECT_MAPPER;
 @RequiredArgsConstructor
 public class MainController {
 
-    private final BluetoothBundleService bluetoothBundleService;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final BluetoothCharacteristicCache bluetoothCharacteristicCache;
+    private final ProgressPublisher progressPublisher;
     private final MachineHardwareRepository machineHardwareRepository;
-    private final StartupHardwareRepository startupHardwareRepository;
-    private boolean installingApp;
-    private boolean initInstalling;
+    private final AppInstaller appInstaller;
+    private final DeviceConfigService deviceConfigService;
+    private final InitialSetupService initialSetupService;
+    private final PostgresTuner postgresTuner;
+    private final PostgresReplicaBootstrap postgresReplicaBootstrap;
+    private final ShellSessionPool shellSessionPool;
+    private final TouchHomeExecutors touchHomeExecutors;
+    private final StartupTimelineService startupTimelineService;
+    private final JobManager jobManager;
 
     @GetMapping("/auth/status")
     public int getStatus() {
@@ -46,12 +64,20 @@ public class MainController {
 
     @GetMapping("/device/characteristic/{uuid}")
     public OptionModel getDeviceCharacteristic(@PathVariable("uuid") String uuid) {
-        return OptionModel.key(bluetoothBundleService.getDeviceCharacteristic(uuid));
+        return OptionModel.key(bluetoothCharacteristicCache.get(uuid));
+    }
+
+    /**
+     * Read many characteristics in one request. Response is 'uuid -> value' in requested order
+     */
+    @GetMapping("/device/characteristics")
+    public Map<String, String> getDeviceCharacteristics(@RequestParam("uuid") List<String> uuids) {
+        return bluetoothCharacteristicCache.getAll(uuids);
     }
 
     @PutMapping("/device/characteristic/{uuid}")
     public void setDeviceCharacteristic(@PathVariable("uuid") String uuid, @RequestBody byte[] value) {
-        bluetoothBundleService.setDeviceCharacteristic(uuid, value);
+        bluetoothCharacteristicCache.set(uuid, value);
     }
 
     @SneakyThrows
@@ -65,82 +91,107 @@ public class MainController {
     @PostMapping("/app/config/finish")
     public void finishConfiguration() {
         log.info("Update /etc/systemd/system/touchhome.service");
-        machineHardwareRepository.execute("sed -i 's/boot/core/g' /etc/systemd/system/touchhome.service");
-        machineHardwareRepository.execute("sed -i '3 i After=postgresql.service' /etc/systemd/system/touchhome.service");
-        machineHardwareRepository.execute("sed -i '4 i Requires=postgresql.service' /etc/systemd/system/touchhome.service");
+        shellSessionPool.execute("sed -i 's/boot/core/g' /etc/systemd/system/touchhome.service");
+        shellSessionPool.execute("sed -i '3 i After=postgresql.service' /etc/systemd/system/touchhome.service");
+        shellSessionPool.execute("sed -i '4 i Requires=postgresql.service' /etc/systemd/system/touchhome.service");
         machineHardwareRepository.reboot();
     }
 
+    /**
+     * Cached snapshot. Respond 304 if If-None-Match header equals to current snapshot eTag
+     */
     @GetMapping("/app/config")
-    public DeviceConfig getConfiguration() throws IOException {
-        DeviceConfig deviceConfig = new DeviceConfig();
-        deviceConfig.hasApp = Files.exists(CommonUtils.getRootPath().resolve("touchhome-core.jar"));
-        deviceConfig.installingApp = this.installingApp;
-        deviceConfig.initInstalling = this.initInstalling;
-        Path prvKey = CommonUtils.getRootPath().resolve("init_private_key");
-        deviceConfig.hasKeystore = Files.exists(prvKey);
-        deviceConfig.hasInitSetup = isInitSetupDone();
-        deviceConfig.keystoreDate = deviceConfig.hasKeystore ? new Date(Files.getLastModifiedTime(prvKey).toMillis()) : null;
-        deviceConfig.hasUserPassword = Files.exists(CommonUtils.getRootPath().resolve("user_password.conf"));
-        return deviceConfig;
+    public DeviceConfig getConfiguration(WebRequest request) {
+        DeviceConfigService.Snapshot snapshot = deviceConfigService.getSnapshot();
+        if (request.checkNotModified(snapshot.getETag())) {
+            return null;
+        }
+        return snapshot.getConfig();
+    }
+
+    /**
+     * Long poll. Respond as soon as config eTag differs from If-None-Match header, or 304 after timeout
+     */
+    @GetMapping("/app/config/changes")
+    public DeferredResult<ResponseEntity<DeviceConfig>> waitConfigurationChanges(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, defaultValue = "") String eTag,
+            @RequestParam(value = "timeoutSec", defaultValue = "30") int timeoutSec) {
+        return deviceConfigService.waitForChange(eTag, TimeUnit.SECONDS.toMillis(Math.min(timeoutSec, 300)));
+    }
+
+    @GetMapping("/app/progress/stats")
+    public ProgressPublisher.Stats getProgressStats() {
+        return progressPublisher.getStats();
+    }
+
+    @GetMapping("/app/executors")
+    public List<ExecutorStats> getExecutorStats() {
+        return touchHomeExecutors.getStats();
+    }
+
+    /**
+     * Boot milestones and time spent per startup phase/bean
+     */
+    @GetMapping("/app/startup")
+    public StartupReport getStartupReport() {
+        return startupTimelineService.getReport();
     }
 
     @PostMapping("/app/config/init")
-    public void initialSetup() {
-        if (initInstalling) {
-            throw new ServerException("Already installing...");
-        }
-        initInstalling = true;
-        new Thread(() -> {
-            try {
-                ProgressBar progressBar = (progress, message) ->
-                        messagingTemplate.convertAndSend(WebSocketConfig.DESTINATION_PREFIX + "-global", new Progress(Progress.Type.init, progress, message));
-                try {
-                    if (!isInitSetupDone()) {
-                        progressBar.progress(5, "Update os");
-                        machineHardwareRepository.execute("apt-get update", 600, progressBar);
-                        progressBar.progress(20, "Full upgrade os");
-                        machineHardwareRepository.execute("apt-get -y full-upgrade", 1200, progressBar);
-                        machineHardwareRepository.installSoftware("autossh", 60);
-                        progressBar.progress(30, "Install ffmpeg");
-                        machineHardwareRepository.installSoftware("ffmpeg", 600);
-                        progressBar.progress(40, "Installing Postgresql");
-                        installPostgreSql(progressBar);
-                        machineHardwareRepository.execute("apt-get clean");
-                    }
-                    progressBar.progress(100, "Done.");
-                } catch (Exception ex) {
-                    progressBar.progress(100, "Error: " + CommonUtils.getErrorMessage(ex));
-                    throw new ServerException(ex);
-                }
-            } finally {
-                initInstalling = false;
+    public Job initialSetup() {
+        return jobManager.submit(JobType.init, "Initial setup", job -> {
+            if (!initialSetupService.isFinished()) {
+                initialSetupService.run(job);
             }
-        }).start();
+        });
     }
 
-    private boolean isInitSetupDone() {
-        return machineHardwareRepository.isSoftwareInstalled("psql");
+    /**
+     * Re-tune postgresql on already configured device. Progress reported as init progress
+     */
+    @PostMapping("/app/config/tunePostgres")
+    public Job tunePostgres() {
+        return jobManager.submit(JobType.init, "Tune postgresql", postgresTuner::tune);
     }
 
-    private void installPostgreSql(ProgressBar progressBar) {
-        machineHardwareRepository.installSoftware("postgresql", 1200, progressBar);
-        String postgresPath = machineHardwareRepository.execute("find /usr -wholename '*/bin/postgres'");
-        String version = Paths.get(postgresPath).subpath(3, 4).toString();
-        for (String config : CommonUtils.readFile("configurePostgresql.conf")) {
-            config = config.replace("$PSQL_CONF_PATH", "/etc/postgresql/" + version + "/main");
-            machineHardwareRepository.execute(config);
-        }
-        if (!startupHardwareRepository.isPostgreSQLRunning()) {
-            throw new ServerException("Postgresql is not running");
-        }
-        machineHardwareRepository.execute("sudo -u postgres psql -c \"ALTER user postgres WITH PASSWORD 'password'\"");
-        machineHardwareRepository.execute("sudo -u postgres psql -c \"CREATE ROLE replication WITH REPLICATION PASSWORD 'password' LOGIN\"");
+    /**
+     * Applied postgresql settings and pgbench results before/after last tuning
+     */
+    @SneakyThrows
+    @GetMapping("/app/postgres/tune")
+    public PostgresTuneReport getPostgresTuneReport() {
+        return postgresTuner.getReport();
+    }
+
+    /**
+     * Replace local postgresql data with streamed base backup of primary and start it as hot standby
+     */
+    @PostMapping("/app/postgres/replica")
+    public Job bootstrapReplica(@RequestBody ReplicaRequest request) {
+        return jobManager.submit(JobType.init, "Bootstrap postgresql replica",
+                job -> postgresReplicaBootstrap.bootstrap(request.getPrimaryHost(), request.getPrimaryPort(), job));
     }
 
     @SneakyThrows
     @PostMapping("/app/config/keystore")
     public void setKeystore(@RequestBody KeyStoreRequest keyStoreRequest) {
+        jobManager.call(JobType.keystore, "Apply keystore", job -> {
+            writeKeystore(keyStoreRequest);
+            return null;
+        });
+    }
+
+    private Job runDownloadJob(String title, JobManager.JobAction action, boolean async) throws Exception {
+        if (async) {
+            return jobManager.submit(JobType.download, title, action);
+        }
+        return jobManager.call(JobType.download, title, job -> {
+            action.run(job);
+            return job;
+        });
+    }
+
+    private void writeKeystore(KeyStoreRequest keyStoreRequest) throws IOException {
         Path ssh = CommonUtils.getRootPath().resolve("ssh");
         Files.write(ssh.resolve("id_rsa_touchhome"), keyStoreRequest.getPrvKey(),
                 StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
@@ -150,67 +201,39 @@ public class MainController {
                 StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
     }
 
+    /**
+     * Responds when app is downloaded(finished job). With async=true responds at once with started job, which
+     * progress and result are available from /rest/jobs/{id}
+     */
     @SneakyThrows
     @PostMapping("/app/config/downloadApp")
-    public void downloadApp() {
-        if (installingApp) {
-            throw new ServerException("App already installing...");
-        }
-        ProgressBar progressBar = (progress, message) ->
-                messagingTemplate.convertAndSend(WebSocketConfig.DESTINATION_PREFIX + "-global", new Progress(Progress.Type.download, progress, message));
-        Path targetPath = CommonUtils.getRootPath().resolve("touchhome-core.jar");
-        if (Files.exists(targetPath)) {
-            progressBar.progress(100D, "App already downloaded.");
-            return;
-        }
-        Path tmpPath = CommonUtils.getRootPath().resolve("touchhome-core_tmp.jar");
-        try {
-            this.installingApp = true;
-            Files.deleteIfExists(tmpPath);
-
-            log.info("Installing application...");
-            GitHubDescription gitHubDescription = Curl.get("https://api.github.com/repos/touchhome/touchhome-core/releases/latest", GitHubDescription.class);
-
-            String md5HashValue = getExpectedMD5Hash(gitHubDescription);
-
-            GitHubDescription.Asset asset = gitHubDescription.assets.stream().filter(a -> a.name.equals("touchhome.jar")).findAny().orElse(null);
-            if (asset == null) {
-                throw new NotFoundException("Unable to find touchhome-code.jar asset from server");
-            }
-            log.info("Downloading touchhome.jar to <{}>", tmpPath);
-            Curl.downloadWithProgress(asset.browser_download_url, tmpPath, progressBar);
+    public Job downloadApp(@RequestParam(value = "async", defaultValue = "false") boolean async) {
+        return runDownloadJob("Download app", appInstaller::downloadApp, async);
+    }
 
-            // test downloaded file md5 hash
-            if (!md5HashValue.equals(DigestUtils.md5Hex(Files.newInputStream(tmpPath)))) {
-                Files.delete(tmpPath);
-                throw new ServerException("Downloaded file corrupted");
-            }
-            Files.move(tmpPath, targetPath);
-            log.info("App installation finished");
-        } finally {
-            installingApp = false;
-        }
+    /**
+     * Replace installed app with latest release. Only changed jar entries are downloaded if release has entries manifest.
+     * Responds when app is updated, or at once with started job if async=true
+     */
+    @SneakyThrows
+    @PostMapping("/app/config/updateApp")
+    public Job updateApp(@RequestParam(value = "async", defaultValue = "false") boolean async) {
+        return runDownloadJob("Update app", appInstaller::updateApp, async);
     }
 
-    private String getExpectedMD5Hash(GitHubDescription gitHubDescription) {
-        GitHubDescription.Asset md5Asset = gitHubDescription.assets.stream().filter(a -> a.name.equals("md5.hex")).findAny().orElse(null);
-        if (md5Asset == null) {
-            throw new NotFoundException("Unable to find md5.hex asset from server");
-        }
-        return new String(Curl.download(md5Asset.browser_download_url).getBytes());
+    /**
+     * Switch installed app to previously installed release from local store
+     */
+    @SneakyThrows
+    @PostMapping("/app/config/rollbackApp")
+    public StoredRelease rollbackApp() {
+        return jobManager.call(JobType.download, "Rollback app", job -> appInstaller.rollbackApp());
     }
 
-    @Getter
-    @Setter
-    private static class DeviceConfig {
-        private final boolean bootOnly = true;
-        public boolean initInstalling;
-        private boolean hasInitSetup;
-        private boolean hasUserPassword;
-        private boolean installingApp;
-        private boolean hasKeystore;
-        private Date keystoreDate;
-        private boolean hasApp;
+    @SneakyThrows
+    @GetMapping("/app/releases")
+    public List<StoredRelease> getReleases() {
+        return appInstaller.getReleases();
     }
 
     @Getter
@@ -220,35 +243,6 @@ public class MainController {
         private String password;
     }
 
-    @Getter
-    @AllArgsConstructor
-    private static class Progress {
-        private final Type type;
-        private double value;
-        private String title;
-
-        private enum Type {
-            download, init
-        }
-    }
-
-    @Setter
-    @Getter
-    private static class GitHubDescription {
-        private String name;
-        private String tag_name;
-        private List<Asset> assets = new ArrayList<>();
-
-        @Setter
-        @Getter
-        private static class Asset {
-            private String name;
-            private long size;
-            private String browser_download_url;
-            private String updated_at;
-        }
-    }
-
     @Getter
     @Setter
     private static class KeyStoreRequest {
@@ -257,14 +251,10 @@ public class MainController {
         private byte[] pubKey;
     }
 
-/*
-    # IN CASE OF sub:
-    # export PRIMARY_IP=192.168.0.110
-    # sudo systemctl stop postgresql
-    # sudo -H -u postgres bash -c 'rm -rf $PSQL_DATA_PATH/main/*'
-    # sudo PGPASSWORD="password" -H -u postgres bash -c "pg_basebackup -h $PRIMARY_IP -D /usr/local/pgsql/data -P -U replicator --xlog-method=stream"
-    # sudo sed -i "s/#hot_standby = 'off'/hot_standby = 'on'/g" $PSQL_CONF_PATH/postgresql.conf
-    # echo "standby_mode = 'on'\nprimary_conninfo = 'host=$PRIMARY_IP port=5432 user=replicator password=password'\ntrigger_file = '/var/lib/postgresql/9.6/trigger'\nrestore_command = 'cp /var/lib/postgresql/9.6/archive/%f \"%p\"'" >> $PSQL_DATA_PATH/main/recovery.conf
-    # sudo systemctl start postgresql
-*/
+    @Getter
+    @Setter
+    private static class ReplicaRequest {
+        private String primaryHost;
+        private int primaryPort = 5432;
+    }
 }
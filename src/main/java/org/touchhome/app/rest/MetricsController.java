@@ -0,0 +1,30 @@
+package org.touchhome.app.rest;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.touchhome.app.hardware.metrics.CommandStats;
+import org.touchhome.app.hardware.metrics.HardwareMetrics;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/rest/metrics")
+@RequiredArgsConstructor
+public class MetricsController {
+
+    private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final HardwareMetrics hardwareMetrics;
+
+    @GetMapping("/hardware")
+    public List<CommandStats> getHardwareMetrics() {
+        return hardwareMetrics.getStats();
+    }
+
+    @GetMapping(value = "/prometheus", produces = PROMETHEUS_CONTENT_TYPE)
+    public String getPrometheusMetrics() {
+        return hardwareMetrics.toPrometheus();
+    }
+}
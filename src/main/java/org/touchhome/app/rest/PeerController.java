@@ -0,0 +1,47 @@
+package org.touchhome.app.rest;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.touchhome.app.install.ArtifactStore;
+import org.touchhome.app.install.Peer;
+import org.touchhome.app.install.PeerDiscovery;
+import org.touchhome.common.exception.NotFoundException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Serves stored app releases to other boot instances. Range requests are handled by spring for Resource body.
+ */
+@RestController
+@RequestMapping("/rest/peer")
+@RequiredArgsConstructor
+public class PeerController {
+
+    private final PeerDiscovery peerDiscovery;
+    private final ArtifactStore artifactStore;
+
+    @GetMapping("/artifacts")
+    public Peer getArtifacts() throws IOException {
+        return peerDiscovery.getAnnouncement();
+    }
+
+    @GetMapping("/artifact/{sha256}")
+    public ResponseEntity<Resource> getArtifact(@PathVariable("sha256") String sha256) throws IOException {
+        Path path = artifactStore.findFile(sha256);
+        if (path == null) {
+            throw new NotFoundException("Artifact " + sha256 + " not found");
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_OCTET_STREAM).body(new FileSystemResource(path));
+    }
+
+    @GetMapping("/peers")
+    public List<Peer> getPeers() {
+        return peerDiscovery.getPeers();
+    }
+}
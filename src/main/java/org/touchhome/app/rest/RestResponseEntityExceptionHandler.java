@@ -1,6 +1,6 @@
 package org.touchhome.app.rest;
 
-import lombok.extern.log4j.Log4j2;
+import lombok.RequiredArgsConstructor;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -13,13 +13,18 @@ import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 import org.springframework.web.util.WebUtils;
+import org.touchhome.app.errors.ErrorReporter;
 import org.touchhome.bundle.api.hquery.api.HardwareException;
 
-@Log4j2
+import java.util.concurrent.RejectedExecutionException;
+
 @ControllerAdvice
 @RestController
+@RequiredArgsConstructor
 public class RestResponseEntityExceptionHandler extends ResponseEntityExceptionHandler {
 
+    private final ErrorReporter errorReporter;
+
     public static String getErrorMessage(Throwable ex) {
         if (ex == null) {
             return null;
@@ -45,15 +50,27 @@ public class RestResponseEntityExceptionHandler extends ResponseEntityExceptionH
         if (ex instanceof NullPointerException) {
             msg += ". src: " + ex.getStackTrace()[0].toString();
         }
-        log.error("Error <{}>", msg, ex);
+        msg = errorReporter.truncate(msg);
+        errorReporter.report(ex, msg, true);
         ((ServletWebRequest) request).getResponse().setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
-        return new ResponseEntity<>(new ErrorHolderModel("Error", msg, ex), headers, status);
+        return new ResponseEntity<>(new ErrorHolderModel("Error", msg, msg, ex), headers, status);
     }
 
     @ExceptionHandler({HardwareException.class})
     public ErrorHolderModel handleHardwareException(HardwareException ex) {
-        log.error("Error <{}>", getErrorMessage(ex));
-        return new ErrorHolderModel("Hardware error", String.join("; ", ex.getInputs()), ex);
+        String cause = errorReporter.truncate(getErrorMessage(ex));
+        errorReporter.report(ex, cause, false);
+        return new ErrorHolderModel("Hardware error", errorReporter.join(ex.getInputs()), cause, ex);
+    }
+
+    /**
+     * Executors are full, client may retry later
+     */
+    @ExceptionHandler({RejectedExecutionException.class})
+    public ResponseEntity<Object> handleRejectedExecutionException(RejectedExecutionException ex, WebRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "5");
+        return handleExceptionInternal(ex, null, headers, HttpStatus.SERVICE_UNAVAILABLE, request);
     }
 
     @ExceptionHandler({Exception.class})
@@ -0,0 +1,46 @@
+package org.touchhome.app.rest;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.touchhome.app.telemetry.MemoryPressureMonitor;
+import org.touchhome.app.telemetry.MemoryStatus;
+import org.touchhome.app.telemetry.TelemetryResolution;
+import org.touchhome.app.telemetry.TelemetrySampler;
+import org.touchhome.app.telemetry.TelemetrySeries;
+
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/rest/telemetry")
+@RequiredArgsConstructor
+public class TelemetryController {
+
+    private final TelemetrySampler telemetrySampler;
+    private final MemoryPressureMonitor memoryPressureMonitor;
+
+    /**
+     * Samples in [from, to] epoch millis. Default - last 10 minutes. Without resolution the finest one which still
+     * contains 'from' is used.
+     */
+    @GetMapping
+    public TelemetrySeries getTelemetry(@RequestParam(value = "from", required = false) Long from,
+                                        @RequestParam(value = "to", required = false) Long to,
+                                        @RequestParam(value = "resolution", required = false) TelemetryResolution resolution) {
+        long toTime = to == null ? System.currentTimeMillis() : to;
+        long fromTime = from == null ? toTime - TimeUnit.MINUTES.toMillis(10) : from;
+        return telemetrySampler.query(fromTime, toTime, resolution);
+    }
+
+    @GetMapping("/memory")
+    public long getMemoryBytes() {
+        return telemetrySampler.getMemoryBytes();
+    }
+
+    @GetMapping("/pressure")
+    public MemoryStatus getMemoryStatus() {
+        return memoryPressureMonitor.getStatus();
+    }
+}
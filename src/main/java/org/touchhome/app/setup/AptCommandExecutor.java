@@ -0,0 +1,139 @@
+package org.touchhome.app.setup;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.touchhome.app.hardware.metrics.CommandMetrics;
+import org.touchhome.app.hardware.metrics.HardwareMetrics;
+import org.touchhome.app.job.Job;
+import org.touchhome.common.exception.ServerException;
+import org.touchhome.common.model.ProgressBar;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs apt-get command and streams it's output line by line through AptProgressParser, so progress reflects real
+ * download/unpack/configure state. Memory is bounded: lines truncated to MAX_LINE_LENGTH and only last
+ * TAIL_LINES kept for error message.
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class AptCommandExecutor {
+
+    private static final int MAX_LINE_LENGTH = 4096;
+    private static final int TAIL_LINES = 20;
+    private static final String METRICS_NAME = "Apt command";
+
+    private final ThreadPoolTaskScheduler threadPoolTaskScheduler;
+    private final HardwareMetrics hardwareMetrics;
+
+    public void execute(String command, int maxSecondsTimeout, ProgressBar progressBar) throws IOException, InterruptedException {
+        long startedAt = System.nanoTime();
+        ProcessBuilder processBuilder = new ProcessBuilder("bash", "-c", command).redirectErrorStream(true);
+        processBuilder.environment().put("DEBIAN_FRONTEND", "noninteractive");
+        // AptProgressParser understands english messages only, so device locale must not translate them
+        processBuilder.environment().put("LC_ALL", "C");
+        processBuilder.environment().put("LANGUAGE", "");
+        Process process = processBuilder.start();
+        process.getOutputStream().close();
+        // cancelled job terminates apt, so dpkg may finish current package
+        Job job = Job.current();
+        Runnable cancelHook = process::destroy;
+        if (job != null) {
+            job.addCancelHook(cancelHook);
+        }
+
+        AtomicBoolean timedOut = new AtomicBoolean();
+        ScheduledFuture<?> killer = threadPoolTaskScheduler.schedule(() -> {
+            timedOut.set(true);
+            process.destroyForcibly();
+        }, new Date(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(maxSecondsTimeout)));
+
+        LineHandler lineHandler = new LineHandler(progressBar);
+        try (Reader reader = new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8)) {
+            char[] buffer = new char[8192];
+            StringBuilder line = new StringBuilder();
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    char ch = buffer[i];
+                    if (ch == '\n' || ch == '\r') {
+                        lineHandler.onLine(line);
+                        line.setLength(0);
+                    } else if (line.length() < MAX_LINE_LENGTH) {
+                        line.append(ch);
+                    }
+                }
+            }
+            lineHandler.onLine(line);
+        } finally {
+            killer.cancel(false);
+            if (job != null) {
+                job.removeCancelHook(cancelHook);
+            }
+        }
+        int exitCode = process.waitFor();
+        CommandMetrics metrics = hardwareMetrics.get(METRICS_NAME);
+        if (timedOut.get()) {
+            metrics.recordTimeout(System.nanoTime() - startedAt);
+            throw new ServerException("Command '" + command + "' not finished in " + maxSecondsTimeout + " sec");
+        }
+        metrics.record(System.nanoTime() - startedAt, exitCode);
+        if (job != null) {
+            job.checkCancelled();
+        }
+        if (exitCode != 0) {
+            throw new ServerException("Command '" + command + "' failed with exit code " + exitCode + ": " +
+                    String.join("; ", lineHandler.tail));
+        }
+    }
+
+    private static String formatEta(long etaSec) {
+        if (etaSec < 0) {
+            return "";
+        }
+        return etaSec >= 60 ? String.format(" (ETA %dm %ds)", etaSec / 60, etaSec % 60) : String.format(" (ETA %ds)", etaSec);
+    }
+
+    private static class LineHandler {
+        private final AptProgressParser parser = new AptProgressParser();
+        private final Deque<String> tail = new ArrayDeque<>(TAIL_LINES);
+        private final ProgressBar progressBar;
+        private double lastProgress = -1;
+        private String lastMessage;
+
+        private LineHandler(ProgressBar progressBar) {
+            this.progressBar = progressBar;
+        }
+
+        private void onLine(CharSequence chars) {
+            if (chars.length() == 0) {
+                return;
+            }
+            String line = chars.toString();
+            if (tail.size() == TAIL_LINES) {
+                tail.removeFirst();
+            }
+            tail.addLast(line);
+            log.debug("apt: {}", line);
+
+            parser.onLine(line);
+            if (parser.getProgress() != lastProgress || !parser.getMessage().equals(lastMessage)) {
+                lastProgress = parser.getProgress();
+                lastMessage = parser.getMessage();
+                progressBar.progress(lastProgress, lastMessage + formatEta(parser.getEtaSec()));
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package org.touchhome.app.setup;
+
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns apt-get/dpkg output into monotonic progress 0..100 line by line without keeping any output.
+ * Understands 'APT::Status-Fd' lines(dlstatus/pmstatus) and plain text output:
+ * 'N upgraded, M newly installed', 'Need to get X of archives', 'Get:N ... [size]', 'Unpacking', 'Setting up'.
+ * Text is expected in english, AptCommandExecutor runs apt with C locale.
+ */
+public class AptProgressParser {
+
+    private static final Pattern SUMMARY = Pattern.compile("^(\\d+) upgraded, (\\d+) newly installed.*");
+    private static final Pattern NEED_TO_GET = Pattern.compile("^Need to get ([\\d.,]+) ([kMG]?B)(?:/[\\d.,]+ [kMG]?B)? of archives.*");
+    private static final Pattern GET = Pattern.compile("^Get:(\\d+) .*\\[([\\d.,]+) ([kMG]?B)]$");
+    // package id may contain ':' of multiarch, e.g. 'pmstatus:libpq5:arm64:33.3333:Unpacking libpq5:arm64'
+    private static final Pattern STATUS_FD = Pattern.compile("^(dlstatus|pmstatus):.*?:([\\d.]+):(.*)$");
+
+    // share of overall progress for download/unpack/configure phases
+    private static final double DOWNLOAD_WEIGHT = 0.4;
+    private static final double UNPACK_WEIGHT = 0.3;
+    private static final double SETUP_WEIGHT = 0.3;
+
+    private final long startNanos = System.nanoTime();
+
+    private int packages;
+    private double bytesToGet;
+    private double bytesFetched;
+    private int fetchedFiles;
+    private int unpacked;
+    private int setUp;
+    private double statusFdDownload = -1;
+    private double statusFdInstall = -1;
+
+    @Getter
+    private double progress;
+    @Getter
+    private String message = "";
+
+    public void onLine(String line) {
+        line = line.trim();
+        Matcher matcher;
+        if ((matcher = STATUS_FD.matcher(line)).matches()) {
+            double percent = Double.parseDouble(matcher.group(2));
+            if (matcher.group(1).equals("dlstatus")) {
+                statusFdDownload = percent;
+            } else {
+                statusFdInstall = percent;
+            }
+            message = matcher.group(3);
+        } else if ((matcher = SUMMARY.matcher(line)).matches()) {
+            packages = Integer.parseInt(matcher.group(1)) + Integer.parseInt(matcher.group(2));
+        } else if ((matcher = NEED_TO_GET.matcher(line)).matches()) {
+            bytesToGet = toBytes(matcher.group(1), matcher.group(2));
+        } else if (packages > 0 && (matcher = GET.matcher(line)).matches()) {
+            fetchedFiles++;
+            bytesFetched += toBytes(matcher.group(2), matcher.group(3));
+            message = "Downloading " + fetchedFiles + (packages > 0 ? "/" + packages : "");
+        } else if (line.startsWith("Hit:") || line.startsWith("Get:")) {
+            // 'apt-get update' has no summary and totals, so progress moves asymptotically
+            fetchedFiles++;
+            message = "Fetching package lists " + fetchedFiles;
+        } else if (line.startsWith("Unpacking ")) {
+            unpacked++;
+            message = "Unpacking " + packageName(line, "Unpacking ") + " (" + unpacked + (packages > 0 ? "/" + packages : "") + ")";
+        } else if (line.startsWith("Setting up ")) {
+            setUp++;
+            message = "Setting up " + packageName(line, "Setting up ") + " (" + setUp + (packages > 0 ? "/" + packages : "") + ")";
+        } else {
+            return;
+        }
+        progress = Math.max(progress, Math.min(99, calculate()));
+    }
+
+    /**
+     * @return seconds left, or -1 if not enough data
+     */
+    public long getEtaSec() {
+        if (progress < 2) {
+            return -1;
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos);
+        return (long) (elapsed * (100 - progress) / progress);
+    }
+
+    private double calculate() {
+        if (statusFdDownload >= 0 || statusFdInstall >= 0) {
+            return DOWNLOAD_WEIGHT * Math.max(0, statusFdDownload) + (1 - DOWNLOAD_WEIGHT) * Math.max(0, statusFdInstall);
+        }
+        if (packages == 0) {
+            if (unpacked == 0 && setUp == 0) {
+                return 100D * fetchedFiles / (fetchedFiles + 10);
+            }
+            // summary line missed
+            return 100D * (unpacked + setUp) / (unpacked + setUp + 10);
+        }
+        double download = bytesToGet > 0 ? Math.min(1, bytesFetched / bytesToGet) : Math.min(1, (double) fetchedFiles / packages);
+        double downloadWeight = bytesToGet > 0 || fetchedFiles > 0 ? DOWNLOAD_WEIGHT : 0;
+        double rest = 1 - downloadWeight;
+        return 100 * (downloadWeight * download
+                + rest * UNPACK_WEIGHT / (UNPACK_WEIGHT + SETUP_WEIGHT) * Math.min(1, (double) unpacked / packages)
+                + rest * SETUP_WEIGHT / (UNPACK_WEIGHT + SETUP_WEIGHT) * Math.min(1, (double) setUp / packages));
+    }
+
+    private static String packageName(String line, String prefix) {
+        String rest = line.substring(prefix.length());
+        int space = rest.indexOf(' ');
+        return space < 0 ? rest : rest.substring(0, space);
+    }
+
+    private static double toBytes(String value, String unit) {
+        double number = Double.parseDouble(value.replace(",", ""));
+        switch (unit) {
+            case "kB":
+                return number * 1000;
+            case "MB":
+                return number * 1000_000;
+            case "GB":
+                return number * 1000_000_000;
+            default:
+                return number;
+        }
+    }
+}
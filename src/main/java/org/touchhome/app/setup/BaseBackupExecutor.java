@@ -0,0 +1,144 @@
+package org.touchhome.app.setup;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+import org.touchhome.app.hardware.metrics.CommandMetrics;
+import org.touchhome.app.hardware.metrics.HardwareMetrics;
+import org.touchhome.app.job.Job;
+import org.touchhome.common.exception.ServerException;
+import org.touchhome.common.model.ProgressBar;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs pg_basebackup with '-P' and streams it's 'copied/total kB' progress lines to ProgressBar, so progress reflects
+ * real transferred bytes. Total is estimated by primary at backup start and may be exceeded by WAL written meanwhile.
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class BaseBackupExecutor {
+
+    // 12345/67890 kB (18%), 0/1 tablespace
+    private static final Pattern PROGRESS = Pattern.compile("(\\d+)/(\\d+) kB \\((\\d+)%\\)");
+    private static final int MAX_LINE_LENGTH = 4096;
+    private static final int TAIL_LINES = 20;
+    private static final String METRICS_NAME = "pg_basebackup";
+
+    private final HardwareMetrics hardwareMetrics;
+
+    /**
+     * @param password      - passed as PGPASSWORD, so it's not visible in process list
+     * @param fromProgress  - progress bar value at backup start
+     * @param toProgress    - progress bar value when all bytes copied
+     */
+    public void execute(List<String> command, String password, ProgressBar progressBar, double fromProgress, double toProgress)
+            throws IOException, InterruptedException {
+        long startedAt = System.nanoTime();
+        ProcessBuilder processBuilder = new ProcessBuilder(command).redirectErrorStream(true);
+        processBuilder.environment().put("PGPASSWORD", password);
+        Process process = processBuilder.start();
+        process.getOutputStream().close();
+        // cancelled job terminates pg_basebackup, partially copied data directory is removed by caller
+        Job job = Job.current();
+        Runnable cancelHook = process::destroy;
+        if (job != null) {
+            job.addCancelHook(cancelHook);
+        }
+
+        LineHandler lineHandler = new LineHandler(progressBar, fromProgress, toProgress, startedAt);
+        try (Reader reader = new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8)) {
+            char[] buffer = new char[1024];
+            StringBuilder line = new StringBuilder();
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    char ch = buffer[i];
+                    // progress is rewritten with '\r' when stderr is a terminal
+                    if (ch == '\n' || ch == '\r') {
+                        lineHandler.onLine(line);
+                        line.setLength(0);
+                    } else if (line.length() < MAX_LINE_LENGTH) {
+                        line.append(ch);
+                    }
+                }
+            }
+            lineHandler.onLine(line);
+        } finally {
+            if (job != null) {
+                job.removeCancelHook(cancelHook);
+            }
+        }
+        int exitCode = process.waitFor();
+        CommandMetrics metrics = hardwareMetrics.get(METRICS_NAME);
+        metrics.record(System.nanoTime() - startedAt, exitCode);
+        if (job != null) {
+            job.checkCancelled();
+        }
+        if (exitCode != 0) {
+            throw new ServerException("pg_basebackup failed with exit code " + exitCode + ": " + String.join("; ", lineHandler.tail));
+        }
+        log.info("Base backup copied {} kB in {} sec", lineHandler.copiedKb, (System.nanoTime() - startedAt) / 1_000_000_000L);
+    }
+
+    /**
+     * @return [copied kB, total kB] or null if line is not a progress line
+     */
+    static long[] parseProgress(String line) {
+        Matcher matcher = PROGRESS.matcher(line);
+        return matcher.find() ? new long[]{Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2))} : null;
+    }
+
+    private static class LineHandler {
+        private final Deque<String> tail = new ArrayDeque<>(TAIL_LINES);
+        private final ProgressBar progressBar;
+        private final double fromProgress;
+        private final double toProgress;
+        private final long startedAt;
+        private long copiedKb;
+        private int lastPercent = -1;
+
+        private LineHandler(ProgressBar progressBar, double fromProgress, double toProgress, long startedAt) {
+            this.progressBar = progressBar;
+            this.fromProgress = fromProgress;
+            this.toProgress = toProgress;
+            this.startedAt = startedAt;
+        }
+
+        private void onLine(CharSequence chars) {
+            if (chars.length() == 0) {
+                return;
+            }
+            String line = chars.toString();
+            long[] progress = parseProgress(line);
+            if (progress == null) {
+                if (tail.size() == TAIL_LINES) {
+                    tail.removeFirst();
+                }
+                tail.addLast(line);
+                log.info("pg_basebackup: {}", line);
+                return;
+            }
+            copiedKb = progress[0];
+            long totalKb = Math.max(progress[0], progress[1]);
+            int percent = totalKb == 0 ? 0 : (int) (copiedKb * 100 / totalKb);
+            // -P prints progress every second, so only percent changes are published
+            if (percent != lastPercent) {
+                lastPercent = percent;
+                double elapsedSec = (System.nanoTime() - startedAt) / 1_000_000_000D;
+                double rateKbs = elapsedSec > 0 ? copiedKb / elapsedSec : 0;
+                progressBar.progress(fromProgress + (toProgress - fromProgress) * percent / 100,
+                        String.format("Copy base backup: %.1f of %.1f MB, %.0f kB/s", copiedKb / 1024D, totalKb / 1024D, rateKbs));
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.touchhome.app.setup;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Service;
+import org.touchhome.app.config.TouchHomeProperties;
+import org.touchhome.app.executor.TouchHomeExecutors;
+import org.touchhome.app.hardware.StartupHardwareRepository;
+import org.touchhome.bundle.api.hardware.other.MachineHardwareRepository;
+import org.touchhome.common.exception.ServerException;
+import org.touchhome.common.model.ProgressBar;
+import org.touchhome.common.util.CommonUtils;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Initial device setup: os upgrade, required packages and postgresql configuration.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class InitialSetupService {
+
+    // all packages installed in one apt transaction
+    private static final String PACKAGES = "autossh ffmpeg postgresql";
+    // machine readable progress lines for AptProgressParser
+    private static final String APT_STATUS = "-o APT::Status-Fd=1";
+
+    private final MachineHardwareRepository machineHardwareRepository;
+    private final StartupHardwareRepository startupHardwareRepository;
+    private final LocalPostgres localPostgres;
+    private final AptCommandExecutor aptCommandExecutor;
+    private final PostgresTuner postgresTuner;
+    private final PostgresReplicaBootstrap postgresReplicaBootstrap;
+    private final TouchHomeProperties touchHomeProperties;
+    private final TouchHomeExecutors touchHomeExecutors;
+
+    /**
+     * Devices configured before checkpoint file existed treated as finished if postgresql installed.
+     */
+    public boolean isFinished() {
+        SetupPipeline pipeline = createPipeline();
+        return pipeline.hasCheckpoint() ? pipeline.isFinished() : machineHardwareRepository.isSoftwareInstalled("psql");
+    }
+
+    public void run(ProgressBar progressBar) throws Exception {
+        // fail before os upgrade, not hours later at configure-postgresql step
+        getPostgresPassword();
+        createPipeline().run(progressBar);
+    }
+
+    private SetupPipeline createPipeline() {
+        return new SetupPipeline(Arrays.asList(
+                new SetupStep("apt-update", "Update os", 60,
+                        progressBar -> aptCommandExecutor.execute("apt-get update", 600, progressBar)),
+                new SetupStep("full-upgrade", "Full upgrade os", 900,
+                        progressBar -> aptCommandExecutor.execute("apt-get -y " + APT_STATUS + " full-upgrade", 7200, progressBar), "apt-update"),
+                new SetupStep("install-packages", "Install " + PACKAGES, 600,
+                        progressBar -> aptCommandExecutor.execute("apt-get -y " + APT_STATUS + " install " + PACKAGES, 1800, progressBar), "full-upgrade"),
+                new SetupStep("configure-postgresql", "Configure Postgresql", 90, this::configurePostgreSql, "install-packages"),
+                new SetupStep("apt-clean", "Clean apt cache", 5,
+                        progressBar -> machineHardwareRepository.execute("apt-get clean"), "install-packages")),
+                CommonUtils.getRootPath().resolve("init_setup.json"), touchHomeExecutors.getBlocking());
+    }
+
+    private void configurePostgreSql(ProgressBar progressBar) throws IOException {
+        postgresTuner.tune(progressBar);
+        if (!startupHardwareRepository.isPostgreSQLRunning()) {
+            throw new ServerException("Postgresql is not running");
+        }
+        localPostgres.setPassword("postgres", getPostgresPassword());
+        if (touchHomeProperties.getPostgres().isReplicationEnabled()) {
+            postgresReplicaBootstrap.allowReplication();
+        }
+    }
+
+    private String getPostgresPassword() {
+        return LocalPostgres.checkPassword(touchHomeProperties.getPostgres().getPassword(), "touchhome.postgres.password");
+    }
+}
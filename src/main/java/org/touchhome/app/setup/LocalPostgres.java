@@ -0,0 +1,120 @@
+package org.touchhome.app.setup;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.touchhome.app.hardware.HardwareQueryCacheManager;
+import org.touchhome.app.hardware.StartupHardwareRepository;
+import org.touchhome.app.hardware.shell.ShellResult;
+import org.touchhome.app.hardware.shell.ShellSessionPool;
+import org.touchhome.common.exception.ServerException;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Postgresql cluster of this device: debian 'main' cluster of installed version, managed by systemd and owned by
+ * 'postgres' os user. Paths and commands are overridable, so replica bootstrap may run against cluster in temporary
+ * directory.
+ */
+@Component
+@RequiredArgsConstructor
+public class LocalPostgres {
+
+    // password is passed inside quoted sql of shell command
+    private static final Pattern PASSWORD = Pattern.compile("[^'\"\\\\$`\\s]{8,}");
+
+    private final ShellSessionPool shellSessionPool;
+    private final StartupHardwareRepository startupHardwareRepository;
+    private final HardwareQueryCacheManager hardwareQueryCacheManager;
+
+    /**
+     * Directory of server and client binaries, i.e. /usr/lib/postgresql/14/bin
+     */
+    public Path getBinPath() {
+        return Paths.get(shellSessionPool.execute("find /usr -wholename '*/bin/postgres'")).getParent();
+    }
+
+    public Path getDataPath() {
+        return Paths.get("/var/lib/postgresql", getVersion(), "main");
+    }
+
+    public Path getConfigPath() {
+        return Paths.get("/etc/postgresql", getVersion(), "main", "postgresql.conf");
+    }
+
+    public Path getHbaPath() {
+        return getConfigPath().resolveSibling("pg_hba.conf");
+    }
+
+    /**
+     * Command executed as owner of data directory. PGPASSWORD environment variable is passed through
+     */
+    public List<String> asOwner(List<String> command) {
+        List<String> ownerCommand = new ArrayList<>(Arrays.asList("sudo", "--preserve-env=PGPASSWORD", "-u", "postgres"));
+        ownerCommand.addAll(command);
+        return ownerCommand;
+    }
+
+    public void stop() {
+        shellSessionPool.execute("sudo systemctl stop postgresql", 120, false, false);
+    }
+
+    /**
+     * @return true if postgresql is running after start
+     */
+    public boolean start() {
+        shellSessionPool.execute("sudo systemctl start postgresql", 120, true, false);
+        hardwareQueryCacheManager.invalidate(StartupHardwareRepository.class);
+        return startupHardwareRepository.isPostgreSQLRunning();
+    }
+
+    public void reload() {
+        shellSessionPool.execute("sudo systemctl reload postgresql", 60, true, false);
+    }
+
+    /**
+     * Run sql by psql as superuser over local socket. Output is unaligned tuples only, i.e. 't' for boolean.
+     * 'sql' must not contain double quotes, '\', '$' or '`'.
+     */
+    public ShellResult sql(String sql, boolean ignoreOnError) {
+        return shellSessionPool.execute("sudo -u postgres psql -tAc \"" + sql + "\"", 60, ignoreOnError, false);
+    }
+
+    /**
+     * psql echoes failed statement and timeout message contains command, so neither is part of exception.
+     * 'password' must be accepted by checkPassword.
+     */
+    public void setPassword(String role, String password) {
+        ShellResult result;
+        try {
+            result = sql("ALTER ROLE " + role + " WITH PASSWORD '" + password + "'", true);
+        } catch (ServerException ex) {
+            throw new ServerException("Unable to set password of role <" + role + ">");
+        }
+        if (result.getExitCode() != 0) {
+            throw new ServerException("Unable to set password of role <" + role + ">. Exit code " + result.getExitCode());
+        }
+    }
+
+    /**
+     * Postgresql listens on local network, so roles never get empty or well known password.
+     *
+     * @param property - configuration property of password for error message
+     * @throws ServerException if password has less than 8 characters, quotes, '\', '$', '`' or spaces, or is 'password'
+     */
+    public static String checkPassword(String password, String property) {
+        if (password == null || !PASSWORD.matcher(password).matches() || "password".equals(password)) {
+            throw new ServerException(property + " is not configured: at least 8 characters " +
+                    "without quotes, '\\', '$', '`' and spaces required");
+        }
+        return password;
+    }
+
+    private String getVersion() {
+        return getBinPath().subpath(3, 4).toString();
+    }
+}
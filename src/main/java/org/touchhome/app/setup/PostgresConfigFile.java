@@ -0,0 +1,134 @@
+package org.touchhome.app.setup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * postgresql.conf editor which keeps comments and layout. Setting replaces last active 'name = value' line(the one
+ * postgres uses), otherwise uncomments '#name = value' line, otherwise appended to the end of file.
+ */
+public class PostgresConfigFile {
+
+    private static final Pattern SETTING = Pattern.compile("^(\\s*)(#?)\\s*([a-z_][a-z0-9_.]*)\\s*=\\s*(.*)$");
+
+    private final List<String> lines;
+
+    private PostgresConfigFile(List<String> lines) {
+        this.lines = lines;
+    }
+
+    public static PostgresConfigFile read(Path path) throws IOException {
+        return new PostgresConfigFile(new ArrayList<>(Files.readAllLines(path, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @return value of active setting or null
+     */
+    public String get(String name) {
+        int index = find(name, false);
+        return index < 0 ? null : parse(lines.get(index)).value;
+    }
+
+    public void set(String name, String value) {
+        int index = find(name, false);
+        if (index < 0) {
+            index = find(name, true);
+        }
+        if (index < 0) {
+            lines.add(name + " = " + value);
+            return;
+        }
+        Setting setting = parse(lines.get(index));
+        lines.set(index, setting.indent + name + " = " + value + setting.trailing);
+    }
+
+    /**
+     * Write to temp file in same directory and rename over target, so postgres never sees partially written config.
+     * Owner and permissions copied from existed file; original file kept once as 'postgresql.conf.orig'.
+     */
+    public void write(Path path) throws IOException {
+        Path tmpPath = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(tmpPath, lines, StandardCharsets.UTF_8);
+        if (Files.exists(path)) {
+            Path origPath = path.resolveSibling(path.getFileName() + ".orig");
+            if (!Files.exists(origPath)) {
+                Files.copy(path, origPath, StandardCopyOption.COPY_ATTRIBUTES);
+            }
+            PosixFileAttributes attributes = Files.readAttributes(path, PosixFileAttributes.class);
+            PosixFileAttributeView tmpView = Files.getFileAttributeView(tmpPath, PosixFileAttributeView.class);
+            tmpView.setPermissions(attributes.permissions());
+            if (!attributes.owner().equals(Files.getOwner(tmpPath))) {
+                tmpView.setOwner(attributes.owner());
+                tmpView.setGroup(attributes.group());
+            }
+        }
+        Files.move(tmpPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private int find(String name, boolean commented) {
+        int found = -1;
+        for (int i = 0; i < lines.size(); i++) {
+            Matcher matcher = SETTING.matcher(lines.get(i));
+            if (matcher.matches() && matcher.group(3).equals(name) && matcher.group(2).isEmpty() != commented) {
+                found = i;
+                // first commented line is the documented default, last active line is the effective one
+                if (commented) {
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+
+    private static Setting parse(String line) {
+        Matcher matcher = SETTING.matcher(line);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Not a setting: " + line);
+        }
+        String rest = matcher.group(4);
+        int end;
+        if (rest.startsWith("'")) {
+            end = 1;
+            while (end < rest.length()) {
+                if (rest.charAt(end) == '\'') {
+                    // '' is escaped quote
+                    if (end + 1 < rest.length() && rest.charAt(end + 1) == '\'') {
+                        end += 2;
+                        continue;
+                    }
+                    end++;
+                    break;
+                }
+                end++;
+            }
+        } else {
+            end = 0;
+            while (end < rest.length() && !Character.isWhitespace(rest.charAt(end)) && rest.charAt(end) != '#') {
+                end++;
+            }
+        }
+        return new Setting(matcher.group(1), rest.substring(0, end), rest.substring(end));
+    }
+
+    private static class Setting {
+        private final String indent;
+        private final String value;
+        // whitespace and comment after value
+        private final String trailing;
+
+        private Setting(String indent, String value, String trailing) {
+            this.indent = indent;
+            this.value = value;
+            this.trailing = trailing;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package org.touchhome.app.setup;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+import org.touchhome.app.config.TouchHomeProperties;
+import org.touchhome.app.hardware.shell.ShellSessionPool;
+import org.touchhome.app.job.Job;
+import org.touchhome.common.exception.ServerException;
+import org.touchhome.common.model.ProgressBar;
+import org.touchhome.common.util.CommonUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Turns local postgresql into hot standby of primary on other device. Data directory replaced by base backup streamed
+ * from primary with bandwidth cap(touchhome.postgres.replicaMaxRateKbs). Standby configuration(standby.signal and
+ * primary_conninfo, or recovery.conf before postgresql 12) is written by pg_basebackup '-R' as part of backup, so
+ * data directory never started half configured. Previous data directory restored if standby not able to start.
+ * Local cluster paths and service commands come from LocalPostgres.
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class PostgresReplicaBootstrap {
+
+    private static final Pattern HOST = Pattern.compile("[A-Za-z0-9.:\\-]+");
+    private static final int STANDBY_START_ATTEMPTS = 10;
+
+    private final TouchHomeProperties touchHomeProperties;
+    private final ShellSessionPool shellSessionPool;
+    private final LocalPostgres localPostgres;
+    private final BaseBackupExecutor baseBackupExecutor;
+
+    public void bootstrap(String primaryHost, int primaryPort, ProgressBar progressBar) throws Exception {
+        if (primaryHost == null || !HOST.matcher(primaryHost).matches()) {
+            throw new ServerException("Wrong primary host <" + primaryHost + ">");
+        }
+        TouchHomeProperties.Postgres config = touchHomeProperties.getPostgres();
+        getReplicationPassword();
+        Path binPath = localPostgres.getBinPath();
+        Path dataPath = localPostgres.getDataPath();
+        Path configPath = localPostgres.getConfigPath();
+        Path backupPath = dataPath.resolveSibling(dataPath.getFileName() + ".bak");
+
+        progressBar.progress(0, "Check primary postgresql " + primaryHost + ":" + primaryPort);
+        if (shellSessionPool.execute(binPath.resolve("pg_isready") + " -h " + primaryHost + " -p " + primaryPort,
+                30, true, false).getExitCode() != 0) {
+            throw new ServerException("Primary postgresql <" + primaryHost + ":" + primaryPort + "> is not accepting connections");
+        }
+
+        boolean moved = false;
+        try {
+            progressBar.progress(2, "Stop postgresql");
+            localPostgres.stop();
+            // current data kept until standby started
+            shellSessionPool.execute("rm -rf " + backupPath + " && mv " + dataPath + " " + backupPath);
+            moved = true;
+            shellSessionPool.execute(String.join(" ", localPostgres.asOwner(Arrays.asList("install", "-d", "-m", "700",
+                    dataPath.toString()))));
+
+            List<String> command = localPostgres.asOwner(baseBackupCommand(binPath, primaryHost, primaryPort,
+                    config.getReplicationUser(), dataPath, config.getReplicaMaxRateKbs()));
+            baseBackupExecutor.execute(command, getReplicationPassword(), progressBar, 5, 90);
+
+            progressBar.progress(90, "Configure hot standby");
+            PostgresConfigFile configFile = PostgresConfigFile.read(configPath);
+            configFile.set("hot_standby", "on");
+            configFile.write(configPath);
+
+            progressBar.progress(95, "Start postgresql standby");
+            if (!localPostgres.start() || !isInRecovery()) {
+                throw new ServerException("Postgresql standby is not able to start");
+            }
+        } catch (Exception ex) {
+            log.error("Replica bootstrap failed. Restore previous postgresql: <{}>", CommonUtils.getErrorMessage(ex));
+            restore(dataPath, backupPath, moved, ex);
+            throw ex;
+        }
+        shellSessionPool.execute("rm -rf " + backupPath);
+        log.info("Postgresql is hot standby of <{}:{}>", primaryHost, primaryPort);
+    }
+
+    /**
+     * Put previous data directory back(if it has been moved already) and start postgresql. Cancelled job interrupts
+     * it's thread, so interrupt flag is cleared while restoring, otherwise each command fails immediately, and set
+     * again afterwards. Restore failure is added to 'cause' as suppressed.
+     */
+    private void restore(Path dataPath, Path backupPath, boolean moved, Exception cause) {
+        boolean interrupted = Thread.interrupted();
+        try {
+            // restore must not be interrupted by cancellation of job
+            boolean started = Job.callAs(null, () -> {
+                try {
+                    localPostgres.stop();
+                } catch (Exception ex) {
+                    log.warn("Unable to stop postgresql: <{}>", CommonUtils.getErrorMessage(ex));
+                }
+                if (moved) {
+                    shellSessionPool.execute("rm -rf " + dataPath + " && mv " + backupPath + " " + dataPath);
+                }
+                return localPostgres.start();
+            });
+            if (started) {
+                log.info("Previous postgresql restored");
+            } else {
+                log.error("Previous postgresql data directory <{}> restored but postgresql is not able to start. " +
+                        "Manual recovery required", dataPath);
+            }
+        } catch (Exception ex) {
+            log.error("Unable to restore previous postgresql data directory <{}> from <{}>. Manual recovery required",
+                    dataPath, backupPath, ex);
+            cause.addSuppressed(ex);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Create touchhome.postgres.replicationUser and allow it's replication connections from local networks, so device
+     * may be primary of replica. Line appended to pg_hba.conf once.
+     *
+     * @throws ServerException if touchhome.postgres.replicationPassword is not configured
+     */
+    public void allowReplication() throws IOException {
+        TouchHomeProperties.Postgres config = touchHomeProperties.getPostgres();
+        String password = getReplicationPassword();
+        // may already exist if step has been interrupted after role creation
+        localPostgres.sql("CREATE ROLE " + config.getReplicationUser() + " WITH REPLICATION LOGIN", true);
+        localPostgres.setPassword(config.getReplicationUser(), password);
+        Path hbaPath = localPostgres.getHbaPath();
+        String line = "host replication " + config.getReplicationUser() + " samenet md5";
+        if (!Files.readAllLines(hbaPath, StandardCharsets.UTF_8).contains(line)) {
+            Files.write(hbaPath, Arrays.asList("# touchhome replica bootstrap", line), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+            localPostgres.reload();
+        }
+    }
+
+    /**
+     * pg_basebackup into empty 'dataPath' with WAL streamed in parallel, so backup is consistent without archive.
+     * Primary makes immediate checkpoint instead of waiting spread one(up to checkpoint_timeout).
+     * Rate cap applies to data files only, WAL stream is not limited.
+     */
+    public static List<String> baseBackupCommand(Path binPath, String host, int port, String user, Path dataPath, int maxRateKbs) {
+        List<String> command = new ArrayList<>(Arrays.asList(binPath.resolve("pg_basebackup").toString(),
+                "-h", host, "-p", String.valueOf(port), "-U", user, "-D", dataPath.toString(),
+                "-X", "stream", "-R", "-P", "-w", "--checkpoint=fast"));
+        if (maxRateKbs > 0) {
+            command.add("--max-rate=" + Math.max(32, maxRateKbs) + "k");
+        }
+        return command;
+    }
+
+    /**
+     * Primary listens on all addresses, so replication is never allowed with empty or well known password
+     */
+    private String getReplicationPassword() {
+        return LocalPostgres.checkPassword(touchHomeProperties.getPostgres().getReplicationPassword(),
+                "touchhome.postgres.replicationPassword");
+    }
+
+    // standby accepts connections only after it replayed WAL up to consistent state
+    private boolean isInRecovery() throws InterruptedException {
+        for (int i = 0; i < STANDBY_START_ATTEMPTS; i++) {
+            String result = localPostgres.sql("SELECT pg_is_in_recovery()", true).getOutputAsString();
+            if ("t".equals(result.trim())) {
+                return true;
+            }
+            TimeUnit.SECONDS.sleep(1);
+        }
+        return false;
+    }
+}
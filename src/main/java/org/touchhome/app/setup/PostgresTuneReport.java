@@ -0,0 +1,41 @@
+package org.touchhome.app.setup;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@Accessors(chain = true)
+public class PostgresTuneReport {
+    private long ramMb;
+    private int cores;
+    private PostgresTuner.StorageType storageType;
+    private List<Setting> settings = new ArrayList<>();
+    // null if benchmark disabled or failed
+    private Benchmark before;
+    private Benchmark after;
+
+    @Getter
+    @Setter
+    @Accessors(chain = true)
+    public static class Setting {
+        private String name;
+        // null if setting was not set in config
+        private String oldValue;
+        private String newValue;
+    }
+
+    @Getter
+    @Setter
+    @Accessors(chain = true)
+    public static class Benchmark {
+        private int clients;
+        private int durationSec;
+        private double tps;
+        private double latencyAvgMs;
+    }
+}
@@ -0,0 +1,249 @@
+package org.touchhome.app.setup;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+import org.touchhome.app.config.TouchHomeProperties;
+import org.touchhome.app.hardware.HardwareQueryCacheManager;
+import org.touchhome.app.hardware.StartupHardwareRepository;
+import org.touchhome.app.hardware.shell.ShellResult;
+import org.touchhome.app.hardware.shell.ShellSessionPool;
+import org.touchhome.common.exception.ServerException;
+import org.touchhome.common.model.ProgressBar;
+import org.touchhome.common.util.CommonUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.touchhome.common.util.CommonUtils.OBJECT_MAPPER;
+
+/**
+ * Computes postgresql.conf memory, wal/checkpoint and planner settings from device RAM, cores and storage type and
+ * applies them in one atomic write. Optionally runs pgbench before and after change(touchhome.postgres.benchmarkSec),
+ * each time on freshly initialized dataset after warm-up run, so both numbers are measured under same conditions.
+ * Config restored if postgres not able to start with new settings.
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class PostgresTuner {
+
+    private static final String BENCHMARK_DB = "touchhome_pgbench";
+    private static final String REPORT_FILE = "postgres_tune.json";
+    private static final int MAX_WARM_UP_SEC = 10;
+
+    private final TouchHomeProperties touchHomeProperties;
+    private final ShellSessionPool shellSessionPool;
+    private final StartupHardwareRepository startupHardwareRepository;
+    private final HardwareQueryCacheManager hardwareQueryCacheManager;
+
+    public PostgresTuneReport getReport() throws IOException {
+        Path reportPath = CommonUtils.getRootPath().resolve(REPORT_FILE);
+        if (!Files.exists(reportPath)) {
+            return null;
+        }
+        return OBJECT_MAPPER.readValue(reportPath.toFile(), PostgresTuneReport.class);
+    }
+
+    public PostgresTuneReport tune(ProgressBar progressBar) throws IOException {
+        Path binPath = Paths.get(shellSessionPool.execute("find /usr -wholename '*/bin/postgres'")).getParent();
+        String version = binPath.subpath(3, 4).toString();
+        Path configPath = Paths.get("/etc/postgresql", version, "main", "postgresql.conf");
+        int benchmarkSec = touchHomeProperties.getPostgres().getBenchmarkSec();
+
+        PostgresTuneReport report = new PostgresTuneReport()
+                .setRamMb(getRamMb())
+                .setCores(Runtime.getRuntime().availableProcessors())
+                .setStorageType(getStorageType(Paths.get("/var/lib/postgresql")));
+        if (benchmarkSec > 0) {
+            progressBar.progress(10, "Benchmark postgresql before tuning");
+            report.setBefore(benchmark(binPath, benchmarkSec));
+        }
+
+        progressBar.progress(50, "Tune postgresql for " + report.getRamMb() + "MB RAM, " + report.getCores() + " cores, " +
+                report.getStorageType());
+        Map<String, String> settings = computeSettings(report.getRamMb(), report.getCores(), report.getStorageType(),
+                touchHomeProperties.getPostgres().getMaxConnections());
+        PostgresConfigFile configFile = PostgresConfigFile.read(configPath);
+        for (Map.Entry<String, String> setting : settings.entrySet()) {
+            report.getSettings().add(new PostgresTuneReport.Setting().setName(setting.getKey())
+                    .setOldValue(configFile.get(setting.getKey())).setNewValue(setting.getValue()));
+            configFile.set(setting.getKey(), setting.getValue());
+        }
+        Path backupPath = configPath.resolveSibling("postgresql.conf.bak");
+        Files.copy(configPath, backupPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        configFile.write(configPath);
+        if (!restart()) {
+            log.error("Postgresql not started with tuned config. Restore previous config");
+            Files.move(backupPath, configPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            restart();
+            throw new ServerException("Postgresql is not able to start with tuned config");
+        }
+
+        if (benchmarkSec > 0) {
+            progressBar.progress(60, "Benchmark postgresql after tuning");
+            report.setAfter(benchmark(binPath, benchmarkSec));
+            shellSessionPool.execute("sudo -u postgres dropdb --if-exists " + BENCHMARK_DB, 60, true, false);
+        }
+        Files.write(CommonUtils.getRootPath().resolve(REPORT_FILE), OBJECT_MAPPER.writeValueAsBytes(report));
+        logReport(report);
+        return report;
+    }
+
+    /**
+     * PGTune like rules for small boards. Memory values in kB.
+     */
+    static Map<String, String> computeSettings(long ramMb, int cores, StorageType storageType, int maxConnections) {
+        long ramKb = ramMb * 1024;
+        long sharedBuffers = ramKb / 4;
+        long workMem = (ramKb - sharedBuffers) / (maxConnections * 3L) / Math.max(1, cores / 2);
+        // 3% of shared_buffers, between 64kB and 16MB
+        long walBuffers = Math.min(16 * 1024, Math.max(64, sharedBuffers * 3 / 100));
+
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("listen_addresses", "'*'");
+        settings.put("wal_level", "replica");
+        settings.put("max_connections", String.valueOf(maxConnections));
+        settings.put("shared_buffers", formatKb(sharedBuffers));
+        settings.put("effective_cache_size", formatKb(ramKb * 3 / 4));
+        settings.put("maintenance_work_mem", formatKb(Math.min(2 * 1024 * 1024, ramKb / 16)));
+        settings.put("work_mem", formatKb(Math.max(1024, workMem)));
+        settings.put("wal_buffers", formatKb(walBuffers));
+        // fewer, spread checkpoints - less write amplification on flash
+        settings.put("checkpoint_timeout", "15min");
+        settings.put("checkpoint_completion_target", "0.9");
+        settings.put("min_wal_size", storageType == StorageType.SSD ? "512MB" : "256MB");
+        settings.put("max_wal_size", storageType == StorageType.SSD ? "2GB" : "1GB");
+        settings.put("random_page_cost", storageType.randomPageCost);
+        settings.put("effective_io_concurrency", String.valueOf(storageType.ioConcurrency));
+        return settings;
+    }
+
+    private static String formatKb(long kb) {
+        return kb % 1024 == 0 ? kb / 1024 + "MB" : kb + "kB";
+    }
+
+    /**
+     * Dataset re-created for each run, otherwise second run measures tables bloated by first one. Warm-up run fills
+     * shared_buffers and OS cache after restart and it's result is discarded.
+     */
+    private PostgresTuneReport.Benchmark benchmark(Path binPath, int durationSec) {
+        int clients = Math.min(touchHomeProperties.getPostgres().getMaxConnections() / 2, Runtime.getRuntime().availableProcessors() * 2);
+        try {
+            String pgbench = "sudo -u postgres " + binPath.resolve("pgbench");
+            shellSessionPool.execute("sudo -u postgres dropdb --if-exists " + BENCHMARK_DB, 60, true, false);
+            shellSessionPool.execute("sudo -u postgres createdb " + BENCHMARK_DB, 60, true, false);
+            shellSessionPool.execute(pgbench + " -i -q -s " + touchHomeProperties.getPostgres().getBenchmarkScale() + " " + BENCHMARK_DB,
+                    600, false, false);
+            String run = pgbench + " -c " + clients + " -j " + Runtime.getRuntime().availableProcessors() + " -T ";
+            int warmUpSec = Math.max(1, Math.min(MAX_WARM_UP_SEC, durationSec / 3));
+            shellSessionPool.execute(run + warmUpSec + " " + BENCHMARK_DB, warmUpSec + 120, false, false);
+            ShellResult result = shellSessionPool.execute(run + durationSec + " " + BENCHMARK_DB, durationSec + 120, false, false);
+            return parseBenchmark(result.getOutput()).setClients(clients).setDurationSec(durationSec);
+        } catch (Exception ex) {
+            log.warn("Postgresql benchmark failed: <{}>", CommonUtils.getErrorMessage(ex));
+            return null;
+        }
+    }
+
+    /**
+     * 'tps = 123.456789 (without initial connection time)' / 'latency average = 12.345 ms'.
+     * Postgresql 13 and earlier print 'including connections establishing' line first and
+     * 'excluding connections establishing' one after it, the latter is used.
+     */
+    static PostgresTuneReport.Benchmark parseBenchmark(List<String> output) {
+        PostgresTuneReport.Benchmark benchmark = new PostgresTuneReport.Benchmark();
+        for (String line : output) {
+            if (line.startsWith("tps = ") && (benchmark.getTps() == 0 || !line.contains("including connections"))) {
+                benchmark.setTps(Double.parseDouble(StringUtils.substringBetween(line, "tps = ", " ")));
+            } else if (line.startsWith("latency average = ")) {
+                benchmark.setLatencyAvgMs(Double.parseDouble(StringUtils.substringBetween(line, "latency average = ", " ")));
+            }
+        }
+        return benchmark;
+    }
+
+    private boolean restart() {
+        shellSessionPool.execute("sudo systemctl restart postgresql", 120, true, false);
+        hardwareQueryCacheManager.invalidate(StartupHardwareRepository.class);
+        return startupHardwareRepository.isPostgreSQLRunning();
+    }
+
+    private static void logReport(PostgresTuneReport report) {
+        for (PostgresTuneReport.Setting setting : report.getSettings()) {
+            log.info("Postgresql {}: {} -> {}", setting.getName(), setting.getOldValue(), setting.getNewValue());
+        }
+        if (report.getBefore() != null && report.getAfter() != null) {
+            log.info("Postgresql pgbench: tps {} -> {}, latency {}ms -> {}ms", report.getBefore().getTps(), report.getAfter().getTps(),
+                    report.getBefore().getLatencyAvgMs(), report.getAfter().getLatencyAvgMs());
+        }
+    }
+
+    private static long getRamMb() throws IOException {
+        for (String line : Files.readAllLines(Paths.get("/proc/meminfo"), StandardCharsets.US_ASCII)) {
+            if (line.startsWith("MemTotal:")) {
+                return Long.parseLong(StringUtils.split(line)[1]) / 1024;
+            }
+        }
+        throw new ServerException("Unable to detect RAM size");
+    }
+
+    /**
+     * Storage type of block device which holds 'path'. SD card if not able to detect.
+     */
+    static StorageType getStorageType(Path path) {
+        try {
+            String device = null;
+            int mountPointLength = -1;
+            // id parent major:minor root mountPoint options ... - type source superOptions
+            for (String line : Files.readAllLines(Paths.get("/proc/self/mountinfo"), StandardCharsets.UTF_8)) {
+                String[] fields = StringUtils.split(line);
+                String mountPoint = fields[4];
+                String source = fields[ArrayUtils.indexOf(fields, "-") + 2];
+                if (path.startsWith(mountPoint) && mountPoint.length() > mountPointLength && source.startsWith("/dev/")) {
+                    device = source.substring("/dev/".length());
+                    mountPointLength = mountPoint.length();
+                }
+            }
+            if (device == null) {
+                return StorageType.SD_CARD;
+            }
+            Path blockPath = Paths.get("/sys/class/block", device).toRealPath();
+            if (Files.exists(blockPath.resolve("partition"))) {
+                blockPath = blockPath.getParent();
+            }
+            if (blockPath.getFileName().toString().startsWith("mmcblk")) {
+                return StorageType.SD_CARD;
+            }
+            String rotational = new String(Files.readAllBytes(blockPath.resolve("queue/rotational")), StandardCharsets.US_ASCII).trim();
+            return "1".equals(rotational) ? StorageType.HDD : StorageType.SSD;
+        } catch (Exception ex) {
+            log.warn("Unable to detect storage type: <{}>", CommonUtils.getErrorMessage(ex));
+            return StorageType.SD_CARD;
+        }
+    }
+
+    public enum StorageType {
+        // no seek penalty, but slow random writes and limited write endurance
+        SD_CARD("1.5", 2),
+        SSD("1.1", 200),
+        HDD("4.0", 2);
+
+        private final String randomPageCost;
+        private final int ioConcurrency;
+
+        StorageType(String randomPageCost, int ioConcurrency) {
+            this.randomPageCost = randomPageCost;
+            this.ioConcurrency = ioConcurrency;
+        }
+    }
+}
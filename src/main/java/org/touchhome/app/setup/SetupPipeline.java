@@ -0,0 +1,204 @@
+package org.touchhome.app.setup;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.log4j.Log4j2;
+import org.touchhome.app.job.Job;
+import org.touchhome.common.exception.ServerException;
+import org.touchhome.common.model.ProgressBar;
+import org.touchhome.common.util.CommonUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.TimeUnit;
+
+import static org.touchhome.common.util.CommonUtils.OBJECT_MAPPER;
+
+/**
+ * Runs graph of setup steps. Steps which dependencies are finished run in parallel.
+ * Each finished step stored to checkpoint file, so after failure or reboot pipeline resumes after last finished
+ * step. Measured step durations stored as well and used as progress weights on next runs.
+ */
+@Log4j2
+public class SetupPipeline {
+
+    private final Map<String, SetupStep> steps = new LinkedHashMap<>();
+    private final Path checkpointPath;
+    private final Executor executor;
+
+    public SetupPipeline(List<SetupStep> steps, Path checkpointPath, Executor executor) {
+        for (SetupStep step : steps) {
+            for (String dependency : step.getDependsOn()) {
+                if (!this.steps.containsKey(dependency)) {
+                    throw new IllegalArgumentException("Step <" + step.getName() + "> depends on unknown or later step <" + dependency + ">");
+                }
+            }
+            this.steps.put(step.getName(), step);
+        }
+        this.checkpointPath = checkpointPath;
+        this.executor = executor;
+    }
+
+    public boolean hasCheckpoint() {
+        return Files.exists(checkpointPath);
+    }
+
+    public boolean isFinished() {
+        return readCheckpoint().finished.containsAll(steps.keySet());
+    }
+
+    public void run(ProgressBar progressBar) throws Exception {
+        Checkpoint checkpoint = readCheckpoint();
+        WeightedProgress weightedProgress = new WeightedProgress(checkpoint, progressBar);
+        CompletionService<StepResult> completionService = new ExecutorCompletionService<>(executor);
+        // steps run on executor threads on behalf of caller's job, so job cancellation reaches their processes
+        Job job = Job.current();
+        Set<String> running = new HashSet<>();
+        Exception error = null;
+        while (true) {
+            if (error == null) {
+                for (SetupStep step : steps.values()) {
+                    if (!checkpoint.finished.contains(step.getName()) && !running.contains(step.getName())
+                            && checkpoint.finished.containsAll(step.getDependsOn())) {
+                        running.add(step.getName());
+                        completionService.submit(() -> Job.callAs(job, () -> runStep(step, weightedProgress)));
+                    }
+                }
+            }
+            if (running.isEmpty()) {
+                break;
+            }
+            try {
+                StepResult result = completionService.take().get();
+                running.remove(result.name);
+                checkpoint.finished.add(result.name);
+                checkpoint.durations.put(result.name, result.durationMs);
+                saveCheckpoint(checkpoint);
+            } catch (ExecutionException ex) {
+                if (!(ex.getCause() instanceof StepException)) {
+                    // runStep wraps every failure, so step is unknown here and it can't be waited for
+                    throw new IllegalStateException("Setup step failed outside of step action", ex.getCause());
+                }
+                // wait for already running steps before fail
+                StepException stepException = (StepException) ex.getCause();
+                running.remove(stepException.name);
+                if (error == null) {
+                    error = stepException.getCause() instanceof Exception ? (Exception) stepException.getCause() : stepException;
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private StepResult runStep(SetupStep step, WeightedProgress weightedProgress) throws StepException {
+        long start = System.nanoTime();
+        log.info("Start setup step <{}>", step.getName());
+        try {
+            weightedProgress.update(step, 0, step.getTitle());
+            step.getAction().run((progress, message) -> weightedProgress.update(step, progress, message));
+            weightedProgress.update(step, 100, step.getTitle());
+        } catch (Exception | Error ex) {
+            log.error("Setup step <{}> failed: <{}>", step.getName(), CommonUtils.getErrorMessage(ex));
+            throw new StepException(step.getName(), ex);
+        }
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.info("Setup step <{}> finished in {}ms", step.getName(), durationMs);
+        return new StepResult(step.getName(), durationMs);
+    }
+
+    private Checkpoint readCheckpoint() {
+        if (Files.exists(checkpointPath)) {
+            try {
+                return OBJECT_MAPPER.readValue(checkpointPath.toFile(), Checkpoint.class);
+            } catch (IOException ex) {
+                log.warn("Unable to read setup checkpoint <{}>. Start from scratch", checkpointPath);
+            }
+        }
+        return new Checkpoint();
+    }
+
+    private void saveCheckpoint(Checkpoint checkpoint) {
+        try {
+            Path tmpPath = checkpointPath.resolveSibling(checkpointPath.getFileName() + ".tmp");
+            OBJECT_MAPPER.writeValue(tmpPath.toFile(), checkpoint);
+            Files.move(tmpPath, checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new ServerException(ex);
+        }
+    }
+
+    /**
+     * Overall progress where each step occupies range proportional to it's measured (or estimated) duration.
+     */
+    private class WeightedProgress {
+        private final ProgressBar progressBar;
+        private final Map<String, Double> weights = new HashMap<>();
+        private final Map<String, Double> done = new HashMap<>();
+        private double totalWeight;
+        private double lastReported;
+
+        private WeightedProgress(Checkpoint checkpoint, ProgressBar progressBar) {
+            this.progressBar = progressBar;
+            for (SetupStep step : steps.values()) {
+                double weight = checkpoint.durations.getOrDefault(step.getName(), TimeUnit.SECONDS.toMillis(step.getEstimatedSec()));
+                weights.put(step.getName(), weight);
+                totalWeight += weight;
+                if (checkpoint.finished.contains(step.getName())) {
+                    done.put(step.getName(), weight);
+                }
+            }
+        }
+
+        private synchronized void update(SetupStep step, double stepProgress, String message) {
+            double weight = weights.get(step.getName());
+            done.put(step.getName(), weight * Math.min(100, Math.max(0, stepProgress)) / 100);
+            double sum = 0;
+            for (Double value : done.values()) {
+                sum += value;
+            }
+            // stop at 99 until caller reports final state
+            lastReported = Math.max(lastReported, Math.min(99, sum * 100 / totalWeight));
+            progressBar.progress(lastReported, message);
+        }
+    }
+
+    @Getter
+    @Setter
+    private static class Checkpoint {
+        private Set<String> finished = new HashSet<>();
+        private Map<String, Long> durations = new HashMap<>();
+    }
+
+    private static class StepResult {
+        private final String name;
+        private final long durationMs;
+
+        private StepResult(String name, long durationMs) {
+            this.name = name;
+            this.durationMs = durationMs;
+        }
+    }
+
+    private static class StepException extends Exception {
+        private final String name;
+
+        private StepException(String name, Throwable cause) {
+            super(cause);
+            this.name = name;
+        }
+    }
+}
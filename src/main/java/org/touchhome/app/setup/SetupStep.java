@@ -0,0 +1,35 @@
+package org.touchhome.app.setup;
+
+import lombok.Getter;
+import org.touchhome.common.model.ProgressBar;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Single node of setup graph. Step starts when all dependsOn steps finished.
+ * estimatedSec used as progress weight until real duration measured on device.
+ */
+@Getter
+public class SetupStep {
+    private final String name;
+    private final String title;
+    private final int estimatedSec;
+    private final List<String> dependsOn;
+    private final StepAction action;
+
+    public SetupStep(String name, String title, int estimatedSec, StepAction action, String... dependsOn) {
+        this.name = name;
+        this.title = title;
+        this.estimatedSec = estimatedSec;
+        this.action = action;
+        this.dependsOn = Arrays.asList(dependsOn);
+    }
+
+    public interface StepAction {
+        /**
+         * @param progressBar - step local progress 0..100
+         */
+        void run(ProgressBar progressBar) throws Exception;
+    }
+}
@@ -0,0 +1,29 @@
+package org.touchhome.app.startup;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Setter
+@Accessors(chain = true)
+public class StartupReport {
+    // milestone -> ms since jvm start
+    private Map<String, Long> milestones;
+    // spring startup phases aggregated by step name
+    private List<Step> phases;
+    // bean instantiation time includes time of it's dependencies
+    private List<Step> slowestBeans;
+
+    @Getter
+    @Setter
+    @Accessors(chain = true)
+    public static class Step {
+        private String name;
+        private int count;
+        private long durationMs;
+    }
+}
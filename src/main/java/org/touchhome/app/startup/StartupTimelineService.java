@@ -0,0 +1,113 @@
+package org.touchhome.app.startup;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.support.ServletRequestHandledEvent;
+import org.touchhome.app.config.TouchHomeProperties;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Boot timeline: spring startup steps recorded by BufferingApplicationStartup(see TouchHomeBootApplication) and
+ * app milestones(ready, first handled request, bluetooth ready) measured from jvm start.
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class StartupTimelineService {
+
+    public static final String APPLICATION_READY = "application.ready";
+    public static final String FIRST_REQUEST = "first.request";
+    public static final String BLUETOOTH_READY = "bluetooth.ready";
+
+    private static final String BEAN_INSTANTIATE_STEP = "spring.beans.instantiate";
+    private static final int SLOWEST_BEANS = 20;
+
+    private final ApplicationStartup applicationStartup;
+    private final TouchHomeProperties touchHomeProperties;
+
+    private final Map<String, Long> milestones = new ConcurrentHashMap<>();
+
+    /**
+     * Record first occurrence of milestone
+     */
+    public void milestone(String name) {
+        milestones.putIfAbsent(name, ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+
+    @EventListener
+    public void onApplicationReady(ApplicationReadyEvent event) {
+        milestone(APPLICATION_READY);
+        log.info("Application ready in {} ms since jvm start", milestones.get(APPLICATION_READY));
+        // training run that records class list for AppCDS archive
+        if (touchHomeProperties.getBoot().isExitOnReady()) {
+            log.info("Exit on ready");
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        }
+    }
+
+    @EventListener
+    public void onRequestHandled(ServletRequestHandledEvent event) {
+        if (!milestones.containsKey(FIRST_REQUEST)) {
+            milestone(FIRST_REQUEST);
+        }
+    }
+
+    public StartupReport getReport() {
+        Map<String, Long> sortedMilestones = new LinkedHashMap<>();
+        milestones.entrySet().stream().sorted(Map.Entry.comparingByValue())
+                .forEach(entry -> sortedMilestones.put(entry.getKey(), entry.getValue()));
+
+        Map<String, StartupReport.Step> phases = new LinkedHashMap<>();
+        List<StartupReport.Step> beans = new ArrayList<>();
+        for (StartupTimeline.TimelineEvent event : getTimelineEvents()) {
+            StartupStep step = event.getStartupStep();
+            long durationMs = event.getDuration().toMillis();
+            if (BEAN_INSTANTIATE_STEP.equals(step.getName())) {
+                beans.add(new StartupReport.Step().setName(getTag(step, "beanName")).setCount(1).setDurationMs(durationMs));
+            } else {
+                StartupReport.Step phase = phases.computeIfAbsent(step.getName(), name -> new StartupReport.Step().setName(name));
+                phase.setCount(phase.getCount() + 1).setDurationMs(phase.getDurationMs() + durationMs);
+            }
+        }
+        return new StartupReport()
+                .setMilestones(sortedMilestones)
+                .setPhases(new ArrayList<>(phases.values()))
+                .setSlowestBeans(beans.stream()
+                        .sorted(Comparator.comparingLong(StartupReport.Step::getDurationMs).reversed())
+                        .limit(SLOWEST_BEANS)
+                        .collect(Collectors.toList()));
+    }
+
+    private List<StartupTimeline.TimelineEvent> getTimelineEvents() {
+        if (applicationStartup instanceof BufferingApplicationStartup) {
+            return ((BufferingApplicationStartup) applicationStartup).getBufferedTimeline().getEvents();
+        }
+        return Collections.emptyList();
+    }
+
+    private static String getTag(StartupStep step, String key) {
+        for (StartupStep.Tag tag : step.getTags()) {
+            if (key.equals(tag.getKey())) {
+                return tag.getValue();
+            }
+        }
+        return step.getName();
+    }
+}
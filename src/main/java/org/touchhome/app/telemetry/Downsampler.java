@@ -0,0 +1,53 @@
+package org.touchhome.app.telemetry;
+
+import java.util.Arrays;
+
+/**
+ * Averages samples over resolution period and writes one sample per period to target ring and next downsampler.
+ * NaN values are excluded from average.
+ */
+class Downsampler {
+
+    private final TimeSeriesRing target;
+    private final Downsampler next;
+    private final long periodMs;
+    private final double[] sums = new double[TelemetryMetric.values().length];
+    private final int[] counts = new int[sums.length];
+    private final float[] average = new float[sums.length];
+    private long periodStart = -1;
+
+    Downsampler(TimeSeriesRing target, Downsampler next) {
+        this.target = target;
+        this.next = next;
+        this.periodMs = target.getResolution().getPeriodMs();
+    }
+
+    void add(long timestamp, float[] sample) {
+        long start = timestamp - timestamp % periodMs;
+        if (start != periodStart) {
+            flush();
+            periodStart = start;
+        }
+        for (int i = 0; i < sample.length; i++) {
+            if (!Float.isNaN(sample[i])) {
+                sums[i] += sample[i];
+                counts[i]++;
+            }
+        }
+    }
+
+    private void flush() {
+        if (periodStart < 0) {
+            return;
+        }
+        for (int i = 0; i < sums.length; i++) {
+            average[i] = counts[i] == 0 ? Float.NaN : (float) (sums[i] / counts[i]);
+        }
+        target.add(periodStart, average);
+        if (next != null) {
+            next.add(periodStart, average);
+        }
+        Arrays.fill(sums, 0);
+        Arrays.fill(counts, 0);
+    }
+}
@@ -0,0 +1,16 @@
+package org.touchhome.app.telemetry;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Published by MemoryPressureMonitor when system or service memory is low. Listeners should drop everything that
+ * may be rebuilt on demand(caches, finished jobs, history).
+ */
+@Getter
+@RequiredArgsConstructor
+public class MemoryPressureEvent {
+    private final String reason;
+    private final long rssKb;
+    private final long availableKb;
+}
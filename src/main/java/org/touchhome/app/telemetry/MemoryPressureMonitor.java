@@ -0,0 +1,98 @@
+package org.touchhome.app.telemetry;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.touchhome.app.config.TouchHomeProperties;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks every touchhome.memory.checkIntervalMs service rss against touchhome.memory.budgetMb and system MemAvailable
+ * against touchhome.memory.minAvailablePercent. On pressure publishes MemoryPressureEvent so components release
+ * caches, then requests gc so heap may shrink. Events are not repeated more often than touchhome.memory.cooldownSec.
+ */
+@Log4j2
+@Lazy(false)
+@Component
+@RequiredArgsConstructor
+public class MemoryPressureMonitor {
+
+    private static final long MB = 1024 * 1024;
+
+    private final TouchHomeProperties touchHomeProperties;
+    private final ThreadPoolTaskScheduler threadPoolTaskScheduler;
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    private final AtomicLong pressureCount = new AtomicLong();
+    private volatile long lastPressureTime;
+    private volatile String lastPressureReason;
+    private ScheduledFuture<?> checkFuture;
+
+    @PostConstruct
+    public void init() {
+        TouchHomeProperties.Memory config = touchHomeProperties.getMemory();
+        long heapMaxMb = Runtime.getRuntime().maxMemory() / MB;
+        if (config.getBudgetMb() > 0 && heapMaxMb >= config.getBudgetMb()) {
+            log.warn("Max heap {} MB not fits memory budget {} MB. Start jvm with lower -Xmx", heapMaxMb, config.getBudgetMb());
+        }
+        checkFuture = threadPoolTaskScheduler.scheduleWithFixedDelay(this::check, config.getCheckIntervalMs());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (checkFuture != null) {
+            checkFuture.cancel(false);
+        }
+    }
+
+    public MemoryStatus getStatus() {
+        Runtime runtime = Runtime.getRuntime();
+        long lastPressureTime = this.lastPressureTime;
+        return new MemoryStatus()
+                .setRssMb(SystemStatReader.readKb(SystemStatReader.SELF_STATUS, "VmRSS") / 1024)
+                .setBudgetMb(touchHomeProperties.getMemory().getBudgetMb())
+                .setTotalMb(SystemStatReader.readKb(SystemStatReader.MEMINFO, "MemTotal") / 1024)
+                .setAvailableMb(SystemStatReader.readKb(SystemStatReader.MEMINFO, "MemAvailable") / 1024)
+                .setHeapUsedMb((runtime.totalMemory() - runtime.freeMemory()) / MB)
+                .setHeapMaxMb(runtime.maxMemory() / MB)
+                .setPressureCount(pressureCount.get())
+                .setLastPressureTime(lastPressureTime == 0 ? null : lastPressureTime)
+                .setLastPressureReason(lastPressureReason);
+    }
+
+    private void check() {
+        TouchHomeProperties.Memory config = touchHomeProperties.getMemory();
+        long rssKb = SystemStatReader.readKb(SystemStatReader.SELF_STATUS, "VmRSS");
+        long totalKb = SystemStatReader.readKb(SystemStatReader.MEMINFO, "MemTotal");
+        long availableKb = SystemStatReader.readKb(SystemStatReader.MEMINFO, "MemAvailable");
+
+        String reason = null;
+        if (config.getBudgetMb() > 0 && rssKb > config.getBudgetMb() * 1024L) {
+            reason = "rss " + rssKb / 1024 + " MB exceeds budget " + config.getBudgetMb() + " MB";
+        } else if (totalKb > 0 && availableKb >= 0 && availableKb * 100 < totalKb * config.getMinAvailablePercent()) {
+            reason = "available " + availableKb / 1024 + " MB of " + totalKb / 1024 + " MB";
+        }
+        if (reason == null || System.currentTimeMillis() - lastPressureTime < TimeUnit.SECONDS.toMillis(config.getCooldownSec())) {
+            return;
+        }
+        lastPressureTime = System.currentTimeMillis();
+        lastPressureReason = reason;
+        pressureCount.incrementAndGet();
+        log.warn("Memory pressure: {}. Release caches", reason);
+        try {
+            applicationEventPublisher.publishEvent(new MemoryPressureEvent(reason, rssKb, availableKb));
+        } catch (Exception ex) {
+            log.error("Error while release memory: <{}>", ex.getMessage());
+        }
+        System.gc();
+        log.info("Rss after release: {} MB", SystemStatReader.readKb(SystemStatReader.SELF_STATUS, "VmRSS") / 1024);
+    }
+}
@@ -0,0 +1,20 @@
+package org.touchhome.app.telemetry;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+@Getter
+@Setter
+@Accessors(chain = true)
+public class MemoryStatus {
+    private long rssMb;
+    private long budgetMb;
+    private long totalMb;
+    private long availableMb;
+    private long heapUsedMb;
+    private long heapMaxMb;
+    private long pressureCount;
+    private Long lastPressureTime;
+    private String lastPressureReason;
+}
@@ -0,0 +1,153 @@
+package org.touchhome.app.telemetry;
+
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Reads system counters from /proc and /sys files without starting processes. Rates(cpu usage, disk throughput) are
+ * computed against previous read. Unavailable values are NaN.
+ */
+@Log4j2
+class SystemStatReader {
+
+    private static final Path STAT = Paths.get("/proc/stat");
+    private static final Path LOAD_AVERAGE = Paths.get("/proc/loadavg");
+    static final Path MEMINFO = Paths.get("/proc/meminfo");
+    static final Path SELF_STATUS = Paths.get("/proc/self/status");
+    private static final Path DISKSTATS = Paths.get("/proc/diskstats");
+    private static final Path CPU_FREQUENCY = Paths.get("/sys/devices/system/cpu/cpu0/cpufreq/scaling_cur_freq");
+    private static final int SECTOR_SIZE = 512;
+
+    private final Path thermalZone;
+    private final String diskDevice;
+
+    private long lastReadAt;
+    private long lastCpuTotal;
+    private long lastCpuIdle;
+    private long lastCpuIowait;
+    private long lastSectorsRead = -1;
+    private long lastSectorsWritten = -1;
+
+    SystemStatReader(String thermalZone, String diskDevice) {
+        this.thermalZone = Paths.get(thermalZone);
+        this.diskDevice = diskDevice;
+    }
+
+    /**
+     * Fill sample indexed by TelemetryMetric ordinal
+     */
+    void read(float[] sample) {
+        long now = System.nanoTime();
+        double elapsedSec = lastReadAt == 0 ? 0 : (now - lastReadAt) / 1_000_000_000D;
+        lastReadAt = now;
+
+        readCpu(sample);
+        sample[TelemetryMetric.LOAD_AVERAGE.ordinal()] = parse(StringUtils.substringBefore(readFile(LOAD_AVERAGE), " "), 1);
+        sample[TelemetryMetric.CPU_FREQUENCY.ordinal()] = parse(readFile(CPU_FREQUENCY), 1000);
+        sample[TelemetryMetric.TEMPERATURE.ordinal()] = parse(readFile(thermalZone), 1000);
+        readMemory(sample);
+        readDisk(sample, elapsedSec);
+    }
+
+    // cpu  user nice system idle iowait irq softirq steal
+    private void readCpu(float[] sample) {
+        String line = StringUtils.substringBefore(readFile(STAT), "\n");
+        String[] fields = StringUtils.split(line);
+        float usage = Float.NaN;
+        float iowait = Float.NaN;
+        if (fields.length > 5 && "cpu".equals(fields[0])) {
+            long total = 0;
+            for (int i = 1; i < fields.length && i <= 8; i++) {
+                total += Long.parseLong(fields[i]);
+            }
+            long idle = Long.parseLong(fields[4]);
+            long io = Long.parseLong(fields[5]);
+            long totalDelta = total - lastCpuTotal;
+            if (lastCpuTotal > 0 && totalDelta > 0) {
+                usage = 100F * (totalDelta - (idle - lastCpuIdle) - (io - lastCpuIowait)) / totalDelta;
+                iowait = 100F * (io - lastCpuIowait) / totalDelta;
+            }
+            lastCpuTotal = total;
+            lastCpuIdle = idle;
+            lastCpuIowait = io;
+        }
+        sample[TelemetryMetric.CPU_USAGE.ordinal()] = usage;
+        sample[TelemetryMetric.CPU_IOWAIT.ordinal()] = iowait;
+    }
+
+    private void readMemory(float[] sample) {
+        long total = -1;
+        long available = -1;
+        for (String line : StringUtils.split(readFile(MEMINFO), '\n')) {
+            if (line.startsWith("MemTotal:")) {
+                total = parseKb(line);
+            } else if (line.startsWith("MemAvailable:")) {
+                available = parseKb(line);
+            }
+        }
+        sample[TelemetryMetric.MEMORY_USED.ordinal()] = total > 0 && available >= 0 ? 100F * (total - available) / total : Float.NaN;
+    }
+
+    // major minor name reads merged sectorsRead msRead writes merged sectorsWritten ...
+    private void readDisk(float[] sample, double elapsedSec) {
+        float readKbs = Float.NaN;
+        float writeKbs = Float.NaN;
+        for (String line : StringUtils.split(readFile(DISKSTATS), '\n')) {
+            String[] fields = StringUtils.split(line);
+            if (fields.length > 9 && fields[2].equals(diskDevice)) {
+                long sectorsRead = Long.parseLong(fields[5]);
+                long sectorsWritten = Long.parseLong(fields[9]);
+                if (lastSectorsRead >= 0 && elapsedSec > 0) {
+                    readKbs = (float) ((sectorsRead - lastSectorsRead) * SECTOR_SIZE / 1024D / elapsedSec);
+                    writeKbs = (float) ((sectorsWritten - lastSectorsWritten) * SECTOR_SIZE / 1024D / elapsedSec);
+                }
+                lastSectorsRead = sectorsRead;
+                lastSectorsWritten = sectorsWritten;
+                break;
+            }
+        }
+        sample[TelemetryMetric.DISK_READ.ordinal()] = readKbs;
+        sample[TelemetryMetric.DISK_WRITE.ordinal()] = writeKbs;
+    }
+
+    /**
+     * Value in KB of 'Field: N kB' line of /proc/meminfo or /proc/self/status. -1 if not available
+     */
+    static long readKb(Path path, String field) {
+        String prefix = field + ":";
+        for (String line : StringUtils.split(readFile(path), '\n')) {
+            if (line.startsWith(prefix)) {
+                return parseKb(line);
+            }
+        }
+        return -1;
+    }
+
+    private static long parseKb(String line) {
+        String[] fields = StringUtils.split(line);
+        return fields.length > 1 ? Long.parseLong(fields[1]) : -1;
+    }
+
+    private static float parse(String value, float divider) {
+        try {
+            return StringUtils.isBlank(value) ? Float.NaN : Float.parseFloat(value.trim()) / divider;
+        } catch (NumberFormatException ex) {
+            return Float.NaN;
+        }
+    }
+
+    private static String readFile(Path path) {
+        try {
+            return Files.isReadable(path) ? new String(Files.readAllBytes(path), StandardCharsets.US_ASCII) : "";
+        } catch (IOException ex) {
+            log.debug("Unable to read <{}>: {}", path, ex.getMessage());
+            return "";
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.touchhome.app.telemetry;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum TelemetryMetric {
+    CPU_USAGE("%"),
+    CPU_IOWAIT("%"),
+    LOAD_AVERAGE(""),
+    CPU_FREQUENCY("MHz"),
+    TEMPERATURE("C"),
+    MEMORY_USED("%"),
+    DISK_READ("KB/s"),
+    DISK_WRITE("KB/s");
+
+    private final String unit;
+}
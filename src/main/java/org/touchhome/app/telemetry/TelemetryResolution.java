@@ -0,0 +1,16 @@
+package org.touchhome.app.telemetry;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.concurrent.TimeUnit;
+
+@Getter
+@RequiredArgsConstructor
+public enum TelemetryResolution {
+    SECOND(TimeUnit.SECONDS.toMillis(1)),
+    MINUTE(TimeUnit.MINUTES.toMillis(1)),
+    HOUR(TimeUnit.HOURS.toMillis(1));
+
+    private final long periodMs;
+}
@@ -0,0 +1,13 @@
+package org.touchhome.app.telemetry;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Map;
+
+@Getter
+@RequiredArgsConstructor
+public class TelemetrySample {
+    private final long timestamp;
+    private final Map<TelemetryMetric, Float> values;
+}
@@ -0,0 +1,143 @@
+package org.touchhome.app.telemetry;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+import org.touchhome.app.ble.WebSocketConfig;
+import org.touchhome.app.config.TouchHomeProperties;
+import org.touchhome.common.util.CommonUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Samples cpu, temperature, memory and disk io every second into fixed size rings: per second, per minute and per hour
+ * averages(touchhome.telemetry.*Capacity). Memory is allocated once on start, see getMemoryBytes().
+ * Each sample is pushed to '/smart-dest-ws-telemetry' if there are subscribers.
+ */
+@Log4j2
+@Lazy(false)
+@Component
+@RequiredArgsConstructor
+public class TelemetrySampler {
+
+    public static final String DESTINATION = WebSocketConfig.DESTINATION_PREFIX + "-telemetry";
+
+    private final TouchHomeProperties touchHomeProperties;
+    private final ThreadPoolTaskScheduler threadPoolTaskScheduler;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    // 'sessionId:subscriptionId'
+    private final Set<String> subscriptions = ConcurrentHashMap.newKeySet();
+    private final float[] sample = new float[TelemetryMetric.values().length];
+
+    private TimeSeriesRing[] rings;
+    private Downsampler downsampler;
+    private SystemStatReader reader;
+    private ScheduledFuture<?> sampleFuture;
+
+    @PostConstruct
+    public void init() {
+        TouchHomeProperties.Telemetry config = touchHomeProperties.getTelemetry();
+        if (!config.isEnabled()) {
+            return;
+        }
+        TimeSeriesRing seconds = new TimeSeriesRing(TelemetryResolution.SECOND, config.getSecondsCapacity());
+        TimeSeriesRing minutes = new TimeSeriesRing(TelemetryResolution.MINUTE, config.getMinutesCapacity());
+        TimeSeriesRing hours = new TimeSeriesRing(TelemetryResolution.HOUR, config.getHoursCapacity());
+        rings = new TimeSeriesRing[]{seconds, minutes, hours};
+        downsampler = new Downsampler(minutes, new Downsampler(hours, null));
+        reader = new SystemStatReader(config.getThermalZone(), config.getDiskDevice());
+        log.info("Start telemetry sampler. Memory: {} KB", getMemoryBytes() / 1024);
+        sampleFuture = threadPoolTaskScheduler.scheduleAtFixedRate(this::sample, TelemetryResolution.SECOND.getPeriodMs());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (sampleFuture != null) {
+            sampleFuture.cancel(false);
+        }
+    }
+
+    public long getMemoryBytes() {
+        TouchHomeProperties.Telemetry config = touchHomeProperties.getTelemetry();
+        return TimeSeriesRing.getMemoryBytes(config.getSecondsCapacity()) + TimeSeriesRing.getMemoryBytes(config.getMinutesCapacity()) +
+                TimeSeriesRing.getMemoryBytes(config.getHoursCapacity());
+    }
+
+    /**
+     * @param resolution - null to pick finest resolution which still contains 'from'
+     */
+    public TelemetrySeries query(long from, long to, TelemetryResolution resolution) {
+        if (rings == null) {
+            return new TelemetrySeries().setResolution(resolution).setTimestamps(new long[0]).setValues(new EnumMap<>(TelemetryMetric.class));
+        }
+        return findRing(from, resolution).query(from, to);
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        if (DESTINATION.equals(accessor.getDestination())) {
+            subscriptions.add(accessor.getSessionId() + ":" + accessor.getSubscriptionId());
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        subscriptions.remove(accessor.getSessionId() + ":" + accessor.getSubscriptionId());
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        subscriptions.removeIf(key -> key.startsWith(event.getSessionId() + ":"));
+    }
+
+    private TimeSeriesRing findRing(long from, TelemetryResolution resolution) {
+        if (resolution != null) {
+            return rings[resolution.ordinal()];
+        }
+        TimeSeriesRing widest = rings[0];
+        for (TimeSeriesRing ring : rings) {
+            if (ring.getOldest() <= from) {
+                return ring;
+            }
+            if (ring.getOldest() < widest.getOldest()) {
+                widest = ring;
+            }
+        }
+        return widest;
+    }
+
+    private void sample() {
+        try {
+            long timestamp = System.currentTimeMillis();
+            reader.read(sample);
+            rings[TelemetryResolution.SECOND.ordinal()].add(timestamp, sample);
+            downsampler.add(timestamp, sample);
+            if (!subscriptions.isEmpty()) {
+                Map<TelemetryMetric, Float> values = new EnumMap<>(TelemetryMetric.class);
+                for (TelemetryMetric metric : TelemetryMetric.values()) {
+                    values.put(metric, sample[metric.ordinal()]);
+                }
+                messagingTemplate.convertAndSend(DESTINATION, new TelemetrySample(timestamp, values));
+            }
+        } catch (Exception ex) {
+            log.warn("Unable to sample telemetry: <{}>", CommonUtils.getErrorMessage(ex));
+        }
+    }
+}
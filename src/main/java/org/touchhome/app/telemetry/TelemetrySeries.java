@@ -0,0 +1,18 @@
+package org.touchhome.app.telemetry;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+import java.util.Map;
+
+@Getter
+@Setter
+@Accessors(chain = true)
+public class TelemetrySeries {
+    private TelemetryResolution resolution;
+    // epoch millis of each sample. Downsampled samples has start time of period
+    private long[] timestamps;
+    // metric -> value for each timestamp. NaN if metric not available on device
+    private Map<TelemetryMetric, float[]> values;
+}
@@ -0,0 +1,80 @@
+package org.touchhome.app.telemetry;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Fixed capacity ring of samples of all TelemetryMetric values. Stored in primitive arrays allocated once.
+ */
+class TimeSeriesRing {
+
+    private static final int METRICS = TelemetryMetric.values().length;
+
+    private final TelemetryResolution resolution;
+    private final int capacity;
+    private final long[] timestamps;
+    // row per sample
+    private final float[] values;
+    // next write index
+    private int head;
+    private int size;
+
+    TimeSeriesRing(TelemetryResolution resolution, int capacity) {
+        this.resolution = resolution;
+        this.capacity = capacity;
+        this.timestamps = new long[capacity];
+        this.values = new float[capacity * METRICS];
+    }
+
+    static long getMemoryBytes(int capacity) {
+        return (long) capacity * (Long.BYTES + METRICS * Float.BYTES);
+    }
+
+    synchronized void add(long timestamp, float[] sample) {
+        timestamps[head] = timestamp;
+        System.arraycopy(sample, 0, values, head * METRICS, METRICS);
+        head = (head + 1) % capacity;
+        size = Math.min(size + 1, capacity);
+    }
+
+    /**
+     * @return timestamp of oldest sample or Long.MAX_VALUE if ring is empty
+     */
+    synchronized long getOldest() {
+        return size == 0 ? Long.MAX_VALUE : timestamps[index(0)];
+    }
+
+    synchronized TelemetrySeries query(long from, long to) {
+        int first = 0;
+        while (first < size && timestamps[index(first)] < from) {
+            first++;
+        }
+        int last = first;
+        while (last < size && timestamps[index(last)] <= to) {
+            last++;
+        }
+        int count = last - first;
+        long[] seriesTimestamps = new long[count];
+        Map<TelemetryMetric, float[]> seriesValues = new EnumMap<>(TelemetryMetric.class);
+        for (TelemetryMetric metric : TelemetryMetric.values()) {
+            seriesValues.put(metric, new float[count]);
+        }
+        for (int i = 0; i < count; i++) {
+            int index = index(first + i);
+            seriesTimestamps[i] = timestamps[index];
+            for (TelemetryMetric metric : TelemetryMetric.values()) {
+                seriesValues.get(metric)[i] = values[index * METRICS + metric.ordinal()];
+            }
+        }
+        return new TelemetrySeries().setResolution(resolution).setTimestamps(seriesTimestamps).setValues(seriesValues);
+    }
+
+    TelemetryResolution getResolution() {
+        return resolution;
+    }
+
+    // i-th oldest sample
+    private int index(int i) {
+        return (head - size + i + capacity) % capacity;
+    }
+}
@@ -0,0 +1,86 @@
+#!/bin/bash
+# Smoke test of native executable and comparison of startup time and RSS with repackaged jar.
+# Usage: native-smoke.sh <native executable> <jar>
+# Each app is started in fast boot mode on free port, startup time is measured until first successful http response.
+# Exit code 1 if native executable not started or any smoke request failed.
+
+NATIVE=$1
+JAR=$2
+WORK_DIR=$(mktemp -d)
+APP_ARGS="--spring.profiles.active=fastboot --touchhome.peer.enabled=false"
+FAILED=0
+
+trap 'rm -rf "$WORK_DIR"' EXIT
+
+free_port() {
+  python3 -c 'import socket; s=socket.socket(); s.bind(("127.0.0.1", 0)); print(s.getsockname()[1]); s.close()'
+}
+
+status_kb() {
+  grep "^$2:" "/proc/$1/status" | awk '{print $2}'
+}
+
+# expect <name> <expected http code> <url> [curl args]
+expect() {
+  local name=$1 expected=$2 url=$3
+  shift 3
+  local code
+  code=$(curl -s -o /dev/null --max-time 2 -w '%{http_code}' "$@" "$url")
+  if [ "$code" != "$expected" ]; then
+    echo "FAIL $name: $url respond $code, expected $expected"
+    FAILED=1
+  fi
+}
+
+# run <name> <command with jvm options...>
+run() {
+  local name=$1
+  shift
+  local port
+  port=$(free_port)
+  local started
+  started=$(date +%s%N)
+  "$@" --server.port="$port" $APP_ARGS > "$WORK_DIR/$name.log" 2>&1 &
+  local pid=$!
+  local ready=""
+  for _ in $(seq 1 3000); do
+    if ! kill -0 "$pid" 2> /dev/null; then
+      break
+    fi
+    if curl -sf -o /dev/null "http://127.0.0.1:$port/rest/app/startup"; then
+      ready=$(date +%s%N)
+      break
+    fi
+    sleep 0.02
+  done
+  if [ -z "$ready" ]; then
+    echo "FAIL $name: not started. Log tail:"
+    tail -n 30 "$WORK_DIR/$name.log"
+    kill -9 "$pid" 2> /dev/null
+    FAILED=1
+    return
+  fi
+
+  expect "$name config" 200 "http://127.0.0.1:$port/rest/app/config"
+  expect "$name jobs" 200 "http://127.0.0.1:$port/rest/jobs"
+  expect "$name metrics" 200 "http://127.0.0.1:$port/rest/metrics/prometheus"
+  expect "$name websocket" 101 "http://127.0.0.1:$port/smart-websocket" -H "Connection: Upgrade" -H "Upgrade: websocket" \
+    -H "Sec-WebSocket-Version: 13" -H "Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ=="
+
+  local rss peak
+  rss=$(status_kb "$pid" VmRSS)
+  peak=$(status_kb "$pid" VmHWM)
+  kill "$pid" 2> /dev/null
+  wait "$pid" 2> /dev/null
+  printf "%-8s %12d %10d %14d\n" "$name" $(((ready - started) / 1000000)) $((rss / 1024)) $((peak / 1024)) >> "$WORK_DIR/result.txt"
+}
+
+run native "$NATIVE" -Dtouchhome.log.dir="$WORK_DIR/native-logs"
+if [ -f "$JAR" ]; then
+  run jar java $JAVA_OPTS -Dtouchhome.log.dir="$WORK_DIR/jar-logs" -jar "$JAR"
+fi
+
+echo
+printf "%-8s %12s %10s %14s\n" "" "startup ms" "rss MB" "peak rss MB"
+cat "$WORK_DIR/result.txt" 2> /dev/null
+exit $FAILED
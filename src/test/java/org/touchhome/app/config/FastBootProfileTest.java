@@ -0,0 +1,60 @@
+package org.touchhome.app.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.touchhome.app.device.DeviceConfigService;
+import org.touchhome.app.errors.ErrorReporter;
+import org.touchhome.app.install.PeerDiscovery;
+import org.touchhome.app.job.JobManager;
+import org.touchhome.app.loadtest.LoadTestConfig;
+import org.touchhome.app.logs.LogQueueMonitor;
+import org.touchhome.app.logs.LogTailPublisher;
+import org.touchhome.app.progress.ProgressPublisher;
+import org.touchhome.app.telemetry.MemoryPressureMonitor;
+import org.touchhome.app.telemetry.TelemetrySampler;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Boots app with 'fastboot' profile and stubbed hardware(LoadTestConfig). Beans which start background work from
+ * @PostConstruct and aren't injected by any eager bean must be created at startup, not on first request.
+ */
+class FastBootProfileTest {
+
+    private static final List<Class<?>> BACKGROUND_BEANS = Arrays.asList(TelemetrySampler.class, MemoryPressureMonitor.class,
+            PeerDiscovery.class, LogQueueMonitor.class, LogTailPublisher.class, ErrorReporter.class, ProgressPublisher.class,
+            JobManager.class, DeviceConfigService.class);
+
+    private ConfigurableApplicationContext context;
+
+    @BeforeEach
+    void setUp() {
+        context = new SpringApplicationBuilder(TouchHomeConfig.class, LoadTestConfig.class)
+                .run("--server.port=0",
+                        "--spring.main.allow-bean-definition-overriding=true",
+                        "--spring.profiles.active=fastboot",
+                        "--touchhome.peer.enabled=false");
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void backgroundBeansStartedWithoutRequest() {
+        assertTrue(context.getEnvironment().getProperty("spring.main.lazy-initialization", Boolean.class));
+        for (Class<?> beanClass : BACKGROUND_BEANS) {
+            String[] names = context.getBeanNamesForType(beanClass, false, false);
+            assertEquals(1, names.length, beanClass.getSimpleName());
+            assertTrue(context.getBeanFactory().containsSingleton(names[0]), beanClass.getSimpleName() + " not started");
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.touchhome.app.errors;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.touchhome.app.config.TouchHomeProperties;
+import org.touchhome.common.exception.ServerException;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ErrorReporterTest {
+
+    private final ErrorReporter errorReporter = new ErrorReporter(new TouchHomeProperties(), new ThreadPoolTaskScheduler());
+
+    @Test
+    void serverExceptionsOfDifferentCommandsHaveDifferentFingerprints() {
+        String hciconfig = ErrorReporter.fingerprint(serverException("Command 'hciconfig hci0 up' failed"));
+        String iwlist = ErrorReporter.fingerprint(serverException("Command 'iwlist wlan0 scan' failed"));
+
+        assertNotEquals(hciconfig, iwlist);
+        assertTrue(hciconfig.endsWith("#Command 'hciconfig hci# up' failed"), hciconfig);
+    }
+
+    @Test
+    void variablePartsOfMessageAreMasked() {
+        assertEquals(ErrorReporter.fingerprint(serverException("Device 3f2504e0-4f89-11d3-9a0c-0305e82c3301 timeout 1500ms")),
+                ErrorReporter.fingerprint(serverException("Device 6ba7b810-9dad-11d1-80b4-00c04fd430c8 timeout 30ms")));
+        assertEquals("Address # value # of deadbeef", ErrorReporter.normalise("Address 0x1F00 value 42 of deadbeef"));
+        assertEquals("", ErrorReporter.normalise(null));
+    }
+
+    @Test
+    void otherExceptionsAreGroupedByThrowSiteOnly() {
+        assertEquals(ErrorReporter.fingerprint(ioException("read 1 failed")), ErrorReporter.fingerprint(ioException("read 2 failed")));
+    }
+
+    @Test
+    void topErrorsAreLimited() {
+        for (int i = 0; i < 3; i++) {
+            errorReporter.report(serverException("Command " + (char) ('a' + i) + " failed"), "error", false);
+        }
+
+        assertEquals(3, errorReporter.getTopErrors(10).size());
+        assertEquals(1, errorReporter.getTopErrors(1).size());
+        assertThrows(IllegalArgumentException.class, () -> errorReporter.getTopErrors(-1));
+    }
+
+    // same throw site for all messages
+    private static ServerException serverException(String message) {
+        return new ServerException(message);
+    }
+
+    private static IOException ioException(String message) {
+        return new IOException(message);
+    }
+}
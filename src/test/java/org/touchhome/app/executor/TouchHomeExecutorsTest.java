@@ -0,0 +1,73 @@
+package org.touchhome.app.executor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.touchhome.app.config.TouchHomeProperties;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TouchHomeExecutorsTest {
+
+    private final TouchHomeProperties properties = new TouchHomeProperties();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private TouchHomeExecutors executors;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executors.destroy();
+    }
+
+    @Test
+    void blockingRejectsOverMaxSizeWithoutQueue() {
+        properties.getExecutor().setBlockingMaxSize(1);
+        InstrumentedExecutor blocking = createBlocking();
+
+        blocking.execute(this::await);
+
+        assertThrows(RejectedExecutionException.class, () -> blocking.execute(this::await));
+        assertEquals(1, blocking.getStats().getRejectedTasks());
+    }
+
+    @Test
+    void blockingQueuesOverMaxSize() throws InterruptedException {
+        properties.getExecutor().setBlockingMaxSize(1);
+        properties.getExecutor().setBlockingQueueSize(2);
+        InstrumentedExecutor blocking = createBlocking();
+        CountDownLatch done = new CountDownLatch(3);
+
+        for (int i = 0; i < 3; i++) {
+            blocking.execute(() -> {
+                await();
+                done.countDown();
+            });
+        }
+
+        assertEquals(2, blocking.getStats().getQueuedTasks());
+        assertThrows(RejectedExecutionException.class, () -> blocking.execute(this::await));
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, blocking.getStats().getPoolSize());
+    }
+
+    private InstrumentedExecutor createBlocking() {
+        executors = new TouchHomeExecutors(properties, new ThreadPoolTaskScheduler());
+        executors.init();
+        return executors.getBlocking();
+    }
+
+    private void await() {
+        try {
+            release.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
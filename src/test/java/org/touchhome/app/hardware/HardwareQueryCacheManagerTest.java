@@ -0,0 +1,256 @@
+package org.touchhome.app.hardware;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.touchhome.app.hardware.metrics.CommandStats;
+import org.touchhome.app.hardware.metrics.HardwareMetrics;
+import org.touchhome.bundle.api.hquery.api.HQueryParam;
+import org.touchhome.bundle.api.hquery.api.HardwareQuery;
+import org.touchhome.bundle.api.hquery.api.HardwareRepositoryAnnotation;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Spring context with hardware repositories registered the way HQuery does it(registerSingleton from
+ * BeanFactoryPostProcessor) and as regular bean definition, wrapped by HardwareMetrics and HardwareQueryCacheManager.
+ * Repository proxies answered by FakeHQuery.
+ */
+class HardwareQueryCacheManagerTest {
+
+    private final FakeHQuery hotSpotQuery = new FakeHQuery();
+    private final FakeHQuery startupQuery = new FakeHQuery();
+    private final FakeHQuery testQuery = new FakeHQuery();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private AnnotationConfigApplicationContext context;
+    private Object rawHotSpotRepository;
+
+    @BeforeEach
+    void setUp() {
+        rawHotSpotRepository = hotSpotQuery.createProxy(HotSpotHardwareRepository.class);
+        context = new AnnotationConfigApplicationContext();
+        // registered in reverse of wrapping order, which comes from getOrder()
+        context.register(HardwareRepositoryRegistrar.class, HardwareQueryCacheManager.class, HardwareMetrics.class);
+        context.addBeanFactoryPostProcessor(beanFactory -> {
+            beanFactory.registerSingleton("hotSpotHardwareRepository", rawHotSpotRepository);
+            beanFactory.registerSingleton("testHardwareRepository", testQuery.createProxy(TestHardwareRepository.class));
+        });
+        context.registerBean(StartupHardwareRepository.class, () -> startupQuery.createProxy(StartupHardwareRepository.class));
+        context.refresh();
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void wrapsRepositoriesRegisteredAsSingletonAndAsBeanDefinition() {
+        HotSpotHardwareRepository hotSpotRepository = context.getBean(HotSpotHardwareRepository.class);
+        StartupHardwareRepository startupRepository = context.getBean(StartupHardwareRepository.class);
+
+        assertNotSame(rawHotSpotRepository, hotSpotRepository);
+        hotSpotRepository.isAutoHotSpotServiceExists();
+        hotSpotRepository.isAutoHotSpotServiceExists();
+        startupRepository.isPostgreSQLRunning();
+        startupRepository.isPostgreSQLRunning();
+
+        assertEquals(1, hotSpotQuery.getCalls("isAutoHotSpotServiceExists"));
+        assertEquals(1, startupQuery.getCalls("isPostgreSQLRunning"));
+        HardwareQueryCacheManager.CacheStats stats = getCacheStats("HotSpotHardwareRepository.Is auto hotspot service exists");
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+    }
+
+    @Test
+    void installAutoHotSpotEvictsCachedResults() {
+        HotSpotHardwareRepository repository = context.getBean(HotSpotHardwareRepository.class);
+        hotSpotQuery.answer = method -> true;
+
+        assertTrue(repository.isAutoHotSpotServiceExists());
+        repository.installAutoHotSpot("/opt/sys");
+        assertTrue(repository.isAutoHotSpotServiceExists());
+        assertTrue(repository.isAutoHotSpotServiceExists());
+
+        assertEquals(1, hotSpotQuery.getCalls("installAutoHotSpot"));
+        assertEquals(2, hotSpotQuery.getCalls("isAutoHotSpotServiceExists"));
+    }
+
+    @Test
+    void cachesPerArgumentsUntilTtlExpired() throws InterruptedException {
+        TestHardwareRepository repository = context.getBean(TestHardwareRepository.class);
+        AtomicInteger counter = new AtomicInteger();
+        testQuery.answer = method -> "value-" + counter.incrementAndGet();
+
+        assertEquals("value-1", repository.readValue("a"));
+        assertEquals("value-2", repository.readValue("b"));
+        assertEquals("value-1", repository.readValue("a"));
+        TimeUnit.MILLISECONDS.sleep(1100);
+
+        assertEquals("value-3", repository.readValue("a"));
+        assertEquals(3, testQuery.getCalls("readValue"));
+    }
+
+    @Test
+    void concurrentCallsShareSingleExecution() throws Exception {
+        TestHardwareRepository repository = context.getBean(TestHardwareRepository.class);
+        CountDownLatch release = new CountDownLatch(1);
+        testQuery.answer = method -> await(release, "value");
+
+        Future<String> first = executor.submit(() -> repository.readValue("a"));
+        assertTrue(waitFor(() -> testQuery.getCalls("readValue") == 1));
+        Future<String> second = executor.submit(() -> repository.readValue("a"));
+        assertTrue(waitFor(() -> getCacheStats("TestHardwareRepository.Read value").getCoalesced() == 1));
+        release.countDown();
+
+        assertEquals("value", first.get(5, TimeUnit.SECONDS));
+        assertEquals("value", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, testQuery.getCalls("readValue"));
+    }
+
+    @Test
+    void resultFetchedBeforeInvalidationIsNotStored() throws Exception {
+        TestHardwareRepository repository = context.getBean(TestHardwareRepository.class);
+        CountDownLatch release = new CountDownLatch(1);
+        testQuery.answer = method -> await(release, "stale");
+
+        Future<String> inFlight = executor.submit(() -> repository.readValue("a"));
+        assertTrue(waitFor(() -> testQuery.getCalls("readValue") == 1));
+        context.getBean(HardwareQueryCacheManager.class).invalidate(TestHardwareRepository.class);
+        release.countDown();
+        assertEquals("stale", inFlight.get(5, TimeUnit.SECONDS));
+        testQuery.answer = method -> "fresh";
+
+        assertEquals("fresh", repository.readValue("a"));
+        assertEquals("fresh", repository.readValue("a"));
+        assertEquals(2, testQuery.getCalls("readValue"));
+    }
+
+    @Test
+    void metricsRecordCommandsButNotCacheHits() {
+        TestHardwareRepository repository = context.getBean(TestHardwareRepository.class);
+        HotSpotHardwareRepository hotSpotRepository = context.getBean(HotSpotHardwareRepository.class);
+        testQuery.answer = method -> "value";
+
+        repository.readValue("a");
+        repository.readValue("a");
+        repository.writeValue("a");
+        repository.writeValue("a");
+        hotSpotRepository.installAutoHotSpot("/opt/sys");
+
+        assertEquals(1, getCommandStats("Read value").getCount());
+        assertEquals(2, getCommandStats("Write value").getCount());
+        assertEquals(0, getCommandStats("Write value").getErrors());
+        // several queries of one method measured as a whole
+        assertEquals(1, getCommandStats("HotSpotHardwareRepository.installAutoHotSpot").getCount());
+        assertEquals(1, getCacheStats("TestHardwareRepository.Read value").getHits());
+    }
+
+    @Test
+    void metricsRecordFailedCommands() {
+        TestHardwareRepository repository = context.getBean(TestHardwareRepository.class);
+        testQuery.answer = method -> {
+            throw new IllegalStateException("read failed");
+        };
+
+        assertThrows(IllegalStateException.class, () -> repository.readValue("a"));
+
+        CommandStats stats = getCommandStats("Read value");
+        assertEquals(1, stats.getCount());
+        assertEquals(1, stats.getErrors());
+    }
+
+    private CommandStats getCommandStats(String name) {
+        for (CommandStats stats : context.getBean(HardwareMetrics.class).getStats()) {
+            if (stats.getName().equals(name)) {
+                return stats;
+            }
+        }
+        throw new AssertionError("No command stats " + name);
+    }
+
+    private HardwareQueryCacheManager.CacheStats getCacheStats(String name) {
+        for (HardwareQueryCacheManager.CacheStats stats : context.getBean(HardwareQueryCacheManager.class).getStats()) {
+            if (stats.getName().equals(name)) {
+                return stats;
+            }
+        }
+        throw new AssertionError("No cache stats " + name);
+    }
+
+    private static Object await(CountDownLatch latch, Object value) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+
+    private static boolean waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            if (condition.getAsBoolean()) {
+                return true;
+            }
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        return false;
+    }
+
+    @HardwareRepositoryAnnotation
+    public interface TestHardwareRepository {
+        @HardwareQueryCache(ttlSec = 1)
+        @HardwareQuery(name = "Read value", value = "cat :path")
+        String readValue(@HQueryParam("path") String path);
+
+        @HardwareQuery(name = "Write value", value = "touch :path")
+        void writeValue(@HQueryParam("path") String path);
+    }
+
+    /**
+     * Stands for HQuery proxy: counts invocations per method and returns 'answer' instead of running command
+     */
+    private static class FakeHQuery implements InvocationHandler {
+        private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+        private volatile Function<Method, Object> answer = method -> method.getReturnType() == boolean.class ? false : null;
+
+        private <T> T createProxy(Class<T> repositoryClass) {
+            return repositoryClass.cast(Proxy.newProxyInstance(repositoryClass.getClassLoader(), new Class[]{repositoryClass}, this));
+        }
+
+        private int getCalls(String methodName) {
+            AtomicInteger counter = calls.get(methodName);
+            return counter == null ? 0 : counter.get();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.getName().equals("equals") ? proxy == args[0] :
+                        method.getName().equals("hashCode") ? System.identityHashCode(proxy) : "FakeHQuery";
+            }
+            calls.computeIfAbsent(method.getName(), name -> new AtomicInteger()).incrementAndGet();
+            return method.getReturnType() == void.class ? null : answer.apply(method);
+        }
+    }
+}
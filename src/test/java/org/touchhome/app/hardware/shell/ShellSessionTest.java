@@ -0,0 +1,105 @@
+package org.touchhome.app.hardware.shell;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@EnabledOnOs(OS.LINUX)
+class ShellSessionTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ShellSession session;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        session = new ShellSession(Arrays.asList("/bin/bash", "--noprofile", "--norc"), "test");
+    }
+
+    @AfterEach
+    void tearDown() {
+        session.close();
+    }
+
+    @Test
+    void executeSeparatesOutputAndExitCode() throws Exception {
+        ShellResult result = session.execute("echo out; echo err >&2; printf 'no newline'; false", 10);
+
+        assertEquals(1, result.getExitCode());
+        assertEquals(Arrays.asList("out", "no newline"), result.getOutput());
+        assertEquals(Arrays.asList("err"), result.getErrors());
+        assertEquals(0, session.execute("true", 10).getExitCode());
+    }
+
+    @Test
+    void commandStateNotLeakedToNextCommand() throws Exception {
+        String initialDir = session.execute("pwd", 10).getOutput().get(0);
+
+        ShellResult result = session.execute("cd /; export TH_TEST=1; shopt -s nullglob; set -e; trap 'echo trapped' EXIT; exit 3", 10);
+        assertEquals(3, result.getExitCode());
+        assertEquals(Arrays.asList("trapped"), result.getOutput());
+
+        ShellResult next = session.execute("pwd; echo \"[$TH_TEST]\"; shopt -q nullglob || echo no-nullglob; false; echo after-false", 10);
+        assertEquals(Arrays.asList(initialDir, "[]", "no-nullglob", "after-false"), next.getOutput());
+        assertTrue(session.isAlive());
+    }
+
+    @Test
+    void commandNotReadingNextCommandsFromStdin() throws Exception {
+        ShellResult result = session.execute("cat; echo done", 10);
+        assertEquals(Arrays.asList("done"), result.getOutput());
+    }
+
+    @Test
+    void closeTerminatesCommandsSpawnedByShell() throws Exception {
+        Path pidFile = tempDir.resolve("pid");
+        CompletableFuture<Void> running = CompletableFuture.runAsync(() -> {
+            try {
+                session.execute("sleep 300 & echo $! > " + pidFile + "; wait", 60);
+            } catch (Exception ignore) {
+                // session closed
+            }
+        });
+        assertTrue(waitFor(() -> Files.exists(pidFile) && Files.size(pidFile) > 0), "command not started");
+        Path childPath = Paths.get("/proc", new String(Files.readAllBytes(pidFile), StandardCharsets.US_ASCII).trim());
+        assertTrue(Files.exists(childPath));
+
+        session.close();
+
+        assertTrue(waitFor(() -> !Files.exists(childPath)), "child process survived session close");
+        running.get(5, TimeUnit.SECONDS);
+        assertFalse(session.isAlive());
+    }
+
+    private static boolean waitFor(Condition condition) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            if (condition.check()) {
+                return true;
+            }
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+        return false;
+    }
+
+    private interface Condition {
+        boolean check() throws Exception;
+    }
+}
@@ -0,0 +1,132 @@
+package org.touchhome.app.install;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.touchhome.app.config.TouchHomeProperties;
+import org.touchhome.app.executor.TouchHomeExecutors;
+import org.touchhome.common.exception.ServerException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AppDownloaderTest {
+
+    private static final int SIZE = 1024 * 1024 + 123;
+
+    @TempDir
+    Path tempDir;
+
+    private final byte[] content = new byte[SIZE];
+    private final TouchHomeProperties properties = new TouchHomeProperties();
+    private final List<Double> progress = new ArrayList<>();
+    private TouchHomeExecutors executors;
+    private AppDownloader downloader;
+    private RangeStubServer server;
+    private Path tmpPath;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        new Random(1).nextBytes(content);
+        properties.getDownload().setReadTimeoutSec(5);
+        executors = new TouchHomeExecutors(properties, new ThreadPoolTaskScheduler());
+        executors.init();
+        downloader = new AppDownloader(properties, executors);
+        server = new RangeStubServer(content);
+        tmpPath = tempDir.resolve("touchhome-core_tmp.jar");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+        executors.destroy();
+    }
+
+    @Test
+    void resumesCutConnectionFromWrittenPosition() throws IOException {
+        server.cut(2, 300_000);
+
+        String sha256 = downloader.download(server.getUrl(), tmpPath, DigestUtils.md5Hex(content), this::onProgress);
+
+        assertEquals(DigestUtils.sha256Hex(content), sha256);
+        assertArrayEquals(content, Files.readAllBytes(tmpPath));
+        assertFalse(Files.exists(DownloadState.getStatePath(tmpPath)));
+        // probe, full file cut at 300000, range cut at 600000, rest of file
+        assertEquals(4, server.getRanges().size(), server.getRanges().toString());
+        assertEquals("bytes=300000-" + (SIZE - 1), server.getRanges().get(2));
+        assertEquals("bytes=600000-" + (SIZE - 1), server.getRanges().get(3));
+        assertProgressMonotonic();
+    }
+
+    @Test
+    void resumesParallelSegmentsAfterCut() throws IOException {
+        properties.getDownload().setSegments(3);
+        server.cut(3, 100_000);
+
+        String sha256 = downloader.download(server.getUrl(), tmpPath, DigestUtils.md5Hex(content), this::onProgress);
+
+        assertEquals(DigestUtils.sha256Hex(content), sha256);
+        assertArrayEquals(content, Files.readAllBytes(tmpPath));
+        assertProgressMonotonic();
+    }
+
+    @Test
+    void resumesFailedDownloadFromStateFile() throws IOException {
+        properties.getDownload().setRetries(0);
+        server.cut(1, 500_000);
+        assertThrows(IOException.class,
+                () -> downloader.download(server.getUrl(), tmpPath, DigestUtils.md5Hex(content), this::onProgress));
+        assertTrue(Files.exists(DownloadState.getStatePath(tmpPath)));
+
+        String sha256 = downloader.download(server.getUrl(), tmpPath, DigestUtils.md5Hex(content), this::onProgress);
+
+        assertEquals(DigestUtils.sha256Hex(content), sha256);
+        assertArrayEquals(content, Files.readAllBytes(tmpPath));
+        assertEquals("bytes=500000-" + (SIZE - 1), server.getRanges().get(server.getRanges().size() - 1));
+    }
+
+    @Test
+    void restartsWithoutRangeSupport() throws IOException {
+        server.setAcceptRanges(false);
+        Files.write(tmpPath, new byte[1000]);
+
+        String sha256 = downloader.download(server.getUrl(), tmpPath, DigestUtils.md5Hex(content), this::onProgress);
+
+        assertEquals(DigestUtils.sha256Hex(content), sha256);
+        assertArrayEquals(content, Files.readAllBytes(tmpPath));
+    }
+
+    @Test
+    void removesCorruptedDownload() {
+        assertThrows(ServerException.class,
+                () -> downloader.download(server.getUrl(), tmpPath, DigestUtils.md5Hex("other"), this::onProgress));
+        assertFalse(Files.exists(tmpPath));
+        assertFalse(Files.exists(DownloadState.getStatePath(tmpPath)));
+    }
+
+    private void onProgress(double value, String message) {
+        synchronized (progress) {
+            progress.add(value);
+        }
+    }
+
+    private void assertProgressMonotonic() {
+        for (int i = 1; i < progress.size(); i++) {
+            assertTrue(progress.get(i) >= progress.get(i - 1), progress.toString());
+        }
+        assertEquals(100D, progress.get(progress.size() - 1));
+    }
+}
@@ -0,0 +1,139 @@
+package org.touchhome.app.install;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.touchhome.app.config.TouchHomeProperties;
+import org.touchhome.app.executor.TouchHomeExecutors;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.touchhome.app.install.TestJars.createJar;
+import static org.touchhome.app.install.TestJars.entries;
+import static org.touchhome.app.install.TestJars.randomBytes;
+
+class DeltaPatcherTest {
+
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+
+    @TempDir
+    Path tempDir;
+
+    private RangeStubServer server;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    void manifestSplitsJarIntoContiguousEntryChunks() throws IOException {
+        Path jar = tempDir.resolve("release.jar");
+        Files.write(jar, createJar(entries(1, "BOOT-INF/lib/a.jar", "BOOT-INF/classes/App.class", "META-INF/MANIFEST.MF")));
+
+        JarEntriesManifest manifest = JarEntriesManifest.create(jar);
+
+        List<String> names = manifest.getChunks().stream().map(JarEntriesManifest.Chunk::getName).collect(Collectors.toList());
+        assertEquals(Arrays.asList("BOOT-INF/lib/a.jar", "BOOT-INF/classes/App.class", "META-INF/MANIFEST.MF",
+                "$central-directory"), names);
+        long position = 0;
+        for (JarEntriesManifest.Chunk chunk : manifest.getChunks()) {
+            assertEquals(position, chunk.getOffset(), chunk.getName());
+            position += chunk.getLength();
+        }
+        assertEquals(Files.size(jar), position);
+        assertEquals(Files.size(jar), manifest.getSize());
+        assertEquals(DigestUtils.md5Hex(Files.readAllBytes(jar)), manifest.getMd5());
+    }
+
+    @Test
+    void manifestOfNotZipFileIsSingleChunk() throws IOException {
+        Path file = tempDir.resolve("file.bin");
+        byte[] content = randomBytes(2, 100_000);
+        Files.write(file, content);
+
+        JarEntriesManifest manifest = JarEntriesManifest.create(file);
+
+        assertEquals(1, manifest.getChunks().size());
+        assertEquals("$file", manifest.getChunks().get(0).getName());
+        assertEquals(DigestUtils.sha256Hex(content), manifest.getChunks().get(0).getSha256());
+    }
+
+    @Test
+    void patchReusesUnchangedEntriesAndFetchesOthers() throws IOException {
+        Map<String, byte[]> oldEntries = entries(1, "BOOT-INF/lib/a.jar", "BOOT-INF/lib/b.jar", "BOOT-INF/lib/c.jar",
+                "BOOT-INF/classes/App.class");
+        Map<String, byte[]> newEntries = new LinkedHashMap<>(oldEntries);
+        newEntries.put("BOOT-INF/classes/App.class", randomBytes(3, 20_000));
+        newEntries.remove("BOOT-INF/lib/b.jar");
+        newEntries.put("BOOT-INF/lib/d.jar", randomBytes(4, 50_000));
+        Path installed = tempDir.resolve("touchhome-core.jar");
+        Files.write(installed, createJar(oldEntries));
+        byte[] release = createJar(newEntries);
+        Path tmpPath = tempDir.resolve("touchhome-core_tmp.jar");
+        Path releasePath = tempDir.resolve("release.jar");
+        Files.write(releasePath, release);
+        server = new RangeStubServer(release);
+
+        JarEntriesManifest manifest = JarEntriesManifest.create(releasePath);
+
+        String sha256 = createPatcher().patch(installed, server.getUrl(), manifest, tmpPath, DigestUtils.md5Hex(release),
+                (value, message) -> {
+                });
+
+        assertEquals(DigestUtils.sha256Hex(release), sha256);
+        assertArrayEquals(release, Files.readAllBytes(tmpPath));
+        long fetched = 0;
+        for (String range : server.getRanges()) {
+            Matcher matcher = RANGE.matcher(range);
+            assertTrue(matcher.matches(), range);
+            fetched += Long.parseLong(matcher.group(2)) - Long.parseLong(matcher.group(1)) + 1;
+        }
+        // App.class, d.jar and central directory fetched in one request: they follow each other
+        assertEquals(1, server.getRanges().size(), server.getRanges().toString());
+        assertEquals(release.length - manifest.getChunks().get(2).getOffset(), fetched);
+        assertEquals("BOOT-INF/classes/App.class", manifest.getChunks().get(2).getName());
+    }
+
+    @Test
+    void patchFailsOnFetchedChunkMismatch() throws IOException {
+        Map<String, byte[]> oldEntries = entries(1, "a.jar", "b.jar");
+        Map<String, byte[]> newEntries = new LinkedHashMap<>(oldEntries);
+        newEntries.put("b.jar", randomBytes(5, 30_000));
+        Path installed = tempDir.resolve("touchhome-core.jar");
+        Files.write(installed, createJar(oldEntries));
+        Path releasePath = tempDir.resolve("release.jar");
+        byte[] release = createJar(newEntries);
+        Files.write(releasePath, release);
+        byte[] served = release.clone();
+        served[served.length - 100] ^= 1;
+        server = new RangeStubServer(served);
+
+        IOException ex = assertThrows(IOException.class, () -> createPatcher().patch(installed, server.getUrl(),
+                JarEntriesManifest.create(releasePath), tempDir.resolve("tmp.jar"), DigestUtils.md5Hex(release), (value, message) -> {
+                }));
+        assertTrue(ex.getMessage().contains("hash mismatch"), ex.getMessage());
+    }
+
+    private static DeltaPatcher createPatcher() {
+        TouchHomeProperties properties = new TouchHomeProperties();
+        return new DeltaPatcher(new AppDownloader(properties, new TouchHomeExecutors(properties, new ThreadPoolTaskScheduler())));
+    }
+}
@@ -0,0 +1,155 @@
+package org.touchhome.app.install;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.touchhome.app.config.TouchHomeProperties;
+import org.touchhome.app.executor.TouchHomeExecutors;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.touchhome.app.install.TestJars.createJar;
+import static org.touchhome.app.install.TestJars.entries;
+
+/**
+ * Several peers and upstream on loopback serving same release.
+ */
+class PeerDownloaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final TouchHomeProperties properties = new TouchHomeProperties();
+    private final List<RangeStubServer> servers = new ArrayList<>();
+    private final List<Double> progress = Collections.synchronizedList(new ArrayList<>());
+    private TouchHomeExecutors executors;
+    private PeerDownloader peerDownloader;
+    private byte[] release;
+    private JarEntriesManifest manifest;
+    private Path tmpPath;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // 16 entries of ~50kB, 2 entries per batch
+        properties.getPeer().setBatchSizeKb(64);
+        executors = new TouchHomeExecutors(properties, new ThreadPoolTaskScheduler());
+        executors.init();
+        AppDownloader appDownloader = new AppDownloader(properties, executors);
+        peerDownloader = new PeerDownloader(appDownloader, executors, properties);
+        String[] names = new String[16];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = "BOOT-INF/lib/lib" + i + ".jar";
+        }
+        Map<String, byte[]> entries = entries(7, names);
+        release = createJar(entries);
+        Path releasePath = tempDir.resolve("release.jar");
+        Files.write(releasePath, release);
+        manifest = JarEntriesManifest.create(releasePath);
+        tmpPath = tempDir.resolve("touchhome-core_tmp.jar");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (RangeStubServer server : servers) {
+            server.close();
+        }
+        executors.destroy();
+    }
+
+    @Test
+    void fetchesBatchesFromAllPeersInParallel() throws IOException {
+        List<RangeStubServer> peers = Arrays.asList(server(), server(), server());
+        RangeStubServer upstream = server();
+
+        String sha256 = download(urls(peers), upstream);
+
+        assertEquals(DigestUtils.sha256Hex(release), sha256);
+        assertArrayEquals(release, Files.readAllBytes(tmpPath));
+        assertTrue(upstream.getRanges().isEmpty(), upstream.getRanges().toString());
+        int requests = 0;
+        for (RangeStubServer peer : peers) {
+            requests += peer.getRanges().size();
+        }
+        assertEquals(9, requests);
+        for (int i = 1; i < progress.size(); i++) {
+            assertTrue(progress.get(i) >= progress.get(i - 1), progress.toString());
+        }
+        assertEquals(100D, progress.get(progress.size() - 1));
+    }
+
+    @Test
+    void dropsCorruptedAndDeadPeers() throws IOException {
+        RangeStubServer good = server();
+        RangeStubServer corrupted = server().setCorrupt(true);
+        RangeStubServer dead = server();
+        dead.close();
+        RangeStubServer upstream = server();
+
+        String sha256 = download(urls(Arrays.asList(corrupted, dead, good)), upstream);
+
+        assertEquals(DigestUtils.sha256Hex(release), sha256);
+        assertArrayEquals(release, Files.readAllBytes(tmpPath));
+        // batch is returned to queue and peer is not asked again
+        assertEquals(1, corrupted.getRanges().size());
+        assertTrue(upstream.getRanges().isEmpty(), upstream.getRanges().toString());
+        // 8 batches of 2 entries and central directory, failed batch fetched again by good peer
+        assertEquals(10, good.getRanges().size() + corrupted.getRanges().size());
+    }
+
+    @Test
+    void fallsBackToUpstreamWhenAllPeersFail() throws IOException {
+        RangeStubServer corrupted = server().setCorrupt(true);
+        RangeStubServer cut = server().cut(100, 1000);
+        RangeStubServer upstream = server();
+
+        String sha256 = download(urls(Arrays.asList(corrupted, cut)), upstream);
+
+        assertEquals(DigestUtils.sha256Hex(release), sha256);
+        assertArrayEquals(release, Files.readAllBytes(tmpPath));
+        // each peer failed it's first batch
+        assertEquals(1, corrupted.getRanges().size());
+        assertEquals(1, cut.getRanges().size());
+        assertEquals(9, upstream.getRanges().size());
+    }
+
+    @Test
+    void failsWhenUpstreamCorrupted() throws IOException {
+        RangeStubServer upstream = server().setCorrupt(true);
+
+        IOException ex = assertThrows(IOException.class, () -> download(Collections.emptyList(), upstream));
+        assertTrue(ex.getMessage().contains("hash mismatch"), ex.getMessage());
+    }
+
+    private String download(List<String> peerUrls, RangeStubServer upstream) throws IOException {
+        return peerDownloader.download(manifest, peerUrls, upstream.getUrl(), tmpPath, DigestUtils.md5Hex(release),
+                (value, message) -> progress.add(value));
+    }
+
+    private RangeStubServer server() throws IOException {
+        RangeStubServer server = new RangeStubServer(release);
+        servers.add(server);
+        return server;
+    }
+
+    private static List<String> urls(List<RangeStubServer> servers) {
+        List<String> urls = new ArrayList<>();
+        for (RangeStubServer server : servers) {
+            urls.add(server.getUrl());
+        }
+        return urls;
+    }
+}
@@ -0,0 +1,127 @@
+package org.touchhome.app.install;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Http server of single file with Range support on plain sockets, one request per connection. Next 'cuts' responses
+ * close socket after 'cutAfter' bytes of body, the same as dropped connection in the middle of download.
+ */
+class RangeStubServer implements AutoCloseable {
+
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+    private final ServerSocket serverSocket;
+    private final byte[] content;
+    private final AtomicInteger cuts = new AtomicInteger();
+    private final List<String> ranges = new CopyOnWriteArrayList<>();
+    private volatile int cutAfter;
+    private volatile boolean acceptRanges = true;
+    private volatile boolean corrupt;
+
+    RangeStubServer(byte[] content) throws IOException {
+        this.content = content;
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "range-stub");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    String getUrl() {
+        return "http://127.0.0.1:" + serverSocket.getLocalPort() + "/file";
+    }
+
+    RangeStubServer cut(int count, int afterBytes) {
+        cutAfter = afterBytes;
+        cuts.set(count);
+        return this;
+    }
+
+    RangeStubServer setAcceptRanges(boolean acceptRanges) {
+        this.acceptRanges = acceptRanges;
+        return this;
+    }
+
+    // flip last byte of each response body
+    RangeStubServer setCorrupt(boolean corrupt) {
+        this.corrupt = corrupt;
+        return this;
+    }
+
+    // 'Range' header of each request, empty string for full file request
+    List<String> getRanges() {
+        return ranges;
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread thread = new Thread(() -> handle(socket), "range-stub-connection");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException ignore) {
+                // closed
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (Socket connection = socket) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.US_ASCII));
+            String range = null;
+            String line;
+            while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                if (line.regionMatches(true, 0, "Range:", 0, 6)) {
+                    range = line.substring(6).trim();
+                }
+            }
+            ranges.add(range == null ? "" : range);
+            Matcher matcher = range == null || !acceptRanges ? null : RANGE.matcher(range);
+            int from = 0;
+            int to = content.length;
+            StringBuilder headers = new StringBuilder();
+            if (matcher != null && matcher.matches()) {
+                from = Integer.parseInt(matcher.group(1));
+                to = matcher.group(2).isEmpty() ? content.length : Integer.parseInt(matcher.group(2)) + 1;
+                headers.append("HTTP/1.1 206 Partial Content\r\n")
+                        .append("Content-Range: bytes ").append(from).append("-").append(to - 1).append("/").append(content.length).append("\r\n");
+            } else {
+                headers.append("HTTP/1.1 200 OK\r\n");
+            }
+            headers.append("ETag: \"stub\"\r\nContent-Length: ").append(to - from).append("\r\nConnection: close\r\n\r\n");
+            int length = to - from;
+            // 'bytes=0-0' probe is never cut
+            if (length > 1 && cuts.getAndUpdate(value -> Math.max(0, value - 1)) > 0) {
+                length = Math.min(length, cutAfter);
+            }
+            OutputStream outputStream = connection.getOutputStream();
+            outputStream.write(headers.toString().getBytes(StandardCharsets.US_ASCII));
+            byte[] body = Arrays.copyOfRange(content, from, from + length);
+            if (corrupt && length > 0) {
+                body[length - 1] ^= 1;
+            }
+            outputStream.write(body);
+            outputStream.flush();
+        } catch (IOException ignore) {
+            // client gone
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.touchhome.app.install;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+final class TestJars {
+
+    private TestJars() {
+    }
+
+    static Map<String, byte[]> entries(int seed, String... names) {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            entries.put(names[i], randomBytes(seed * 100 + i, 40_000 + i * 1000));
+        }
+        return entries;
+    }
+
+    static byte[] randomBytes(int seed, int length) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    // stored entries with fixed time, so same content gives same local record bytes
+    static byte[] createJar(Map<String, byte[]> entries) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(outputStream)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                ZipEntry zipEntry = new ZipEntry(entry.getKey());
+                zipEntry.setMethod(ZipEntry.STORED);
+                zipEntry.setSize(entry.getValue().length);
+                CRC32 crc = new CRC32();
+                crc.update(entry.getValue());
+                zipEntry.setCrc(crc.getValue());
+                zipEntry.setTime(1_600_000_000_000L);
+                zip.putNextEntry(zipEntry);
+                zip.write(entry.getValue());
+                zip.closeEntry();
+            }
+        }
+        return outputStream.toByteArray();
+    }
+}
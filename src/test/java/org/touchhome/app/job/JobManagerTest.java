@@ -0,0 +1,119 @@
+package org.touchhome.app.job;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.touchhome.app.config.TouchHomeProperties;
+import org.touchhome.app.executor.TouchHomeExecutors;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class JobManagerTest {
+
+    private final TouchHomeProperties properties = new TouchHomeProperties();
+    private final List<Message<?>> outbound = Collections.synchronizedList(new ArrayList<>());
+    private final List<Message<?>> broker = Collections.synchronizedList(new ArrayList<>());
+    private ThreadPoolTaskScheduler scheduler;
+    private TouchHomeExecutors executors;
+    private JobManager jobManager;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+        executors = new TouchHomeExecutors(properties, scheduler);
+        executors.init();
+        SimpMessagingTemplate brokerTemplate = new SimpMessagingTemplate((message, timeout) -> broker.add(message));
+        brokerTemplate.setMessageConverter(new MappingJackson2MessageConverter());
+        jobManager = new JobManager(properties, executors, null, brokerTemplate, scheduler, mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(jobManager, "clientOutboundChannel", (MessageChannel) (message, timeout) -> outbound.add(message));
+        jobManager.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jobManager.destroy();
+        executors.destroy();
+        scheduler.shutdown();
+    }
+
+    @Test
+    void replaySentOnlyToSubscribingSession() throws Exception {
+        jobManager.call(JobType.keystore, "Create keystore", job -> {
+            job.progress(10, "a");
+            job.progress(20, "b");
+            jobManager.onSubscribe(subscribeEvent(job.getId(), "session-1", "sub-7", "2"));
+            return null;
+        });
+
+        assertEquals(1, outbound.size());
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(outbound.get(0));
+        assertEquals("session-1", headers.getSessionId());
+        assertEquals("sub-7", headers.getSubscriptionId());
+        String payload = new String((byte[]) outbound.get(0).getPayload());
+        // pending(1), running(2), a(3), b(4)
+        assertTrue(payload.contains("\"seq\":3,"), payload);
+        assertTrue(payload.contains("\"message\":\"b\""), payload);
+        assertFalse(payload.contains("\"seq\":2,"), payload);
+        // periodic flush to all subscribers is not addressed to session
+        synchronized (broker) {
+            for (Message<?> message : broker) {
+                assertNull(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+            }
+        }
+    }
+
+    @Test
+    void badFromSeqReplaysWholeHistory() throws Exception {
+        jobManager.call(JobType.keystore, "Create keystore", job -> {
+            jobManager.onSubscribe(subscribeEvent(job.getId(), "session-1", "sub-1", "not-a-number"));
+            jobManager.onSubscribe(subscribeEvent(job.getId(), "session-2", "sub-1", "-5"));
+            return null;
+        });
+
+        assertEquals(2, outbound.size());
+        for (Message<?> message : outbound) {
+            String payload = new String((byte[]) message.getPayload());
+            assertTrue(payload.contains("\"seq\":1,"), payload);
+        }
+    }
+
+    @Test
+    void unknownJobIsIgnored() {
+        jobManager.onSubscribe(subscribeEvent("missing", "session-1", "sub-1", null));
+        jobManager.onSubscribe(subscribeEvent(null, "session-1", "sub-1", null));
+        assertTrue(outbound.isEmpty());
+    }
+
+    private static SessionSubscribeEvent subscribeEvent(String jobId, String sessionId, String subscriptionId, String fromSeq) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setDestination(jobId == null ? "/smart-dest-ws-global" : JobManager.DESTINATION + jobId);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        if (fromSeq != null) {
+            accessor.setNativeHeader("fromSeq", fromSeq);
+        }
+        Message<byte[]> message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        return new SessionSubscribeEvent(new Object(), message);
+    }
+}
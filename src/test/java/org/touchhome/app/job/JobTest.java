@@ -0,0 +1,123 @@
+package org.touchhome.app.job;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JobTest {
+
+    @Test
+    void cancelInterruptsRunnerAndRunsHooks() throws Exception {
+        Job job = createJob(10);
+        AtomicInteger hookCalls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> interrupted = executor.submit(() -> {
+                job.start();
+                job.addCancelHook(hookCalls::incrementAndGet);
+                started.countDown();
+                try {
+                    TimeUnit.SECONDS.sleep(10);
+                    return false;
+                } catch (InterruptedException ex) {
+                    return true;
+                } finally {
+                    assertThrows(CancellationException.class, () -> job.progress(50, "step"));
+                    job.finish(null);
+                }
+            });
+            started.await();
+            assertTrue(job.cancel());
+
+            assertTrue(interrupted.get(5, TimeUnit.SECONDS));
+            assertEquals(1, hookCalls.get());
+            assertEquals(JobState.CANCELLED, job.getState());
+            // pool thread is not left interrupted
+            assertFalse(executor.submit(() -> Thread.currentThread().isInterrupted()).get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void cancelRacingFinishNeverInterruptsNextTask() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            for (int i = 0; i < 2000; i++) {
+                Job job = createJob(10);
+                CountDownLatch started = new CountDownLatch(1);
+                executor.submit(() -> {
+                    job.start();
+                    started.countDown();
+                    job.finish(null);
+                });
+                started.await();
+                job.cancel();
+                Future<Boolean> next = executor.submit(() -> Thread.interrupted());
+                assertFalse(next.get(), "next task interrupted at iteration " + i);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void hookAddedAfterCancelRunsImmediately() {
+        Job job = createJob(10);
+        job.start();
+        job.cancel();
+        AtomicInteger hookCalls = new AtomicInteger();
+
+        job.addCancelHook(hookCalls::incrementAndGet);
+
+        assertEquals(1, hookCalls.get());
+        job.finish(null);
+        assertEquals(JobState.CANCELLED, job.getState());
+    }
+
+    @Test
+    void cancelPendingJob() {
+        Job job = createJob(10);
+        assertTrue(job.cancel());
+        assertFalse(job.start());
+        assertEquals(JobState.CANCELLED, job.getState());
+    }
+
+    @Test
+    void eventsReplayFromSequence() {
+        Job job = createJob(4);
+        job.start();
+        job.progress(10, "a");
+        job.progress(20, "b");
+        job.progress(30, "c");
+
+        // pending, running, a, b, c - first one evicted
+        JobEvents all = job.getEvents(0);
+        assertTrue(all.isTruncated());
+        assertEquals(4, all.getEvents().size());
+        assertEquals(2, all.getEvents().get(0).getSeq());
+
+        JobEvents tail = job.getEvents(3);
+        assertFalse(tail.isTruncated());
+        assertEquals(2, tail.getEvents().size());
+        assertEquals("b", tail.getEvents().get(0).getMessage());
+        assertEquals(0, job.getEvents(job.getLastSeq()).getEvents().size());
+    }
+
+    private static Job createJob(int historySize) {
+        return new Job(JobType.keystore, "test", historySize, null, job -> {
+        });
+    }
+}
@@ -0,0 +1,78 @@
+package org.touchhome.app.loadtest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.touchhome.common.util.CommonUtils.OBJECT_MAPPER;
+
+/**
+ * Boots app with 'lowmem' profile in forked jvm with lowmem options and native memory tracking(loadtest.lowmem.jvmArgs
+ * of pom.xml) and runs LowMemoryTest for a short time with simulated installs. Memory budget is LowMemoryTest one,
+ * latency and throughput thresholds relaxed as build machine is shared.
+ */
+@EnabledOnOs(OS.LINUX)
+class LowMemoryProfileTest {
+
+    private static final long TIMEOUT_SEC = 180;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void heapAndNativeMemoryStayInBudgetDuringInstall() throws Exception {
+        String jvmArgs = System.getProperty("loadtest.lowmem.jvmArgs");
+        assumeTrue(jvmArgs != null, "loadtest.lowmem.jvmArgs set by surefire only");
+        Path report = tempDir.resolve("loadtest-lowmem-result.json");
+        Path output = tempDir.resolve("loadtest-lowmem.log");
+
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(Arrays.asList(jvmArgs.trim().split("\\s+")));
+        command.addAll(Arrays.asList("-Ddevelopment=true",
+                "-Dloadtest.report=" + report,
+                "-Dloadtest.warmupSec=2",
+                "-Dloadtest.durationSec=15",
+                "-Dloadtest.httpClients=2",
+                "-Dloadtest.stompClients=1",
+                "-Dloadtest.minThroughput=1",
+                "-Dloadtest.maxP99Ms=5000",
+                "-Dloadtest.maxP999Ms=10000",
+                "-Dloadtest.maxErrorRate=0.01",
+                "-cp", System.getProperty("surefire.test.class.path", System.getProperty("java.class.path")),
+                LowMemoryTest.class.getName()));
+        ProcessBuilder processBuilder = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(output.toFile());
+        processBuilder.environment().put("MALLOC_ARENA_MAX", "2");
+        Process process = processBuilder.start();
+        if (!process.waitFor(TIMEOUT_SEC, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            fail("lowmem load test not finished in " + TIMEOUT_SEC + "s\n" + tail(output));
+        }
+
+        assertTrue(Files.exists(report), "no report, exit code " + process.exitValue() + "\n" + tail(output));
+        LoadTestReport loadTestReport = OBJECT_MAPPER.readValue(report.toFile(), LoadTestReport.class);
+        assertTrue(loadTestReport.getFailures().isEmpty(), loadTestReport.getFailures() + "\n" + tail(output));
+        assertTrue(loadTestReport.getInstalls() > 0);
+        assertTrue(loadTestReport.getNativeCommittedMb() > 0, "native memory tracking not enabled");
+        assertEquals(0, process.exitValue());
+    }
+
+    private static String tail(Path output) throws Exception {
+        List<String> lines = Files.exists(output) ? Files.readAllLines(output, StandardCharsets.UTF_8) : new ArrayList<>();
+        return String.join("\n", lines.subList(Math.max(0, lines.size() - 40), lines.size()));
+    }
+}
@@ -0,0 +1,100 @@
+package org.touchhome.app.logs;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.touchhome.app.config.TouchHomeProperties;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogFileServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final TouchHomeProperties properties = new TouchHomeProperties();
+    private final LogFileService logFileService = new LogFileService(properties);
+    private final LogFileService.Tail tail = new LogFileService.Tail();
+
+    @AfterEach
+    void tearDown() throws IOException {
+        tail.close();
+    }
+
+    @Test
+    void tailReturnsAppendedLines() throws IOException {
+        Path path = tempDir.resolve("app.log");
+        append(path, "first");
+        assertEquals(Collections.singletonList("first"), logFileService.tail(path, tail, null).getLines());
+
+        append(path, "second", "third");
+
+        LogPage logPage = logFileService.tail(path, tail, null);
+        assertEquals(Arrays.asList("second", "third"), logPage.getLines());
+        assertFalse(logPage.isRotated());
+    }
+
+    @Test
+    void tailDrainsRotatedFileBeforeSwitching() throws IOException {
+        Path path = tempDir.resolve("app.log");
+        append(path, "first");
+        logFileService.tail(path, tail, null);
+        // written after last read, then file rolled over and deleted by compression
+        append(path, "before rollover");
+        Files.move(path, tempDir.resolve("app-1.log"));
+        Files.delete(tempDir.resolve("app-1.log"));
+        append(path, "after rollover");
+
+        LogPage logPage = logFileService.tail(path, tail, null);
+
+        assertTrue(logPage.isRotated());
+        assertEquals(Arrays.asList("before rollover", "after rollover"), logPage.getLines());
+        append(path, "next");
+        assertEquals(Collections.singletonList("next"), logFileService.tail(path, tail, null).getLines());
+    }
+
+    @Test
+    void tailRestartsTruncatedFile() throws IOException {
+        Path path = tempDir.resolve("app.log");
+        append(path, "first line", "second line");
+        logFileService.tail(path, tail, null);
+        Files.write(path, "new\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.TRUNCATE_EXISTING);
+
+        LogPage logPage = logFileService.tail(path, tail, null);
+
+        assertTrue(logPage.isRotated());
+        assertEquals(Collections.singletonList("new"), logPage.getLines());
+    }
+
+    @Test
+    void tailSkipsBacklogOverBatchLimit() throws IOException {
+        properties.getLogs().setMaxBatchKb(1);
+        Path path = tempDir.resolve("app.log");
+        append(path, "first");
+        logFileService.tail(path, tail, null);
+        String[] lines = new String[200];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = String.format("line %03d", i);
+        }
+        append(path, lines);
+
+        LogPage logPage = logFileService.tail(path, tail, null);
+
+        assertEquals(200 * 9 - 1024, logPage.getSkippedBytes());
+        assertEquals("line 199", logPage.getLines().get(logPage.getLines().size() - 1));
+    }
+
+    private static void append(Path path, String... lines) throws IOException {
+        Files.write(path, Arrays.asList(lines), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,81 @@
+package org.touchhome.app.logs;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.async.EventRoute;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Dropped counters are static, so asserted as difference.
+ */
+class LogQueueFullPolicyTest {
+
+    private static final List<Level> LEVELS = Arrays.asList(Level.TRACE, Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR, Level.FATAL);
+    // appender thread id which is never current thread
+    private static final long BACKGROUND_THREAD_ID = -1;
+
+    @BeforeEach
+    void setUp() {
+        LogQueueFullPolicy.drainDropped();
+    }
+
+    @Test
+    void blockEnqueuesAllLevels() {
+        LogQueueFullPolicy policy = new LogQueueFullPolicy(LogQueueFullPolicy.Mode.BLOCK);
+        for (Level level : LEVELS) {
+            assertEquals(EventRoute.ENQUEUE, policy.getRoute(BACKGROUND_THREAD_ID, level), level.name());
+        }
+        assertEquals(0, LogQueueFullPolicy.drainDropped());
+    }
+
+    @Test
+    void dropDebugDiscardsDebugAndTrace() {
+        LogQueueFullPolicy policy = new LogQueueFullPolicy(LogQueueFullPolicy.Mode.DROP_DEBUG);
+        long totalDropped = LogQueueFullPolicy.getTotalDropped();
+
+        assertEquals(EventRoute.DISCARD, policy.getRoute(BACKGROUND_THREAD_ID, Level.TRACE));
+        assertEquals(EventRoute.DISCARD, policy.getRoute(BACKGROUND_THREAD_ID, Level.DEBUG));
+        for (Level level : LEVELS.subList(2, LEVELS.size())) {
+            assertEquals(EventRoute.ENQUEUE, policy.getRoute(BACKGROUND_THREAD_ID, level), level.name());
+        }
+
+        assertEquals(2, LogQueueFullPolicy.drainDropped());
+        assertEquals(totalDropped + 2, LogQueueFullPolicy.getTotalDropped());
+    }
+
+    @Test
+    void summarizeDiscardsInfoAndLessSevere() {
+        LogQueueFullPolicy policy = new LogQueueFullPolicy(LogQueueFullPolicy.Mode.SUMMARIZE);
+        long totalDropped = LogQueueFullPolicy.getTotalDropped();
+
+        for (Level level : LEVELS.subList(0, 3)) {
+            assertEquals(EventRoute.DISCARD, policy.getRoute(BACKGROUND_THREAD_ID, level), level.name());
+        }
+        for (Level level : LEVELS.subList(3, LEVELS.size())) {
+            assertEquals(EventRoute.ENQUEUE, policy.getRoute(BACKGROUND_THREAD_ID, level), level.name());
+        }
+
+        assertEquals(3, LogQueueFullPolicy.drainDropped());
+        // drained counter restarts, total keeps counting
+        assertEquals(0, LogQueueFullPolicy.drainDropped());
+        assertEquals(totalDropped + 3, LogQueueFullPolicy.getTotalDropped());
+    }
+
+    @Test
+    void appenderThreadLogsSynchronously() throws InterruptedException {
+        AtomicReference<EventRoute> route = new AtomicReference<>();
+        Thread appenderThread = new Thread(() -> route.set(new LogQueueFullPolicy(LogQueueFullPolicy.Mode.SUMMARIZE)
+                .getRoute(Thread.currentThread().getId(), Level.DEBUG)));
+        appenderThread.start();
+        appenderThread.join();
+
+        assertEquals(EventRoute.SYNCHRONOUS, route.get());
+        assertEquals(0, LogQueueFullPolicy.drainDropped());
+    }
+}
@@ -0,0 +1,104 @@
+package org.touchhome.app.progress;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.touchhome.app.config.TouchHomeProperties;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProgressPublisherTest {
+
+    private final TouchHomeProperties properties = new TouchHomeProperties();
+    private final List<Message<?>> outbound = Collections.synchronizedList(new ArrayList<>());
+    private final List<Message<?>> broker = Collections.synchronizedList(new ArrayList<>());
+    private ThreadPoolTaskScheduler scheduler;
+    private ProgressPublisher progressPublisher;
+
+    @BeforeEach
+    void setUp() {
+        // flushed by test only
+        properties.getProgress().setFlushIntervalMs(3_600_000);
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+        SimpMessagingTemplate brokerTemplate = new SimpMessagingTemplate((message, timeout) -> broker.add(message));
+        brokerTemplate.setMessageConverter(new MappingJackson2MessageConverter());
+        progressPublisher = new ProgressPublisher(brokerTemplate, scheduler, properties);
+        ReflectionTestUtils.setField(progressPublisher, "clientOutboundChannel", (MessageChannel) (message, timeout) -> outbound.add(message));
+        progressPublisher.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        progressPublisher.destroy();
+        scheduler.shutdown();
+    }
+
+    @Test
+    void lateSubscriberReceivesLastStateOnlyInOwnSession() {
+        progressPublisher.publish(new Progress(Progress.Type.init, 10, "a"));
+        progressPublisher.publish(new Progress(Progress.Type.init, 20, "b"));
+        progressPublisher.flush();
+        broker.clear();
+
+        progressPublisher.onSubscribe(subscribeEvent(ProgressPublisher.DESTINATION, "session-2", "sub-3"));
+        progressPublisher.flush();
+
+        assertTrue(broker.isEmpty(), broker.toString());
+        assertEquals(1, outbound.size());
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(outbound.get(0));
+        assertEquals("session-2", headers.getSessionId());
+        assertEquals("sub-3", headers.getSubscriptionId());
+        assertEquals(ProgressPublisher.DESTINATION, headers.getDestination());
+        String payload = new String((byte[]) outbound.get(0).getPayload());
+        assertTrue(payload.contains("\"title\":\"b\""), payload);
+        ProgressPublisher.Stats stats = progressPublisher.getStats();
+        assertEquals(1, stats.getSent());
+        assertEquals(1, stats.getReplayed());
+        assertEquals(1, stats.getMerged());
+    }
+
+    @Test
+    void subscriptionToOtherDestinationIsIgnored() {
+        progressPublisher.publish(new Progress(Progress.Type.init, 10, "a"));
+        progressPublisher.flush();
+
+        progressPublisher.onSubscribe(subscribeEvent(ProgressPublisher.DESTINATION + "-job-1", "session-2", "sub-1"));
+
+        assertTrue(outbound.isEmpty());
+    }
+
+    @Test
+    void nothingReplayedBeforeFirstProgress() {
+        progressPublisher.onSubscribe(subscribeEvent(ProgressPublisher.DESTINATION, "session-1", "sub-1"));
+        progressPublisher.flush();
+
+        assertTrue(outbound.isEmpty());
+        assertTrue(broker.isEmpty());
+    }
+
+    private static SessionSubscribeEvent subscribeEvent(String destination, String sessionId, String subscriptionId) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setDestination(destination);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        Message<byte[]> message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        return new SessionSubscribeEvent(new Object(), message);
+    }
+}
@@ -0,0 +1,46 @@
+package org.touchhome.app.rest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.touchhome.app.install.ArtifactStore;
+import org.touchhome.app.install.PeerDiscovery;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class PeerControllerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void servesArtifactRange() throws Exception {
+        byte[] content = new byte[10_000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        Path artifact = tempDir.resolve("release.jar");
+        Files.write(artifact, content);
+        ArtifactStore artifactStore = mock(ArtifactStore.class);
+        when(artifactStore.findFile("sha")).thenReturn(artifact);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new PeerController(mock(PeerDiscovery.class), artifactStore)).build();
+
+        mockMvc.perform(get("/rest/peer/artifact/sha").header("Range", "bytes=1000-1999"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 1000-1999/10000"))
+                .andExpect(content().bytes(Arrays.copyOfRange(content, 1000, 2000)));
+        mockMvc.perform(get("/rest/peer/artifact/sha"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(content));
+    }
+}
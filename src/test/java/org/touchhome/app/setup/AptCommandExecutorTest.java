@@ -0,0 +1,103 @@
+package org.touchhome.app.setup;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.touchhome.app.hardware.metrics.HardwareMetrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs fake apt-get which prints recorded transcript in language of messages locale, the same as gettext does:
+ * english for C locale, german otherwise. Device locale given by LANG of command.
+ */
+@EnabledOnOs(OS.LINUX)
+class AptCommandExecutorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final HardwareMetrics hardwareMetrics = new HardwareMetrics();
+    private ThreadPoolTaskScheduler scheduler;
+    private AptCommandExecutor aptCommandExecutor;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+        aptCommandExecutor = new AptCommandExecutor(scheduler, hardwareMetrics);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void progressUnderGermanLocale() throws Exception {
+        Path aptGet = createFakeAptGet("install-postgresql.txt", "install-postgresql.de.txt");
+        List<Double> progress = new ArrayList<>();
+        List<String> messages = new ArrayList<>();
+
+        aptCommandExecutor.execute("LANG=de_DE.UTF-8 " + aptGet + " -y install postgresql", 60, (value, message) -> {
+            progress.add(value);
+            messages.add(message);
+        });
+
+        assertEquals(99, progress.get(progress.size() - 1), 0.001);
+        String lastMessage = messages.get(messages.size() - 1);
+        assertTrue(lastMessage.startsWith("Setting up postgresql (12/12)"), lastMessage);
+        assertEquals(1, hardwareMetrics.get("Apt command").getStats().getCount());
+    }
+
+    @Test
+    void germanTranscriptGivesNoProgress() throws IOException {
+        AptProgressParser parser = new AptProgressParser();
+        for (String line : readTranscript("install-postgresql.de.txt")) {
+            parser.onLine(line);
+        }
+        assertEquals(0, parser.getProgress(), 0.001);
+    }
+
+    private Path createFakeAptGet(String englishTranscript, String germanTranscript) throws IOException {
+        Path english = copyTranscript(englishTranscript);
+        Path german = copyTranscript(germanTranscript);
+        Path aptGet = tempDir.resolve("apt-get");
+        Files.write(aptGet, Arrays.asList("#!/bin/sh",
+                "if [ \"${LC_ALL:-${LC_MESSAGES:-$LANG}}\" = C ]; then cat " + english + "; else cat " + german + "; fi"),
+                StandardCharsets.UTF_8);
+        Files.setPosixFilePermissions(aptGet, PosixFilePermissions.fromString("rwxr-xr-x"));
+        return aptGet;
+    }
+
+    private Path copyTranscript(String name) throws IOException {
+        Path path = tempDir.resolve(name);
+        try (InputStream stream = AptCommandExecutorTest.class.getResourceAsStream("/apt/" + name)) {
+            Files.copy(stream, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return path;
+    }
+
+    private static List<String> readTranscript(String name) throws IOException {
+        try (InputStream stream = AptCommandExecutorTest.class.getResourceAsStream("/apt/" + name)) {
+            return IOUtils.readLines(stream, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.touchhome.app.setup;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Replays recorded apt-get transcripts from 'apt/' test resources.
+ */
+class AptProgressParserTest {
+
+    @Test
+    void installTranscript() throws IOException {
+        AptProgressParser parser = new AptProgressParser();
+        double lastProgress = 0;
+        for (String line : readTranscript("install-postgresql.txt")) {
+            parser.onLine(line);
+            assertTrue(parser.getProgress() >= lastProgress, line);
+            lastProgress = parser.getProgress();
+            if (line.startsWith("Fetched ")) {
+                // all 35.2 MB of archives downloaded
+                assertEquals(40, parser.getProgress(), 0.5);
+            } else if (line.startsWith("Unpacking sysstat")) {
+                assertEquals(70, parser.getProgress(), 0.5);
+                assertEquals("Unpacking sysstat (12/12)", parser.getMessage());
+            }
+        }
+        assertEquals(99, parser.getProgress(), 0.001);
+        assertEquals("Setting up postgresql (12/12)", parser.getMessage());
+    }
+
+    @Test
+    void updateTranscriptWithoutTotals() throws IOException {
+        AptProgressParser parser = new AptProgressParser();
+        for (String line : readTranscript("update.txt")) {
+            parser.onLine(line);
+        }
+        assertEquals(100D * 5 / 15, parser.getProgress(), 0.001);
+        assertEquals("Fetching package lists 5", parser.getMessage());
+    }
+
+    @Test
+    void statusFdTranscriptWithMultiarchPackages() throws IOException {
+        AptProgressParser parser = new AptProgressParser();
+        List<String> lines = readTranscript("status-fd.txt");
+        for (String line : lines.subList(0, 4)) {
+            parser.onLine(line);
+        }
+        assertEquals(40, parser.getProgress(), 0.001);
+        assertEquals("Retrieving file 3 of 3", parser.getMessage());
+
+        parser.onLine(lines.get(6));
+        assertEquals("Unpacking libpq5:arm64", parser.getMessage());
+        assertEquals(40 + 0.6 * 33.3333, parser.getProgress(), 0.001);
+
+        for (String line : lines.subList(7, lines.size())) {
+            parser.onLine(line);
+        }
+        assertEquals(40 + 0.6 * 83.3333, parser.getProgress(), 0.001);
+        assertEquals("Running dpkg", parser.getMessage());
+    }
+
+    @Test
+    void ignoresUnknownLinesAndNeverReachesHundred() {
+        AptProgressParser parser = new AptProgressParser();
+        parser.onLine("0 upgraded, 1 newly installed, 0 to remove and 0 not upgraded.");
+        parser.onLine("Reading package lists...");
+        assertEquals(0, parser.getProgress(), 0.001);
+        assertEquals("", parser.getMessage());
+        parser.onLine("Unpacking sysstat (12.5.2-2) ...");
+        parser.onLine("Setting up sysstat (12.5.2-2) ...");
+        assertEquals(99, parser.getProgress(), 0.001);
+    }
+
+    private static List<String> readTranscript(String name) throws IOException {
+        try (InputStream stream = AptProgressParserTest.class.getResourceAsStream("/apt/" + name)) {
+            return IOUtils.readLines(stream, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.touchhome.app.setup;
+
+import org.junit.jupiter.api.Test;
+import org.touchhome.app.hardware.shell.ShellResult;
+import org.touchhome.common.exception.ServerException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalPostgresTest {
+
+    private static final String PASSWORD = "s3cret-pass";
+
+    @Test
+    void checkPasswordRejectsWeakAndUnquotablePasswords() {
+        for (String password : Arrays.asList(null, "", "short", "password", "with space", "quote'secret", "dollar$secret",
+                "back`tick`secret", "back\\slash\\secret")) {
+            ServerException ex = assertThrows(ServerException.class,
+                    () -> LocalPostgres.checkPassword(password, "touchhome.postgres.password"), password);
+            assertTrue(ex.getMessage().startsWith("touchhome.postgres.password is not configured"), ex.getMessage());
+        }
+        assertEquals(PASSWORD, LocalPostgres.checkPassword(PASSWORD, "touchhome.postgres.password"));
+    }
+
+    @Test
+    void setPasswordRunsAlterRole() {
+        StringBuilder executed = new StringBuilder();
+        createLocalPostgres(sql -> {
+            executed.append(sql);
+            return new ShellResult(0, Collections.emptyList(), Collections.emptyList());
+        }).setPassword("postgres", PASSWORD);
+
+        assertEquals("ALTER ROLE postgres WITH PASSWORD '" + PASSWORD + "'", executed.toString());
+    }
+
+    @Test
+    void setPasswordErrorsNeverContainPassword() {
+        // psql prints failed statement
+        LocalPostgres failed = createLocalPostgres(sql -> new ShellResult(1, Collections.emptyList(),
+                Arrays.asList("ERROR:  role \"postgres\" does not exist", "STATEMENT:  " + sql)));
+        LocalPostgres timedOut = createLocalPostgres(sql -> {
+            throw new ServerException("Command 'sudo -u postgres psql -tAc \"" + sql + "\"' not finished in 60 sec");
+        });
+
+        for (LocalPostgres localPostgres : Arrays.asList(failed, timedOut)) {
+            ServerException ex = assertThrows(ServerException.class, () -> localPostgres.setPassword("postgres", PASSWORD));
+            assertTrue(ex.getMessage().startsWith("Unable to set password of role <postgres>"), ex.getMessage());
+            assertFalse(ex.getMessage().contains(PASSWORD), ex.getMessage());
+        }
+    }
+
+    private static LocalPostgres createLocalPostgres(Function<String, ShellResult> psql) {
+        return new LocalPostgres(null, null, null) {
+            @Override
+            public ShellResult sql(String sql, boolean ignoreOnError) {
+                return psql.apply(sql);
+            }
+        };
+    }
+}
@@ -0,0 +1,88 @@
+package org.touchhome.app.setup;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PostgresConfigFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void editsKeepLayoutAndComments() throws IOException {
+        Path path = write(
+                "# - Memory -",
+                "shared_buffers = 128MB\t\t\t# min 128kB",
+                "#work_mem = 4MB\t\t\t\t# min 64kB",
+                "#work_mem = 8MB",
+                "  listen_addresses = 'localhost'   # what IP address(es) to listen on;",
+                "shared_buffers = 256MB",
+                "include_dir = 'conf.d'");
+        PostgresConfigFile configFile = PostgresConfigFile.read(path);
+
+        // last active line is effective one
+        assertEquals("256MB", configFile.get("shared_buffers"));
+        assertEquals("'localhost'", configFile.get("listen_addresses"));
+        assertNull(configFile.get("work_mem"));
+
+        configFile.set("shared_buffers", "512MB");
+        configFile.set("work_mem", "6553kB");
+        configFile.set("listen_addresses", "'*'");
+        configFile.set("hot_standby", "on");
+        configFile.write(path);
+
+        assertEquals(Arrays.asList(
+                "# - Memory -",
+                "shared_buffers = 128MB\t\t\t# min 128kB",
+                "work_mem = 6553kB\t\t\t\t# min 64kB",
+                "#work_mem = 8MB",
+                "  listen_addresses = '*'   # what IP address(es) to listen on;",
+                "shared_buffers = 512MB",
+                "include_dir = 'conf.d'",
+                "hot_standby = on"), Files.readAllLines(path, StandardCharsets.UTF_8));
+        assertEquals("512MB", PostgresConfigFile.read(path).get("shared_buffers"));
+    }
+
+    @Test
+    void parsesQuotedValues() throws IOException {
+        Path path = write("log_line_prefix = '%m [%p] ''q'' # not comment' # comment",
+                "search_path = '\"$user\", public'#comment");
+        PostgresConfigFile configFile = PostgresConfigFile.read(path);
+
+        assertEquals("'%m [%p] ''q'' # not comment'", configFile.get("log_line_prefix"));
+        assertEquals("'\"$user\", public'", configFile.get("search_path"));
+    }
+
+    @Test
+    void writeKeepsOriginalOnce() throws IOException {
+        Path path = write("max_connections = 100");
+        PostgresConfigFile configFile = PostgresConfigFile.read(path);
+        configFile.set("max_connections", "20");
+        configFile.write(path);
+        configFile.set("max_connections", "30");
+        configFile.write(path);
+
+        Path origPath = path.resolveSibling("postgresql.conf.orig");
+        assertEquals(Arrays.asList("max_connections = 100"), Files.readAllLines(origPath, StandardCharsets.UTF_8));
+        assertEquals(Arrays.asList("max_connections = 30"), Files.readAllLines(path, StandardCharsets.UTF_8));
+        assertFalse(Files.exists(path.resolveSibling("postgresql.conf.tmp")));
+    }
+
+    private Path write(String... lines) throws IOException {
+        Path path = tempDir.resolve("postgresql.conf");
+        List<String> content = Arrays.asList(lines);
+        Files.write(path, content, StandardCharsets.UTF_8);
+        return path;
+    }
+}
@@ -0,0 +1,365 @@
+package org.touchhome.app.setup;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.touchhome.app.config.TouchHomeProperties;
+import org.touchhome.app.executor.TouchHomeExecutors;
+import org.touchhome.app.hardware.metrics.HardwareMetrics;
+import org.touchhome.app.hardware.shell.ShellResult;
+import org.touchhome.app.hardware.shell.ShellSessionPool;
+import org.touchhome.app.job.Job;
+import org.touchhome.app.job.JobManager;
+import org.touchhome.app.job.JobState;
+import org.touchhome.app.job.JobType;
+import org.touchhome.app.progress.ProgressPublisher;
+import org.touchhome.common.exception.ServerException;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Replica bootstrap of postgresql cluster in temporary directory started by pg_ctl on loopback. Binaries are taken
+ * from -DpgBin or newest /usr/lib/postgresql/VERSION/bin, tests are skipped without them. Under root postgresql runs
+ * as 'nobody'. Failure cases replace pg_isready and pg_basebackup by scripts, full bootstrap needs real client binaries.
+ */
+@EnabledOnOs(OS.LINUX)
+class PostgresReplicaBootstrapTest {
+
+    private static final String PASSWORD = "replica-secret";
+    private static final Path BIN_PATH = findBinPath();
+    private static final boolean ROOT = "root".equals(System.getProperty("user.name"));
+    private static final String MARKER = "previous-cluster";
+
+    @TempDir
+    Path tempDir;
+
+    private final TouchHomeProperties properties = new TouchHomeProperties();
+    private final List<Double> progress = Collections.synchronizedList(new ArrayList<>());
+    private final List<TestPostgres> clusters = new ArrayList<>();
+    private ShellSessionPool shellSessionPool;
+    private TestPostgres local;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        assumeTrue(BIN_PATH != null && Files.exists(BIN_PATH.resolve("pg_ctl")), "postgresql binaries not found");
+        Files.setPosixFilePermissions(tempDir, PosixFilePermissions.fromString("rwxr-xr-x"));
+        properties.getPostgres().setReplicationPassword(PASSWORD);
+        properties.getPostgres().setReplicaMaxRateKbs(0);
+        shellSessionPool = new ShellSessionPool(properties, null, new HardwareMetrics());
+        shellSessionPool.init();
+        local = createCluster("local");
+        local.start();
+        Files.write(local.getDataPath().resolve(MARKER), new byte[0]);
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (TestPostgres cluster : clusters) {
+            cluster.stopQuietly();
+        }
+        if (shellSessionPool != null) {
+            shellSessionPool.destroy();
+        }
+    }
+
+    @Test
+    void rejectsDefaultPassword() {
+        properties.getPostgres().setReplicationPassword("password");
+
+        assertThrows(ServerException.class, () -> createBootstrap().bootstrap("127.0.0.1", 5432, this::onProgress));
+
+        assertTrue(local.isRunning());
+        assertTrue(Files.exists(local.getDataPath().resolve(MARKER)));
+    }
+
+    @Test
+    void restoresPreviousClusterWhenBaseBackupFails() throws IOException {
+        local.toolsPath = createTools("echo 'pg_basebackup: error: connection refused' >&2; exit 1");
+
+        ServerException ex = assertThrows(ServerException.class,
+                () -> createBootstrap().bootstrap("127.0.0.1", 5432, this::onProgress));
+
+        assertTrue(ex.getMessage().contains("connection refused"), ex.getMessage());
+        assertPreviousClusterRestored();
+    }
+
+    @Test
+    void restoresPreviousClusterWhenJobCancelled() throws Exception {
+        // written by pg_basebackup script running as cluster owner
+        Path started = local.path.resolve("started");
+        local.toolsPath = createTools("touch " + started + "; exec sleep 60");
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+        TouchHomeExecutors executors = new TouchHomeExecutors(properties, scheduler);
+        executors.init();
+        JobManager jobManager = new JobManager(properties, executors, mock(ProgressPublisher.class),
+                new SimpMessagingTemplate((message, timeout) -> true), scheduler, mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(jobManager, "clientOutboundChannel", (MessageChannel) (message, timeout) -> true);
+        jobManager.init();
+        try {
+            PostgresReplicaBootstrap bootstrap = createBootstrap();
+            Job job = jobManager.submit(JobType.init, "Bootstrap replica", j -> bootstrap.bootstrap("127.0.0.1", 5432, j));
+            assertTrue(waitFor(() -> Files.exists(started), 30), "pg_basebackup not started");
+
+            jobManager.cancel(job.getId());
+
+            assertTrue(waitFor(() -> job.getState().isFinished(), 60), "job not finished");
+            assertEquals(JobState.CANCELLED, job.getState());
+            assertPreviousClusterRestored();
+        } finally {
+            jobManager.destroy();
+            executors.destroy();
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void bootstrapsStreamingStandby() throws Exception {
+        for (String tool : Arrays.asList("pg_basebackup", "pg_isready", "psql")) {
+            assumeTrue(Files.exists(BIN_PATH.resolve(tool)), tool + " not found");
+        }
+        TestPostgres primary = createCluster("primary");
+        PostgresConfigFile primaryConfig = PostgresConfigFile.read(primary.getConfigPath());
+        primaryConfig.set("wal_level", "replica");
+        primaryConfig.set("max_wal_senders", "4");
+        primaryConfig.write(primary.getConfigPath());
+        primary.start();
+        primary.sql("CREATE ROLE replication WITH REPLICATION LOGIN PASSWORD '" + PASSWORD + "'", false);
+        primary.sql("CREATE TABLE data AS SELECT g AS id, md5(g::text) AS value FROM generate_series(1, 10000) g", false);
+
+        createBootstrap().bootstrap("127.0.0.1", primary.port, this::onProgress);
+
+        assertEquals("t", local.query("SELECT pg_is_in_recovery()"));
+        assertEquals("10000", local.query("SELECT count(*) FROM data"));
+        assertFalse(Files.exists(local.getDataPath().resolve(MARKER)));
+        assertFalse(Files.exists(local.getBackupPath()));
+        primary.sql("INSERT INTO data VALUES (0, 'streamed')", false);
+        assertTrue(waitFor(() -> "streamed".equals(local.query("SELECT value FROM data WHERE id = 0")), 10));
+        for (int i = 1; i < progress.size(); i++) {
+            assertTrue(progress.get(i) >= progress.get(i - 1), progress.toString());
+        }
+    }
+
+    private void assertPreviousClusterRestored() {
+        assertTrue(local.isRunning(), "previous cluster not started");
+        assertTrue(Files.exists(local.getDataPath().resolve(MARKER)), "previous data directory not restored");
+        assertFalse(Files.exists(local.getBackupPath()));
+    }
+
+    private PostgresReplicaBootstrap createBootstrap() {
+        return new PostgresReplicaBootstrap(properties, shellSessionPool, local, new BaseBackupExecutor(new HardwareMetrics()));
+    }
+
+    private TestPostgres createCluster(String name) throws IOException, InterruptedException {
+        TestPostgres cluster = new TestPostgres(tempDir.resolve(name), freePort());
+        clusters.add(cluster);
+        Files.createDirectories(cluster.path);
+        if (ROOT) {
+            exec(Arrays.asList("chown", "nobody", cluster.path.toString()));
+        }
+        cluster.exec("initdb", "-D", cluster.getDataPath().toString(), "-U", "postgres", "--auth-local=trust", "--auth-host=md5");
+        return cluster;
+    }
+
+    // pg_isready always succeeds, pg_basebackup replaced by 'baseBackupScript'
+    private Path createTools(String baseBackupScript) throws IOException {
+        Path toolsPath = Files.createDirectories(tempDir.resolve("tools"));
+        writeScript(toolsPath.resolve("pg_isready"), "exit 0");
+        writeScript(toolsPath.resolve("pg_basebackup"), baseBackupScript);
+        return toolsPath;
+    }
+
+    private void onProgress(double value, String message) {
+        progress.add(value);
+    }
+
+    private static void writeScript(Path path, String script) throws IOException {
+        Files.write(path, Arrays.asList("#!/bin/sh", script), StandardCharsets.UTF_8);
+        Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rwxr-xr-x"));
+    }
+
+    private static Path findBinPath() {
+        String pgBin = System.getProperty("pgBin", "");
+        if (!pgBin.isEmpty()) {
+            return Paths.get(pgBin);
+        }
+        File[] versions = new File("/usr/lib/postgresql").listFiles();
+        if (versions == null) {
+            return null;
+        }
+        Path binPath = null;
+        for (File version : versions) {
+            Path path = version.toPath().resolve("bin");
+            if (Files.exists(path.resolve("pg_ctl")) && (binPath == null
+                    || Double.parseDouble(version.getName()) > Double.parseDouble(binPath.getParent().getFileName().toString()))) {
+                binPath = path;
+            }
+        }
+        return binPath;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static boolean waitFor(BooleanSupplier condition, int timeoutSec) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSec);
+        while (System.nanoTime() < deadline) {
+            if (condition.getAsBoolean()) {
+                return true;
+            }
+            TimeUnit.MILLISECONDS.sleep(200);
+        }
+        return false;
+    }
+
+    private static ShellResult exec(List<String> command) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).directory(new File("/")).redirectErrorStream(true).start();
+        process.getOutputStream().close();
+        List<String> output = IOUtils.readLines(process.getInputStream(), StandardCharsets.UTF_8);
+        int exitCode = process.waitFor();
+        return new ShellResult(exitCode, output, exitCode == 0 ? Collections.emptyList() : output);
+    }
+
+    /**
+     * Cluster in 'path/data' listening on loopback 'port' with unix socket in 'path'
+     */
+    private static class TestPostgres extends LocalPostgres {
+        private final Path path;
+        private final int port;
+        // pg_isready and pg_basebackup used by bootstrap
+        private Path toolsPath = BIN_PATH;
+
+        private TestPostgres(Path path, int port) {
+            super(null, null, null);
+            this.path = path;
+            this.port = port;
+        }
+
+        @Override
+        public Path getBinPath() {
+            return toolsPath;
+        }
+
+        @Override
+        public Path getDataPath() {
+            return path.resolve("data");
+        }
+
+        @Override
+        public Path getConfigPath() {
+            return getDataPath().resolve("postgresql.conf");
+        }
+
+        @Override
+        public Path getHbaPath() {
+            return getDataPath().resolve("pg_hba.conf");
+        }
+
+        @Override
+        public List<String> asOwner(List<String> command) {
+            List<String> ownerCommand = new ArrayList<>();
+            if (ROOT) {
+                ownerCommand.addAll(Arrays.asList("runuser", "-u", "nobody", "--"));
+            }
+            ownerCommand.addAll(command);
+            return ownerCommand;
+        }
+
+        @Override
+        public void stop() {
+            try {
+                ShellResult result = exec("pg_ctl", "-D", getDataPath().toString(), "-m", "fast", "-w", "stop");
+                if (result.getExitCode() != 0) {
+                    throw new ServerException("pg_ctl stop failed: " + result.getOutputAsString());
+                }
+            } catch (IOException | InterruptedException ex) {
+                throw new ServerException(ex);
+            }
+        }
+
+        @Override
+        public boolean start() {
+            try {
+                // restored or standby cluster listens own port, not the one copied from primary config
+                return exec("pg_ctl", "-D", getDataPath().toString(), "-l", path.resolve("postgresql.log").toString(),
+                        "-o", "-p " + port + " -k " + path + " -c listen_addresses=127.0.0.1", "-w", "start").getExitCode() == 0;
+            } catch (IOException | InterruptedException ex) {
+                throw new ServerException(ex);
+            }
+        }
+
+        @Override
+        public ShellResult sql(String sql, boolean ignoreOnError) {
+            try {
+                ShellResult result = exec(BIN_PATH.resolve("psql").toString(), "-h", path.toString(), "-p", String.valueOf(port),
+                        "-U", "postgres", "-d", "postgres", "-tAc", sql);
+                if (result.getExitCode() != 0 && !ignoreOnError) {
+                    throw new ServerException("psql failed: " + result.getOutputAsString());
+                }
+                return result;
+            } catch (IOException | InterruptedException ex) {
+                throw new ServerException(ex);
+            }
+        }
+
+        private String query(String sql) {
+            return sql(sql, true).getOutputAsString().trim();
+        }
+
+        private Path getBackupPath() {
+            return path.resolve("data.bak");
+        }
+
+        private boolean isRunning() {
+            try {
+                return exec("pg_ctl", "-D", getDataPath().toString(), "status").getExitCode() == 0;
+            } catch (IOException | InterruptedException ex) {
+                return false;
+            }
+        }
+
+        private void stopQuietly() {
+            if (isRunning()) {
+                stop();
+            }
+        }
+
+        private ShellResult exec(String tool, String... args) throws IOException, InterruptedException {
+            List<String> command = new ArrayList<>(Collections.singletonList(tool.startsWith("/") ? tool : BIN_PATH.resolve(tool).toString()));
+            command.addAll(Arrays.asList(args));
+            return PostgresReplicaBootstrapTest.exec(asOwner(command));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.touchhome.app.setup;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PostgresTunerTest {
+
+    @Test
+    void computeSettingsForSmallBoard() {
+        Map<String, String> settings = PostgresTuner.computeSettings(1024, 4, PostgresTuner.StorageType.SD_CARD, 20);
+
+        assertEquals("256MB", settings.get("shared_buffers"));
+        assertEquals("768MB", settings.get("effective_cache_size"));
+        assertEquals("64MB", settings.get("maintenance_work_mem"));
+        // (1GB - 256MB) / (20 * 3) / (4 / 2)
+        assertEquals("6553kB", settings.get("work_mem"));
+        assertEquals("7864kB", settings.get("wal_buffers"));
+        assertEquals("256MB", settings.get("min_wal_size"));
+        assertEquals("1GB", settings.get("max_wal_size"));
+        assertEquals("1.5", settings.get("random_page_cost"));
+        assertEquals("2", settings.get("effective_io_concurrency"));
+        assertEquals("20", settings.get("max_connections"));
+    }
+
+    @Test
+    void computeSettingsLimits() {
+        Map<String, String> tiny = PostgresTuner.computeSettings(256, 1, PostgresTuner.StorageType.HDD, 100);
+        assertEquals("1MB", tiny.get("work_mem"));
+        assertEquals("1966kB", tiny.get("wal_buffers"));
+        assertEquals("4.0", tiny.get("random_page_cost"));
+
+        Map<String, String> large = PostgresTuner.computeSettings(64 * 1024, 16, PostgresTuner.StorageType.SSD, 100);
+        assertEquals("2048MB", large.get("maintenance_work_mem"));
+        assertEquals("16MB", large.get("wal_buffers"));
+        assertEquals("2GB", large.get("max_wal_size"));
+        assertEquals("200", large.get("effective_io_concurrency"));
+    }
+
+    @Test
+    void parseBenchmarkPrefersTpsWithoutConnectionTime() {
+        // postgresql 13 and earlier
+        PostgresTuneReport.Benchmark old = PostgresTuner.parseBenchmark(Arrays.asList(
+                "number of transactions actually processed: 3712",
+                "latency average = 32.413 ms",
+                "tps = 123.380711 (including connections establishing)",
+                "tps = 123.602356 (excluding connections establishing)"));
+        assertEquals(123.602356, old.getTps(), 0.000001);
+        assertEquals(32.413, old.getLatencyAvgMs(), 0.000001);
+
+        // postgresql 14+
+        PostgresTuneReport.Benchmark current = PostgresTuner.parseBenchmark(Arrays.asList(
+                "latency average = 12.345 ms",
+                "initial connection time = 8.512 ms",
+                "tps = 324.052118 (without initial connection time)"));
+        assertEquals(324.052118, current.getTps(), 0.000001);
+        assertEquals(12.345, current.getLatencyAvgMs(), 0.000001);
+    }
+
+    @Test
+    void parseBenchmarkOfFailedRun() {
+        PostgresTuneReport.Benchmark benchmark = PostgresTuner.parseBenchmark(Arrays.asList(
+                "pgbench: error: connection to server failed"));
+        assertEquals(0, benchmark.getTps());
+    }
+}
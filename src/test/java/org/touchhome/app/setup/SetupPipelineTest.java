@@ -0,0 +1,70 @@
+package org.touchhome.app.setup;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SetupPipelineTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void stepFailureIsRethrownAfterRunningStepsFinish() {
+        CountDownLatch failed = new CountDownLatch(1);
+        SetupPipeline pipeline = createPipeline(
+                new SetupStep("slow", "Slow", 1, progressBar -> failed.await(5, TimeUnit.SECONDS)),
+                new SetupStep("failing", "Failing", 1, progressBar -> {
+                    failed.countDown();
+                    throw new IOException("disk full");
+                }));
+
+        IOException ex = assertThrows(IOException.class, () -> pipeline.run((progress, message) -> {
+        }));
+
+        assertEquals("disk full", ex.getMessage());
+        assertFalse(pipeline.isFinished());
+    }
+
+    @Test
+    void stepErrorDoesNotBreakPipeline() {
+        SetupPipeline pipeline = createPipeline(
+                new SetupStep("first", "First", 1, progressBar -> {
+                }),
+                new SetupStep("failing", "Failing", 1, progressBar -> {
+                    throw new AssertionError("unexpected state");
+                }, "first"));
+
+        Exception ex = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> assertThrows(Exception.class, () -> pipeline.run((progress, message) -> {
+                })));
+
+        assertTrue(ex.getCause() instanceof AssertionError, String.valueOf(ex));
+    }
+
+    private SetupPipeline createPipeline(SetupStep... steps) {
+        return new SetupPipeline(Arrays.asList(steps), tempDir.resolve("setup-checkpoint.json"), executor);
+    }
+}